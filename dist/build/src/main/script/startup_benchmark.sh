@@ -0,0 +1,69 @@
+#!/bin/sh
+
+#
+# Copyright 2024 Red Hat, Inc. and/or its affiliates
+# and other contributors as indicated by the @author tags.
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#   http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Compares the startup time of a distribution with and without the Class Data Sharing archive.
+#
+# Usage: startup_benchmark.sh <distribution-dir> [runs] [command...]
+#   e.g. startup_benchmark.sh dist/build/target/prospero-1.4.0 10 history --dir /opt/wildfly
+
+if [ $# -lt 1 ]; then
+    echo "Usage: $0 <distribution-dir> [runs] [command...]"
+    exit 1
+fi
+
+DIST_HOME=`cd "$1"; pwd`
+shift
+RUNS=10
+if [ $# -gt 0 ]; then
+    RUNS=$1
+    shift
+fi
+if [ $# -eq 0 ]; then
+    set -- --help
+fi
+
+LAUNCHER=`ls "$DIST_HOME"/bin/*.sh | grep -v common.sh | head -1`
+ARCHIVE="$DIST_HOME/bin/benchmark.jsa"
+
+# prints the average wall time of the command in milliseconds
+measure() {
+    TOTAL=0
+    i=0
+    while [ $i -lt $RUNS ]; do
+        START=`date +%s%N`
+        "$LAUNCHER" "$@" > /dev/null 2>&1
+        END=`date +%s%N`
+        TOTAL=$((TOTAL + (END - START) / 1000000))
+        i=$((i + 1))
+    done
+    echo $((TOTAL / RUNS))
+}
+
+PROSPERO_CDS_ARCHIVE="$ARCHIVE" "$LAUNCHER" --generate-cds || exit 1
+
+# warm up the filesystem caches
+PROSPERO_CDS_ARCHIVE="$ARCHIVE" "$LAUNCHER" "$@" > /dev/null 2>&1
+
+WITHOUT_CDS=`PROSPERO_CDS_ARCHIVE="$DIST_HOME/bin/non-existent.jsa" measure "$@"`
+WITH_CDS=`PROSPERO_CDS_ARCHIVE="$ARCHIVE" measure "$@"`
+rm -f "$ARCHIVE"
+
+echo "Average startup of '$*' over $RUNS runs:"
+echo "  without CDS archive: ${WITHOUT_CDS} ms"
+echo "  with CDS archive:    ${WITH_CDS} ms"
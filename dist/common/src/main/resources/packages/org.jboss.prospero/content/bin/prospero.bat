@@ -45,6 +45,9 @@ if "%~1" == "" (
    set SECMGR=true
 ) else if "%~1" == "--no-load-common" (
    set LOAD_COMMON=false
+) else if "%~1" == "--generate-cds" (
+   set GENERATE_CDS=true
+   set "PARAMS=%PARAMS%%1 "
 ) else (
    set "PARAMS=%PARAMS%%1 "
 )
@@ -250,6 +253,14 @@ if not errorlevel == 1 (
 )
 setlocal DisableDelayedExpansion
 
+rem Class Data Sharing archive created by "--generate-cds". If present, it is used to speed up the startup.
+if "x%PROSPERO_CDS_ARCHIVE%" == "x" (
+  set "PROSPERO_CDS_ARCHIVE=%PROSPERO_HOME%\bin\${prospero.dist.name}.jsa"
+)
+if "%GENERATE_CDS%" == "true" goto GENERATE_CDS
+rem an archive created by a different JVM is ignored
+if exist "%PROSPERO_CDS_ARCHIVE%" set "JAVA_OPTS=%JAVA_OPTS% -XX:SharedArchiveFile="%PROSPERO_CDS_ARCHIVE%" -Xshare:auto -Xlog:cds=off"
+
 :RESTART
   "%JAVA%" %JAVA_OPTS% ^
       -jar "%TMP_JBOSS_MODULES%" ^
@@ -265,6 +276,29 @@ if %errorlevel% equ 10 (
     goto END_NO_PAUSE
 )
 
+rem the archive is written to a temporary file first, the JVM can't use a partially written archive
+rem a dynamic archive (JDK 13+) includes the classes loaded from the modules
+:GENERATE_CDS
+set "CDS_TMP_ARCHIVE=%PROSPERO_CDS_ARCHIVE%.%RANDOM%.tmp"
+"%JAVA%" %JAVA_OPTS% -XX:ArchiveClassesAtExit="%CDS_TMP_ARCHIVE%" -Xlog:cds=off ^
+    -jar "%TMP_JBOSS_MODULES%" ^
+    %MODULE_OPTS% ^
+    -mp "%JBOSS_MODULEPATH%" ^
+    org.jboss.prospero ^
+    %PARAMS% >nul 2>&1
+if errorlevel 1 goto CDS_FAILED
+if not exist "%CDS_TMP_ARCHIVE%" goto CDS_FAILED
+move /Y "%CDS_TMP_ARCHIVE%" "%PROSPERO_CDS_ARCHIVE%" >nul
+if errorlevel 1 goto CDS_FAILED
+echo Class Data Sharing archive created at %PROSPERO_CDS_ARCHIVE%
+goto END_NO_PAUSE
+
+:CDS_FAILED
+if exist "%CDS_TMP_ARCHIVE%" del /Q "%CDS_TMP_ARCHIVE%"
+echo Unable to create Class Data Sharing archive at %PROSPERO_CDS_ARCHIVE%
+cmd /c exit 1
+goto END_NO_PAUSE
+
 :END
 if "x%NOPAUSE%" == "x" pause
 
@@ -299,6 +299,26 @@ Function Get-Java-Arguments {
 
     }
 
+    if ($GENERATE_CDS) {
+
+        # a dynamic archive (JDK 13+) includes the classes loaded from the modules
+
+        $PROG_ARGS += "-XX:ArchiveClassesAtExit=$CDS_TMP_ARCHIVE"
+
+        $PROG_ARGS += "-Xlog:cds=off"
+
+    } elseif (Test-Path $PROSPERO_CDS_ARCHIVE) {
+
+        # an archive created by a different JVM is ignored
+
+        $PROG_ARGS += "-XX:SharedArchiveFile=$PROSPERO_CDS_ARCHIVE"
+
+        $PROG_ARGS += "-Xshare:auto"
+
+        $PROG_ARGS += "-Xlog:cds=off"
+
+    }
+
     $PROG_ARGS += "-jar"
 
     $PROG_ARGS += "$TMP_JBOSS_MODULES"
@@ -325,6 +345,12 @@ function Get-RandomFilename {
 
 $JAVA_OPTS = Get-Java-Opts
 
+# Class Data Sharing archive created by "--generate-cds". If present, it is used to speed up the startup.
+$PROSPERO_CDS_ARCHIVE = Get-Env PROSPERO_CDS_ARCHIVE "$PROSPERO_HOME\bin\${prospero.dist.name}.jsa"
+$GENERATE_CDS = $args -contains "--generate-cds"
+# the archive is written to a temporary file first, the JVM can't use a partially written archive
+$CDS_TMP_ARCHIVE = "$PROSPERO_CDS_ARCHIVE.$(Get-RandomFilename).tmp"
+
 # Use a copy of jboss-modules to avoid locking issues when jboss-modules is updated
 $TMP_JBOSS_MODULES = "$PROSPERO_HOME\jboss-modules-$(Get-RandomFilename).jar"
 while(Test-Path "$TMP_JBOSS_MODULES"){
@@ -339,7 +365,39 @@ try
 {
     $PROG_ARGS = Get-Java-Arguments -entryModule "org.jboss.prospero" -serverOpts $SERVER_OPTS
 
-    & $JAVA $PROG_ARGS
+    if ($GENERATE_CDS) {
+
+        if ($PROG_ARGS -notcontains "--generate-cds") {
+
+            $PROG_ARGS += "--generate-cds"
+
+        }
+
+        & $JAVA $PROG_ARGS *> $null
+
+        if (($LastExitCode -eq 0) -and (Test-Path $CDS_TMP_ARCHIVE)) {
+
+            Move-Item -Force $CDS_TMP_ARCHIVE $PROSPERO_CDS_ARCHIVE
+
+            echo "Class Data Sharing archive created at $PROSPERO_CDS_ARCHIVE"
+
+        } else {
+
+            if (Test-Path $CDS_TMP_ARCHIVE) {
+
+                Remove-Item $CDS_TMP_ARCHIVE
+
+            }
+
+            echo "Unable to create Class Data Sharing archive at $PROSPERO_CDS_ARCHIVE"
+
+        }
+
+    } else {
+
+        & $JAVA $PROG_ARGS
+
+    }
 } finally {
     Remove-Item $TMP_JBOSS_MODULES
 }
@@ -90,6 +90,54 @@ do
     ARGS="${ARGS} \"$var\""
 done
 
+# Class Data Sharing archive created by "prospero.sh --generate-cds". If present, it is used to speed up the startup.
+if [ "x$PROSPERO_CDS_ARCHIVE" = "x" ]; then
+    PROSPERO_CDS_ARCHIVE="$PROSPERO_HOME/bin/${prospero.dist.name}.jsa"
+fi
+
+runCdsTraining() {
+    eval \"$JAVA\" $JAVA_OPTS "$@" -Xlog:cds=off -XX:ErrorFile=\""$CDS_WORK_DIR"/hs_err_%p.log\" \
+     -jar \""$PROSPERO_HOME"/jboss-modules.jar\" -mp \""${JBOSS_MODULEPATH}"\" org.jboss.prospero --generate-cds \
+     >> "$CDS_WORK_DIR/training.log" 2>&1
+}
+
+if [ "$1" = "--generate-cds" ]; then
+    CDS_WORK_DIR=`mktemp -d`
+    # the archive is written to a temporary file first, the JVM can't use a partially written archive
+    # a dynamic archive (JDK 13+) includes the classes loaded from the modules
+    runCdsTraining -XX:ArchiveClassesAtExit=\""$CDS_WORK_DIR"/archive.jsa\"
+    STATUS=$?
+    if [ $STATUS -ne 0 ] || [ ! -f "$CDS_WORK_DIR/archive.jsa" ]; then
+        # fall back to a static archive of the JDK classes used by the CLI
+        rm -f "$CDS_WORK_DIR/archive.jsa"
+        runCdsTraining -XX:DumpLoadedClassList=\""$CDS_WORK_DIR"/classes.lst\"
+        STATUS=$?
+        if [ $STATUS -eq 0 ]; then
+            # archiving lambda proxy classes crashes some JDK 17 builds, those are left out
+            $GREP -v "^@lambda-proxy" "$CDS_WORK_DIR/classes.lst" > "$CDS_WORK_DIR/classes-filtered.lst"
+            "$JAVA" -Xshare:dump -XX:SharedClassListFile="$CDS_WORK_DIR/classes-filtered.lst" \
+             -XX:SharedArchiveFile="$CDS_WORK_DIR/archive.jsa" -Xlog:cds=off \
+             -cp "$PROSPERO_HOME/jboss-modules.jar" >> "$CDS_WORK_DIR/training.log" 2>&1
+            STATUS=$?
+        fi
+    fi
+
+    if [ $STATUS -eq 0 ] && mv -f "$CDS_WORK_DIR/archive.jsa" "$PROSPERO_CDS_ARCHIVE"; then
+        echo "Class Data Sharing archive created at $PROSPERO_CDS_ARCHIVE"
+    else
+        cat "$CDS_WORK_DIR/training.log"
+        echo "Unable to create Class Data Sharing archive at $PROSPERO_CDS_ARCHIVE"
+        STATUS=1
+    fi
+    rm -rf "$CDS_WORK_DIR"
+    exit $STATUS
+fi
+
+if [ -r "$PROSPERO_CDS_ARCHIVE" ]; then
+    # an archive created by a different JVM is ignored
+    JAVA_OPTS="$JAVA_OPTS -XX:SharedArchiveFile=\"$PROSPERO_CDS_ARCHIVE\" -Xshare:auto -Xlog:cds=off"
+fi
+
 LOG_CONF=`echo $JAVA_OPTS | grep "logging.configuration"`
 LOG_FILE_CONF=`echo $JAVA_OPTS | grep "org.wildfly.prospero.log.file"`
 if [ "x$LOG_CONF" = "x" ]; then
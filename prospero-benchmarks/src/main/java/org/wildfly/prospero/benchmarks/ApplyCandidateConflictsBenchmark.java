@@ -0,0 +1,170 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.jboss.galleon.Constants;
+import org.jboss.galleon.ProvisioningManager;
+import org.jboss.galleon.creator.FeaturePackCreator;
+import org.jboss.galleon.creator.PackageBuilder;
+import org.jboss.galleon.repo.RepositoryArtifactResolver;
+import org.jboss.galleon.universe.FeaturePackLocation;
+import org.jboss.galleon.universe.maven.repo.SimplisticMavenRepoManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.channel.Channel;
+import org.wildfly.channel.ChannelManifest;
+import org.wildfly.channel.ChannelManifestCoordinate;
+import org.wildfly.channel.ChannelManifestMapper;
+import org.wildfly.channel.ChannelMapper;
+import org.wildfly.channel.Repository;
+import org.wildfly.prospero.actions.ApplyCandidateAction;
+import org.wildfly.prospero.api.FileConflict;
+import org.wildfly.prospero.installation.git.GitStorage;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+import org.wildfly.prospero.updates.MarkerFile;
+
+/**
+ * Measures the conflict detection between an installation and an update candidate provisioned from synthetic feature
+ * packs with {@code files} files. The update changes every 10th file, the installation has every 20th file modified
+ * and every 50th file removed by the user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ApplyCandidateConflictsBenchmark {
+
+    private static final String FPL_100 = "org.benchmark:pack:1.0.0:zip";
+    private static final String FPL_101 = "org.benchmark:pack:1.0.1:zip";
+
+    @Param({"1000", "10000"})
+    public int files;
+
+    @Param({"4096"})
+    public int fileSize;
+
+    @Param({"true", "false"})
+    public boolean useRecordedHashes;
+
+    private Path tempDir;
+    private Path installationDir;
+    private Path candidateDir;
+    private String originalUseRecordedHashes;
+
+    @Setup
+    public void setUp() throws Exception {
+        originalUseRecordedHashes = System.getProperty(ApplyCandidateAction.USE_RECORDED_HASHES_PROPERTY);
+        System.setProperty(ApplyCandidateAction.USE_RECORDED_HASHES_PROPERTY, String.valueOf(useRecordedHashes));
+
+        tempDir = Files.createTempDirectory("apply-benchmark");
+        installationDir = tempDir.resolve("installation");
+        candidateDir = tempDir.resolve("candidate");
+
+        final RepositoryArtifactResolver repo = SimplisticMavenRepoManager.getInstance(tempDir.resolve("repository"));
+        final FeaturePackCreator creator = FeaturePackCreator.getInstance().addArtifactResolver(repo);
+        createFeaturePack(creator, FPL_100, "1.0.0");
+        createFeaturePack(creator, FPL_101, "1.0.1");
+        creator.install();
+
+        install(repo, installationDir, FPL_100);
+        install(repo, candidateDir, FPL_101);
+        try (GitStorage gitStorage = new GitStorage(installationDir)) {
+            final String revision = gitStorage.getRevisions().get(0).getName();
+            new MarkerFile(revision, ApplyCandidateAction.Type.UPDATE).write(candidateDir);
+        }
+
+        for (int i = 0; i < files; i++) {
+            final Path file = installationDir.resolve(path(i));
+            if (i % 50 == 0) {
+                Files.delete(file);
+            } else if (i % 20 == 0) {
+                Files.writeString(file, "user change " + i);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (originalUseRecordedHashes == null) {
+            System.clearProperty(ApplyCandidateAction.USE_RECORDED_HASHES_PROPERTY);
+        } else {
+            System.setProperty(ApplyCandidateAction.USE_RECORDED_HASHES_PROPERTY, originalUseRecordedHashes);
+        }
+        FileUtils.deleteQuietly(tempDir.toFile());
+    }
+
+    @Benchmark
+    public List<FileConflict> getConflicts() throws Exception {
+        return new ApplyCandidateAction(installationDir, candidateDir).getConflicts();
+    }
+
+    private void createFeaturePack(FeaturePackCreator creator, String fpl, String version) {
+        final PackageBuilder pkg = creator.newFeaturePack(FeaturePackLocation.fromString(fpl).getFPID())
+                .newPackage("p1", true);
+        final String padding = "x".repeat(fileSize);
+        for (int i = 0; i < files; i++) {
+            final String fileVersion = i % 10 == 0 ? version : "1.0.0";
+            pkg.writeContent(path(i), "file " + i + " " + fileVersion + " " + padding);
+        }
+    }
+
+    private static void install(RepositoryArtifactResolver repo, Path path, String fpl) throws Exception {
+        final HashMap<String, String> options = new HashMap<>();
+        options.put(Constants.EXPORT_SYSTEM_PATHS, "true");
+        try (ProvisioningManager pm = ProvisioningManager.builder()
+                .addArtifactResolver(repo)
+                .setInstallationHome(path)
+                .setRecordState(true)
+                .build()) {
+            pm.install(FeaturePackLocation.fromString(fpl), options);
+        }
+
+        final Path metadataDir = Files.createDirectory(path.resolve(ProsperoMetadataUtils.METADATA_DIR));
+        Files.writeString(metadataDir.resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME),
+                ChannelManifestMapper.toYaml(new ChannelManifest("manifest " + fpl, null, null, List.of())));
+        Files.writeString(metadataDir.resolve(ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME), ChannelMapper.toYaml(
+                new Channel("channel " + fpl, null, null, List.of(new Repository("benchmark", "file:/benchmark")),
+                        new ChannelManifestCoordinate("org.benchmark", "manifest"), null, null)));
+        try (GitStorage gitStorage = new GitStorage(path)) {
+            gitStorage.record();
+        }
+    }
+
+    private static String path(int i) {
+        return "modules/dir" + (i % 100) + "/file" + i + ".txt";
+    }
+}
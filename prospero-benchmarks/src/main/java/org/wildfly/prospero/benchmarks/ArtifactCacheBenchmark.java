@@ -0,0 +1,121 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.channel.MavenArtifact;
+import org.wildfly.prospero.galleon.ArtifactCache;
+
+/**
+ * Measures lookups and updates of the {@link ArtifactCache} in an installation with {@code artifacts} recorded jars.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArtifactCacheBenchmark {
+
+    private static final String GROUP_ID = "org.benchmark";
+
+    @Param({"100", "1000"})
+    public int artifacts;
+
+    @Param({"1024", "1048576"})
+    public int artifactSize;
+
+    @Param({"false", "true"})
+    public boolean alwaysVerifyHashes;
+
+    private Path installationDir;
+    private ArtifactCache cache;
+    private List<MavenArtifact> recorded;
+
+    @Setup
+    public void setUp() throws IOException {
+        installationDir = Files.createTempDirectory("cache-benchmark");
+        final Path modulesDir = Files.createDirectories(installationDir.resolve("modules"));
+        final Random random = new Random(artifacts);
+        final byte[] content = new byte[artifactSize];
+
+        recorded = new ArrayList<>(artifacts);
+        for (int i = 0; i < artifacts; i++) {
+            random.nextBytes(content);
+            final Path file = modulesDir.resolve("artifact-" + i + "-1.0.0.jar");
+            Files.write(file, content);
+            recorded.add(new MavenArtifact(GROUP_ID, "artifact-" + i, "jar", null, "1.0.0", file.toFile()));
+        }
+
+        ArtifactCache.cleanInstancesCache();
+        cache = ArtifactCache.getInstance(installationDir);
+        cache.setAlwaysVerifyHashes(alwaysVerifyHashes);
+        cache.recordAll(recorded);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ArtifactCache.cleanInstancesCache();
+        FileUtils.deleteQuietly(installationDir.toFile());
+    }
+
+    @Benchmark
+    public Optional<File> getArtifact() {
+        final MavenArtifact artifact = randomArtifact();
+        return cache.getArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(),
+                artifact.getClassifier(), artifact.getVersion());
+    }
+
+    @Benchmark
+    public Optional<File> getMissingArtifact() {
+        return cache.getArtifact(GROUP_ID, "missing", "jar", null, "1.0.0");
+    }
+
+    @Benchmark
+    public void record() throws IOException {
+        final MavenArtifact artifact = randomArtifact();
+        cache.record(artifact, artifact.getFile().toPath());
+    }
+
+    private MavenArtifact randomArtifact() {
+        return recorded.get(ThreadLocalRandom.current().nextInt(recorded.size()));
+    }
+}
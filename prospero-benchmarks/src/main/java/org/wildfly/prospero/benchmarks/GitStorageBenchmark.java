@@ -0,0 +1,135 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.channel.Channel;
+import org.wildfly.channel.ChannelManifest;
+import org.wildfly.channel.ChannelManifestCoordinate;
+import org.wildfly.channel.ChannelManifestMapper;
+import org.wildfly.channel.ChannelMapper;
+import org.wildfly.channel.Repository;
+import org.wildfly.channel.Stream;
+import org.wildfly.prospero.api.ArtifactChange;
+import org.wildfly.prospero.api.SavedState;
+import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.installation.git.GitStorage;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+
+/**
+ * Measures reading the history of an installation that has been updated {@code revisions} times. Each update changes
+ * the version of {@code changesPerRevision} streams of a manifest with {@code streams} streams.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitStorageBenchmark {
+
+    @Param({"100", "1000"})
+    public int revisions;
+
+    @Param({"500"})
+    public int streams;
+
+    @Param({"10"})
+    public int changesPerRevision;
+
+    private Path installationDir;
+    private GitStorage gitStorage;
+    private SavedState middleRevision;
+
+    @Setup
+    public void setUp() throws IOException, MetadataException {
+        installationDir = Files.createTempDirectory("history-benchmark");
+        final Path metadataDir = Files.createDirectories(installationDir.resolve(ProsperoMetadataUtils.METADATA_DIR));
+        Files.writeString(metadataDir.resolve(ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME), ChannelMapper.toYaml(
+                new Channel("benchmark", null, null, List.of(new Repository("benchmark", "file:/benchmark")),
+                        new ChannelManifestCoordinate("org.benchmark", "manifest"), null, null)));
+
+        final int[] versions = new int[streams];
+        writeManifest(metadataDir, versions);
+        try (GitStorage storage = new GitStorage(installationDir)) {
+            storage.record();
+            for (int revision = 1; revision < revisions; revision++) {
+                for (int i = 0; i < changesPerRevision; i++) {
+                    versions[(revision * changesPerRevision + i) % streams]++;
+                }
+                writeManifest(metadataDir, versions);
+                storage.recordChange(SavedState.Type.UPDATE);
+            }
+        }
+
+        gitStorage = new GitStorage(installationDir);
+        final List<SavedState> history = gitStorage.getRevisions();
+        middleRevision = history.get(history.size() / 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        gitStorage.close();
+        FileUtils.deleteQuietly(installationDir.toFile());
+    }
+
+    @Benchmark
+    public List<SavedState> getRevisions() throws MetadataException {
+        return gitStorage.getRevisions();
+    }
+
+    @Benchmark
+    public List<SavedState> openAndGetRevisions() throws MetadataException {
+        try (GitStorage storage = new GitStorage(installationDir)) {
+            return storage.getRevisions();
+        }
+    }
+
+    @Benchmark
+    public List<ArtifactChange> getArtifactChanges() throws MetadataException {
+        return gitStorage.getArtifactChanges(middleRevision);
+    }
+
+    private static void writeManifest(Path metadataDir, int[] versions) throws IOException {
+        final List<Stream> list = new ArrayList<>(versions.length);
+        for (int i = 0; i < versions.length; i++) {
+            list.add(new Stream("org.benchmark", "artifact-" + i, "1.0." + versions[i] + ".Final"));
+        }
+        Files.writeString(metadataDir.resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME),
+                ChannelManifestMapper.toYaml(new ChannelManifest("benchmark", null, null, list)));
+    }
+}
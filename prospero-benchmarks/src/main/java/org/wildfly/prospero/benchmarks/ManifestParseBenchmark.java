@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.channel.ChannelManifest;
+import org.wildfly.channel.ChannelManifestMapper;
+import org.wildfly.channel.Stream;
+import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.model.ManifestYamlSupport;
+
+/**
+ * Measures parsing of an installation manifest with {@code streams} streams.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ManifestParseBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int streams;
+
+    private Path tempDir;
+    private File manifestFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("manifest-benchmark");
+        manifestFile = tempDir.resolve("manifest.yaml").toFile();
+        Files.writeString(manifestFile.toPath(), ChannelManifestMapper.toYaml(manifest(streams)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(tempDir.toFile());
+    }
+
+    @Benchmark
+    public ChannelManifest parse() throws IOException, MetadataException {
+        return ManifestYamlSupport.parse(manifestFile);
+    }
+
+    static ChannelManifest manifest(int streams) {
+        final List<Stream> list = new ArrayList<>(streams);
+        for (int i = 0; i < streams; i++) {
+            list.add(new Stream("org.benchmark.group" + (i % 50), "artifact-" + i, "1.0." + i + ".Final"));
+        }
+        return new ChannelManifest("benchmark", "benchmark", "Generated benchmark manifest", list);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.artifact.Artifact;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.jboss.galleon.ProvisioningException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wildfly.channel.Channel;
+import org.wildfly.channel.ChannelManifest;
+import org.wildfly.channel.ChannelManifestMapper;
+import org.wildfly.channel.ChannelSession;
+import org.wildfly.channel.Stream;
+import org.wildfly.channel.maven.VersionResolverFactory;
+import org.wildfly.prospero.api.MavenOptions;
+import org.wildfly.prospero.api.exceptions.ArtifactResolutionException;
+import org.wildfly.prospero.updates.UpdateFinder;
+import org.wildfly.prospero.updates.UpdateSet;
+import org.wildfly.prospero.wfchannel.MavenSessionManager;
+
+/**
+ * Measures searching for updates of an installation with {@code artifacts} artifacts in a local file repository.
+ * Every other artifact has {@code versions} newer versions available. Each invocation uses a new Maven session,
+ * same as a single {@code update list} command would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UpdateFinderBenchmark {
+
+    private static final String GROUP_ID = "org.benchmark";
+
+    @Param({"100", "500"})
+    public int artifacts;
+
+    @Param({"20"})
+    public int versions;
+
+    @Param({"1", "10"})
+    public int parallelism;
+
+    private Path tempDir;
+    private MavenSessionManager sessionManager;
+    private List<Channel> channels;
+    private List<Artifact> installed;
+
+    @Setup
+    public void setUp() throws IOException, NoSuchAlgorithmException, ProvisioningException {
+        tempDir = Files.createTempDirectory("update-finder-benchmark");
+        final Path repository = Files.createDirectories(tempDir.resolve("repository"));
+
+        final List<Stream> streams = new ArrayList<>(artifacts);
+        installed = new ArrayList<>(artifacts);
+        for (int i = 0; i < artifacts; i++) {
+            final String artifactId = "artifact-" + i;
+            writeMetadata(repository, artifactId, i % 2 == 0 ? versions : 0);
+            streams.add(new Stream(GROUP_ID, artifactId, Pattern.compile(".*")));
+            installed.add(new DefaultArtifact(GROUP_ID, artifactId, "jar", "1.0.0"));
+        }
+
+        final Path manifest = tempDir.resolve("manifest.yaml");
+        Files.writeString(manifest, ChannelManifestMapper.toYaml(new ChannelManifest("benchmark", null, null, streams)));
+        channels = List.of(new Channel.Builder()
+                .setName("benchmark")
+                .addRepository("benchmark", repository.toUri().toString())
+                .setManifestUrl(manifest.toUri().toURL())
+                .build());
+
+        sessionManager = new MavenSessionManager(MavenOptions.builder()
+                .setOffline(true)
+                .setLocalCachePath(Files.createDirectories(tempDir.resolve("local-repository")))
+                .build());
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(tempDir.toFile());
+    }
+
+    @Benchmark
+    public UpdateSet findUpdates() throws ArtifactResolutionException {
+        final RepositorySystem system = sessionManager.newRepositorySystem();
+        final VersionResolverFactory factory = new VersionResolverFactory(system, sessionManager.newRepositorySystemSession(system));
+        try (ChannelSession channelSession = new ChannelSession(channels, factory);
+             UpdateFinder updateFinder = new UpdateFinder(channelSession, parallelism)) {
+            return updateFinder.findUpdates(installed);
+        }
+    }
+
+    /*
+     * channel repositories require checksums, the metadata would be rejected without the .sha1 file
+     */
+    private static void writeMetadata(Path repository, String artifactId, int newerVersions) throws IOException, NoSuchAlgorithmException {
+        final StringBuilder versionList = new StringBuilder("      <version>1.0.0</version>\n");
+        String latest = "1.0.0";
+        for (int i = 1; i <= newerVersions; i++) {
+            latest = "1.0." + i;
+            versionList.append("      <version>").append(latest).append("</version>\n");
+        }
+
+        final Path artifactDir = Files.createDirectories(repository.resolve(GROUP_ID.replace('.', '/')).resolve(artifactId));
+        final String metadata = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<metadata>\n"
+                + "  <groupId>" + GROUP_ID + "</groupId>\n"
+                + "  <artifactId>" + artifactId + "</artifactId>\n"
+                + "  <versioning>\n"
+                + "    <latest>" + latest + "</latest>\n"
+                + "    <release>" + latest + "</release>\n"
+                + "    <versions>\n"
+                + versionList
+                + "    </versions>\n"
+                + "    <lastUpdated>20240101000000</lastUpdated>\n"
+                + "  </versioning>\n"
+                + "</metadata>\n";
+        Files.writeString(artifactDir.resolve("maven-metadata.xml"), metadata);
+
+        final StringBuilder sha1 = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-1").digest(metadata.getBytes(StandardCharsets.UTF_8))) {
+            sha1.append(String.format("%02x", b));
+        }
+        Files.writeString(artifactDir.resolve("maven-metadata.xml.sha1"), sha1);
+    }
+}
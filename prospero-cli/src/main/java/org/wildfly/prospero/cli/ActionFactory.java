@@ -30,6 +30,7 @@ import org.wildfly.prospero.actions.InstallationExportAction;
 import org.wildfly.prospero.actions.InstallationHistoryAction;
 import org.wildfly.prospero.actions.InstallationRestoreAction;
 import org.wildfly.prospero.actions.MetadataAction;
+import org.wildfly.prospero.actions.MultiApplyCandidateAction;
 import org.wildfly.prospero.actions.PromoteArtifactBundleAction;
 import org.wildfly.prospero.actions.ProvisioningAction;
 import org.wildfly.prospero.actions.UpdateAction;
@@ -57,6 +58,22 @@ public class ActionFactory {
         return new ApplyCandidateAction(installationPath, updatePath);
     }
 
+    /**
+     * applies a candidate created by the command in a temporary directory, see
+     * {@link ApplyCandidateAction#forTemporaryCandidate(Path, Path)}
+     */
+    public ApplyCandidateAction applyTemporaryCandidate(Path installationPath, Path candidatePath)
+            throws OperationException,
+            ProvisioningException {
+        return ApplyCandidateAction.forTemporaryCandidate(installationPath, candidatePath);
+    }
+
+    public MultiApplyCandidateAction applyUpdates(List<Path> installationPaths, Path updatePath)
+            throws OperationException,
+            ProvisioningException {
+        return new MultiApplyCandidateAction(installationPaths, updatePath);
+    }
+
     public InstallationHistoryAction history(Path targetPath, Console console) {
         return new InstallationHistoryAction(targetPath, console);
     }
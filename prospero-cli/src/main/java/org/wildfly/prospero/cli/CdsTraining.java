@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli;
+
+import org.apache.commons.io.FileUtils;
+import org.jboss.logging.Logger;
+import org.wildfly.channel.Channel;
+import org.wildfly.channel.ChannelManifest;
+import org.wildfly.channel.ChannelManifestCoordinate;
+import org.wildfly.channel.ChannelManifestMapper;
+import org.wildfly.channel.Stream;
+import org.wildfly.prospero.api.InstallationMetadata;
+import org.wildfly.prospero.cli.commands.CliConstants;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
+import org.wildfly.prospero.model.ProsperoConfig;
+import picocli.CommandLine;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Training run used to create a Class Data Sharing archive of the distribution ({@code prospero.sh --generate-cds}).
+ *
+ * The JVM archives the classes loaded during the run, so the run executes the commands commonly used to inspect
+ * an installation, against a temporary installation with an empty local repository. The output of the commands
+ * is discarded. The run fails if the commands reading the installation fail, as they would not load the classes
+ * used by a real installation. The failures of the update commands are ignored, those have no updates to find.
+ */
+class CdsTraining {
+
+    private static final Logger LOG = Logger.getLogger(CdsTraining.class);
+
+    private static final String PROVISIONING_XML = "<?xml version=\"1.0\" ?>" + System.lineSeparator()
+            + "<installation xmlns=\"urn:jboss:galleon:provisioning:3.0\"/>" + System.lineSeparator();
+
+    private CdsTraining() {
+    }
+
+    static int run() {
+        Path workDir = null;
+        try {
+            workDir = Files.createTempDirectory("prospero-cds");
+            final Path installation = createInstallation(workDir);
+            final String dir = installation.toString();
+
+            execute(CliConstants.HELP);
+            printUsage(CliMain.createCommandLine(newConsole(), new String[0]));
+            final int historyCode = execute(CliConstants.Commands.HISTORY, CliConstants.DIR, dir);
+            final int channelCode = execute(CliConstants.Commands.CHANNEL, CliConstants.Commands.LIST, CliConstants.DIR, dir);
+            execute(CliConstants.Commands.UPDATE, CliConstants.Commands.LIST, CliConstants.DIR, dir, CliConstants.OFFLINE);
+            execute(CliConstants.Commands.UPDATE, CliConstants.Commands.PREPARE, CliConstants.DIR, dir, CliConstants.OFFLINE,
+                    CliConstants.CANDIDATE_DIR, workDir.resolve("candidate").toString(), CliConstants.YES);
+            if (historyCode != ReturnCodes.SUCCESS || channelCode != ReturnCodes.SUCCESS) {
+                return ReturnCodes.PROCESSING_ERROR;
+            }
+            return ReturnCodes.SUCCESS;
+        } catch (Exception e) {
+            CliMain.logException(e);
+            return ReturnCodes.PROCESSING_ERROR;
+        } finally {
+            if (workDir != null) {
+                FileUtils.deleteQuietly(workDir.toFile());
+            }
+        }
+    }
+
+    static Path createInstallation(Path workDir) throws Exception {
+        final Path installation = Files.createDirectories(workDir.resolve("installation"));
+        final Path repository = Files.createDirectories(workDir.resolve("repository"));
+        final Path manifestFile = workDir.resolve("manifest.yaml");
+        Files.writeString(manifestFile, ChannelManifestMapper.toYaml(
+                new ChannelManifest("training", null, null, List.of(new Stream("org.wildfly.prospero", "training", "1.0.0")))));
+
+        final Path galleonDir = Files.createDirectories(installation.resolve(InstallationMetadata.GALLEON_INSTALLATION_DIR));
+        Files.writeString(galleonDir.resolve(InstallationMetadata.PROVISIONING_FILE_NAME), PROVISIONING_XML);
+        Files.createDirectories(installation.resolve(ProsperoMetadataUtils.METADATA_DIR));
+
+        final Channel channel = new Channel.Builder()
+                .setName("training")
+                .addRepository("training", repository.toUri().toString())
+                .setManifestCoordinate(new ChannelManifestCoordinate(manifestFile.toUri().toURL()))
+                .build();
+        try (InstallationMetadata metadata = InstallationMetadata.newInstallation(installation,
+                ChannelManifestMapper.fromString(Files.readString(manifestFile)), new ProsperoConfig(List.of(channel)), Optional.empty())) {
+            metadata.recordProvision(true);
+        }
+        return installation;
+    }
+
+    static int execute(String... args) {
+        final CommandLine commandLine = CliMain.createCommandLine(newConsole(), args);
+        commandLine.setOut(new PrintWriter(PrintWriter.nullWriter()));
+        commandLine.setErr(new PrintWriter(PrintWriter.nullWriter()));
+        final int exitCode = commandLine.execute(args);
+        LOG.debugf("Training command %s finished with %d", String.join(" ", args), exitCode);
+        return exitCode;
+    }
+
+    private static void printUsage(CommandLine commandLine) {
+        commandLine.getUsageMessage();
+        for (Map.Entry<String, CommandLine> subcommand : commandLine.getSubcommands().entrySet()) {
+            printUsage(subcommand.getValue());
+        }
+    }
+
+    private static CliConsole newConsole() {
+        final PrintStream nullStream = new PrintStream(OutputStream.nullOutputStream(), false, StandardCharsets.UTF_8);
+        return new CliConsole() {
+            @Override
+            public PrintStream getStdOut() {
+                return nullStream;
+            }
+
+            @Override
+            public PrintStream getErrOut() {
+                return nullStream;
+            }
+
+            @Override
+            public InputStream getInput() {
+                return InputStream.nullInputStream();
+            }
+        };
+    }
+}
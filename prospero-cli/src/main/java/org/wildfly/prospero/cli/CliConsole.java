@@ -37,6 +37,7 @@ import static org.wildfly.prospero.galleon.GalleonEnvironment.TRACK_JBEXAMPLES;
 import static org.wildfly.prospero.galleon.GalleonEnvironment.TRACK_JBMODULES;
 import static org.wildfly.prospero.galleon.GalleonEnvironment.TRACK_JB_ARTIFACTS_RESOLVE;
 import static org.wildfly.prospero.galleon.GalleonEnvironment.TRACK_RESOLVING_VERSIONS;
+import static org.wildfly.prospero.promotion.ArtifactPromoter.TRACK_PROMOTE_ARTIFACTS;
 
 @SuppressWarnings("PMD.TooManyStaticImports")
 public class CliConsole implements Console {
@@ -104,16 +105,25 @@ public class CliConsole implements Console {
         loggers.put(TRACK_JBEXAMPLES, new ProgressLogger(CliMessages.MESSAGES.installingJBossExamples(), CliMessages.MESSAGES.jbossExamplesInstalled()));
         loggers.put(TRACK_JB_ARTIFACTS_RESOLVE, new ProgressLogger(CliMessages.MESSAGES.downloadingArtifacts(), CliMessages.MESSAGES.artifactsDownloaded()));
         loggers.put(TRACK_RESOLVING_VERSIONS, new ProgressLogger(CliMessages.MESSAGES.resolvingVersions(), CliMessages.MESSAGES.versionsResolved()));
+        loggers.put(TRACK_PROMOTE_ARTIFACTS, new ProgressLogger(CliMessages.MESSAGES.promotingArtifacts(), CliMessages.MESSAGES.artifactsPromoted()));
     }
 
-    private Cli cli = new Cli(getStdOut());
+    // created on first use, so that subclasses can provide the output stream
+    private Cli cli;
+
+    private synchronized Cli cli() {
+        if (cli == null) {
+            cli = new Cli(getStdOut());
+        }
+        return cli;
+    }
 
     @Override
     public void progressUpdate(ProvisioningProgressEvent update) {
         ProgressLogger logger = loggers.get(update.getStage());
 
         if (update.getEventType() == ProvisioningProgressEvent.EventType.STARTING) {
-            cli.print(logger.starting());
+            cli().print(logger.starting());
         }
 
         if (update.getEventType() == ProvisioningProgressEvent.EventType.UPDATE) {
@@ -145,10 +155,10 @@ public class CliConsole implements Console {
                 text = logger.progress() + progressMsg + details;
             }
 
-            cli.print(text);
+            cli().print(text);
         }
         if (update.getEventType() == ProvisioningProgressEvent.EventType.COMPLETED) {
-            cli.println(logger.completed());
+            cli().println(logger.completed());
         }
     }
 
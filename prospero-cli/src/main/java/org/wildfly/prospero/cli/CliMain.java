@@ -37,9 +37,12 @@ import org.wildfly.prospero.cli.commands.channel.ChannelAddCommand;
 import org.wildfly.prospero.cli.commands.channel.ChannelInitializeCommand;
 import org.wildfly.prospero.cli.commands.channel.ChannelPromoteCommand;
 import org.wildfly.prospero.cli.commands.channel.ChannelRemoveCommand;
+import org.wildfly.prospero.cli.daemon.DaemonClient;
+import org.wildfly.prospero.cli.daemon.DaemonServer;
 import picocli.CommandLine;
 
 import java.util.Arrays;
+import java.util.OptionalInt;
 
 public class CliMain {
 
@@ -56,6 +59,20 @@ public class CliMain {
     static final Logger logger = Logger.getLogger(CliMain.class);
 
     public static void main(String[] args) {
+        if (args.length == 1 && CliConstants.GENERATE_CDS.equals(args[0])) {
+            System.exit(CdsTraining.run());
+        }
+
+        final String daemonMode = System.getProperty(DaemonServer.DAEMON_PROPERTY);
+        if ("server".equals(daemonMode)) {
+            System.exit(DaemonServer.runDaemon());
+        } else if ("client".equals(daemonMode)) {
+            final OptionalInt exitCode = DaemonClient.execute(args);
+            if (exitCode.isPresent()) {
+                System.exit(exitCode.getAsInt());
+            }
+        }
+
         try {
             int exitCode = execute(args);
             System.exit(exitCode);
@@ -107,7 +124,7 @@ public class CliMain {
         final CommandLine.IParameterExceptionHandler rootParameterExceptionHandler = commandLine.getParameterExceptionHandler();
         commandLine.setExecutionExceptionHandler(new ExecutionExceptionHandler(console, isVerbose));
 
-        commandLine.setParameterExceptionHandler(new UnknownCommandParameterExceptionHandler(rootParameterExceptionHandler, System.err));
+        commandLine.setParameterExceptionHandler(new UnknownCommandParameterExceptionHandler(rootParameterExceptionHandler, console.getErrOut()));
 
         final boolean isDebug = Arrays.stream(args).anyMatch(CliConstants.DEBUG::equals);
         if (isDebug) {
@@ -101,6 +101,14 @@ public interface CliMessages {
         return bundle.getString("prospero.install.progress.versions.done");
     }
 
+    default String promotingArtifacts() {
+        return bundle.getString("prospero.promote.progress");
+    }
+
+    default String artifactsPromoted() {
+        return bundle.getString("prospero.promote.progress.done");
+    }
+
     default String installProgressWait() {
         return bundle.getString("prospero.install.progress.applying_changes");
     }
@@ -421,6 +429,10 @@ public interface CliMessages {
         return new ArgumentParsingException(format(bundle.getString("prospero.general.validation.local_repo.not_directory"), repo));
     }
 
+    default ArgumentParsingException notPositiveNumber(String option, int value) {
+        return new ArgumentParsingException(format(bundle.getString("prospero.general.validation.positive_number"), option, value));
+    }
+
     default ArgumentParsingException invalidRepositoryDefinition(String repoKey) {
         return new ArgumentParsingException(format(bundle.getString("prospero.general.validation.repo_format"), repoKey));
     }
@@ -462,6 +474,21 @@ public interface CliMessages {
                 format(bundle.getString("prospero.updates.build.validation.dir.not_empty"), installationDir));
     }
 
+    default IllegalArgumentException candidateArchiveExists(Path archive) {
+        return new IllegalArgumentException(
+                format(bundle.getString("prospero.updates.build.validation.archive.exists"), archive.toAbsolutePath()));
+    }
+
+    default IllegalArgumentException candidateArchiveNotWritable(Path archive) {
+        return new IllegalArgumentException(
+                format(bundle.getString("prospero.updates.build.validation.archive.not_writable"), archive.toAbsolutePath()));
+    }
+
+    default IllegalArgumentException candidateArchiveNotFound(Path archive) {
+        return new IllegalArgumentException(
+                format(bundle.getString("prospero.updates.apply.validation.archive.not_exists"), archive));
+    }
+
     default ArgumentParsingException unknownInstallationProfile(String profileName, String candidates) {
         return new ArgumentParsingException(format(bundle.getString("prospero.install.validation.unknown_profile"), profileName),
                 format(bundle.getString("prospero.install.validation.unknown_profile.details"), candidates));
@@ -499,6 +526,18 @@ public interface CliMessages {
         return format(bundle.getString("prospero.updates.build.candidate.complete"), candidateDirectory.toAbsolutePath());
     }
 
+    default String installationHeader(Path installationDir) {
+        return format(bundle.getString("prospero.updates.apply.installation.header"), installationDir.toAbsolutePath());
+    }
+
+    default String installationUpdated(Path installationDir) {
+        return format(bundle.getString("prospero.updates.apply.installation.complete"), installationDir.toAbsolutePath());
+    }
+
+    default String installationUpdateFailed(Path installationDir, String reason) {
+        return format(bundle.getString("prospero.updates.apply.installation.failed"), installationDir.toAbsolutePath(), reason);
+    }
+
     default String checkUpdatesHeader(Path installationDir) {
         return format(bundle.getString("prospero.updates.list.header"), installationDir.toAbsolutePath());
     }
@@ -24,10 +24,12 @@ import org.wildfly.channel.ArtifactCoordinate;
 import org.wildfly.channel.ChannelMetadataCoordinate;
 import org.wildfly.channel.Repository;
 import org.wildfly.prospero.api.ArtifactUtils;
+import org.wildfly.prospero.api.RepositoryUtils;
 import org.wildfly.prospero.api.exceptions.ApplyCandidateException;
 import org.wildfly.prospero.api.exceptions.ArtifactResolutionException;
 import org.wildfly.prospero.api.exceptions.ChannelDefinitionException;
 import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.api.exceptions.UncheckedMetadataException;
 import org.wildfly.prospero.api.exceptions.StreamNotFoundException;
 import org.wildfly.prospero.api.exceptions.UnresolvedChannelMetadataException;
 import org.wildfly.prospero.api.exceptions.NoChannelException;
@@ -38,8 +40,6 @@ import picocli.CommandLine;
 
 import javax.net.ssl.SSLHandshakeException;
 import javax.xml.stream.XMLStreamException;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.net.UnknownHostException;
 import java.util.List;
 import java.util.Set;
@@ -61,6 +61,10 @@ public class ExecutionExceptionHandler implements CommandLine.IExecutionExceptio
     @Override
     public int handleExecutionException(Exception ex, CommandLine commandLine, CommandLine.ParseResult parseResult)
             throws Exception {
+        if (ex instanceof UncheckedMetadataException) {
+            // thrown when the installation metadata is read lazily
+            ex = ((UncheckedMetadataException) ex).getCause();
+        }
         Integer returnCode = null;
         if (ex instanceof NoChannelException) {
             console.error(CliMessages.MESSAGES.errorHeader(ex.getLocalizedMessage()));
@@ -207,12 +211,8 @@ public class ExecutionExceptionHandler implements CommandLine.IExecutionExceptio
         if (!offline) {
             return false;
         } else {
-            try {
-                return !OFFLINE_REPOSITORIES.contains(new URL(repository.getUrl()).getProtocol());
-            } catch (MalformedURLException e) {
-                // ignore
-                return true;
-            }
+            // use the same protocol as the resolver, e.g. "jar:file" for repository archives
+            return !OFFLINE_REPOSITORIES.contains(RepositoryUtils.toRemoteRepository(repository).getProtocol());
         }
     }
 }
@@ -120,6 +120,17 @@ public abstract class AbstractCommand implements Callable<Integer> {
         }
     }
 
+    protected static void verifyTargetArchiveDoesNotExist(Path path) {
+        if (Files.exists(path)) {
+            log.debug("Target archive already exists");
+            throw CliMessages.MESSAGES.candidateArchiveExists(path);
+        }
+        if (!isWritable(path)) {
+            log.debug("Target is not writable");
+            throw CliMessages.MESSAGES.candidateArchiveNotWritable(path);
+        }
+    }
+
     private static boolean isWritable(final Path path) {
         Path absPath = path.toAbsolutePath();
         if (Files.exists(absPath)) {
@@ -60,6 +60,7 @@ public final class CliConstants {
 
     public static final String ACCEPT_AGREEMENTS = "--accept-license-agreements";
     public static final String ARG_PATH = "--path";
+    public static final String CANDIDATE_ARCHIVE = "--candidate-archive";
     public static final String CANDIDATE_DIR = "--candidate-dir";
     public static final String CHANNEL = "--channel";
     public static final String CHANNEL_NAME = "--channel-name";
@@ -73,8 +74,10 @@ public final class CliConstants {
     public static final String DEBUG = "--debug";
     public static final String DEFINITION = "--definition";
     public static final String DIR = "--dir";
+    public static final String DIRS = "--dirs";
     public static final String FEATURE_PACK_REFERENCE = "<feature-pack-reference>";
     public static final String FPL = "--fpl";
+    public static final String GENERATE_CDS = "--generate-cds";
     public static final String H = "-h";
     public static final String HELP = "--help";
     public static final String LAYERS = "--layers";
@@ -95,6 +98,8 @@ public final class CliConstants {
     public static final String STABILITY_LEVEL = "--stability-level";
     public static final String USE_LOCAL_MAVEN_CACHE = "--use-default-local-cache";
     public static final String TARGET_CONFIG = "--target-config";
+    public static final String THREADS = "<threads>";
+    public static final String UPDATE_THREADS = "--update-threads";
     public static final String V = "-v";
     public static final String VERBOSE = "--verbose";
     public static final String VERSION = "--version";
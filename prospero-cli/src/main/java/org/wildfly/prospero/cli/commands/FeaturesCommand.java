@@ -148,7 +148,7 @@ public class FeaturesCommand extends AbstractParentCommand {
                         }
 
                         // list conflicts (e.g. config files) and apply the update
-                        final ApplyCandidateAction applyCandidateAction = actionFactory.applyUpdate(installationDir, candidate);
+                        final ApplyCandidateAction applyCandidateAction = actionFactory.applyTemporaryCandidate(installationDir, candidate);
                         if (confirmConflicts(applyCandidateAction.getConflicts())) {
                             applyCandidateAction.applyUpdate(ApplyCandidateAction.Type.FEATURE_ADD);
                         }
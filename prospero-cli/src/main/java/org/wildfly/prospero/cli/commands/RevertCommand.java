@@ -130,7 +130,7 @@ public class RevertCommand extends AbstractParentCommand {
                 console.println("");
                 console.println(CliMessages.MESSAGES.comparingChanges());
 
-                final ApplyCandidateAction applyCandidateAction = actionFactory.applyUpdate(installationDirectory, tempDirectory);
+                final ApplyCandidateAction applyCandidateAction = actionFactory.applyTemporaryCandidate(installationDirectory, tempDirectory);
 
                 validateRevertCandidate(installationDirectory, tempDirectory, applyCandidateAction);
 
@@ -23,7 +23,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -41,6 +43,8 @@ import org.wildfly.channel.ChannelManifestCoordinate;
 import org.wildfly.channel.Repository;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.actions.ApplyCandidateAction;
+import org.wildfly.prospero.actions.CandidateArchive;
+import org.wildfly.prospero.actions.MultiApplyCandidateAction;
 import org.wildfly.prospero.actions.SubscribeNewServerAction;
 import org.wildfly.prospero.actions.UpdateAction;
 import org.wildfly.prospero.api.FileConflict;
@@ -92,6 +96,9 @@ public class UpdateCommand extends AbstractParentCommand {
         @CommandLine.Option(names = {CliConstants.NO_CONFLICTS_ONLY})
         boolean noConflictsOnly;
 
+        @CommandLine.Option(names = CliConstants.UPDATE_THREADS, paramLabel = CliConstants.THREADS)
+        Optional<Integer> updateThreads = Optional.empty();
+
         public PerformCommand(CliConsole console, ActionFactory actionFactory) {
             super(console, actionFactory);
         }
@@ -112,7 +119,7 @@ public class UpdateCommand extends AbstractParentCommand {
                 installationDir = determineInstallationDirectory(directory);
             }
 
-            final MavenOptions mavenOptions = parseMavenOptions();
+            final MavenOptions mavenOptions = withUpdateThreads(parseMavenOptions(), updateThreads);
             try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.getInstance()) {
                 final List<Repository> repositories = RepositoryUtils.unzipArchives(
                         RepositoryDefinition.from(temporaryRepositories), temporaryFiles);
@@ -136,11 +143,13 @@ public class UpdateCommand extends AbstractParentCommand {
             Path targetDir = null;
             try {
                 targetDir = Files.createTempDirectory("update-candidate");
-                if (buildUpdate(updateAction, targetDir, yes, console, () -> console.confirmUpdates())) {
+                final Path candidateDir = targetDir;
+                if (buildUpdate(updateAction, yes, console, () -> console.confirmUpdates(),
+                        () -> updateAction.buildUpdate(candidateDir.toAbsolutePath()))) {
                     console.println("");
                     console.buildUpdatesComplete();
 
-                    ApplyCandidateAction applyCandidateAction = actionFactory.applyUpdate(installDir, targetDir);
+                    ApplyCandidateAction applyCandidateAction = actionFactory.applyTemporaryCandidate(installDir, targetDir);
                     final List<FileConflict> conflicts = applyCandidateAction.getConflicts();
                     if (!conflicts.isEmpty()) {
                         FileConflictPrinter.print(conflicts, console);
@@ -172,15 +181,26 @@ public class UpdateCommand extends AbstractParentCommand {
         }
     }
 
+    static class CandidateLocation {
+        @CommandLine.Option(names = CliConstants.CANDIDATE_DIR)
+        Path candidateDirectory;
+
+        @CommandLine.Option(names = CliConstants.CANDIDATE_ARCHIVE)
+        Path candidateArchive;
+    }
+
     @CommandLine.Command(name = CliConstants.Commands.PREPARE, sortOptions = false)
     public static class PrepareCommand extends AbstractMavenCommand {
 
-        @CommandLine.Option(names = CliConstants.CANDIDATE_DIR, required = true)
-        Path candidateDirectory;
+        @CommandLine.ArgGroup(exclusive = true, multiplicity = "1")
+        CandidateLocation candidate;
 
         @CommandLine.Option(names = {CliConstants.Y, CliConstants.YES})
         boolean yes;
 
+        @CommandLine.Option(names = CliConstants.UPDATE_THREADS, paramLabel = CliConstants.THREADS)
+        Optional<Integer> updateThreads = Optional.empty();
+
         public PrepareCommand(CliConsole console, ActionFactory actionFactory) {
             super(console, actionFactory);
         }
@@ -190,24 +210,32 @@ public class UpdateCommand extends AbstractParentCommand {
             final long startTime = System.currentTimeMillis();
             final Path installationDir = determineInstallationDirectory(directory);
 
-            final MavenOptions mavenOptions = parseMavenOptions();
+            final MavenOptions mavenOptions = withUpdateThreads(parseMavenOptions(), updateThreads);
             try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.getInstance()) {
                 final List<Repository> repositories = RepositoryUtils.unzipArchives(
                         RepositoryDefinition.from(temporaryRepositories), temporaryFiles);
 
-                log.tracef("Generate update in %s", candidateDirectory);
+                final Path candidatePath = candidate.candidateArchive != null ? candidate.candidateArchive : candidate.candidateDirectory;
+                log.tracef("Generate update in %s", candidatePath);
 
                 console.println(CliMessages.MESSAGES.buildUpdateCandidateHeader(installationDir));
 
 
-                verifyTargetDirectoryIsEmpty(candidateDirectory);
+                if (candidate.candidateArchive != null) {
+                    verifyTargetArchiveDoesNotExist(candidate.candidateArchive);
+                } else {
+                    verifyTargetDirectoryIsEmpty(candidate.candidateDirectory);
+                }
 
                 try (UpdateAction updateAction = actionFactory.update(installationDir,
                         mavenOptions, console, repositories)) {
-                    if (buildUpdate(updateAction, candidateDirectory, yes, console, () -> console.confirmBuildUpdates())) {
+                    final CandidateBuilder builder = candidate.candidateArchive != null
+                            ? () -> updateAction.buildUpdateArchive(candidatePath.toAbsolutePath())
+                            : () -> updateAction.buildUpdate(candidatePath.toAbsolutePath());
+                    if (buildUpdate(updateAction, yes, console, () -> console.confirmBuildUpdates(), builder)) {
                         console.println("");
                         console.buildUpdatesComplete();
-                        console.println(CliMessages.MESSAGES.updateCandidateGenerated(candidateDirectory));
+                        console.println(CliMessages.MESSAGES.updateCandidateGenerated(candidatePath));
                     }
                 }
             }
@@ -222,11 +250,11 @@ public class UpdateCommand extends AbstractParentCommand {
     @CommandLine.Command(name = CliConstants.Commands.APPLY, sortOptions = false)
     public static class ApplyCommand extends AbstractCommand {
 
-        @CommandLine.Option(names = CliConstants.DIR)
-        Optional<Path> directory;
+        @CommandLine.ArgGroup(exclusive = true)
+        InstallationLocation installation;
 
-        @CommandLine.Option(names = CliConstants.CANDIDATE_DIR, required = true)
-        Path candidateDir;
+        @CommandLine.ArgGroup(exclusive = true, multiplicity = "1")
+        CandidateLocation candidate;
 
         @CommandLine.Option(names = CliConstants.REMOVE)
         boolean remove;
@@ -240,6 +268,14 @@ public class UpdateCommand extends AbstractParentCommand {
         @CommandLine.Option(names = {CliConstants.DRY_RUN})
         boolean dryRun;
 
+        static class InstallationLocation {
+            @CommandLine.Option(names = CliConstants.DIR)
+            Path directory;
+
+            @CommandLine.Option(names = CliConstants.DIRS, split = ",", paramLabel = CliConstants.PATH)
+            List<Path> directories;
+        }
+
         public ApplyCommand(CliConsole console, ActionFactory actionFactory) {
             super(console, actionFactory);
         }
@@ -248,47 +284,76 @@ public class UpdateCommand extends AbstractParentCommand {
         public Integer call() throws Exception {
             final long startTime = System.currentTimeMillis();
 
-            final Path installationDir = determineInstallationDirectory(directory);
+            final List<Path> installationDirs = determineInstallationDirectories();
+            final Path installationDir = installationDirs.get(0);
 
-            if(!verifyDirectoryContainsInstallation(candidateDir)){
-                throw CliMessages.MESSAGES.invalidInstallationDir(candidateDir);
-            }
+            try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.getInstance()) {
+                final Path candidatePath;
+                final Path candidateDir;
+                if (candidate.candidateArchive != null) {
+                    candidatePath = candidate.candidateArchive.toAbsolutePath();
+                    if (!Files.isRegularFile(candidatePath)) {
+                        throw CliMessages.MESSAGES.candidateArchiveNotFound(candidatePath);
+                    }
+                    for (Path dir : installationDirs) {
+                        console.println(CliMessages.MESSAGES.updateHeader(dir));
+                    }
 
-            console.println(CliMessages.MESSAGES.updateHeader(installationDir));
+                    // the archive is verified against the installation while it is extracted
+                    candidateDir = temporaryFiles.createTempDirectory("update-candidate");
+                    CandidateArchive.extract(candidatePath, installationDir.toAbsolutePath(), candidateDir);
+                    for (Path dir : installationDirs.subList(1, installationDirs.size())) {
+                        CandidateArchive.verify(candidatePath, dir.toAbsolutePath());
+                    }
+                } else {
+                    candidatePath = candidate.candidateDirectory.toAbsolutePath();
+                    if (!verifyDirectoryContainsInstallation(candidatePath)) {
+                        throw CliMessages.MESSAGES.invalidInstallationDir(candidatePath);
+                    }
+                    for (Path dir : installationDirs) {
+                        console.println(CliMessages.MESSAGES.updateHeader(dir));
+                    }
 
-            final ApplyCandidateAction applyCandidateAction = actionFactory.applyUpdate(installationDir.toAbsolutePath(), candidateDir.toAbsolutePath());
+                    candidateDir = candidatePath;
+                }
 
-            final ApplyCandidateAction.ValidationResult result = applyCandidateAction.verifyCandidate(ApplyCandidateAction.Type.UPDATE);
-            if (ApplyCandidateAction.ValidationResult.STALE == result) {
-                throw CliMessages.MESSAGES.updateCandidateStateNotMatched(installationDir, candidateDir.toAbsolutePath());
-            } else if (ApplyCandidateAction.ValidationResult.WRONG_TYPE == result) {
-                throw CliMessages.MESSAGES.updateCandidateWrongType(installationDir, ApplyCandidateAction.Type.UPDATE);
-            } else if (ApplyCandidateAction.ValidationResult.NOT_CANDIDATE == result) {
-                throw CliMessages.MESSAGES.notCandidate(candidateDir.toAbsolutePath());
-            }
+                if (installationDirs.size() > 1) {
+                    return applyToInstallations(installationDirs, candidatePath, candidateDir, startTime);
+                }
 
-            console.updatesFound(applyCandidateAction.findUpdates().getArtifactUpdates());
-            final List<FileConflict> conflicts = applyCandidateAction.getConflicts();
-            FileConflictPrinter.print(conflicts, console);
+                // only the candidate extracted from an archive is owned by the command, the files of a candidate
+                // directory provided by the user are copied
+                final ApplyCandidateAction applyCandidateAction = candidate.candidateArchive != null
+                        ? actionFactory.applyTemporaryCandidate(installationDir.toAbsolutePath(), candidateDir)
+                        : actionFactory.applyUpdate(installationDir.toAbsolutePath(), candidateDir);
 
-            if (dryRun) {
-                return ReturnCodes.SUCCESS;
-            }
+                final ApplyCandidateAction.ValidationResult result = applyCandidateAction.verifyCandidate(ApplyCandidateAction.Type.UPDATE);
+                verifyValidationResult(result, installationDir, candidatePath);
 
-            if (noConflictsOnly && !conflicts.isEmpty()) {
-                throw CliMessages.MESSAGES.cancelledByConfilcts();
-            }
+                console.updatesFound(applyCandidateAction.findUpdates().getArtifactUpdates());
+                final List<FileConflict> conflicts = applyCandidateAction.getConflicts();
+                FileConflictPrinter.print(conflicts, console);
 
-            // there always should be updates, so confirm update
-            if (!yes && !console.confirm(CliMessages.MESSAGES.continueWithUpdate(), CliMessages.MESSAGES.applyingUpdates(), CliMessages.MESSAGES.updateCancelled())) {
-                return ReturnCodes.SUCCESS;
-            }
+                if (dryRun) {
+                    return ReturnCodes.SUCCESS;
+                }
 
-            applyCandidateAction.applyUpdate(ApplyCandidateAction.Type.UPDATE);
-            console.updatesComplete();
+                if (noConflictsOnly && !conflicts.isEmpty()) {
+                    throw CliMessages.MESSAGES.cancelledByConfilcts();
+                }
 
-            if(remove) {
-                applyCandidateAction.removeCandidate(candidateDir.toFile());
+                // there always should be updates, so confirm update
+                if (!yes && !console.confirm(CliMessages.MESSAGES.continueWithUpdate(), CliMessages.MESSAGES.applyingUpdates(), CliMessages.MESSAGES.updateCancelled())) {
+                    return ReturnCodes.SUCCESS;
+                }
+
+                applyCandidateAction.applyUpdate(ApplyCandidateAction.Type.UPDATE);
+                console.updatesComplete();
+
+                // the candidate archive can be shared by several installations, only the extracted files are removed
+                if (remove) {
+                    applyCandidateAction.removeCandidate(candidateDir.toFile());
+                }
             }
             final float totalTime = (System.currentTimeMillis() - startTime) / 1000f;
             console.println(CliMessages.MESSAGES.operationCompleted(totalTime));
@@ -296,11 +361,94 @@ public class UpdateCommand extends AbstractParentCommand {
 
             return ReturnCodes.SUCCESS;
         }
+
+        private Integer applyToInstallations(List<Path> installationDirs, Path candidatePath, Path candidateDir,
+                                             long startTime) throws Exception {
+            final List<Path> absolutePaths = installationDirs.stream().map(Path::toAbsolutePath).collect(Collectors.toList());
+            try (MultiApplyCandidateAction applyCandidateAction = actionFactory.applyUpdates(absolutePaths, candidateDir)) {
+                for (Map.Entry<Path, ApplyCandidateAction.ValidationResult> result
+                        : applyCandidateAction.verifyCandidate(ApplyCandidateAction.Type.UPDATE).entrySet()) {
+                    verifyValidationResult(result.getValue(), result.getKey(), candidatePath);
+                }
+
+                boolean hasConflicts = false;
+                for (MultiApplyCandidateAction.Result result : applyCandidateAction.getConflicts()) {
+                    if (!result.isSuccessful()) {
+                        throw result.getError();
+                    }
+                    console.println(CliMessages.MESSAGES.installationHeader(result.getInstallationDir()));
+                    console.updatesFound(applyCandidateAction.findUpdates(result.getInstallationDir()).getArtifactUpdates());
+                    FileConflictPrinter.print(result.getConflicts(), console);
+                    hasConflicts |= !result.getConflicts().isEmpty();
+                }
+
+                if (dryRun) {
+                    return ReturnCodes.SUCCESS;
+                }
+
+                if (noConflictsOnly && hasConflicts) {
+                    throw CliMessages.MESSAGES.cancelledByConfilcts();
+                }
+
+                if (!yes && !console.confirm(CliMessages.MESSAGES.continueWithUpdate(), CliMessages.MESSAGES.applyingUpdates(), CliMessages.MESSAGES.updateCancelled())) {
+                    return ReturnCodes.SUCCESS;
+                }
+
+                boolean failed = false;
+                for (MultiApplyCandidateAction.Result result : applyCandidateAction.applyUpdate(ApplyCandidateAction.Type.UPDATE)) {
+                    if (result.isSuccessful()) {
+                        console.println(CliMessages.MESSAGES.installationUpdated(result.getInstallationDir()));
+                    } else {
+                        failed = true;
+                        final Exception error = result.getError();
+                        console.error("%s", CliMessages.MESSAGES.installationUpdateFailed(result.getInstallationDir(),
+                                error.getLocalizedMessage() == null ? error.toString() : error.getLocalizedMessage()));
+                    }
+                }
+
+                if (failed) {
+                    return ReturnCodes.PROCESSING_ERROR;
+                }
+                console.updatesComplete();
+
+                if (remove) {
+                    FileUtils.deleteQuietly(candidateDir.toFile());
+                }
+            }
+            final float totalTime = (System.currentTimeMillis() - startTime) / 1000f;
+            console.println(CliMessages.MESSAGES.operationCompleted(totalTime));
+
+            return ReturnCodes.SUCCESS;
+        }
+
+        private List<Path> determineInstallationDirectories() throws ArgumentParsingException {
+            if (installation != null && installation.directories != null) {
+                final List<Path> installationDirs = new ArrayList<>();
+                for (Path dir : installation.directories) {
+                    installationDirs.add(determineInstallationDirectory(Optional.of(dir)));
+                }
+                return installationDirs;
+            }
+            return List.of(determineInstallationDirectory(Optional.ofNullable(installation == null ? null : installation.directory)));
+        }
+
+        private static void verifyValidationResult(ApplyCandidateAction.ValidationResult result, Path installationDir, Path candidatePath) {
+            if (ApplyCandidateAction.ValidationResult.STALE == result) {
+                throw CliMessages.MESSAGES.updateCandidateStateNotMatched(installationDir, candidatePath);
+            } else if (ApplyCandidateAction.ValidationResult.WRONG_TYPE == result) {
+                throw CliMessages.MESSAGES.updateCandidateWrongType(installationDir, ApplyCandidateAction.Type.UPDATE);
+            } else if (ApplyCandidateAction.ValidationResult.NOT_CANDIDATE == result) {
+                throw CliMessages.MESSAGES.notCandidate(candidatePath);
+            }
+        }
     }
 
     @CommandLine.Command(name = CliConstants.Commands.LIST, sortOptions = false)
     public static class ListCommand extends AbstractMavenCommand {
 
+        @CommandLine.Option(names = CliConstants.UPDATE_THREADS, paramLabel = CliConstants.THREADS)
+        Optional<Integer> updateThreads = Optional.empty();
+
         public ListCommand(CliConsole console, ActionFactory actionFactory) {
             super(console, actionFactory);
         }
@@ -309,7 +457,7 @@ public class UpdateCommand extends AbstractParentCommand {
             final long startTime = System.currentTimeMillis();
             final Path installationDir = determineInstallationDirectory(directory);
 
-            final MavenOptions mavenOptions = parseMavenOptions();
+            final MavenOptions mavenOptions = withUpdateThreads(parseMavenOptions(), updateThreads);
 
             try (TemporaryFilesManager temporaryFiles = TemporaryFilesManager.getInstance()) {
                 final List<Repository> repositories = RepositoryUtils.unzipArchives(
@@ -452,7 +600,13 @@ public class UpdateCommand extends AbstractParentCommand {
         );
     }
 
-    private static boolean buildUpdate(UpdateAction updateAction, Path updateDirectory, boolean yes, CliConsole console, Supplier<Boolean> confirmation) throws OperationException, ProvisioningException {
+    @FunctionalInterface
+    private interface CandidateBuilder {
+        void build() throws OperationException, ProvisioningException;
+    }
+
+    private static boolean buildUpdate(UpdateAction updateAction, boolean yes, CliConsole console, Supplier<Boolean> confirmation,
+                                       CandidateBuilder candidateBuilder) throws OperationException, ProvisioningException {
         final UpdateSet updateSet = updateAction.findUpdates();
 
         console.updatesFound(updateSet.getArtifactUpdates());
@@ -464,11 +618,24 @@ public class UpdateCommand extends AbstractParentCommand {
             return false;
         }
 
-        updateAction.buildUpdate(updateDirectory.toAbsolutePath());
+        candidateBuilder.build();
 
         return true;
     }
 
+    private static MavenOptions withUpdateThreads(MavenOptions mavenOptions, Optional<Integer> updateThreads)
+            throws ArgumentParsingException {
+        if (updateThreads.isEmpty()) {
+            return mavenOptions;
+        }
+        if (updateThreads.get() < 1) {
+            throw CliMessages.MESSAGES.notPositiveNumber(CliConstants.UPDATE_THREADS, updateThreads.get());
+        }
+        return mavenOptions.merge(MavenOptions.builder()
+                .setUpdateSearchThreads(updateThreads.get())
+                .build());
+    }
+
     public static void verifyInstallationContainsOnlyProspero(Path dir) throws ArgumentParsingException {
         verifyDirectoryContainsInstallation(dir);
 
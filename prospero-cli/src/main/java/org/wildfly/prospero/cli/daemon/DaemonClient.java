@@ -0,0 +1,127 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli.daemon;
+
+import org.jboss.logging.Logger;
+import org.wildfly.prospero.cli.CliMessages;
+import org.wildfly.prospero.cli.ReturnCodes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.OptionalInt;
+import java.util.Properties;
+
+/**
+ * Sends a command to the {@link DaemonServer} and replays its output.
+ */
+public class DaemonClient {
+
+    private static final Logger LOG = Logger.getLogger(DaemonClient.class);
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+
+    private final Path stateFile;
+
+    DaemonClient(Path stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    /**
+     * executes the command in a running daemon using the default state file.
+     *
+     * @param args - command line arguments
+     * @return exit code of the command, or empty if there is no running daemon or it rejected the command
+     */
+    public static OptionalInt execute(String[] args) {
+        return new DaemonClient(DaemonProtocol.defaultStateFile()).execute(args, System.in, System.out, System.err);
+    }
+
+    OptionalInt execute(String[] args, InputStream input, PrintStream stdOut, PrintStream errOut) {
+        if (!Files.exists(stateFile)) {
+            return OptionalInt.empty();
+        }
+
+        final Socket socket;
+        final String token;
+        try {
+            final Properties state = DaemonProtocol.readState(stateFile);
+            token = state.getProperty(DaemonProtocol.TOKEN_KEY);
+            final int port = Integer.parseInt(state.getProperty(DaemonProtocol.PORT_KEY));
+            socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MS);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        } catch (IOException | RuntimeException e) {
+            // e.g. a stale state file left by a daemon that was killed
+            LOG.debugf(e, "Unable to connect to the daemon using %s", stateFile);
+            return OptionalInt.empty();
+        }
+
+        try (socket) {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DaemonProtocol.writeRequest(out, token, Path.of("").toAbsolutePath().toString(), args,
+                    DaemonProtocol.commandProperties());
+
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(input));
+            while (true) {
+                final byte type = in.readByte();
+                switch (type) {
+                    case DaemonProtocol.STDOUT:
+                        final byte[] outData = DaemonProtocol.readData(in);
+                        stdOut.write(outData, 0, outData.length);
+                        stdOut.flush();
+                        break;
+                    case DaemonProtocol.STDERR:
+                        final byte[] errData = DaemonProtocol.readData(in);
+                        errOut.write(errData, 0, errData.length);
+                        errOut.flush();
+                        break;
+                    case DaemonProtocol.READ_LINE:
+                        DaemonProtocol.writeLine(out, reader.readLine());
+                        break;
+                    case DaemonProtocol.EXIT:
+                        return OptionalInt.of(in.readInt());
+                    case DaemonProtocol.REJECTED:
+                        return OptionalInt.empty();
+                    default:
+                        throw new IOException("Unexpected daemon response " + type);
+                }
+            }
+        } catch (IOException e) {
+            // the command might have been (partially) executed already, it can't be safely executed again
+            errOut.println(CliMessages.MESSAGES.errorWhenProcessingCommand() + e.getMessage());
+            LOG.error(CliMessages.MESSAGES.errorWhenProcessingCommand(), e);
+            return OptionalInt.of(ReturnCodes.PROCESSING_ERROR);
+        }
+    }
+}
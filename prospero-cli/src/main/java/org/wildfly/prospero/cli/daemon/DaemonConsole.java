@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli.daemon;
+
+import org.wildfly.prospero.cli.CliConsole;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link CliConsole} of a command executed by the {@link DaemonServer}. The output is sent to the client and the
+ * input is requested from the client one line at a time.
+ */
+class DaemonConsole extends CliConsole {
+
+    private final PrintStream stdOut;
+    private final PrintStream errOut;
+    private final InputStream input;
+
+    DaemonConsole(PrintStream stdOut, PrintStream errOut, InputStream input) {
+        this.stdOut = stdOut;
+        this.errOut = errOut;
+        this.input = input;
+    }
+
+    @Override
+    public PrintStream getStdOut() {
+        return stdOut;
+    }
+
+    @Override
+    public PrintStream getErrOut() {
+        return errOut;
+    }
+
+    @Override
+    public InputStream getInput() {
+        return input;
+    }
+
+    /**
+     * Requests a line from the client whenever the previous one has been consumed. Never reads ahead, so that
+     * the client is only asked for input when the command actually waits for it.
+     */
+    static class RemoteInputStream extends InputStream {
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private byte[] line = new byte[0];
+        private int position;
+        private boolean eof;
+
+        RemoteInputStream(DataInputStream in, DataOutputStream out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return line[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            final int count = Math.min(len, line.length - position);
+            System.arraycopy(line, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return line.length - position;
+        }
+
+        private boolean fill() throws IOException {
+            if (position < line.length) {
+                return true;
+            }
+            if (eof) {
+                return false;
+            }
+
+            synchronized (out) {
+                out.writeByte(DaemonProtocol.READ_LINE);
+                out.flush();
+            }
+            final byte[] data = DaemonProtocol.readData(in);
+            if (data == null) {
+                eof = true;
+                return false;
+            }
+            line = (new String(data, StandardCharsets.UTF_8) + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+            position = 0;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Wire format shared by {@link DaemonServer} and {@link DaemonClient}.
+ *
+ * The client sends the access token, its working directory, the command arguments and the system properties that
+ * configure the command (see {@link #commandProperties()}). The server answers with a
+ * sequence of frames, each starting with a frame type: chunks of standard and error output, requests for a line of
+ * input and finally the exit code of the command. If the server can't execute the command, it sends
+ * {@link #REJECTED} and the client runs the command itself.
+ *
+ * The port and token of a running daemon are published in a state file readable only by its owner.
+ */
+final class DaemonProtocol {
+
+    static final byte STDOUT = 1;
+    static final byte STDERR = 2;
+    static final byte READ_LINE = 3;
+    static final byte EXIT = 4;
+    static final byte REJECTED = 5;
+
+    /**
+     * Maximum number of command arguments accepted by the server.
+     */
+    static final int MAX_ARGUMENTS = 1024;
+    /**
+     * Maximum number of system properties accepted by the server.
+     */
+    static final int MAX_PROPERTIES = 1024;
+    /**
+     * Time in milliseconds the server waits for the client to send the request.
+     */
+    static final int REQUEST_TIMEOUT_MS = 10_000;
+
+    /**
+     * Prefixes of the system properties changing how commands are executed - prospero's own switches and the Maven
+     * settings and proxies.
+     */
+    private static final List<String> COMMAND_PROPERTY_PREFIXES = List.of("org.wildfly.prospero.", "maven.", "http.",
+            "https.", "jboss.modules.settings.xml.url");
+
+    static final String PORT_KEY = "port";
+    static final String TOKEN_KEY = "token";
+
+    private DaemonProtocol() {
+    }
+
+    static Path defaultStateFile() {
+        final String stateFile = System.getProperty(DaemonServer.STATE_FILE_PROPERTY);
+        if (stateFile == null) {
+            return Paths.get(System.getProperty("user.home"), ".prospero", "daemon.properties");
+        } else {
+            return Path.of(stateFile).toAbsolutePath();
+        }
+    }
+
+    /**
+     * system properties of this JVM that configure the commands. The properties selecting the daemon mode are excluded,
+     * those are always different between the client and the daemon.
+     */
+    static Map<String, String> commandProperties() {
+        final Map<String, String> properties = new TreeMap<>();
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.equals(DaemonServer.DAEMON_PROPERTY) || name.equals(DaemonServer.STATE_FILE_PROPERTY)) {
+                continue;
+            }
+            if (COMMAND_PROPERTY_PREFIXES.stream().anyMatch(name::startsWith)) {
+                properties.put(name, System.getProperty(name));
+            }
+        }
+        return properties;
+    }
+
+    static void writeRequest(DataOutputStream out, String token, String workingDir, String[] args,
+                             Map<String, String> properties) throws IOException {
+        out.writeUTF(token);
+        out.writeUTF(workingDir);
+        out.writeInt(args.length);
+        for (String arg : args) {
+            out.writeUTF(arg);
+        }
+        out.writeInt(properties.size());
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            out.writeUTF(property.getKey());
+            out.writeUTF(property.getValue());
+        }
+        out.flush();
+    }
+
+    static void writeFrame(DataOutputStream out, byte type, byte[] data, int off, int len) throws IOException {
+        out.writeByte(type);
+        out.writeInt(len);
+        out.write(data, off, len);
+        out.flush();
+    }
+
+    /**
+     * sends a line of the user's input, or {@code null} at the end of input.
+     */
+    static void writeLine(DataOutputStream out, String line) throws IOException {
+        if (line == null) {
+            out.writeInt(-1);
+        } else {
+            final byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.flush();
+    }
+
+    static byte[] readData(DataInputStream in) throws IOException {
+        final int len = in.readInt();
+        if (len < 0) {
+            return null;
+        }
+        final byte[] data = new byte[len];
+        in.readFully(data);
+        return data;
+    }
+
+    static Properties readState(Path stateFile) throws IOException {
+        final Properties state = new Properties();
+        try (InputStream is = Files.newInputStream(stateFile)) {
+            state.load(is);
+        }
+        return state;
+    }
+
+    static void writeState(Path stateFile, int port, String token) throws IOException {
+        Files.createDirectories(stateFile.toAbsolutePath().getParent());
+        final Path tempFile = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        Files.deleteIfExists(tempFile);
+        // the token grants access to the daemon, make sure only the owner can read it
+        if (Files.getFileAttributeView(stateFile.getParent(), PosixFileAttributeView.class) != null) {
+            Files.createFile(tempFile, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+
+        final Properties state = new Properties();
+        state.setProperty(PORT_KEY, Integer.toString(port));
+        state.setProperty(TOKEN_KEY, token);
+        try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            state.store(writer, null);
+        }
+        Files.move(tempFile, stateFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * {@code OutputStream} sending everything written to it as frames of the given type.
+     */
+    static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > 0) {
+                synchronized (out) {
+                    writeFrame(out, type, b, off, len);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli.daemon;
+
+import org.jboss.logging.Logger;
+import org.wildfly.prospero.cli.CliConsole;
+import org.wildfly.prospero.cli.CliMain;
+import org.wildfly.prospero.cli.CliMessages;
+import org.wildfly.prospero.cli.ReturnCodes;
+import org.wildfly.prospero.cli.commands.CliConstants;
+import org.wildfly.prospero.wfchannel.MavenSessionManager;
+import picocli.CommandLine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Long-running process executing CLI commands sent by {@link DaemonClient}s. Keeping the JVM running saves the JVM
+ * startup and the bootstrap of the CLI, Maven resolver and Galleon classes on every command.
+ *
+ * The daemon listens on a loopback port. The port and a random access token are written to a state file (see
+ * {@code STATE_FILE_PROPERTY}) that is readable only by the user running the daemon. The commands are executed one at
+ * a time, using the daemon's working directory, system properties and logging configuration. Commands sent from
+ * a different working directory, with different prospero or Maven system properties, or using {@code --debug} are
+ * rejected and the client executes them itself.
+ *
+ * The installation metadata is loaded again by every command, so that changes made by other processes are visible.
+ * The Maven session managers are {@link MavenSessionManager#retainManagers() retained} - the commands using the same
+ * Maven options share the repository system, its connection pools and the local repository until the daemon is closed.
+ */
+public class DaemonServer implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(DaemonServer.class);
+
+    /**
+     * Set to {@code server} to start the daemon instead of executing a command, or to {@code client} to send commands
+     * to a running daemon if there is one.
+     */
+    public static final String DAEMON_PROPERTY = "org.wildfly.prospero.daemon";
+    /**
+     * Location of the daemon state file, defaults to {@code ~/.prospero/daemon.properties}.
+     */
+    public static final String STATE_FILE_PROPERTY = "org.wildfly.prospero.daemon.state-file";
+
+    private final ServerSocket serverSocket;
+    private final Path stateFile;
+    private final String token;
+    private final String workingDir;
+    private final Map<String, String> properties;
+    private final int requestTimeout;
+    private final BiFunction<CliConsole, String[], CommandLine> commands;
+
+    private DaemonServer(ServerSocket serverSocket, Path stateFile, String token, int requestTimeout,
+                         BiFunction<CliConsole, String[], CommandLine> commands) {
+        this.serverSocket = serverSocket;
+        this.stateFile = stateFile;
+        this.token = token;
+        this.workingDir = Path.of("").toAbsolutePath().toString();
+        this.properties = DaemonProtocol.commandProperties();
+        this.requestTimeout = requestTimeout;
+        this.commands = commands;
+    }
+
+    /**
+     * binds the daemon to a free loopback port and publishes it in the {@code stateFile}.
+     *
+     * @param stateFile - file the port and access token are written to
+     * @return daemon ready to {@link #run()}
+     * @throws IOException - if the port can't be opened or the state file can't be written
+     */
+    public static DaemonServer start(Path stateFile) throws IOException {
+        return start(stateFile, DaemonProtocol.REQUEST_TIMEOUT_MS, CliMain::createCommandLine);
+    }
+
+    static DaemonServer start(Path stateFile, int requestTimeout, BiFunction<CliConsole, String[], CommandLine> commands) throws IOException {
+        final byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        final String token = Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+
+        final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        try {
+            DaemonProtocol.writeState(stateFile, serverSocket.getLocalPort(), token);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        LOG.debugf("Daemon listening on port %d", serverSocket.getLocalPort());
+        MavenSessionManager.retainManagers();
+        return new DaemonServer(serverSocket, stateFile, token, requestTimeout, commands);
+    }
+
+    /**
+     * starts the daemon using the default state file and serves commands until the process is terminated.
+     *
+     * @return exit code of the daemon
+     */
+    public static int runDaemon() {
+        try (DaemonServer server = start(DaemonProtocol.defaultStateFile())) {
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            server.run();
+            return ReturnCodes.SUCCESS;
+        } catch (IOException e) {
+            System.err.println(CliMessages.MESSAGES.errorWhenProcessingCommand() + e.getMessage());
+            LOG.error(CliMessages.MESSAGES.errorWhenProcessingCommand(), e);
+            return ReturnCodes.PROCESSING_ERROR;
+        }
+    }
+
+    /**
+     * accepts and executes commands until the daemon is closed.
+     */
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                handle(socket);
+            } catch (SocketException e) {
+                if (!serverSocket.isClosed()) {
+                    LOG.debug("Connection to the daemon client failed", e);
+                }
+            } catch (IOException e) {
+                LOG.debug("Connection to the daemon client failed", e);
+            }
+        }
+    }
+
+    private void handle(Socket socket) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        // the commands are executed one at a time, don't let a client that doesn't send the request block the others
+        socket.setSoTimeout(requestTimeout);
+        final String clientToken = in.readUTF();
+        if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), clientToken.getBytes(StandardCharsets.UTF_8))) {
+            LOG.warn("Rejected a daemon client with an invalid token");
+            reject(out);
+            return;
+        }
+
+        final String clientDir = in.readUTF();
+        final int argCount = in.readInt();
+        if (argCount < 0 || argCount > DaemonProtocol.MAX_ARGUMENTS) {
+            LOG.warnf("Rejected a daemon client sending %d arguments", argCount);
+            reject(out);
+            return;
+        }
+        final String[] args = new String[argCount];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+        final int propertyCount = in.readInt();
+        if (propertyCount < 0 || propertyCount > DaemonProtocol.MAX_PROPERTIES) {
+            LOG.warnf("Rejected a daemon client sending %d system properties", propertyCount);
+            reject(out);
+            return;
+        }
+        final Map<String, String> clientProperties = new HashMap<>();
+        for (int i = 0; i < propertyCount; i++) {
+            clientProperties.put(in.readUTF(), in.readUTF());
+        }
+        // the command can wait for the user's input
+        socket.setSoTimeout(0);
+        // relative paths are resolved against the daemon's working directory, the system properties are read
+        // from the daemon's JVM and the logging can't be changed per command
+        if (!workingDir.equals(clientDir) || !properties.equals(clientProperties)
+                || Arrays.asList(args).contains(CliConstants.DEBUG)) {
+            reject(out);
+            return;
+        }
+
+        final PrintStream stdOut = new PrintStream(new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.STDOUT), true, StandardCharsets.UTF_8);
+        final PrintStream errOut = new PrintStream(new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.STDERR), true, StandardCharsets.UTF_8);
+        final DaemonConsole console = new DaemonConsole(stdOut, errOut, new DaemonConsole.RemoteInputStream(in, out));
+
+        int exitCode;
+        try {
+            final CommandLine commandLine = commands.apply(console, args);
+            commandLine.setOut(new PrintWriter(stdOut, true));
+            commandLine.setErr(new PrintWriter(errOut, true));
+            exitCode = commandLine.execute(args);
+        } catch (RuntimeException e) {
+            errOut.println(CliMessages.MESSAGES.errorWhenProcessingCommand() + e.getMessage());
+            LOG.error(CliMessages.MESSAGES.errorWhenProcessingCommand(), e);
+            exitCode = ReturnCodes.PROCESSING_ERROR;
+        } finally {
+            MavenSessionManager.closeTemporaryRepositories();
+        }
+        stdOut.flush();
+        errOut.flush();
+
+        synchronized (out) {
+            out.writeByte(DaemonProtocol.EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+    }
+
+    private static void reject(DataOutputStream out) throws IOException {
+        out.writeByte(DaemonProtocol.REJECTED);
+        out.flush();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * stops accepting commands, closes the retained Maven session managers and removes the state file.
+     */
+    @Override
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            LOG.debug("Unable to close the daemon socket", e);
+        }
+        MavenSessionManager.closeRetainedManagers();
+        try {
+            // don't remove a state file written by another daemon started in the meantime
+            if (Files.exists(stateFile)
+                    && Integer.toString(getPort()).equals(DaemonProtocol.readState(stateFile).getProperty(DaemonProtocol.PORT_KEY))) {
+                Files.delete(stateFile);
+            }
+        } catch (IOException e) {
+            LOG.debugf(e, "Unable to remove the daemon state file %s", stateFile);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.prospero.cli.commands.CliConstants;
+
+import static org.junit.Assert.assertEquals;
+
+public class CdsTrainingTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void trainingRunSucceeds() {
+        assertEquals(ReturnCodes.SUCCESS, CdsTraining.run());
+    }
+
+    @Test
+    public void trainingInstallationCanBeRead() throws Exception {
+        final String dir = CdsTraining.createInstallation(temp.newFolder().toPath()).toString();
+
+        assertEquals(ReturnCodes.SUCCESS, CdsTraining.execute(CliConstants.Commands.HISTORY, CliConstants.DIR, dir));
+        assertEquals(ReturnCodes.SUCCESS, CdsTraining.execute(CliConstants.Commands.CHANNEL, CliConstants.Commands.LIST,
+                CliConstants.DIR, dir));
+    }
+}
@@ -85,8 +85,9 @@ public class ApplyUpdateCommandTest extends AbstractConsoleTest {
     public void requireUpdateDirPresent() throws Exception {
         int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.APPLY);
         Assert.assertEquals(ReturnCodes.INVALID_ARGUMENTS, exitCode);
-        assertTrue(getErrorOutput().contains(String.format("Missing required option: '%s",
-                CliConstants.CANDIDATE_DIR)));
+        assertTrue(getErrorOutput().contains("Missing required argument"));
+        assertTrue(getErrorOutput().contains(CliConstants.CANDIDATE_DIR));
+        assertTrue(getErrorOutput().contains(CliConstants.CANDIDATE_ARCHIVE));
     }
 
     @Test
@@ -85,7 +85,7 @@ public class FeaturesCommandTest extends AbstractMavenCommandTest {
         installationDir = tempFolder.newFolder().toPath();
 
         when(actionFactory.featuresAddAction(any(), any(), any(), any())).thenReturn(featuresAddAction);
-        when(actionFactory.applyUpdate(any(), any())).thenReturn(applyUpdateAction);
+        when(actionFactory.applyTemporaryCandidate(any(), any())).thenReturn(applyUpdateAction);
         MetadataTestUtils.createInstallationMetadata(installationDir);
         MetadataTestUtils.createGalleonProvisionedState(installationDir, A_PROSPERO_FP);
 
@@ -85,7 +85,7 @@ public class RevertPerformCommandTest extends AbstractMavenCommandTest {
             }
 
             @Override
-            public ApplyCandidateAction applyUpdate(Path installationPath, Path updatePath) throws OperationException, ProvisioningException {
+            public ApplyCandidateAction applyTemporaryCandidate(Path installationPath, Path candidatePath) throws OperationException, ProvisioningException {
                 return applyCandidateAction;
             }
         };
@@ -19,12 +19,18 @@ package org.wildfly.prospero.cli.commands;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.io.FileUtils;
 import org.eclipse.aether.artifact.DefaultArtifact;
+import org.jboss.galleon.Constants;
 import org.junit.After;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -37,13 +43,18 @@ import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.wildfly.channel.Repository;
 import org.wildfly.prospero.actions.ApplyCandidateAction;
+import org.wildfly.prospero.actions.CandidateArchive;
+import org.wildfly.prospero.actions.MultiApplyCandidateAction;
 import org.wildfly.prospero.actions.UpdateAction;
+import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.ArtifactChange;
 import org.wildfly.prospero.api.FileConflict;
+import org.wildfly.prospero.api.InstallationMetadata;
 import org.wildfly.prospero.api.MavenOptions;
 import org.wildfly.prospero.cli.ActionFactory;
 import org.wildfly.prospero.cli.CliMessages;
 import org.wildfly.prospero.cli.ReturnCodes;
+import org.wildfly.prospero.updates.MarkerFile;
 import org.wildfly.prospero.updates.UpdateSet;
 import org.wildfly.prospero.test.MetadataTestUtils;
 
@@ -93,7 +104,7 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
     public void setUp() throws Exception {
         super.setUp();
         when(actionFactory.update(any(), any(), any(), any())).thenReturn(updateAction);
-        when(actionFactory.applyUpdate(any(), any())).thenReturn(applyCandidateAction);
+        when(actionFactory.applyTemporaryCandidate(any(), any())).thenReturn(applyCandidateAction);
         installationDir = tempFolder.newFolder().toPath();
 
         MetadataTestUtils.createInstallationMetadata(installationDir);
@@ -269,6 +280,87 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
         Mockito.verify(updateAction, never()).buildUpdate(updatePath);
     }
 
+    @Test
+    public void testBuildUpdateArchive() throws Exception {
+        System.setProperty(UpdateCommand.JBOSS_MODULE_PATH, installationDir.toString());
+        when(updateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
+        when(updateAction.buildUpdateArchive(any())).thenReturn(true);
+        final Path archive = tempFolder.getRoot().toPath().resolve("candidate.zip");
+
+        int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.PREPARE,
+                CliConstants.CANDIDATE_ARCHIVE, archive.toString(),
+                CliConstants.DIR, installationDir.toAbsolutePath().toString(), CliConstants.Y);
+
+        assertEquals(ReturnCodes.SUCCESS, exitCode);
+        Mockito.verify(updateAction).buildUpdateArchive(archive.toAbsolutePath());
+        Mockito.verify(updateAction, never()).buildUpdate(any());
+    }
+
+    @Test
+    public void testApplyUpdateArchive() throws Exception {
+        final Path archive = createCandidateArchive();
+
+        final List<String> extracted = new ArrayList<>();
+        when(actionFactory.applyTemporaryCandidate(eq(installationDir.toAbsolutePath()), any())).thenAnswer(inv -> {
+            extracted.add(Files.readString(inv.<Path>getArgument(1).resolve("test.txt")));
+            return applyCandidateAction;
+        });
+        when(applyCandidateAction.verifyCandidate(ApplyCandidateAction.Type.UPDATE)).thenReturn(ApplyCandidateAction.ValidationResult.OK);
+        when(applyCandidateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
+
+        int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.APPLY,
+                CliConstants.CANDIDATE_ARCHIVE, archive.toString(),
+                CliConstants.DIR, installationDir.toAbsolutePath().toString(), CliConstants.Y);
+
+        assertEquals(ReturnCodes.SUCCESS, exitCode);
+        assertThat(extracted).containsExactly("candidate content");
+        verify(applyCandidateAction).applyUpdate(ApplyCandidateAction.Type.UPDATE);
+    }
+
+    @Test
+    public void testApplyUpdateArchiveRemovesOnlyExtractedCandidate() throws Exception {
+        final Path archive = createCandidateArchive();
+
+        final List<Path> candidates = new ArrayList<>();
+        when(actionFactory.applyTemporaryCandidate(eq(installationDir.toAbsolutePath()), any())).thenAnswer(inv -> {
+            candidates.add(inv.getArgument(1));
+            return applyCandidateAction;
+        });
+        when(applyCandidateAction.verifyCandidate(ApplyCandidateAction.Type.UPDATE)).thenReturn(ApplyCandidateAction.ValidationResult.OK);
+        when(applyCandidateAction.findUpdates()).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
+
+        int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.APPLY,
+                CliConstants.CANDIDATE_ARCHIVE, archive.toString(),
+                CliConstants.DIR, installationDir.toAbsolutePath().toString(), CliConstants.REMOVE, CliConstants.Y);
+
+        assertEquals(ReturnCodes.SUCCESS, exitCode);
+        assertThat(candidates).hasSize(1);
+        verify(applyCandidateAction).removeCandidate(candidates.get(0).toFile());
+        verify(applyCandidateAction, never()).removeCandidate(archive.toFile());
+        assertThat(archive).exists();
+    }
+
+    @Test
+    public void testBuildUpdateArchiveTargetHasToBeWritable() throws Exception {
+        final Path readOnlyDir = tempFolder.newFolder().toPath();
+        assertTrue(readOnlyDir.toFile().setWritable(false));
+        try {
+            // the permissions are not enforced for privileged users
+            Assume.assumeFalse(Files.isWritable(readOnlyDir));
+            final Path archive = readOnlyDir.resolve("candidate.zip");
+
+            int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.PREPARE,
+                    CliConstants.CANDIDATE_ARCHIVE, archive.toString(),
+                    CliConstants.DIR, installationDir.toAbsolutePath().toString());
+
+            assertEquals(ReturnCodes.INVALID_ARGUMENTS, exitCode);
+            assertThat(getErrorOutput())
+                    .contains(CliMessages.MESSAGES.candidateArchiveNotWritable(archive).getMessage());
+        } finally {
+            readOnlyDir.toFile().setWritable(true);
+        }
+    }
+
     @Test
     public void testBuildUpdateTargetHasToBeEmptyDirectory() throws Exception {
         final Path updatePath = tempFolder.newFolder().toPath();
@@ -337,6 +429,167 @@ public class UpdateCommandTest extends AbstractMavenCommandTest {
         verify(applyCandidateAction).applyUpdate(ApplyCandidateAction.Type.UPDATE);
     }
 
+    @Test
+    public void updateThreadsArgumentIsPassedInMavenOptions() throws Exception {
+        doLocalMock();
+        int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.LIST,
+                CliConstants.DIR, installationDir.toString(),
+                CliConstants.UPDATE_THREADS, "25");
+
+        assertEquals(ReturnCodes.SUCCESS, exitCode);
+        assertEquals(Integer.valueOf(25), getCapturedMavenOptions().getUpdateSearchThreads());
+    }
+
+    @Test
+    public void updateThreadsArgumentHasToBePositive() throws Exception {
+        int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.LIST,
+                CliConstants.DIR, installationDir.toString(),
+                CliConstants.UPDATE_THREADS, "0");
+
+        assertEquals(ReturnCodes.INVALID_ARGUMENTS, exitCode);
+        assertThat(getErrorOutput())
+                .contains(CliMessages.MESSAGES.notPositiveNumber(CliConstants.UPDATE_THREADS, 0).getMessage());
+    }
+
+    @Test
+    public void applyCandidateToSeveralInstallationsDryRun() throws Exception {
+        final Path otherInstallationDir = createInstallation();
+        final Path candidate = createInstallation();
+        final MultiApplyCandidateAction multiApplyAction = mockMultiApply(List.of(installationDir, otherInstallationDir), candidate);
+        final List<MultiApplyCandidateAction.Result> conflicts = List.of(
+                result(installationDir, null), result(otherInstallationDir, null));
+        when(multiApplyAction.getConflicts()).thenReturn(conflicts);
+
+        int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.APPLY,
+                CliConstants.CANDIDATE_DIR, candidate.toString(),
+                CliConstants.DIRS, installationDir + "," + otherInstallationDir,
+                CliConstants.DRY_RUN);
+
+        assertEquals(ReturnCodes.SUCCESS, exitCode);
+        assertThat(getStandardOutput())
+                .contains(CliMessages.MESSAGES.installationHeader(installationDir))
+                .contains(CliMessages.MESSAGES.installationHeader(otherInstallationDir));
+        verify(multiApplyAction).findUpdates(installationDir.toAbsolutePath());
+        verify(multiApplyAction).findUpdates(otherInstallationDir.toAbsolutePath());
+        verify(multiApplyAction, never()).applyUpdate(any());
+    }
+
+    @Test
+    public void applyCandidateToSeveralInstallationsReportsFailedInstallation() throws Exception {
+        final Path otherInstallationDir = createInstallation();
+        final Path candidate = createInstallation();
+        final MultiApplyCandidateAction multiApplyAction = mockMultiApply(List.of(installationDir, otherInstallationDir), candidate);
+        final List<MultiApplyCandidateAction.Result> conflicts = List.of(
+                result(installationDir, null), result(otherInstallationDir, null));
+        when(multiApplyAction.getConflicts()).thenReturn(conflicts);
+        final List<MultiApplyCandidateAction.Result> applied = List.of(
+                result(installationDir, null), result(otherInstallationDir, new RuntimeException("test failure")));
+        when(multiApplyAction.applyUpdate(ApplyCandidateAction.Type.UPDATE)).thenReturn(applied);
+
+        int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.APPLY,
+                CliConstants.CANDIDATE_DIR, candidate.toString(),
+                CliConstants.DIRS, installationDir + "," + otherInstallationDir,
+                CliConstants.Y);
+
+        assertEquals(ReturnCodes.PROCESSING_ERROR, exitCode);
+        assertThat(getStandardOutput())
+                .contains(CliMessages.MESSAGES.installationUpdated(installationDir));
+        assertThat(getErrorOutput())
+                .contains(CliMessages.MESSAGES.installationUpdateFailed(otherInstallationDir, "test failure"));
+    }
+
+    @Test
+    public void applyCandidateArchiveToSeveralInstallations() throws Exception {
+        final Path otherInstallationDir = tempFolder.newFolder().toPath();
+        FileUtils.copyDirectory(installationDir.toFile(), otherInstallationDir.toFile());
+        final Path archive = createCandidateArchive();
+
+        final List<String> extracted = new ArrayList<>();
+        final MultiApplyCandidateAction multiApplyAction = mock(MultiApplyCandidateAction.class);
+        when(actionFactory.applyUpdates(eq(List.of(installationDir.toAbsolutePath(), otherInstallationDir.toAbsolutePath())), any()))
+                .thenAnswer(inv -> {
+                    extracted.add(Files.readString(inv.<Path>getArgument(1).resolve("test.txt")));
+                    return multiApplyAction;
+                });
+        when(multiApplyAction.findUpdates(any())).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
+        final List<MultiApplyCandidateAction.Result> conflicts = List.of(
+                result(installationDir, null), result(otherInstallationDir, null));
+        when(multiApplyAction.getConflicts()).thenReturn(conflicts);
+        when(multiApplyAction.applyUpdate(ApplyCandidateAction.Type.UPDATE)).thenReturn(conflicts);
+
+        int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.APPLY,
+                CliConstants.CANDIDATE_ARCHIVE, archive.toString(),
+                CliConstants.DIRS, installationDir + "," + otherInstallationDir, CliConstants.REMOVE, CliConstants.Y);
+
+        assertEquals(ReturnCodes.SUCCESS, exitCode);
+        assertThat(extracted).containsExactly("candidate content");
+        verify(multiApplyAction).applyUpdate(ApplyCandidateAction.Type.UPDATE);
+        // the archive can be applied to other installations later
+        assertThat(archive).exists();
+    }
+
+    @Test
+    public void applyCandidateArchiveToSeveralInstallationsVerifiesEveryInstallation() throws Exception {
+        final Path archive = createCandidateArchive();
+        // same revision as the first installation, but with different files
+        final Path otherInstallationDir = tempFolder.newFolder().toPath();
+        FileUtils.copyDirectory(installationDir.toFile(), otherInstallationDir.toFile());
+        final Path hashesDir = otherInstallationDir.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.HASHES);
+        Files.createDirectories(hashesDir);
+        Files.writeString(hashesDir.resolve(Constants.HASHES), "README.txt\nabcd\n");
+
+        int exitCode = commandLine.execute(CliConstants.Commands.UPDATE, CliConstants.Commands.APPLY,
+                CliConstants.CANDIDATE_ARCHIVE, archive.toString(),
+                CliConstants.DIRS, installationDir + "," + otherInstallationDir, CliConstants.Y);
+
+        assertEquals(ReturnCodes.PROCESSING_ERROR, exitCode);
+        assertThat(getErrorOutput())
+                .contains(ProsperoLogger.ROOT_LOGGER.candidateArchiveNotMatching(archive, otherInstallationDir.toAbsolutePath()).getMessage());
+        verify(actionFactory, never()).applyUpdates(any(), any());
+    }
+
+    private Path createInstallation() throws Exception {
+        final Path dir = tempFolder.newFolder().toPath();
+        MetadataTestUtils.createInstallationMetadata(dir);
+        MetadataTestUtils.createGalleonProvisionedState(dir, A_PROSPERO_FP);
+        return dir;
+    }
+
+    private Path createCandidateArchive() throws Exception {
+        final Path candidate = tempFolder.newFolder().toPath();
+        Files.createDirectories(candidate.resolve(MarkerFile.UPDATE_MARKER_FILE).getParent());
+        try (InstallationMetadata metadata = InstallationMetadata.loadInstallation(installationDir)) {
+            new MarkerFile(metadata.getRevisions().get(0).getName(), ApplyCandidateAction.Type.UPDATE).write(candidate);
+        }
+        Files.writeString(candidate.resolve("test.txt"), "candidate content");
+        final Path archive = tempFolder.getRoot().toPath().resolve("candidate.zip");
+        CandidateArchive.create(installationDir, candidate, archive);
+        return archive;
+    }
+
+    private MultiApplyCandidateAction mockMultiApply(List<Path> installationDirs, Path candidate) throws Exception {
+        final MultiApplyCandidateAction multiApplyAction = mock(MultiApplyCandidateAction.class);
+        final List<Path> absolutePaths = new ArrayList<>();
+        final Map<Path, ApplyCandidateAction.ValidationResult> validation = new LinkedHashMap<>();
+        for (Path dir : installationDirs) {
+            absolutePaths.add(dir.toAbsolutePath());
+            validation.put(dir.toAbsolutePath(), ApplyCandidateAction.ValidationResult.OK);
+        }
+        when(actionFactory.applyUpdates(absolutePaths, candidate.toAbsolutePath())).thenReturn(multiApplyAction);
+        when(multiApplyAction.verifyCandidate(ApplyCandidateAction.Type.UPDATE)).thenReturn(validation);
+        when(multiApplyAction.findUpdates(any())).thenReturn(new UpdateSet(List.of(change("1.0.0", "1.0.1"))));
+        return multiApplyAction;
+    }
+
+    private MultiApplyCandidateAction.Result result(Path installationDir, Exception error) {
+        final MultiApplyCandidateAction.Result result = mock(MultiApplyCandidateAction.Result.class);
+        when(result.getInstallationDir()).thenReturn(installationDir.toAbsolutePath());
+        when(result.isSuccessful()).thenReturn(error == null);
+        when(result.getError()).thenReturn(error);
+        when(result.getConflicts()).thenReturn(Collections.emptyList());
+        return result;
+    }
+
     private ArtifactChange change(String oldVersion, String newVersion) {
         return ArtifactChange.updated(new DefaultArtifact("org.foo", "bar", null, oldVersion),
                 new DefaultArtifact("org.foo", "bar", null, newVersion));
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.cli.daemon;
+
+import org.eclipse.aether.RepositorySystem;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.prospero.api.MavenOptions;
+import org.wildfly.prospero.cli.CliConsole;
+import org.wildfly.prospero.cli.CliMain;
+import org.wildfly.prospero.cli.DistributionInfo;
+import org.wildfly.prospero.cli.ReturnCodes;
+import org.wildfly.prospero.cli.commands.CliConstants;
+import org.wildfly.prospero.wfchannel.MavenSessionManager;
+import picocli.CommandLine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.Callable;
+import java.util.function.BiFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DaemonServerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path stateFile;
+    private DaemonServer server;
+    private Thread serverThread;
+    private final ByteArrayOutputStream stdOut = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errOut = new ByteArrayOutputStream();
+    private BiFunction<CliConsole, String[], CommandLine> commands = CliMain::createCommandLine;
+
+    @Before
+    public void setUp() throws Exception {
+        stateFile = temp.getRoot().toPath().resolve("daemon.properties");
+        server = DaemonServer.start(stateFile, 1_000, (console, args) -> commands.apply(console, args));
+        serverThread = new Thread(server::run);
+        serverThread.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+        serverThread.join(10_000);
+    }
+
+    @Test
+    public void executeCommandInDaemon() throws Exception {
+        final OptionalInt exitCode = execute(CliConstants.HELP);
+
+        assertThat(exitCode).hasValue(ReturnCodes.SUCCESS);
+        assertThat(stdOut.toString(StandardCharsets.UTF_8)).contains(DistributionInfo.DIST_NAME);
+    }
+
+    @Test
+    public void returnErrorOutputAndExitCode() throws Exception {
+        final OptionalInt exitCode = execute("foo");
+
+        assertThat(exitCode).hasValue(ReturnCodes.INVALID_ARGUMENTS);
+        assertThat(errOut.toString(StandardCharsets.UTF_8)).contains("Unknown command `" + DistributionInfo.DIST_NAME + " foo`");
+    }
+
+    @Test
+    public void rejectDebugCommands() throws Exception {
+        assertThat(execute(CliConstants.HELP, CliConstants.DEBUG)).isEmpty();
+        assertThat(stdOut.size()).isZero();
+    }
+
+    @Test
+    public void rejectInvalidToken() throws Exception {
+        Files.writeString(stateFile, String.format("port=%d%ntoken=invalid%n", server.getPort()));
+
+        assertThat(execute(CliConstants.HELP)).isEmpty();
+    }
+
+    @Test
+    public void rejectTooManyArguments() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeUTF(DaemonProtocol.readState(stateFile).getProperty(DaemonProtocol.TOKEN_KEY));
+            out.writeUTF(Path.of("").toAbsolutePath().toString());
+            out.writeInt(Integer.MAX_VALUE);
+            out.flush();
+
+            assertThat(new DataInputStream(socket.getInputStream()).readByte()).isEqualTo(DaemonProtocol.REJECTED);
+        }
+
+        assertThat(execute(CliConstants.HELP)).hasValue(ReturnCodes.SUCCESS);
+    }
+
+    @Test
+    public void rejectDifferentSystemProperties() throws Exception {
+        final Map<String, String> properties = DaemonProtocol.commandProperties();
+        properties.put("org.wildfly.prospero.maven.metadata-ttl", "10");
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            DaemonProtocol.writeRequest(new DataOutputStream(socket.getOutputStream()),
+                    DaemonProtocol.readState(stateFile).getProperty(DaemonProtocol.TOKEN_KEY),
+                    Path.of("").toAbsolutePath().toString(), new String[]{CliConstants.HELP}, properties);
+
+            assertThat(new DataInputStream(socket.getInputStream()).readByte()).isEqualTo(DaemonProtocol.REJECTED);
+        }
+    }
+
+    @Test
+    public void ignoreDaemonModeProperty() throws Exception {
+        System.setProperty(DaemonServer.DAEMON_PROPERTY, "client");
+        try {
+            assertThat(execute(CliConstants.HELP)).hasValue(ReturnCodes.SUCCESS);
+        } finally {
+            System.clearProperty(DaemonServer.DAEMON_PROPERTY);
+        }
+    }
+
+    @Test
+    public void idleClientDoesNotBlockDaemon() throws Exception {
+        try (Socket idle = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            assertThat(execute(CliConstants.HELP)).hasValue(ReturnCodes.SUCCESS);
+        }
+    }
+
+    @Test
+    public void commandsReuseMavenSession() throws Exception {
+        final SessionCommand command = new SessionCommand();
+        commands = (console, args) -> new CommandLine(command);
+
+        assertThat(execute()).hasValue(ReturnCodes.SUCCESS);
+        assertThat(execute()).hasValue(ReturnCodes.SUCCESS);
+
+        assertThat(command.systems).hasSize(2);
+        assertThat(command.systems.get(1)).isSameAs(command.systems.get(0));
+        assertThat(command.localRepositories).containsOnly(command.localRepositories.get(0));
+        assertThat(command.localRepositories.get(0)).exists();
+
+        server.close();
+        assertThat(command.localRepositories.get(0)).doesNotExist();
+    }
+
+    @Test
+    public void noDaemonIfStateFileIsStale() throws Exception {
+        server.close();
+
+        assertThat(stateFile).doesNotExist();
+        Files.writeString(stateFile, String.format("port=%d%ntoken=test%n", server.getPort()));
+        assertThat(execute(CliConstants.HELP)).isEmpty();
+    }
+
+    @CommandLine.Command(name = "session")
+    static class SessionCommand implements Callable<Integer> {
+        private final List<RepositorySystem> systems = new ArrayList<>();
+        private final List<Path> localRepositories = new ArrayList<>();
+
+        @Override
+        public Integer call() throws Exception {
+            try (MavenSessionManager msm = new MavenSessionManager(MavenOptions.OFFLINE_NO_CACHE)) {
+                systems.add(msm.newRepositorySystem());
+                localRepositories.add(msm.getProvisioningRepo());
+            }
+            return ReturnCodes.SUCCESS;
+        }
+    }
+
+    private OptionalInt execute(String... args) {
+        return new DaemonClient(stateFile).execute(args, new ByteArrayInputStream(new byte[0]),
+                new PrintStream(stdOut, true, StandardCharsets.UTF_8), new PrintStream(errOut, true, StandardCharsets.UTF_8));
+    }
+}
@@ -403,4 +403,16 @@ public interface ProsperoLogger extends BasicLogger {
     @Message(id = 275, value = "The candidate at [%s] was not prepared for %s operation.")
     InvalidUpdateCandidateException wrongCandidateOperation(Path candidateServer, ApplyCandidateAction.Type operationType);
 
+    @Message(id = 276, value = "The candidate [%s] uses the file %s from the installation [%s], but the file has been removed. Please prepare the candidate again.")
+    InvalidUpdateCandidateException deltaCandidateFileRemoved(Path candidateServer, String relativePath, Path installation);
+
+    @Message(id = 277, value = "The candidate archive [%s] was not prepared for the current state of the installation [%s].")
+    InvalidUpdateCandidateException candidateArchiveNotMatching(Path archive, Path installation);
+
+    @Message(id = 278, value = "The candidate archive [%s] is not valid: %s")
+    InvalidUpdateCandidateException invalidCandidateArchive(Path archive, String reason);
+
+    @Message(id = 279, value = "The installation [%s] is listed more than once.")
+    IllegalArgumentException duplicatedInstallation(Path installation);
+
 }
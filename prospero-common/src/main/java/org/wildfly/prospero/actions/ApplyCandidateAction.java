@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -53,6 +54,7 @@ import org.wildfly.prospero.api.exceptions.ApplyCandidateException;
 import org.wildfly.prospero.api.exceptions.InvalidUpdateCandidateException;
 import org.wildfly.prospero.api.exceptions.MetadataException;
 import org.wildfly.prospero.api.exceptions.OperationException;
+import org.wildfly.prospero.api.exceptions.UncheckedMetadataException;
 import org.jboss.galleon.ProvisioningException;
 import org.jboss.galleon.diff.FsDiff;
 import static org.jboss.galleon.diff.FsDiff.ADDED;
@@ -69,7 +71,6 @@ import static org.wildfly.prospero.metadata.ProsperoMetadataUtils.METADATA_DIR;
 
 import org.jboss.galleon.diff.FsEntry;
 import org.jboss.galleon.layout.SystemPaths;
-import org.jboss.galleon.util.HashUtils;
 import org.jboss.galleon.util.IoUtils;
 import org.jboss.galleon.util.PathsUtils;
 import org.wildfly.prospero.galleon.ArtifactCache;
@@ -91,9 +92,19 @@ public class ApplyCandidateAction {
     public static final Path STANDALONE_STARTUP_MARKER = Path.of("standalone", "tmp", "startup-marker");
     public static final Path DOMAIN_STARTUP_MARKER = Path.of("domain", "tmp", "startup-marker");
     public static final String CANDIDATE_CHANNEL_NAME_LIST = "candidate_properties.yaml";
+    /**
+     * if set to {@code false}, files of the candidate and installation are always compared by hashing their content,
+     * instead of using the hashes recorded by Galleon in {@code .galleon/hashes}
+     */
+    public static final String USE_RECORDED_HASHES_PROPERTY = "org.wildfly.prospero.apply.use-recorded-hashes";
     private final Path updateDir;
     private final Path installationDir;
     private final SystemPaths systemPaths;
+    private final DeltaCandidate deltaCandidate;
+    private final FileCopier fileCopier;
+    // candidate hashes shared with other actions applying the same candidate, null if the action hashes the files itself
+    private final ParallelFileHasher sharedHasher;
+    private ApplyStageBackup backup;
 
     private static final Logger log = Logger.getLogger(ApplyCandidateAction.class);
 
@@ -124,13 +135,42 @@ public class ApplyCandidateAction {
         }
     }
 
+    /**
+     * creates an action applying the candidate at {@code updateDir}. The files of the candidate are copied into the
+     * installation, the candidate is not modified by applying it.
+     *
+     * @param installationDir - the installation to be updated
+     * @param updateDir - the update candidate
+     */
     public ApplyCandidateAction(Path installationDir, Path updateDir)
             throws ProvisioningException, OperationException {
+        this(installationDir, updateDir, null, new FileCopier(false));
+    }
+
+    /**
+     * creates an action applying a candidate that has been created by the caller in a temporary directory and is
+     * removed after it is applied. The files of such a candidate can be hardlinked into the installation instead of
+     * copying them, unless disabled by {@code org.wildfly.prospero.apply.use-hardlinks} system property.
+     *
+     * @param installationDir - the installation to be updated
+     * @param updateDir - the temporary update candidate, owned by the caller
+     * @return the action
+     */
+    public static ApplyCandidateAction forTemporaryCandidate(Path installationDir, Path updateDir)
+            throws ProvisioningException, OperationException {
+        return new ApplyCandidateAction(installationDir, updateDir, null, new FileCopier());
+    }
+
+    ApplyCandidateAction(Path installationDir, Path updateDir, ParallelFileHasher sharedHasher, FileCopier fileCopier)
+            throws ProvisioningException, OperationException {
+        this.sharedHasher = sharedHasher;
+        this.fileCopier = fileCopier;
         this.updateDir = InstallFolderUtils.toRealPath(updateDir);
         this.installationDir = InstallFolderUtils.toRealPath(installationDir);
 
         try {
             this.systemPaths = SystemPaths.load(this.updateDir);
+            this.deltaCandidate = DeltaCandidate.read(this.updateDir);
         } catch (IOException ex) {
             throw new ProvisioningException(ex);
         }
@@ -178,10 +218,16 @@ public class ApplyCandidateAction {
         }
 
         final FsDiff diffs = findChanges();
-        ApplyStageBackup backup = null;
+        verifyDeltaCandidate(diffs);
+        backup = null;
         try {
             backup = new ApplyStageBackup(installationDir, updateDir);
-            backup.recordAll();
+            // the metadata is rewritten by the apply, other files are added to the backup only before they are changed.
+            // git objects are immutable and only added by the apply, the restored refs don't reference the new ones,
+            // so the backup doesn't grow with the size of the history
+            backup.exclude(Path.of(METADATA_DIR, ".git", "objects"));
+            backup.record(Path.of(METADATA_DIR));
+            backup.record(installationDir.relativize(PathsUtils.getProvisionedStateDir(installationDir)));
 
             ProsperoLogger.ROOT_LOGGER.debug("Update backup generated in " + installationDir.resolve(ApplyStageBackup.BACKUP_FOLDER));
 
@@ -227,6 +273,23 @@ public class ApplyCandidateAction {
         }
     }
 
+    /*
+     * files missing in a delta candidate are taken from the installation, they can't be applied if the user removed them
+     */
+    private void verifyDeltaCandidate(FsDiff fsDiff) throws InvalidUpdateCandidateException {
+        if (deltaCandidate.isEmpty() || !fsDiff.hasRemovedEntries()) {
+            return;
+        }
+        for (FsEntry removed : fsDiff.getRemovedEntries()) {
+            if (deltaCandidate.isUnchanged(removed.getRelativePath())) {
+                final InvalidUpdateCandidateException ex = ProsperoLogger.ROOT_LOGGER.deltaCandidateFileRemoved(updateDir,
+                        removed.getRelativePath(), installationDir);
+                ProsperoLogger.ROOT_LOGGER.warn("", ex);
+                throw ex;
+            }
+        }
+    }
+
     public enum ValidationResult {
         OK, NOT_CANDIDATE, STALE, WRONG_TYPE, NO_CHANGES;
     }
@@ -331,9 +394,13 @@ public class ApplyCandidateAction {
 
         try (InstallationMetadata metadata = InstallationMetadata.loadInstallation(installationDir)) {
             base = metadata.getArtifacts();
+        } catch (UncheckedMetadataException e) {
+            throw e.getCause();
         }
         try (InstallationMetadata metadata = InstallationMetadata.loadInstallation(updateDir)) {
             candidate = metadata.getArtifacts();
+        } catch (UncheckedMetadataException e) {
+            throw e.getCause();
         }
 
         for (Artifact artifact : base) {
@@ -417,7 +484,7 @@ public class ApplyCandidateAction {
         Path updateGalleonPath = PathsUtils.getProvisionedStateDir(updateDir);
         // add all files in .galleon folder to the backup set
         IoUtils.recursiveDelete(installationGalleonPath);
-        IoUtils.copy(updateGalleonPath, installationGalleonPath, true);
+        fileCopier.copy(updateGalleonPath, installationGalleonPath);
         // after the galleon data is copied, persist a copy of provisioning.xml and record it
         ProsperoMetadataUtils.recordProvisioningDefinition(installationDir);
         writeProsperoMetadata(operation);
@@ -425,6 +492,15 @@ public class ApplyCandidateAction {
         updateAcceptedLicences();
     }
 
+    /*
+     * adds the file to the backup before it is modified, removed or created
+     */
+    private void recordChange(Path file) throws IOException {
+        if (backup != null && file.startsWith(installationDir)) {
+            backup.record(installationDir.relativize(file));
+        }
+    }
+
     private void updateAcceptedLicences() throws MetadataException {
         try {
             new LicenseManager().copyIfExists(updateDir, installationDir);
@@ -468,12 +544,13 @@ public class ApplyCandidateAction {
         }
     }
 
-    private static void copyFiles(Path source, Path target) throws IOException {
-        if (Files.exists(target)) {
-            // need to remove the existing file, because we use a hardlink to provide a backup
+    private void copyFiles(Path source, Path target) throws IOException {
+        recordChange(target);
+        if (Files.isDirectory(target)) {
             FileUtils.deleteQuietly(target.toFile());
         }
-        IoUtils.copy(source, target);
+        // the copier replaces existing files rather than modifying them, because we use a hardlink to provide a backup
+        fileCopier.copy(source, target);
     }
 
     private void updateInstallationCache() throws IOException {
@@ -515,23 +592,45 @@ public class ApplyCandidateAction {
         return conflictList;
     }
 
-    private List<FileConflict> handleAddedFiles(FsDiff fsDiff) throws IOException, ProvisioningException {
+    private List<FileConflict> handleAddedFiles(FsDiff fsDiff, ParallelFileHasher hasher) throws IOException, ProvisioningException {
         final List<FileConflict> conflictList = new ArrayList<>();
         if (fsDiff.hasAddedEntries()) {
+            final List<FsEntry> addedEntries = new ArrayList<>();
             for (FsEntry added : fsDiff.getAddedEntries()) {
                 Path p = Paths.get(added.getRelativePath());
                 // Ignore .installation owned by prospero
                 if (p.getNameCount() > 0 && p.getName(0).toString().equals(METADATA_DIR)) {
                     continue;
                 }
-                addFsEntry(updateDir, added, systemPaths, conflictList);
+                addedEntries.add(added);
+            }
+
+            // calculate the hashes of the candidate files in parallel before comparing them
+            final List<Path> candidateFiles = new ArrayList<>();
+            for (FsEntry added : addedEntries) {
+                collectFiles(updateDir, added, candidateFiles);
+            }
+            hasher.hashAll(candidateFiles);
+
+            for (FsEntry added : addedEntries) {
+                addFsEntry(updateDir, added, systemPaths, conflictList, hasher);
             }
         }
         return conflictList;
     }
 
+    private static void collectFiles(Path updateDir, FsEntry entry, List<Path> files) {
+        if (entry.isDir()) {
+            for (FsEntry child : entry.getChildren()) {
+                collectFiles(updateDir, child, files);
+            }
+        } else {
+            files.add(updateDir.resolve(entry.getRelativePath()));
+        }
+    }
+
     private void addFsEntry(Path updateDir, FsEntry added, SystemPaths systemPaths,
-                            List<FileConflict> conflictList)
+                            List<FileConflict> conflictList, ParallelFileHasher hasher)
             throws ProvisioningException {
         final Path target = updateDir.resolve(added.getRelativePath());
         if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
@@ -540,13 +639,13 @@ public class ApplyCandidateAction {
         if (Files.exists(target)) {
             if (added.isDir()) {
                 for (FsEntry child : added.getChildren()) {
-                    addFsEntry(updateDir, child, systemPaths, conflictList);
+                    addFsEntry(updateDir, child, systemPaths, conflictList, hasher);
                 }
                 return;
             }
             final byte[] targetHash;
             try {
-                targetHash = HashUtils.hashPath(target);
+                targetHash = hasher.hash(target);
             } catch (IOException e) {
                 throw new ProvisioningException(BaseErrors.hashCalculation(target), e);
             }
@@ -571,9 +670,15 @@ public class ApplyCandidateAction {
         }
     }
 
-    private List<FileConflict> handleModifiedFiles(FsDiff fsDiff) throws IOException, ProvisioningException {
+    private List<FileConflict> handleModifiedFiles(FsDiff fsDiff, ParallelFileHasher hasher) throws IOException, ProvisioningException {
         final List<FileConflict> conflictList = new ArrayList<>();
         if (fsDiff.hasModifiedEntries()) {
+            // calculate the hashes of the candidate files in parallel before comparing them
+            hasher.hashAll(fsDiff.getModifiedEntries().stream()
+                    .filter(modified -> !deltaCandidate.isUnchanged(modified[1].getRelativePath()))
+                    .map(modified -> updateDir.resolve(modified[1].getRelativePath()))
+                    .collect(Collectors.toList()));
+
             for (FsEntry[] modified : fsDiff.getModifiedEntries()) {
                 FsEntry installation = modified[1];
                 FsEntry original = modified[0];
@@ -581,10 +686,15 @@ public class ApplyCandidateAction {
                 if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
                     ProsperoLogger.ROOT_LOGGER.debug(formatMessage(MODIFIED, installation.getRelativePath(), null));
                 }
-                if (Files.exists(file)) {
+                if (deltaCandidate.isUnchanged(installation.getRelativePath())) {
+                    // the update doesn't change the file, keep the user changes
+                    if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+                        ProsperoLogger.ROOT_LOGGER.debug(formatMessage(MODIFIED, installation.getRelativePath(), "The file is not changed by the update"));
+                    }
+                } else if (Files.exists(file)) {
                     byte[] updateHash;
                     try {
-                        updateHash = HashUtils.hashPath(file);
+                        updateHash = hasher.hash(file);
                     } catch (IOException e) {
                         throw new ProvisioningException(BaseErrors.hashCalculation(file), e);
                     }
@@ -621,20 +731,47 @@ public class ApplyCandidateAction {
     }
 
     private List<FileConflict> compareServers(FsDiff fsDiff) throws IOException, ProvisioningException {
+        if (sharedHasher != null) {
+            return compareServers(fsDiff, sharedHasher);
+        }
+        try (ParallelFileHasher hasher = newFileHasher(updateDir)) {
+            return compareServers(fsDiff, hasher);
+        }
+    }
+
+    static ParallelFileHasher newFileHasher(Path updateDir) throws IOException {
+        final ParallelFileHasher hasher = new ParallelFileHasher();
+        if (useRecordedHashes()) {
+            // the candidate is freshly provisioned, the hashes recorded by Galleon describe its content
+            hasher.useRecordedHashes(updateDir, RecordedHashes.read(updateDir));
+        }
+        return hasher;
+    }
+
+    private static boolean useRecordedHashes() {
+        return Boolean.parseBoolean(System.getProperty(USE_RECORDED_HASHES_PROPERTY, "true"));
+    }
+
+    private List<FileConflict> compareServers(FsDiff fsDiff, ParallelFileHasher hasher) throws IOException, ProvisioningException {
         List<FileConflict> conflicts = new ArrayList<>();
         // Handles user added/removed/modified files
         conflicts.addAll(handleRemovedFiles(fsDiff));
-        conflicts.addAll(handleAddedFiles(fsDiff));
-        conflicts.addAll(handleModifiedFiles(fsDiff));
+        conflicts.addAll(handleAddedFiles(fsDiff, hasher));
+        conflicts.addAll(handleModifiedFiles(fsDiff, hasher));
         return Collections.unmodifiableList(conflicts);
     }
 
     private List<FileConflict> doApplyUpdate(FsDiff fsDiff) throws IOException, ProvisioningException {
-        List<FileConflict> conflicts = new ArrayList<>();
-        // Handles user added/removed/modified files
-        conflicts.addAll(handleRemovedFiles(fsDiff));
-        conflicts.addAll(handleAddedFiles(fsDiff));
-        conflicts.addAll(handleModifiedFiles(fsDiff));
+        if (sharedHasher != null) {
+            return doApplyUpdate(fsDiff, sharedHasher);
+        }
+        try (ParallelFileHasher hasher = newFileHasher(updateDir)) {
+            return doApplyUpdate(fsDiff, hasher);
+        }
+    }
+
+    private List<FileConflict> doApplyUpdate(FsDiff fsDiff, ParallelFileHasher hasher) throws IOException, ProvisioningException {
+        List<FileConflict> conflicts = new ArrayList<>(compareServers(fsDiff, hasher));
 
         resolveFileConflicts(conflicts);
 
@@ -645,24 +782,17 @@ public class ApplyCandidateAction {
         Path skipInstallationInstallation = installationDir.resolve(METADATA_DIR);
 
         // Copy the new/modified files that the update brings that are not in the installation and not removed/modified by the user.
+        final List<Path> updatedFiles = new ArrayList<>();
         Files.walkFileTree(updateDir, new SimpleFileVisitor<Path>() {
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
                     throws IOException {
                 Path relative = updateDir.relativize(file);
-                Path installationFile = installationDir.resolve(relative);
                 // Not a file added or modified by the user
                 final String pathKey = getFsDiffKey(relative, false);
                 if (fsDiff.getModifiedEntry(pathKey) == null &&
                         fsDiff.getAddedEntry(pathKey) == null && !isParentAdded(fsDiff, relative)) {
-                    byte[] updateHash = HashUtils.hashPath(file);
-                    // The file could be new or updated in the installation
-                    if (!Files.exists(installationFile) || !Arrays.equals(updateHash, HashUtils.hashPath(installationFile))) {
-                        if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
-                            ProsperoLogger.ROOT_LOGGER.debug("Copying updated file " + relative + " to the installation");
-                        }
-                        copyFiles(file, installationFile);
-                    }
+                    updatedFiles.add(relative);
                 }
                 return FileVisitResult.CONTINUE;
             }
@@ -695,6 +825,14 @@ public class ApplyCandidateAction {
             }
         });
 
+        // The file could be new or updated in the installation
+        for (Path relative : findChangedFiles(updatedFiles, hasher)) {
+            if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+                ProsperoLogger.ROOT_LOGGER.debug("Copying updated file " + relative + " to the installation");
+            }
+            copyFiles(updateDir.resolve(relative), installationDir.resolve(relative));
+        }
+
         // Delete the files in the installation that are not present in the update and not added by the user
         // We need to skip .glnew and .glold.
         Files.walkFileTree(installationDir, new SimpleFileVisitor<Path>() {
@@ -704,10 +842,11 @@ public class ApplyCandidateAction {
                 Path relative = installationDir.relativize(file);
                 Path updateFile = updateDir.resolve(relative);
                 final String fsDiffKey = getFsDiffKey(relative, false);
-                if (isNotAddedOrModified(fsDiffKey, fsDiff) && fileNotPresent(updateFile)) {
+                if (isNotAddedOrModified(fsDiffKey, fsDiff) && fileNotPresent(updateFile) && !deltaCandidate.isUnchanged(fsDiffKey)) {
                     if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
                         ProsperoLogger.ROOT_LOGGER.debug("Deleting the file " + relative + " that doesn't exist in the update");
                     }
+                    recordChange(file);
                     IoUtils.recursiveDelete(file);
                 }
                 return FileVisitResult.CONTINUE;
@@ -745,7 +884,7 @@ public class ApplyCandidateAction {
             }
 
             @Override
-            public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
                 if (!dir.equals(installationDir)) {
                     Path relative = installationDir.relativize(dir);
                     Path target = updateDir.resolve(relative);
@@ -754,6 +893,7 @@ public class ApplyCandidateAction {
                         if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
                             ProsperoLogger.ROOT_LOGGER.debug("Deleting the directory " + relative + " that doesn't exist in the update");
                         }
+                        recordChange(dir);
                         IoUtils.recursiveDelete(dir);
                         return FileVisitResult.SKIP_SUBTREE;
                     }
@@ -767,7 +907,7 @@ public class ApplyCandidateAction {
                     Path relative = installationDir.relativize(file);
                     Path target = updateDir.resolve(relative);
                     // TODO: check it's not in the Galleon hashes
-                    if (Files.exists(target)) {
+                    if (Files.exists(target) || deltaCandidate.isUnchanged(getFsDiffKey(relative, false))) {
                         throw exc;
                     }
                     return FileVisitResult.SKIP_SUBTREE;
@@ -779,6 +919,39 @@ public class ApplyCandidateAction {
         return Collections.unmodifiableList(conflicts);
     }
 
+    /*
+     * Files that were not modified by the user (not flagged in FsDiff) still match hashes recorded in the installation
+     * and the files in the candidate match hashes recorded in the candidate. If a file has a recorded hash in both,
+     * the recorded hashes can be compared without reading the files. Any remaining files are compared on disk.
+     */
+    private List<Path> findChangedFiles(List<Path> candidateFiles, ParallelFileHasher hasher) throws IOException {
+        if (!useRecordedHashes()) {
+            return hasher.findChanged(updateDir, installationDir, candidateFiles);
+        }
+
+        final RecordedHashes installationHashes = RecordedHashes.read(installationDir);
+        final RecordedHashes candidateHashes = RecordedHashes.read(updateDir);
+        final Set<Path> changed = new HashSet<>();
+        final List<Path> unknown = new ArrayList<>();
+        for (Path relative : candidateFiles) {
+            final String pathKey = getFsDiffKey(relative, false);
+            final byte[] installationHash = installationHashes.get(pathKey);
+            final byte[] candidateHash = candidateHashes.get(pathKey);
+            if (installationHash == null || candidateHash == null || !Files.exists(installationDir.resolve(relative))) {
+                unknown.add(relative);
+            } else if (!Arrays.equals(installationHash, candidateHash)) {
+                changed.add(relative);
+            }
+        }
+        if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
+            ProsperoLogger.ROOT_LOGGER.debugf("Found %d changed files using recorded hashes, verifying %d files without recorded hashes",
+                    changed.size(), unknown.size());
+        }
+        changed.addAll(hasher.findChanged(updateDir, installationDir, unknown));
+
+        return candidateFiles.stream().filter(changed::contains).collect(Collectors.toList());
+    }
+
     private void resolveFileConflicts(List<FileConflict> conflicts) throws IOException, ProvisioningException {
         // apply conflict resolution
         for (FileConflict conflict : conflicts) {
@@ -788,8 +961,9 @@ public class ApplyCandidateAction {
                 if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
                     ProsperoLogger.ROOT_LOGGER.trace("Resolving file conflict: restoring files removed by the user: " + conflict);
                 }
+                recordChange(current);
                 Files.createDirectories(current.getParent());
-                IoUtils.copy(target, current);
+                copyFiles(target, current);
             } else if (conflict.getUpdateChange() == FileConflict.Change.ADDED && conflict.getResolution() == FileConflict.Resolution.UPDATE) {
                 if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
                     ProsperoLogger.ROOT_LOGGER.trace("Resolving file conflict: backing up user changes and applying update changes: " + conflict);
@@ -843,7 +1017,7 @@ public class ApplyCandidateAction {
 
 
 
-    private static void glnew(final Path updateFile, Path installationFile) throws ProvisioningException {
+    private void glnew(final Path updateFile, Path installationFile) throws ProvisioningException {
         final Path glnewFile = installationFile.getParent().resolve(installationFile.getFileName() + Constants.DOT_GLNEW);
         try {
             copyFiles(updateFile, glnewFile);
@@ -852,7 +1026,7 @@ public class ApplyCandidateAction {
         }
     }
 
-    private static void glold(Path installationFile, final Path target) throws ProvisioningException {
+    private void glold(Path installationFile, final Path target) throws ProvisioningException {
         final Path gloldFile = installationFile.getParent().resolve(installationFile.getFileName() + Constants.DOT_GLOLD);
         try {
             copyFiles(installationFile, gloldFile);
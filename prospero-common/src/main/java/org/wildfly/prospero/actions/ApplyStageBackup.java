@@ -3,19 +3,31 @@ package org.wildfly.prospero.actions;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.wildfly.prospero.ProsperoLogger;
+import org.wildfly.prospero.galleon.ArtifactCache;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * A temporary record of all files modified, removed or added during applying a candidate server.
+ *
+ * The backup can either record the whole server upfront using {@link #recordAll()}, or record only the paths that
+ * are going to be changed using {@link #record(Path)}. In the latter case, restoring the backup only touches the
+ * recorded paths.
+ *
+ * Paths that are only ever added to, never modified, can be {@link #exclude(Path) excluded} - they are neither copied
+ * into the backup nor cleaned when it is restored.
  */
 class ApplyStageBackup implements AutoCloseable {
 
@@ -23,6 +35,13 @@ class ApplyStageBackup implements AutoCloseable {
     private final Path backupRoot;
     private final Path serverRoot;
     private final Path candidateRoot;
+    private final FileCopier fileCopier = new FileCopier();
+    private boolean recordedAll;
+    // paths relative to serverRoot that have been recorded using record(Path)
+    private final Set<Path> recorded = new HashSet<>();
+    private final Set<Path> recordedDirs = new LinkedHashSet<>();
+    private final Set<Path> added = new LinkedHashSet<>();
+    private final Set<Path> excluded = new HashSet<>();
 
     /**
      * create a record for server at {@code serverRoot}. The recorded files will be stored in {@tempRoot}
@@ -64,13 +83,80 @@ class ApplyStageBackup implements AutoCloseable {
         }
     }
 
+    /**
+     * exclude a directory from the backup. The files in the directory are not recorded, and files added to it are
+     * not removed when the backup is restored. Has to be called before the directory is recorded.
+     *
+     * @param relativePath - path relative to the server root
+     */
+    public void exclude(Path relativePath) {
+        excluded.add(relativePath);
+    }
+
     /**
      * add all the files in the server to cache
      *
      * @throws IOException - if unable to backup the files
      */
     public void recordAll() throws IOException {
-        Files.walkFileTree(serverRoot, new SimpleFileVisitor<>() {
+        recordTree(serverRoot);
+        recordedAll = true;
+    }
+
+    /**
+     * add a file or a directory in the server to the backup before it is modified or removed. If the path doesn't exist
+     * in the server, it is recorded as added and will be removed when the backup is restored.
+     *
+     * Paths already covered by the backup are ignored, so that the backup always holds the original state of the server.
+     *
+     * @param relativePath - path relative to the server root
+     * @throws IOException - if unable to backup the files
+     */
+    public void record(Path relativePath) throws IOException {
+        if (recordedAll || isRecorded(relativePath) || isExcluded(relativePath)) {
+            return;
+        }
+
+        final Path file = serverRoot.resolve(relativePath);
+        if (Files.isDirectory(file)) {
+            recordTree(file);
+            recordedDirs.add(relativePath);
+        } else if (Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+            if (!isUserProtectedFile(file)) {
+                backupFile(file);
+            }
+        } else {
+            // record the top-most directory created for the path, removing it removes everything added underneath
+            Path addedPath = relativePath;
+            while (addedPath.getParent() != null && !Files.exists(serverRoot.resolve(addedPath.getParent()))) {
+                addedPath = addedPath.getParent();
+            }
+            if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
+                ProsperoLogger.ROOT_LOGGER.trace("Recording added path " + addedPath);
+            }
+            added.add(addedPath);
+            recorded.add(addedPath);
+        }
+        recorded.add(relativePath);
+    }
+
+    private boolean isRecorded(Path relativePath) {
+        Path path = relativePath;
+        while (path != null) {
+            if (recorded.contains(path)) {
+                return true;
+            }
+            path = path.getParent();
+        }
+        return false;
+    }
+
+    private boolean isExcluded(Path relativePath) {
+        return excluded.stream().anyMatch(relativePath::startsWith);
+    }
+
+    private void recordTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
 
             @Override
             public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
@@ -86,6 +172,9 @@ class ApplyStageBackup implements AutoCloseable {
                     return FileVisitResult.SKIP_SUBTREE;
                 } else {
                     final Path relative = serverRoot.relativize(dir);
+                    if (isRecorded(relative) || isExcluded(relative)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
                     Files.createDirectories(backupRoot.resolve(relative));
                     return FileVisitResult.CONTINUE;
                 }
@@ -96,26 +185,37 @@ class ApplyStageBackup implements AutoCloseable {
                 if (isUserProtectedFile(file)) {
                     return FileVisitResult.SKIP_SUBTREE;
                 }
-                final Path relative = serverRoot.relativize(file);
-                if (relative.startsWith(Path.of(".installation", ".git"))) {
-                    // when using hardlinks, we need to remove the file and copy the new one in it's place otherwise both would be changed.
-                    // the git folder is manipulated by jgit and we can't control how it operates on the files
-                    // therefore we need to copy the files upfront rather than hardlinking them
-                    Files.copy(file, backupRoot.resolve(relative));
-                } else {
-                    // we try to use hardlinks instead of copy to save disk space
-                    // fallback on copy if Filesystem doesn't support hardlinks
-                    try {
-                        Files.createLink(backupRoot.resolve(relative), file);
-                    } catch (UnsupportedOperationException e) {
-                        Files.copy(file, backupRoot.resolve(relative));
-                    }
+                if (!isRecorded(serverRoot.relativize(file))) {
+                    backupFile(file);
                 }
                 return FileVisitResult.CONTINUE;
             }
         });
     }
 
+    private void backupFile(Path file) throws IOException {
+        final Path relative = serverRoot.relativize(file);
+        final Path target = backupRoot.resolve(relative);
+        if (target.getParent() != null) {
+            Files.createDirectories(target.getParent());
+        }
+
+        if (relative.startsWith(ProsperoMetadataUtils.METADATA_DIR) && !relative.startsWith(ArtifactCache.CACHE_FOLDER)) {
+            // when using hardlinks, we need to remove the file and copy the new one in it's place otherwise both would be changed.
+            // the metadata files (including the git folder manipulated by jgit) are written in place
+            // therefore we need to copy the files upfront rather than hardlinking them
+            Files.copy(file, target);
+        } else {
+            // we try to use hardlinks instead of copy to save disk space
+            // fallback on copy if Filesystem doesn't support hardlinks
+            try {
+                Files.createLink(target, file);
+            } catch (UnsupportedOperationException e) {
+                Files.copy(file, target);
+            }
+        }
+    }
+
     /**
      * clean up the cache
      */
@@ -141,8 +241,26 @@ class ApplyStageBackup implements AutoCloseable {
         // copy backed-up files back into the server
         Files.walkFileTree(backupRoot, restoreModifiedFiles());
 
-        // remove all files added to recorded folders that were not handled by addedFiles
-        Files.walkFileTree(serverRoot, deleteNewFiles());
+        if (recordedAll) {
+            // remove all files added to recorded folders that were not handled by addedFiles
+            Files.walkFileTree(serverRoot, deleteNewFiles());
+        } else {
+            for (Path addedPath : added) {
+                final Path file = serverRoot.resolve(addedPath);
+                if (Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+                    if (ProsperoLogger.ROOT_LOGGER.isTraceEnabled()) {
+                        ProsperoLogger.ROOT_LOGGER.trace("Removing added path " + addedPath);
+                    }
+                    FileUtils.forceDelete(file.toFile());
+                }
+            }
+            // remove files added to recorded folders
+            for (Path dir : recordedDirs) {
+                if (Files.exists(serverRoot.resolve(dir))) {
+                    Files.walkFileTree(serverRoot.resolve(dir), deleteNewFiles());
+                }
+            }
+        }
     }
 
     private SimpleFileVisitor<Path> deleteNewFiles() {
@@ -184,7 +302,7 @@ class ApplyStageBackup implements AutoCloseable {
 
             @Override
             public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                if (dir.equals(backupRoot)) {
+                if (dir.equals(backupRoot) || isExcluded(serverRoot.relativize(dir))) {
                     return FileVisitResult.SKIP_SUBTREE;
                 } else {
                     return FileVisitResult.CONTINUE;
@@ -210,6 +328,13 @@ class ApplyStageBackup implements AutoCloseable {
 
     private SimpleFileVisitor<Path> restoreModifiedFiles() {
         return new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                // recreate recorded directories removed during the update, even if they were empty
+                Files.createDirectories(serverRoot.resolve(backupRoot.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
                 final Path relativePath = backupRoot.relativize(file);
@@ -229,7 +354,8 @@ class ApplyStageBackup implements AutoCloseable {
                         ProsperoLogger.ROOT_LOGGER.trace("Restoring changed file " + relativePath);
                     }
 
-                    Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
+                    // the backup is removed after restoring, so its files can be moved back using hardlinks
+                    fileCopier.copy(file, targetFile);
                 }
                 return FileVisitResult.CONTINUE;
             }
@@ -240,6 +366,13 @@ class ApplyStageBackup implements AutoCloseable {
         if (!Files.exists(targetFile)) {
             return true;
         }
+        // most of the backed-up files are hardlinks to server files that have not been touched by the update
+        if (Files.isSameFile(file, targetFile)) {
+            return false;
+        }
+        if (Files.size(file) != Files.size(targetFile)) {
+            return true;
+        }
 
         try (FileInputStream fis1 = new FileInputStream(targetFile.toFile());
              FileInputStream fis2 = new FileInputStream(file.toFile())){
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jboss.logging.Logger;
+import org.wildfly.prospero.ProsperoLogger;
+import org.wildfly.prospero.api.CompressedFiles;
+import org.wildfly.prospero.api.InstallationMetadata;
+import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.api.exceptions.OperationException;
+import org.wildfly.prospero.updates.MarkerFile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * A ZIP archive of an update candidate that can be applied to any installation with the same state as the installation
+ * it was prepared for.
+ *
+ * The archive contains, in this order:
+ * <ul>
+ *     <li>{@code HEADER_ENTRY} - the installation revision and a digest of the hashes recorded in {@code .galleon/hashes}
+ *     of the installation the candidate was prepared for,</li>
+ *     <li>{@code CONTENT_LIST_ENTRY} - every directory and file of the candidate with the SHA-256 of the file content
+ *     and POSIX permissions,</li>
+ *     <li>the candidate content under {@code CONTENT_DIR}.</li>
+ * </ul>
+ *
+ * The header and content list come first, so the archive can be verified against the installation before anything is
+ * extracted and each file is verified while it is streamed out of the archive. If delta candidates are enabled, the
+ * archived candidate is a {@link DeltaCandidate} - the files the update doesn't change are taken from the installation
+ * when it is applied.
+ */
+public class CandidateArchive {
+
+    private static final Logger LOG = Logger.getLogger(CandidateArchive.class);
+
+    static final String HEADER_ENTRY = "candidate-archive.properties";
+    static final String CONTENT_LIST_ENTRY = "candidate-archive.sha256";
+    static final String CONTENT_DIR = "candidate/";
+    private static final String FORMAT_VERSION = "1";
+    private static final String FORMAT_PROPERTY = "format";
+    private static final String STATE_PROPERTY = "state";
+    private static final String HASHES_PROPERTY = "installation-hashes";
+    private static final String DIRECTORY = "d";
+    private static final String FILE = "f";
+    private static final String NONE = "-";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private CandidateArchive() {
+    }
+
+    /**
+     * packages the {@code candidateDir} prepared for {@code installationDir} into {@code archive}.
+     *
+     * @param installationDir - the installation the candidate was prepared for
+     * @param candidateDir - the candidate server
+     * @param archive - path of the created archive
+     * @throws IOException - if the candidate cannot be read or the archive written
+     * @throws MetadataException - if the candidate's marker file is not valid
+     */
+    public static void create(Path installationDir, Path candidateDir, Path archive) throws IOException, MetadataException {
+        final Properties header = new Properties();
+        header.setProperty(FORMAT_PROPERTY, FORMAT_VERSION);
+        header.setProperty(STATE_PROPERTY, MarkerFile.read(candidateDir).getState());
+        header.setProperty(HASHES_PROPERTY, RecordedHashes.read(installationDir).digest());
+
+        final List<Entry> entries = listEntries(candidateDir);
+
+        try (ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(archive), BUFFER_SIZE))) {
+            zos.putNextEntry(new ZipEntry(HEADER_ENTRY));
+            header.store(zos, null);
+            zos.closeEntry();
+
+            zos.putNextEntry(new ZipEntry(CONTENT_LIST_ENTRY));
+            for (Entry entry : entries) {
+                zos.write((entry.toLine() + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            zos.closeEntry();
+
+            for (Entry entry : entries) {
+                if (entry.isDirectory()) {
+                    zos.putNextEntry(new ZipEntry(CONTENT_DIR + entry.path + "/"));
+                } else {
+                    // already compressed archives would not get any smaller, only spend time in the deflater
+                    zos.setLevel(CompressedFiles.isCompressed(entry.path) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+                    zos.putNextEntry(new ZipEntry(CONTENT_DIR + entry.path));
+                    Files.copy(candidateDir.resolve(entry.path), zos);
+                }
+                zos.closeEntry();
+            }
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debugf("Created candidate archive %s with %d entries from %s", archive, entries.size(), candidateDir);
+        }
+    }
+
+    /**
+     * extracts the candidate from {@code archive} into {@code targetDir}. The archive is verified to have been prepared
+     * for the current state of {@code installationDir} before extracting, and the content of each file is verified
+     * while it is extracted.
+     *
+     * @param archive - the candidate archive
+     * @param installationDir - the installation the candidate will be applied to
+     * @param targetDir - an empty or non-existing directory to extract the candidate into
+     * @throws OperationException - if the archive cannot be read, doesn't match the installation or is corrupted
+     */
+    public static void extract(Path archive, Path installationDir, Path targetDir) throws OperationException {
+        try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(Files.newInputStream(archive), BUFFER_SIZE))) {
+            verifyInstallation(readHeader(zis, archive), archive, installationDir);
+
+            ZipEntry zipEntry = zis.getNextEntry();
+            if (zipEntry == null || !CONTENT_LIST_ENTRY.equals(zipEntry.getName())) {
+                throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive, "missing " + CONTENT_LIST_ENTRY);
+            }
+            final Map<String, Entry> expected = new LinkedHashMap<>();
+            for (String line : new String(zis.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.isEmpty()) {
+                    final Entry entry = Entry.fromLine(line, archive);
+                    expected.put(entry.path, entry);
+                }
+            }
+            final List<Entry> entries = new ArrayList<>(expected.values());
+
+            final Path root = targetDir.toAbsolutePath().normalize();
+            Files.createDirectories(root);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while ((zipEntry = zis.getNextEntry()) != null) {
+                final String name = zipEntry.getName();
+                final String path = name.endsWith("/") ? name.substring(0, name.length() - 1) : name;
+                final Entry entry = path.startsWith(CONTENT_DIR) ? expected.remove(path.substring(CONTENT_DIR.length())) : null;
+                if (entry == null || entry.isDirectory() != zipEntry.isDirectory()) {
+                    throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive, "unexpected entry " + name);
+                }
+                final Path target = root.resolve(entry.path).normalize();
+                if (!target.startsWith(root) || target.equals(root)) {
+                    throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive, "invalid path " + name);
+                }
+
+                if (entry.isDirectory()) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    final MessageDigest digest = DigestUtils.getSha256Digest();
+                    // not closed, closing the DigestInputStream would close the whole archive
+                    final InputStream is = new DigestInputStream(zis, digest);
+                    try (OutputStream os = Files.newOutputStream(target)) {
+                        int len;
+                        while ((len = is.read(buffer)) > 0) {
+                            os.write(buffer, 0, len);
+                        }
+                    }
+                    if (!Hex.encodeHexString(digest.digest()).equals(entry.hash)) {
+                        throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive, "checksum mismatch of " + name);
+                    }
+                }
+            }
+            if (!expected.isEmpty()) {
+                throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive,
+                        "missing entry " + CONTENT_DIR + expected.keySet().iterator().next());
+            }
+
+            // set permissions only after all the content is written, in case some directories are read-only
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                for (int i = entries.size() - 1; i >= 0; i--) {
+                    final Entry entry = entries.get(i);
+                    if (!NONE.equals(entry.permissions)) {
+                        Files.setPosixFilePermissions(root.resolve(entry.path), PosixFilePermissions.fromString(entry.permissions));
+                    }
+                }
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debugf("Extracted candidate archive %s with %d entries into %s", archive, entries.size(), targetDir);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(archive, e);
+        }
+    }
+
+    /**
+     * verifies that the {@code archive} was prepared for the current state of {@code installationDir}, without
+     * extracting it.
+     *
+     * @param archive - the candidate archive
+     * @param installationDir - the installation the candidate will be applied to
+     * @throws OperationException - if the archive cannot be read or doesn't match the installation
+     */
+    public static void verify(Path archive, Path installationDir) throws OperationException {
+        try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(Files.newInputStream(archive), BUFFER_SIZE))) {
+            verifyInstallation(readHeader(zis, archive), archive, installationDir);
+        } catch (IOException | IllegalArgumentException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(archive, e);
+        }
+    }
+
+    private static Properties readHeader(ZipInputStream zis, Path archive) throws IOException, OperationException {
+        final ZipEntry zipEntry = zis.getNextEntry();
+        if (zipEntry == null || !HEADER_ENTRY.equals(zipEntry.getName())) {
+            throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive, "missing " + HEADER_ENTRY);
+        }
+        final Properties header = new Properties();
+        header.load(zis);
+        if (!FORMAT_VERSION.equals(header.getProperty(FORMAT_PROPERTY))) {
+            throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive,
+                    "unsupported format " + header.getProperty(FORMAT_PROPERTY));
+        }
+        return header;
+    }
+
+    private static void verifyInstallation(Properties header, Path archive, Path installationDir) throws IOException, OperationException {
+        final String state;
+        try (InstallationMetadata metadata = InstallationMetadata.loadInstallation(installationDir)) {
+            state = metadata.getRevisions().get(0).getName();
+        }
+        if (!state.equals(header.getProperty(STATE_PROPERTY))) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debugf("The candidate archive %s was prepared for state %s, the installation %s is in state %s",
+                        archive, header.getProperty(STATE_PROPERTY), installationDir, state);
+            }
+            throw ProsperoLogger.ROOT_LOGGER.candidateArchiveNotMatching(archive, installationDir);
+        }
+        if (!RecordedHashes.read(installationDir).digest().equals(header.getProperty(HASHES_PROPERTY))) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debugf("The hashes recorded in the installation %s don't match the candidate archive %s",
+                        installationDir, archive);
+            }
+            throw ProsperoLogger.ROOT_LOGGER.candidateArchiveNotMatching(archive, installationDir);
+        }
+    }
+
+    private static List<Entry> listEntries(Path candidateDir) throws IOException {
+        final boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        final List<Path> paths;
+        try (Stream<Path> files = Files.walk(candidateDir)) {
+            paths = files.filter(p -> !p.equals(candidateDir)).sorted().collect(Collectors.toList());
+        }
+
+        final List<Entry> entries = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            final String relative = candidateDir.relativize(path).toString().replace(File.separatorChar, '/');
+            final String permissions = posix
+                    ? PosixFilePermissions.toString(Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS))
+                    : NONE;
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                entries.add(new Entry(DIRECTORY, NONE, permissions, relative));
+            } else if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+                final MessageDigest digest = DigestUtils.getSha256Digest();
+                try (InputStream is = Files.newInputStream(path)) {
+                    DigestUtils.updateDigest(digest, is);
+                }
+                entries.add(new Entry(FILE, Hex.encodeHexString(digest.digest()), permissions, relative));
+            } else {
+                throw new IOException("Unable to archive " + path + ", only regular files and directories are supported");
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * a line of the content list - {@code <type> <sha256> <permissions> <path>}
+     */
+    private static class Entry {
+        private final String type;
+        private final String hash;
+        private final String permissions;
+        private final String path;
+
+        private Entry(String type, String hash, String permissions, String path) {
+            this.type = type;
+            this.hash = hash;
+            this.permissions = permissions;
+            this.path = path;
+        }
+
+        private boolean isDirectory() {
+            return DIRECTORY.equals(type);
+        }
+
+        private String toLine() {
+            return type + " " + hash + " " + permissions + " " + path;
+        }
+
+        private static Entry fromLine(String line, Path archive) throws OperationException {
+            final String[] parts = line.split(" ", 4);
+            if (parts.length != 4 || !(DIRECTORY.equals(parts[0]) || FILE.equals(parts[0])) || parts[3].isEmpty()) {
+                throw ProsperoLogger.ROOT_LOGGER.invalidCandidateArchive(archive, "invalid content list line " + line);
+            }
+            return new Entry(parts[0], parts[1], parts[2], parts[3]);
+        }
+    }
+}
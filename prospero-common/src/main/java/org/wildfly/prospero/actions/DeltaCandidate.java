@@ -0,0 +1,163 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.jboss.galleon.Constants;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.wildfly.prospero.metadata.ProsperoMetadataUtils.METADATA_DIR;
+
+/**
+ * A candidate server containing only the files changed by the update.
+ *
+ * After the candidate is provisioned, files with the same recorded hash, size and POSIX permissions in the candidate
+ * and in the installation are removed from the candidate. The paths of the removed files are listed in {@code DELTA_FILE}, so that
+ * {@link ApplyCandidateAction} treats them as present and unchanged rather than removed by the update. The Galleon
+ * and installer metadata are always kept complete.
+ */
+class DeltaCandidate {
+
+    private static final Logger LOG = Logger.getLogger(DeltaCandidate.class);
+
+    static final Path DELTA_FILE = Path.of(METADATA_DIR, ".candidate-delta.txt");
+    /**
+     * if set to {@code true}, {@link UpdateAction#performUpdate()} and {@link UpdateAction#buildUpdateArchive(Path)}
+     * build a delta candidate. Disabled by default - the full server is still provisioned, so the delta only reduces
+     * the size of the candidate, while the apply depends on the installation's unchanged files.
+     */
+    static final String DELTA_CANDIDATE_PROPERTY = "org.wildfly.prospero.update.delta-candidate";
+
+    private final Set<String> unchangedFiles;
+
+    private DeltaCandidate(Set<String> unchangedFiles) {
+        this.unchangedFiles = unchangedFiles;
+    }
+
+    static boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(DELTA_CANDIDATE_PROPERTY, "false"));
+    }
+
+    /**
+     * removes the files that are the same in the {@code candidateDir} and the {@code installationDir} from the candidate.
+     *
+     * @param installationDir - the installation the candidate will be applied to
+     * @param candidateDir - a fully provisioned candidate
+     * @return number of removed files
+     * @throws IOException - if the hashes cannot be read or the files removed
+     */
+    static int create(Path installationDir, Path candidateDir) throws IOException {
+        final RecordedHashes installationHashes = RecordedHashes.read(installationDir);
+        final RecordedHashes candidateHashes = RecordedHashes.read(candidateDir);
+
+        final List<String> removed = new ArrayList<>();
+        for (String path : candidateHashes.getPaths()) {
+            if (isMetadata(path)) {
+                continue;
+            }
+            final byte[] installationHash = installationHashes.get(path);
+            if (installationHash == null || !Arrays.equals(installationHash, candidateHashes.get(path))) {
+                continue;
+            }
+
+            final Path candidateFile = candidateDir.resolve(path);
+            final Path installationFile = installationDir.resolve(path);
+            // the installation file has to be usable in place of the candidate's one, a quick check that it hasn't
+            // been changed or removed since it was provisioned. Changes made after this are verified when applying.
+            if (Files.isRegularFile(candidateFile, LinkOption.NOFOLLOW_LINKS)
+                    && Files.isRegularFile(installationFile, LinkOption.NOFOLLOW_LINKS)
+                    && Files.size(candidateFile) == Files.size(installationFile)
+                    // the update can change only the permissions, e.g. make a script executable
+                    && samePermissions(candidateFile, installationFile)) {
+                Files.delete(candidateFile);
+                removed.add(path);
+            }
+        }
+        Collections.sort(removed);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(candidateDir.resolve(DELTA_FILE), StandardCharsets.UTF_8)) {
+            for (String path : removed) {
+                writer.write(path);
+                writer.newLine();
+            }
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debugf("Removed %d files unchanged by the update from the candidate %s", removed.size(), candidateDir);
+        }
+        return removed.size();
+    }
+
+    /**
+     * reads the list of files of a delta candidate. If the {@code candidateDir} is a complete server, the list is empty.
+     *
+     * @param candidateDir - root of the candidate server
+     * @return the delta candidate
+     * @throws IOException - if the list cannot be read
+     */
+    static DeltaCandidate read(Path candidateDir) throws IOException {
+        final Path deltaFile = candidateDir.resolve(DELTA_FILE);
+        if (!Files.exists(deltaFile)) {
+            return new DeltaCandidate(Collections.emptySet());
+        }
+        final Set<String> paths = new HashSet<>();
+        for (String line : Files.readAllLines(deltaFile, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                paths.add(line);
+            }
+        }
+        return new DeltaCandidate(paths);
+    }
+
+    /**
+     * @param relativePath - path relative to the server root, using UNIX separators
+     * @return {@code true} if the file was removed from the candidate because the update doesn't change it
+     */
+    boolean isUnchanged(String relativePath) {
+        return unchangedFiles.contains(relativePath);
+    }
+
+    boolean isEmpty() {
+        return unchangedFiles.isEmpty();
+    }
+
+    private static boolean samePermissions(Path candidateFile, Path installationFile) throws IOException {
+        final PosixFileAttributeView candidateView = Files.getFileAttributeView(candidateFile, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+        final PosixFileAttributeView installationView = Files.getFileAttributeView(installationFile, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+        if (candidateView == null || installationView == null) {
+            return true;
+        }
+        return candidateView.readAttributes().permissions().equals(installationView.readAttributes().permissions());
+    }
+
+    private static boolean isMetadata(String path) {
+        return path.startsWith(METADATA_DIR + "/") || path.startsWith(Constants.PROVISIONED_STATE_DIR + "/");
+    }
+}
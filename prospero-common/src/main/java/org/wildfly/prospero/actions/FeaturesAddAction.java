@@ -104,6 +104,8 @@ public class FeaturesAddAction {
 
         this.console = console;
         this.metadata = InstallationMetadata.loadInstallation(this.installDir);
+        // the operation needs all of the metadata, report any errors reading it straight away
+        this.metadata.loadAll();
         this.prosperoConfig = addTemporaryRepositories(repositories);
 
         final MavenOptions mergedOptions = prosperoConfig.getMavenOptions().merge(mavenOptions);
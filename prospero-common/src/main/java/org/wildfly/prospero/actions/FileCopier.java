@@ -0,0 +1,216 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copies files between the candidate server, the installation and the backup. Each file is copied using the cheapest
+ * available method:
+ * <ol>
+ *     <li>a hardlink, if enabled and the source and target are on the same filesystem,</li>
+ *     <li>{@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, which lets the JDK copy the data
+ *     in the kernel. On recent JDKs and kernels this uses {@code copy_file_range} that shares the data extents on
+ *     filesystems supporting reflinks (e.g. XFS or btrfs),</li>
+ *     <li>{@link Files#copy(Path, Path, java.nio.file.CopyOption...)}.</li>
+ * </ol>
+ *
+ * Existing target files are always removed before copying, so that a target file sharing its data with another file
+ * (e.g. a hardlink kept in {@link ApplyStageBackup}) is replaced rather than modified.
+ *
+ * The linked files share their content and owner with the source, so the hardlinks should only be enabled if the
+ * source is owned by the caller and discarded afterwards (e.g. the backup, or a temporary candidate), never for a
+ * directory provided by the user. Even then the hardlinks can be disabled with {@code USE_HARDLINKS_PROPERTY} system
+ * property. If hardlinks are not supported between the filesystems of the source and the target, they are not
+ * attempted again for that pair of filesystems by this instance. Other failures to link a file (e.g. a permission
+ * error) only fall back to copying that one file. Once transferring a file is not supported, it is not attempted again
+ * by this instance.
+ */
+class FileCopier {
+
+    private static final Logger LOG = Logger.getLogger(FileCopier.class);
+
+    static final String USE_HARDLINKS_PROPERTY = "org.wildfly.prospero.apply.use-hardlinks";
+
+    private final boolean useHardlinks;
+    private volatile boolean linksSupported = true;
+    // pairs of source and target filesystem keys that hardlinks are not possible between
+    private final Set<List<Object>> unlinkableStores = ConcurrentHashMap.newKeySet();
+    private volatile boolean transferSupported = true;
+
+    FileCopier() {
+        this(Boolean.parseBoolean(System.getProperty(USE_HARDLINKS_PROPERTY, "true")));
+    }
+
+    FileCopier(boolean useHardlinks) {
+        this.useHardlinks = useHardlinks;
+    }
+
+    /**
+     * copies {@code source} to {@code target}. If {@code source} is a directory, its content is copied recursively.
+     *
+     * @param source - file or directory to copy
+     * @param target - location of the copy
+     * @throws IOException - if the files cannot be copied
+     */
+    void copy(Path source, Path target) throws IOException {
+        if (!Files.isDirectory(source)) {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            copyFile(source, target);
+            return;
+        }
+
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                copyFile(file, target.resolve(source.relativize(file).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void copyFile(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+
+        // a hardlink to a symbolic link would not follow it like the copy does
+        if (useHardlinks && linksSupported && Files.isRegularFile(source, LinkOption.NOFOLLOW_LINKS)
+                && (unlinkableStores.isEmpty() || !unlinkableStores.contains(storesOf(source, target)))) {
+            try {
+                createLink(target, source);
+                return;
+            } catch (UnsupportedOperationException e) {
+                LOG.debugf("Unable to create a hardlink %s, falling back to copying files: %s", target, e.getMessage());
+                linksSupported = false;
+                Files.deleteIfExists(target);
+            } catch (AccessDeniedException | FileAlreadyExistsException | NoSuchFileException e) {
+                LOG.debugf("Unable to create a hardlink %s, copying the file: %s", target, e.getMessage());
+                Files.deleteIfExists(target);
+            } catch (FileSystemException e) {
+                final List<Object> stores = storesOf(source, target);
+                // e.g. the candidate is on a different filesystem than the installation
+                if (!stores.get(0).equals(stores.get(1))) {
+                    LOG.debugf("Unable to create a hardlink %s, falling back to copying files from %s: %s", target,
+                            source.getParent(), e.getMessage());
+                    unlinkableStores.add(stores);
+                } else {
+                    LOG.debugf("Unable to create a hardlink %s, copying the file: %s", target, e.getMessage());
+                }
+                Files.deleteIfExists(target);
+            }
+        }
+
+        if (transferSupported) {
+            try {
+                if (transfer(source, target)) {
+                    return;
+                }
+                // e.g. the source has been truncated while it was copied
+                LOG.debugf("Unable to transfer the whole content of %s, copying the file", source);
+                Files.deleteIfExists(target);
+            } catch (UnsupportedOperationException e) {
+                LOG.debugf("Unable to transfer %s, falling back to copying files: %s", target, e.getMessage());
+                transferSupported = false;
+                Files.deleteIfExists(target);
+            }
+        }
+
+        Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // visible for testing
+    void createLink(Path link, Path existing) throws IOException {
+        Files.createLink(link, existing);
+    }
+
+    private static List<Object> storesOf(Path source, Path target) throws IOException {
+        return List.of(storeKey(source), storeKey(target.getParent()));
+    }
+
+    /*
+     * Identifies the filesystem of the path. The device id is a single stat call, while finding the FileStore reads
+     * the mount table, so the FileStore is used only if the device id is not available.
+     */
+    private static Object storeKey(Path path) throws IOException {
+        try {
+            return Files.getAttribute(path, "unix:dev", LinkOption.NOFOLLOW_LINKS);
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            return Files.getFileStore(path);
+        }
+    }
+
+    /*
+     * returns false if the content could not be transferred completely
+     */
+    private static boolean transfer(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            if (!transfer(in, in.size(), out)) {
+                return false;
+            }
+        }
+
+        // Files.copy keeps the permissions of the file (e.g. executable scripts), make sure the transferred file does too
+        final PosixFileAttributeView sourceView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        final PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (sourceView != null && targetView != null) {
+            targetView.setPermissions(sourceView.readAttributes().permissions());
+        }
+        return true;
+    }
+
+    // visible for testing
+    // transfers size bytes from the start of in to out, returns false if in ends before that
+    static boolean transfer(FileChannel in, long size, FileChannel out) throws IOException {
+        long position = 0;
+        while (position < size) {
+            final long transferred = in.transferTo(position, size - position, out);
+            if (transferred == 0) {
+                return false;
+            }
+            position += transferred;
+        }
+        return true;
+    }
+}
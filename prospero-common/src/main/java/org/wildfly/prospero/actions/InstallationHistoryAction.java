@@ -92,7 +92,7 @@ public class InstallationHistoryAction {
                 ProsperoLogger.ROOT_LOGGER.temporaryCandidateFolder(tempDirectory);
             }
             prepareRevert(savedState, mavenOptions, overrideRepositories, tempDirectory);
-            new ApplyCandidateAction(installation, tempDirectory).applyUpdate(ApplyCandidateAction.Type.REVERT);
+            ApplyCandidateAction.forTemporaryCandidate(installation, tempDirectory).applyUpdate(ApplyCandidateAction.Type.REVERT);
             ProsperoLogger.ROOT_LOGGER.revertCompleted(installation, savedState.getName());
         } catch (IOException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToCreateTemporaryDirectory(e);
@@ -26,11 +26,14 @@ import org.wildfly.channel.Channel;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.InstallationMetadata;
 import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.api.exceptions.UncheckedMetadataException;
 import org.wildfly.prospero.metadata.ManifestVersionRecord;
 import org.wildfly.prospero.model.ProsperoConfig;
 
 /**
  * Metadata related actions wrapper.
+ *
+ * The installation metadata is read lazily, errors reading it are reported as {@link MetadataException}.
  */
 public class MetadataAction implements AutoCloseable {
     private final InstallationMetadata installationMetadata;
@@ -46,7 +49,7 @@ public class MetadataAction implements AutoCloseable {
 
     public void addChannel(Channel channel) throws MetadataException {
         ProsperoLogger.ROOT_LOGGER.addingChannel(channel.toString());
-        final ProsperoConfig prosperoConfig = installationMetadata.getProsperoConfig();
+        final ProsperoConfig prosperoConfig = getProsperoConfig();
         final List<Channel> channels = prosperoConfig.getChannels();
 
         if (channels.stream().anyMatch(c->c.getName().equals(channel.getName()))) {
@@ -61,7 +64,7 @@ public class MetadataAction implements AutoCloseable {
 
     public void removeChannel(String channelName) throws MetadataException {
         ProsperoLogger.ROOT_LOGGER.removingChannel(channelName);
-        final ProsperoConfig prosperoConfig = installationMetadata.getProsperoConfig();
+        final ProsperoConfig prosperoConfig = getProsperoConfig();
         final List<Channel> channels = prosperoConfig.getChannels();
         final Optional<Channel> removedChannel = channels.stream().filter(c -> c.getName().equals(channelName)).findAny();
         if (removedChannel.isEmpty()) {
@@ -76,7 +79,7 @@ public class MetadataAction implements AutoCloseable {
 
     public void changeChannel(String channelName, Channel newChannel) throws MetadataException {
         ProsperoLogger.ROOT_LOGGER.updatingChannel(newChannel.toString(), channelName);
-        final ProsperoConfig prosperoConfig = installationMetadata.getProsperoConfig();
+        final ProsperoConfig prosperoConfig = getProsperoConfig();
         final List<Channel> channels = prosperoConfig.getChannels();
         final Optional<Channel> modifiedChannel = channels.stream().filter(c -> c.getName().equals(channelName)).findAny();
         if (modifiedChannel.isEmpty()) {
@@ -89,11 +92,23 @@ public class MetadataAction implements AutoCloseable {
 
     public List<Channel> getChannels() throws MetadataException {
         ProsperoLogger.ROOT_LOGGER.listChannels();
-        return new ArrayList<>(installationMetadata.getProsperoConfig().getChannels());
+        return new ArrayList<>(getProsperoConfig().getChannels());
     }
 
-    public ManifestVersionRecord getChannelVersions() {
-        return installationMetadata.getManifestVersions().orElse(new ManifestVersionRecord());
+    public ManifestVersionRecord getChannelVersions() throws MetadataException {
+        try {
+            return installationMetadata.getManifestVersions().orElse(new ManifestVersionRecord());
+        } catch (UncheckedMetadataException e) {
+            throw e.getCause();
+        }
+    }
+
+    private ProsperoConfig getProsperoConfig() throws MetadataException {
+        try {
+            return installationMetadata.getProsperoConfig();
+        } catch (UncheckedMetadataException e) {
+            throw e.getCause();
+        }
     }
 
     @Override
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.jboss.galleon.ProvisioningException;
+import org.jboss.logging.Logger;
+import org.wildfly.prospero.ProsperoLogger;
+import org.wildfly.prospero.api.FileConflict;
+import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.api.exceptions.OperationException;
+import org.wildfly.prospero.updates.UpdateSet;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Applies one candidate server to several installations, for example per-instance copies of the same server.
+ *
+ * The installations are processed in parallel by a pool of {@code APPLY_THREADS_PROPERTY} workers, defaulting to the
+ * number of available processors. The hashes of the candidate files are calculated once and shared by all the
+ * installations. The candidate files are copied rather than hardlinked, so that the installations don't share the
+ * content of their files with each other.
+ */
+public class MultiApplyCandidateAction implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(MultiApplyCandidateAction.class);
+
+    public static final String APPLY_THREADS_PROPERTY = "org.wildfly.prospero.apply.installation-threads";
+
+    private final Map<Path, ApplyCandidateAction> actions = new LinkedHashMap<>();
+    private final ParallelFileHasher hasher;
+    private final ExecutorService executor;
+
+    public MultiApplyCandidateAction(List<Path> installationDirs, Path updateDir)
+            throws ProvisioningException, OperationException {
+        this(installationDirs, updateDir, Integer.getInteger(APPLY_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public MultiApplyCandidateAction(List<Path> installationDirs, Path updateDir, int threads)
+            throws ProvisioningException, OperationException {
+        final Path candidateDir = InstallFolderUtils.toRealPath(updateDir);
+        try {
+            this.hasher = ApplyCandidateAction.newFileHasher(candidateDir);
+        } catch (IOException e) {
+            throw new ProvisioningException(e);
+        }
+        final FileCopier fileCopier = new FileCopier(false);
+        try {
+            for (Path installationDir : installationDirs) {
+                final Path realPath = InstallFolderUtils.toRealPath(installationDir);
+                if (actions.containsKey(realPath)) {
+                    throw ProsperoLogger.ROOT_LOGGER.duplicatedInstallation(realPath);
+                }
+                actions.put(realPath, new ApplyCandidateAction(realPath, candidateDir, hasher, fileCopier));
+            }
+        } catch (OperationException | ProvisioningException | RuntimeException e) {
+            hasher.close();
+            throw e;
+        }
+        this.executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, actions.size())));
+    }
+
+    /**
+     * @return real paths of the installations, in the order they were provided
+     */
+    public List<Path> getInstallationDirs() {
+        return new ArrayList<>(actions.keySet());
+    }
+
+    /**
+     * checks that the candidate is an update of a current state of each installation.
+     *
+     * @see ApplyCandidateAction#verifyCandidate(ApplyCandidateAction.Type)
+     * @return results of the verification of each installation
+     * @throws MetadataException - if the metadata of candidate or any installation cannot be read
+     */
+    public Map<Path, ApplyCandidateAction.ValidationResult> verifyCandidate(ApplyCandidateAction.Type operation) throws MetadataException {
+        final Map<Path, ApplyCandidateAction.ValidationResult> results = new LinkedHashMap<>();
+        for (Map.Entry<Path, ApplyCandidateAction> entry : actions.entrySet()) {
+            results.put(entry.getKey(), entry.getValue().verifyCandidate(operation));
+        }
+        return results;
+    }
+
+    /**
+     * list artifacts changed between the installation and the candidate.
+     *
+     * @param installationDir - one of the installations
+     * @return list of changes
+     * @throws OperationException
+     */
+    public UpdateSet findUpdates(Path installationDir) throws OperationException {
+        final ApplyCandidateAction action = actions.get(installationDir);
+        if (action == null) {
+            throw new IllegalArgumentException("Unknown installation " + installationDir);
+        }
+        return action.findUpdates();
+    }
+
+    /**
+     * list conflicts between the candidate and each installation.
+     *
+     * @return results for each installation, with a list of conflicts or the error that prevented listing them
+     */
+    public List<Result> getConflicts() {
+        return forEachInstallation(ApplyCandidateAction::getConflicts);
+    }
+
+    /**
+     * applies the candidate to all the installations in parallel. A failure to apply the candidate to one installation
+     * doesn't affect the other installations. The failed installation is restored in the same way as by
+     * {@link ApplyCandidateAction#applyUpdate(ApplyCandidateAction.Type)}.
+     *
+     * @return results for each installation, with a list of solved conflicts or the error that caused the failure
+     */
+    public List<Result> applyUpdate(ApplyCandidateAction.Type operation) {
+        return forEachInstallation(action -> action.applyUpdate(operation));
+    }
+
+    private List<Result> forEachInstallation(Task task) {
+        final Map<Path, Future<List<FileConflict>>> futures = new LinkedHashMap<>();
+        for (Map.Entry<Path, ApplyCandidateAction> entry : actions.entrySet()) {
+            futures.put(entry.getKey(), executor.submit(() -> task.apply(entry.getValue())));
+        }
+
+        final List<Result> results = new ArrayList<>(futures.size());
+        for (Map.Entry<Path, Future<List<FileConflict>>> entry : futures.entrySet()) {
+            try {
+                results.add(new Result(entry.getKey(), entry.getValue().get(), null));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(new Result(entry.getKey(), Collections.emptyList(), e));
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                if (LOG.isDebugEnabled()) {
+                    LOG.debugf(e.getCause(), "Failed to process the installation %s", entry.getKey());
+                }
+                results.add(new Result(entry.getKey(), Collections.emptyList(), (Exception) e.getCause()));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        hasher.close();
+    }
+
+    private interface Task {
+        List<FileConflict> apply(ApplyCandidateAction action) throws OperationException, ProvisioningException;
+    }
+
+    public static class Result {
+        private final Path installationDir;
+        private final List<FileConflict> conflicts;
+        private final Exception error;
+
+        Result(Path installationDir, List<FileConflict> conflicts, Exception error) {
+            this.installationDir = installationDir;
+            this.conflicts = conflicts;
+            this.error = error;
+        }
+
+        public Path getInstallationDir() {
+            return installationDir;
+        }
+
+        /**
+         * @return conflicts found in the installation, empty if the operation failed
+         */
+        public List<FileConflict> getConflicts() {
+            return conflicts;
+        }
+
+        /**
+         * @return the cause of the failure, or {@code null} if the operation was successful
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        public boolean isSuccessful() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "installationDir=" + installationDir +
+                    ", conflicts=" + conflicts +
+                    ", error=" + error +
+                    '}';
+        }
+    }
+}
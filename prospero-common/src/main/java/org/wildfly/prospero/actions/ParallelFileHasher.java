@@ -0,0 +1,190 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.jboss.galleon.util.HashUtils;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Calculates hashes of files in parallel using a {@code ForkJoinPool}. The number of threads, and therefore the number
+ * of files read concurrently, is bound by {@code HASHING_THREADS_PROPERTY} system property and defaults to the number
+ * of available processors.
+ *
+ * Hashes of the files in the candidate server are cached, as the candidate is not modified while it is being applied.
+ * Files from the installation are always hashed on request.
+ */
+class ParallelFileHasher implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(ParallelFileHasher.class);
+
+    static final String HASHING_THREADS_PROPERTY = "org.wildfly.prospero.apply.hashing-threads";
+    private static final byte[] MISSING = new byte[0];
+
+    private final ForkJoinPool pool;
+    private final Map<Path, byte[]> candidateHashes = new ConcurrentHashMap<>();
+
+    ParallelFileHasher() {
+        this(Integer.getInteger(HASHING_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    ParallelFileHasher(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    /**
+     * calculates hashes of all existing {@code candidateFiles} and caches them for subsequent calls of {@link #hash(Path)}.
+     * Files that cannot be read are not cached and the error is reported when their hash is requested.
+     *
+     * @param candidateFiles - files from the candidate server
+     * @throws IOException - if the calculation was interrupted
+     */
+    void hashAll(Collection<Path> candidateFiles) throws IOException {
+        final List<Callable<Void>> tasks = new ArrayList<>(candidateFiles.size());
+        for (Path file : candidateFiles) {
+            if (!candidateHashes.containsKey(file)) {
+                tasks.add(() -> {
+                    try {
+                        hash(file);
+                    } catch (IOException e) {
+                        LOG.debugf(e, "Unable to calculate hash of %s", file);
+                    }
+                    return null;
+                });
+            }
+        }
+        invokeAll(tasks);
+    }
+
+    /**
+     * registers hashes of candidate files recorded when the candidate was provisioned. Files with a recorded hash
+     * will not be read when their hash is requested.
+     *
+     * @param candidateDir - root of the candidate server
+     * @param recordedHashes - hashes recorded in the candidate
+     */
+    void useRecordedHashes(Path candidateDir, RecordedHashes recordedHashes) {
+        for (String relativePath : recordedHashes.getPaths()) {
+            candidateHashes.put(candidateDir.resolve(relativePath), recordedHashes.get(relativePath));
+        }
+    }
+
+    /**
+     * returns the hash of a file from the candidate server. If the hash has been calculated already, the cached value is
+     * returned.
+     *
+     * @param candidateFile - file from the candidate server
+     * @return hash of the file, or {@code null} if the file doesn't exist
+     * @throws IOException - if the file cannot be read
+     */
+    byte[] hash(Path candidateFile) throws IOException {
+        final byte[] cached = candidateHashes.get(candidateFile);
+        if (cached != null) {
+            return cached == MISSING ? null : cached;
+        }
+
+        final byte[] hash = Files.exists(candidateFile) ? HashUtils.hashPath(candidateFile) : MISSING;
+        candidateHashes.put(candidateFile, hash);
+        return hash == MISSING ? null : hash;
+    }
+
+    /**
+     * compares files at {@code relativePaths} in the candidate and the installation in parallel.
+     *
+     * @param candidateDir - root of the candidate server
+     * @param installationDir - root of the installation
+     * @param relativePaths - paths of files to compare
+     * @return paths from {@code relativePaths}, in the same order, that are either missing in the installation, or
+     * their content is different from the candidate
+     * @throws IOException - if any of the files cannot be read
+     */
+    List<Path> findChanged(Path candidateDir, Path installationDir, List<Path> relativePaths) throws IOException {
+        final List<Callable<Boolean>> tasks = new ArrayList<>(relativePaths.size());
+        for (Path relative : relativePaths) {
+            tasks.add(() -> isChanged(candidateDir.resolve(relative), installationDir.resolve(relative)));
+        }
+
+        final List<Boolean> results = invokeAll(tasks);
+        final List<Path> changed = new ArrayList<>();
+        for (int i = 0; i < relativePaths.size(); i++) {
+            if (results.get(i)) {
+                changed.add(relativePaths.get(i));
+            }
+        }
+        return changed;
+    }
+
+    private boolean isChanged(Path candidateFile, Path installationFile) throws IOException {
+        if (!Files.exists(installationFile)) {
+            return true;
+        }
+        // files of different sizes cannot have the same content, no need to read them
+        if (Files.size(candidateFile) != Files.size(installationFile)) {
+            return true;
+        }
+        return !Arrays.equals(hash(candidateFile), HashUtils.hashPath(installationFile));
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+        final List<T> results = new ArrayList<>(tasks.size());
+        if (tasks.isEmpty()) {
+            return results;
+        }
+
+        final List<Future<T>> futures = pool.invokeAll(tasks);
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while calculating file hashes", e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) cause).getCause();
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else {
+                    throw new IOException(cause);
+                }
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
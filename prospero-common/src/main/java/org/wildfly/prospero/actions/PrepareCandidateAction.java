@@ -70,6 +70,8 @@ class PrepareCandidateAction implements AutoCloseable {
     PrepareCandidateAction(Path installDir, MavenSessionManager mavenSessionManager, ProsperoConfig prosperoConfig)
             throws OperationException {
         this.metadata = InstallationMetadata.loadInstallation(installDir);
+        // the operation needs all of the metadata, report any errors reading it straight away
+        this.metadata.loadAll();
         this.installDir = installDir;
         this.prosperoConfig = prosperoConfig;
         this.mavenSessionManager = mavenSessionManager;
@@ -156,7 +158,8 @@ class PrepareCandidateAction implements AutoCloseable {
                 manifestRecord);
 
         try {
-            final GalleonFeaturePackAnalyzer galleonFeaturePackAnalyzer = new GalleonFeaturePackAnalyzer(galleonEnv.getChannels(), mavenSessionManager);
+            final GalleonFeaturePackAnalyzer galleonFeaturePackAnalyzer = new GalleonFeaturePackAnalyzer(galleonEnv.getChannels(), mavenSessionManager,
+                    galleonEnv.getResolutionContext());
             galleonFeaturePackAnalyzer.cacheGalleonArtifacts(targetDir, provisioningConfig);
         } catch (Exception e) {
             throw new RuntimeException(e);
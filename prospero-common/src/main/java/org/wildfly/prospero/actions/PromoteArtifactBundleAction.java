@@ -68,10 +68,11 @@ public class PromoteArtifactBundleAction {
             RemoteRepository sourceRepo = new RemoteRepository.Builder("source-repo", "default", extracted.getRepository().toUri().toURL().toString()).build();
             RemoteRepository targetRepo = new RemoteRepository.Builder("target-repo", "default", targetRepository.toString()).build();
 
-            final ArtifactPromoter promoter = new ArtifactPromoter(system, session, targetRepo);
+            final ArtifactPromoter promoter = new ArtifactPromoter(system, session, targetRepo, console);
             try {
                 promoter.promote(extracted.getArtifactList(),
-                        new ChannelCoordinate(coordinate.getMaven().getGroupId(), coordinate.getMaven().getArtifactId()), sourceRepo);
+                        new ChannelCoordinate(coordinate.getMaven().getGroupId(), coordinate.getMaven().getArtifactId()), sourceRepo,
+                        extracted.getRepository());
             } catch (IOException | ArtifactResolutionException | DeploymentException e) {
                 throw ProsperoLogger.ROOT_LOGGER.unableToPromote(targetRepository, e);
             }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jboss.galleon.Constants;
+import org.jboss.galleon.util.HashUtils;
+import org.jboss.galleon.util.PathsUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * File hashes recorded by Galleon in {@code .galleon/hashes} when the server was provisioned.
+ *
+ * Each directory of the server has a matching directory in {@code .galleon/hashes} with a {@code hashes} file listing
+ * names of the files in the directory followed by their hashes.
+ */
+class RecordedHashes {
+
+    private final Map<String, byte[]> hashes;
+
+    private RecordedHashes(Map<String, byte[]> hashes) {
+        this.hashes = hashes;
+    }
+
+    /**
+     * reads hashes recorded in the {@code serverDir}.
+     *
+     * @param serverDir - root of a provisioned server
+     * @return recorded hashes, empty if the server doesn't have recorded hashes
+     * @throws IOException - if the recorded hashes cannot be read
+     */
+    static RecordedHashes read(Path serverDir) throws IOException {
+        final Path hashesDir = PathsUtils.getProvisionedStateDir(serverDir).resolve(Constants.HASHES);
+        if (!Files.isDirectory(hashesDir)) {
+            return new RecordedHashes(Collections.emptyMap());
+        }
+
+        final List<Path> hashFiles;
+        try (Stream<Path> files = Files.walk(hashesDir)) {
+            hashFiles = files
+                    .filter(p -> p.getFileName().toString().equals(Constants.HASHES) && Files.isRegularFile(p))
+                    .collect(Collectors.toList());
+        }
+
+        final Map<String, byte[]> hashes = new HashMap<>();
+        for (Path hashFile : hashFiles) {
+            final String dir = hashesDir.relativize(hashFile.getParent()).toString().replace(File.separatorChar, '/');
+            final String prefix = dir.isEmpty() ? "" : dir + "/";
+            final List<String> lines = Files.readAllLines(hashFile);
+            for (int i = 0; i + 1 < lines.size(); i += 2) {
+                hashes.put(prefix + lines.get(i), HashUtils.hexStringToByteArray(lines.get(i + 1)));
+            }
+        }
+        return new RecordedHashes(hashes);
+    }
+
+    /**
+     * @param relativePath - path of the file relative to the server root, using UNIX separators
+     * @return recorded hash of the file or {@code null} if the file's hash was not recorded
+     */
+    byte[] get(String relativePath) {
+        return hashes.get(relativePath);
+    }
+
+    /**
+     * @return paths of all files with recorded hashes, relative to the server root and using UNIX separators
+     */
+    Set<String> getPaths() {
+        return Collections.unmodifiableSet(hashes.keySet());
+    }
+
+    /**
+     * @return hex encoded SHA-256 of all recorded paths and their hashes. Servers with the same recorded hashes have
+     * the same digest.
+     */
+    String digest() {
+        final MessageDigest digest = DigestUtils.getSha256Digest();
+        for (String path : new TreeSet<>(hashes.keySet())) {
+            digest.update(path.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(hashes.get(path));
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+}
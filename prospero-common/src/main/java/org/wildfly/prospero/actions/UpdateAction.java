@@ -35,6 +35,7 @@ import org.wildfly.prospero.api.TemporaryRepositoriesHandler;
 import org.wildfly.prospero.api.InstallationMetadata;
 import org.wildfly.prospero.api.exceptions.OperationException;
 import org.wildfly.prospero.galleon.GalleonEnvironment;
+import org.wildfly.prospero.galleon.ResolutionContext;
 import org.wildfly.prospero.model.ProsperoConfig;
 import org.wildfly.prospero.updates.UpdateFinder;
 import org.wildfly.prospero.updates.UpdateSet;
@@ -52,11 +53,16 @@ public class UpdateAction implements AutoCloseable {
     private final Console console;
     private final ProsperoConfig prosperoConfig;
     private final MavenOptions mavenOptions;
+    // channels resolved by the first step of the operation, shared by the following steps
+    private ResolutionContext resolutionContext;
+    private UpdateSet updateSet;
 
     public UpdateAction(Path installDir, MavenOptions mavenOptions, Console console, List<Repository> overrideRepositories)
             throws OperationException, ProvisioningException {
         this.installDir = InstallFolderUtils.toRealPath(installDir);
         this.metadata = InstallationMetadata.loadInstallation(this.installDir);
+        // the operation needs all of the metadata, report any errors reading it straight away
+        this.metadata.loadAll();
         this.console = console;
         this.prosperoConfig = addTemporaryRepositories(overrideRepositories);
         this.mavenOptions = prosperoConfig.getMavenOptions().merge(mavenOptions);
@@ -80,8 +86,9 @@ public class UpdateAction implements AutoCloseable {
             if (ProsperoLogger.ROOT_LOGGER.isDebugEnabled()) {
                 ProsperoLogger.ROOT_LOGGER.temporaryCandidateFolder(targetDir);
             }
-            if (buildUpdate(targetDir)) {
-                final ApplyCandidateAction applyCandidateAction = new ApplyCandidateAction(installDir, targetDir);
+            // the candidate is applied straight away, if enabled it can contain only the files changed by the update
+            if (buildUpdate(targetDir, DeltaCandidate.isEnabled())) {
+                final ApplyCandidateAction applyCandidateAction = ApplyCandidateAction.forTemporaryCandidate(installDir, targetDir);
                 return applyCandidateAction.applyUpdate(ApplyCandidateAction.Type.UPDATE);
             } else {
                 return Collections.emptyList();
@@ -105,6 +112,43 @@ public class UpdateAction implements AutoCloseable {
      * @throws OperationException
      */
     public boolean buildUpdate(Path targetDir) throws ProvisioningException, OperationException {
+        return buildUpdate(targetDir, false);
+    }
+
+    /**
+     * builds an update candidate for {@code installDir} and packages it into {@code archive}. The archive can be applied
+     * to any installation with the same state and recorded hashes as {@code installDir}, see {@link CandidateArchive}.
+     *
+     * @param archive path of the archive to create, the file must not exist.
+     * @return true if the archive was created, false if no updates were found.
+     * @throws ProvisioningException
+     * @throws OperationException
+     */
+    public boolean buildUpdateArchive(Path archive) throws ProvisioningException, OperationException {
+        Path candidateDir = null;
+        try {
+            candidateDir = Files.createTempDirectory("update-candidate");
+            if (!buildUpdate(candidateDir, DeltaCandidate.isEnabled())) {
+                return false;
+            }
+            try {
+                CandidateArchive.create(installDir, candidateDir, archive);
+            } catch (IOException e) {
+                FileUtils.deleteQuietly(archive.toFile());
+                throw ProsperoLogger.ROOT_LOGGER.unableToWriteFile(archive, e);
+            }
+            ProsperoLogger.ROOT_LOGGER.updateCandidateCompleted(archive);
+            return true;
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToCreateTemporaryDirectory(e);
+        } finally {
+            if (candidateDir != null) {
+                FileUtils.deleteQuietly(candidateDir.toFile());
+            }
+        }
+    }
+
+    private boolean buildUpdate(Path targetDir, boolean delta) throws ProvisioningException, OperationException {
         if (Files.exists(targetDir)) {
             InstallFolderUtils.verifyIsEmptyDir(targetDir);
         } else {
@@ -127,6 +171,13 @@ public class UpdateAction implements AutoCloseable {
 
                 final boolean result = prepareCandidateAction.buildCandidate(targetDir, galleonEnv,
                         ApplyCandidateAction.Type.UPDATE, provisioningConfig, updateSet);
+                if (result && delta) {
+                    try {
+                        DeltaCandidate.create(installDir, targetDir);
+                    } catch (IOException e) {
+                        throw ProsperoLogger.ROOT_LOGGER.unableToWriteFile(targetDir.resolve(DeltaCandidate.DELTA_FILE), e);
+                    }
+                }
                 ProsperoLogger.ROOT_LOGGER.updateCandidateCompleted(targetDir);
                 return result;
             }
@@ -136,31 +187,54 @@ public class UpdateAction implements AutoCloseable {
     /**
      * generate a list of updates that can be applied to server at {@code installDir}.
      *
+     * The updates are looked up once per {@code UpdateAction}, subsequent calls, including {@link #buildUpdate(Path)},
+     * reuse the result.
+     *
      * @return
      * @throws OperationException
      * @throws ProvisioningException
      */
     public UpdateSet findUpdates() throws OperationException, ProvisioningException {
+        if (updateSet != null) {
+            return updateSet;
+        }
+
         ProsperoLogger.ROOT_LOGGER.checkingUpdates();
         try (GalleonEnvironment galleonEnv = getGalleonEnv(installDir);
-             UpdateFinder updateFinder = new UpdateFinder(galleonEnv.getChannelSession())) {
+             UpdateFinder updateFinder = newUpdateFinder(galleonEnv)) {
 
             final UpdateSet updates = updateFinder.findUpdates(metadata.getArtifacts());
             ProsperoLogger.ROOT_LOGGER.updatesFound(updates.getArtifactUpdates().size());
+            updateSet = updates;
             return updates;
         }
     }
 
+    private UpdateFinder newUpdateFinder(GalleonEnvironment galleonEnv) {
+        final Integer parallelism = mavenOptions.getUpdateSearchThreads();
+        if (parallelism == null) {
+            return new UpdateFinder(galleonEnv.getChannelSession());
+        } else {
+            return new UpdateFinder(galleonEnv.getChannelSession(), parallelism);
+        }
+    }
+
     private GalleonEnvironment getGalleonEnv(Path target) throws ProvisioningException, OperationException {
-        return GalleonEnvironment
+        final GalleonEnvironment galleonEnv = GalleonEnvironment
                 .builder(target, prosperoConfig.getChannels(), mavenSessionManager, false)
                 .setSourceServerPath(this.installDir)
                 .setConsole(console)
+                .setResolutionContext(resolutionContext)
                 .build();
+        resolutionContext = galleonEnv.getResolutionContext();
+        return galleonEnv;
     }
 
     @Override
     public void close() {
+        if (resolutionContext != null) {
+            resolutionContext.close();
+        }
         metadata.close();
     }
 
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.api;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Recognizes files that are already compressed, so that they can be stored in ZIP archives without compressing them
+ * again.
+ */
+public final class CompressedFiles {
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of("jar", "war", "ear", "rar", "zip", "gz", "tgz", "bz2", "xz");
+
+    private CompressedFiles() {
+    }
+
+    public static boolean isCompressed(String fileName) {
+        final int index = fileName.lastIndexOf('.');
+        return index >= 0 && COMPRESSED_EXTENSIONS.contains(fileName.substring(index + 1).toLowerCase(Locale.ROOT));
+    }
+}
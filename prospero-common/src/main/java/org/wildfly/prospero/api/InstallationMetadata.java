@@ -27,6 +27,7 @@ import org.apache.commons.io.FileUtils;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.metadata.ManifestVersionRecord;
 import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.api.exceptions.UncheckedMetadataException;
 import org.wildfly.prospero.installation.git.GitStorage;
 import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
 import org.wildfly.prospero.model.ManifestYamlSupport;
@@ -41,6 +42,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
@@ -56,6 +58,16 @@ import org.jboss.galleon.api.config.GalleonProvisioningConfig;
 
 import static org.wildfly.prospero.metadata.ProsperoMetadataUtils.CURRENT_VERSION_FILE;
 
+/**
+ * Metadata of a provisioned server.
+ *
+ * The metadata of an existing installation is read lazily - each component (manifest, channels, manifest versions,
+ * provisioning configurations and the history storage) is parsed on first access. Commands that only need one of the
+ * components, e.g. listing channels, don't have to pay for parsing the others or opening the history repository.
+ * Errors reading a component from a method that cannot throw {@link MetadataException} are reported as
+ * {@link UncheckedMetadataException}. Operations that need the complete metadata can read all components up front
+ * using {@link #loadAll()}.
+ */
 public class InstallationMetadata implements AutoCloseable {
 
     public static final String PROVISIONING_FILE_NAME = "provisioning.xml";
@@ -64,13 +76,13 @@ public class InstallationMetadata implements AutoCloseable {
     private final Path channelsFile;
     private final Path readmeFile;
     private final Path provisioningFile;
-    private final GalleonProvisioningConfig galleonProvisioningConfig;
-    private final GitStorage gitStorage;
+    private final Lazy<GalleonProvisioningConfig> galleonProvisioningConfig;
+    private final Lazy<GitStorage> gitStorage;
     private final Path base;
-    private final Optional<ManifestVersionRecord> manifestVersion;
-    private final GalleonProvisioningConfig provisioningConfig;
-    private ProsperoConfig prosperoConfig;
-    private ChannelManifest manifest;
+    private final Lazy<Optional<ManifestVersionRecord>> manifestVersion;
+    private final Lazy<GalleonProvisioningConfig> provisioningConfig;
+    private final Lazy<ProsperoConfig> prosperoConfig;
+    private final Lazy<ChannelManifest> manifest;
 
     /**
      * load the metadata of an existing installation. If the history is not available, it will be started.
@@ -80,52 +92,40 @@ public class InstallationMetadata implements AutoCloseable {
      * @throws MetadataException
      */
     public static InstallationMetadata loadInstallation(Path base) throws MetadataException {
-        final Path manifestFile = base.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME);
-
-        ChannelManifest manifest;
-        ProsperoConfig prosperoConfig;
-        Optional<ManifestVersionRecord> currentVersion;
-
-        try {
-            manifest = ManifestYamlSupport.parse(manifestFile.toFile());
-        } catch (IOException e) {
-            throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(manifestFile, e);
+        final Path manifestFile = ProsperoMetadataUtils.manifestPath(base);
+        if (!Files.exists(manifestFile)) {
+            // fail early if the base is not an installation at all
+            throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(manifestFile, new NoSuchFileException(manifestFile.toString()));
         }
-        prosperoConfig = ProsperoConfig.readConfig(base.resolve(ProsperoMetadataUtils.METADATA_DIR));
 
-        final Path versionsFile = base.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(CURRENT_VERSION_FILE);
-        try {
-            currentVersion = ManifestVersionRecord.read(versionsFile);
-        } catch (JsonMappingException e) {
-            throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(versionsFile, e);
-        } catch (IOException e) {
-            throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(versionsFile, e);
-        }
+        final InstallationMetadata metadata = new InstallationMetadata(base,
+                () -> readManifest(manifestFile),
+                () -> ProsperoConfig.readConfig(base.resolve(ProsperoMetadataUtils.METADATA_DIR)),
+                () -> openHistory(base),
+                () -> readManifestVersions(base.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(CURRENT_VERSION_FILE)),
+                () -> readProvisioningRecord(base.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(ProsperoMetadataUtils.PROVISIONING_RECORD_XML)));
 
-        final Path provisioningRecordPath = base.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(ProsperoMetadataUtils.PROVISIONING_RECORD_XML);
-        GalleonProvisioningConfig provisioningConfig = null;
-        if (Files.exists(provisioningRecordPath)) {
-            try {
-                // XXX We should be able to resolve the version from something.
-                try(Provisioning p = new GalleonBuilder().newProvisioningBuilder().build()) {
-                    provisioningConfig = p.loadProvisioningConfig(provisioningRecordPath);
-                }
-            } catch (ProvisioningException e) {
-                throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(provisioningRecordPath, e);
-            }
+        if (!Files.exists(base.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(".git"))) {
+            // record the current state before anything is changed
+            metadata.gitStorage.get();
         }
+        return metadata;
+    }
 
-        try {
-            final GitStorage gitStorage = new GitStorage(base);
-            final InstallationMetadata metadata = new InstallationMetadata(base, manifest, prosperoConfig, gitStorage, currentVersion, provisioningConfig);
-            if (!gitStorage.isStarted()) {
-                ProsperoLogger.ROOT_LOGGER.debugf("Initializing history storage in %s", base);
-                gitStorage.record();
-            }
-            return metadata;
-        } catch (IOException e) {
-            throw ProsperoLogger.ROOT_LOGGER.unableToCreateHistoryStorage(base.resolve(ProsperoMetadataUtils.METADATA_DIR), e);
-        }
+    /*
+     * load the metadata of a state written out from the history. The files don't have a history of their own, so the
+     * history storage is never started for them.
+     */
+    private static InstallationMetadata loadSavedState(Path base) {
+        final Path metadataDir = base.resolve(ProsperoMetadataUtils.METADATA_DIR);
+        return new InstallationMetadata(base,
+                () -> readManifest(ProsperoMetadataUtils.manifestPath(base)),
+                () -> ProsperoConfig.readConfig(metadataDir),
+                () -> {
+                    throw new IllegalStateException("The history is not available for a saved state");
+                },
+                () -> readManifestVersions(metadataDir.resolve(CURRENT_VERSION_FILE)),
+                () -> readProvisioningRecord(metadataDir.resolve(ProsperoMetadataUtils.PROVISIONING_RECORD_XML)));
     }
 
     /**
@@ -149,7 +149,9 @@ public class InstallationMetadata implements AutoCloseable {
         } catch (ProvisioningException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(PathsUtils.getProvisioningXml(base), e);
         }
-        return new InstallationMetadata(base, manifest, prosperoConfig, new GitStorage(base), currentVersions, provisioningConfig);
+        validateChannelNames(prosperoConfig);
+        return new InstallationMetadata(base, () -> manifest, () -> prosperoConfig, () -> new GitStorage(base),
+                () -> currentVersions, () -> provisioningConfig);
     }
 
     /**
@@ -201,41 +203,116 @@ public class InstallationMetadata implements AutoCloseable {
             }
         }
 
-        return loadInstallation(tempDirectory);
+        // report a corrupted bundle here, rather than half-way through the operation using it
+        final InstallationMetadata metadata = loadInstallation(tempDirectory);
+        try {
+            metadata.loadAll();
+        } catch (MetadataException e) {
+            metadata.close();
+            throw e;
+        }
+        return metadata;
     }
 
     protected InstallationMetadata(Path base, ChannelManifest manifest, ProsperoConfig prosperoConfig,
                                    GitStorage gitStorage, Optional<ManifestVersionRecord> currentVersions,
                                    GalleonProvisioningConfig provisioningConfig) throws MetadataException {
+        this(base, () -> manifest, () -> prosperoConfig, () -> gitStorage, () -> currentVersions, () -> provisioningConfig);
+
+        // all the values are provided, only the provisioning.xml needs to be parsed
+        loadAll();
+        this.gitStorage.get();
+    }
+
+    private InstallationMetadata(Path base, Loader<ChannelManifest> manifest, Loader<ProsperoConfig> prosperoConfig,
+                                 Loader<GitStorage> gitStorage, Loader<Optional<ManifestVersionRecord>> currentVersions,
+                                 Loader<GalleonProvisioningConfig> provisioningConfig) {
         this.base = base;
-        this.gitStorage = gitStorage;
         this.manifestFile = ProsperoMetadataUtils.manifestPath(base);
         this.channelsFile = ProsperoMetadataUtils.configurationPath(base);
         this.readmeFile = base.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(ProsperoMetadataUtils.README_FILE_NAME);
         this.provisioningFile = base.resolve(GALLEON_INSTALLATION_DIR).resolve(PROVISIONING_FILE_NAME);
-        this.provisioningConfig = provisioningConfig;
 
-        this.manifest = manifest;
-        this.prosperoConfig = new ProsperoConfig(new ArrayList<>(prosperoConfig.getChannels()), prosperoConfig.getMavenOptions());
+        this.manifest = new Lazy<>(manifest);
+        this.prosperoConfig = new Lazy<>(() -> {
+            final ProsperoConfig config = prosperoConfig.load();
+            validateChannelNames(config);
+            return copyOf(config);
+        });
+        this.gitStorage = new Lazy<>(gitStorage);
+        this.manifestVersion = new Lazy<>(currentVersions);
+        this.provisioningConfig = new Lazy<>(provisioningConfig);
+        this.galleonProvisioningConfig = new Lazy<>(() -> readGalleonProvisioningConfig(provisioningFile));
+    }
 
-        final List<Channel> channels = prosperoConfig.getChannels();
-        if (channels != null && channels.stream().anyMatch(c-> StringUtils.isEmpty(c.getName()))) {
-            throw ProsperoLogger.ROOT_LOGGER.emptyChannelName();
+    private static ChannelManifest readManifest(Path manifestFile) throws MetadataException {
+        try {
+            return ManifestYamlSupport.parse(manifestFile.toFile());
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(manifestFile, e);
         }
+    }
 
+    private static Optional<ManifestVersionRecord> readManifestVersions(Path versionsFile) throws MetadataException {
         try {
-            if(Files.exists(provisioningFile)) {
-                try (Provisioning p = new GalleonBuilder().newProvisioningBuilder().build()) {
-                    this.galleonProvisioningConfig = p.loadProvisioningConfig(provisioningFile);
-                }
-            } else {
-                this.galleonProvisioningConfig = null;
+            return ManifestVersionRecord.read(versionsFile);
+        } catch (JsonMappingException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(versionsFile, e);
+        } catch (IOException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(versionsFile, e);
+        }
+    }
+
+    private static GalleonProvisioningConfig readProvisioningRecord(Path provisioningRecordPath) throws MetadataException {
+        if (!Files.exists(provisioningRecordPath)) {
+            return null;
+        }
+        try {
+            // XXX We should be able to resolve the version from something.
+            try(Provisioning p = new GalleonBuilder().newProvisioningBuilder().build()) {
+                return p.loadProvisioningConfig(provisioningRecordPath);
+            }
+        } catch (ProvisioningException e) {
+            throw ProsperoLogger.ROOT_LOGGER.unableToReadFile(provisioningRecordPath, e);
+        }
+    }
+
+    private static GalleonProvisioningConfig readGalleonProvisioningConfig(Path provisioningFile) throws MetadataException {
+        if (!Files.exists(provisioningFile)) {
+            return null;
+        }
+        try {
+            try (Provisioning p = new GalleonBuilder().newProvisioningBuilder().build()) {
+                return p.loadProvisioningConfig(provisioningFile);
             }
         } catch (ProvisioningException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(provisioningFile, e);
         }
+    }
+
+    private static GitStorage openHistory(Path base) throws MetadataException {
+        final GitStorage gitStorage = new GitStorage(base);
+        try {
+            if (!gitStorage.isStarted()) {
+                ProsperoLogger.ROOT_LOGGER.debugf("Initializing history storage in %s", base);
+                gitStorage.record();
+            }
+            return gitStorage;
+        } catch (IOException e) {
+            gitStorage.close();
+            throw ProsperoLogger.ROOT_LOGGER.unableToCreateHistoryStorage(base.resolve(ProsperoMetadataUtils.METADATA_DIR), e);
+        }
+    }
+
+    private static void validateChannelNames(ProsperoConfig prosperoConfig) throws MetadataException {
+        final List<Channel> channels = prosperoConfig.getChannels();
+        if (channels != null && channels.stream().anyMatch(c-> StringUtils.isEmpty(c.getName()))) {
+            throw ProsperoLogger.ROOT_LOGGER.emptyChannelName();
+        }
+    }
 
-        this.manifestVersion = currentVersions;
+    private static ProsperoConfig copyOf(ProsperoConfig prosperoConfig) {
+        return new ProsperoConfig(new ArrayList<>(prosperoConfig.getChannels()), prosperoConfig.getMavenOptions());
     }
 
     public Path exportMetadataBundle(Path location) throws IOException {
@@ -276,11 +353,11 @@ public class InstallationMetadata implements AutoCloseable {
     }
 
     public ChannelManifest getManifest() {
-        return manifest;
+        return manifest.getUnchecked();
     }
 
     public GalleonProvisioningConfig getGalleonProvisioningConfig() {
-        return galleonProvisioningConfig;
+        return galleonProvisioningConfig.getUnchecked();
     }
 
     public void recordProvision(boolean overrideProsperoConfig) throws MetadataException {
@@ -288,8 +365,10 @@ public class InstallationMetadata implements AutoCloseable {
     }
 
     public void recordProvision(boolean overrideProsperoConfig, boolean gitRecord) throws MetadataException {
+        // make sure the history is started before the recorded files are changed
+        final GitStorage gitStorage = this.gitStorage.get();
         try {
-            ProsperoMetadataUtils.writeManifest(this.manifestFile, this.manifest);
+            ProsperoMetadataUtils.writeManifest(this.manifestFile, this.manifest.get());
         } catch (IOException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToSaveConfiguration(manifestFile, e);
         }
@@ -306,6 +385,7 @@ public class InstallationMetadata implements AutoCloseable {
             writeProsperoConfig();
         }
 
+        final Optional<ManifestVersionRecord> manifestVersion = this.manifestVersion.get();
         if (manifestVersion.isPresent()) {
             final Path versionFile = base.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(CURRENT_VERSION_FILE);
             try {
@@ -324,6 +404,7 @@ public class InstallationMetadata implements AutoCloseable {
      * check if the provisioning definition is present. If not add it to the history
      */
     public void updateProvisioningConfiguration() throws MetadataException {
+        final GitStorage gitStorage = this.gitStorage.get();
         try {
             if (!Files.exists(base.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(ProsperoMetadataUtils.PROVISIONING_RECORD_XML))) {
                 ProsperoMetadataUtils.recordProvisioningDefinition(base);
@@ -339,25 +420,28 @@ public class InstallationMetadata implements AutoCloseable {
 
     private void writeProsperoConfig() throws MetadataException {
         try {
-            ProsperoMetadataUtils.writeChannelsConfiguration(channelsFile, getProsperoConfig().getChannels());
+            ProsperoMetadataUtils.writeChannelsConfiguration(channelsFile, prosperoConfig.get().getChannels());
         } catch (IOException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToSaveConfiguration(channelsFile, e);
         }
     }
 
     public List<SavedState> getRevisions() throws MetadataException {
-        return gitStorage.getRevisions();
+        return gitStorage.get().getRevisions();
     }
 
     public InstallationMetadata getSavedState(SavedState savedState) throws MetadataException {
         // checkout previous version
         // record as rollback operation
+        final GitStorage gitStorage = this.gitStorage.get();
         Path revert = null;
         try {
             revert = gitStorage.revert(savedState);
 
-            // re-parse metadata
-            return loadInstallation(revert);
+            // re-parse metadata, the reverted files are removed afterwards so they can't be read lazily
+            final InstallationMetadata metadata = loadSavedState(revert);
+            metadata.loadAll();
+            return metadata;
         } finally {
             gitStorage.reset();
             if (revert != null && Files.exists(revert)) {
@@ -367,6 +451,7 @@ public class InstallationMetadata implements AutoCloseable {
     }
 
     public InstallationChanges getChangesIn(SavedState savedState) throws MetadataException {
+        final GitStorage gitStorage = this.gitStorage.get();
         return new InstallationChanges(
                 gitStorage.getArtifactChanges(savedState),
                 gitStorage.getChannelChanges(savedState),
@@ -374,6 +459,7 @@ public class InstallationMetadata implements AutoCloseable {
     }
 
     public InstallationChanges getChangesToCurrent(SavedState savedState) throws MetadataException {
+        final GitStorage gitStorage = this.gitStorage.get();
         return new InstallationChanges(
                 gitStorage.getArtifactChangesSince(savedState),
                 gitStorage.getChannelChangesSince(savedState),
@@ -381,11 +467,11 @@ public class InstallationMetadata implements AutoCloseable {
     }
 
     public void setManifest(ChannelManifest resolvedChannel) {
-        manifest = resolvedChannel;
+        manifest.set(resolvedChannel);
     }
 
     public List<Artifact> getArtifacts() {
-        return manifest.getStreams().stream().map(s-> streamToArtifact(s)).collect(Collectors.toList());
+        return getManifest().getStreams().stream().map(s-> streamToArtifact(s)).collect(Collectors.toList());
     }
 
     private DefaultArtifact streamToArtifact(Stream s) {
@@ -393,7 +479,7 @@ public class InstallationMetadata implements AutoCloseable {
     }
 
     public Artifact find(Artifact gav) {
-        for (Stream stream : manifest.getStreams()) {
+        for (Stream stream : getManifest().getStreams()) {
             if (stream.getGroupId().equals(gav.getGroupId()) && stream.getArtifactId().equals(gav.getArtifactId())) {
                 return streamToArtifact(stream);
             }
@@ -402,11 +488,12 @@ public class InstallationMetadata implements AutoCloseable {
     }
 
     public ProsperoConfig getProsperoConfig() {
-        return prosperoConfig;
+        return prosperoConfig.getUnchecked();
     }
 
     public void updateProsperoConfig(ProsperoConfig config) throws MetadataException {
-        this.prosperoConfig = config;
+        final GitStorage gitStorage = this.gitStorage.get();
+        this.prosperoConfig.set(config);
 
         writeProsperoConfig();
 
@@ -414,11 +501,13 @@ public class InstallationMetadata implements AutoCloseable {
     }
 
     public Optional<ManifestVersionRecord> getManifestVersions() {
-        return manifestVersion;
+        return manifestVersion.getUnchecked();
     }
 
     @Override
     public void close() {
+        // don't open the history just to close it
+        final GitStorage gitStorage = this.gitStorage.getIfLoaded();
         if (gitStorage != null) {
             try {
                 gitStorage.close();
@@ -435,6 +524,61 @@ public class InstallationMetadata implements AutoCloseable {
      * @return
      */
     public GalleonProvisioningConfig getRecordedProvisioningConfig() {
-        return provisioningConfig;
+        return provisioningConfig.getUnchecked();
+    }
+
+    /**
+     * reads all the components of the metadata that were not read yet. The history storage is not opened.
+     *
+     * @throws MetadataException - if any of the components cannot be read
+     */
+    public void loadAll() throws MetadataException {
+        manifest.get();
+        prosperoConfig.get();
+        manifestVersion.get();
+        provisioningConfig.get();
+        galleonProvisioningConfig.get();
+    }
+
+    @FunctionalInterface
+    private interface Loader<T> {
+        T load() throws MetadataException;
+    }
+
+    /**
+     * A value loaded on first access. If the loading fails, it is attempted again on the next access.
+     */
+    private static final class Lazy<T> {
+        private Loader<T> loader;
+        private T value;
+
+        private Lazy(Loader<T> loader) {
+            this.loader = loader;
+        }
+
+        synchronized T get() throws MetadataException {
+            if (loader != null) {
+                value = loader.load();
+                loader = null;
+            }
+            return value;
+        }
+
+        T getUnchecked() {
+            try {
+                return get();
+            } catch (MetadataException e) {
+                throw new UncheckedMetadataException(e);
+            }
+        }
+
+        synchronized T getIfLoaded() {
+            return loader == null ? value : null;
+        }
+
+        synchronized void set(T value) {
+            this.value = value;
+            this.loader = null;
+        }
     }
 }
@@ -18,6 +18,7 @@
 package org.wildfly.prospero.api;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
@@ -42,6 +43,7 @@ public class MavenOptions {
     private final Optional<Path> localCache;
     private final Optional<Boolean> offline;
     private final Optional<Boolean> noLocalCache;
+    private final Optional<Integer> updateSearchThreads;
 
     public static final MavenOptions DEFAULT_OPTIONS = builder().build();
     public static final MavenOptions OFFLINE_NO_CACHE = builder()
@@ -60,16 +62,20 @@ public class MavenOptions {
     @JsonCreator
     private MavenOptions(@JsonProperty("localCache") Path localCache,
                          @JsonProperty("offline") boolean offline,
-                         @JsonProperty("noLocalCache") boolean noLocalCache) {
+                         @JsonProperty("noLocalCache") boolean noLocalCache,
+                         @JsonProperty("updateSearchThreads") Integer updateSearchThreads) {
         this.localCache = Optional.ofNullable(localCache).map(Path::toAbsolutePath);
         this.noLocalCache = Optional.of(noLocalCache);
         this.offline = Optional.of(offline);
+        this.updateSearchThreads = Optional.ofNullable(updateSearchThreads);
     }
 
-    private MavenOptions(Optional<Path> localCache, Optional<Boolean> offline, Optional<Boolean> noLocalCache) {
+    private MavenOptions(Optional<Path> localCache, Optional<Boolean> offline, Optional<Boolean> noLocalCache,
+                         Optional<Integer> updateSearchThreads) {
         this.localCache = localCache;
         this.noLocalCache = noLocalCache;
         this.offline = offline;
+        this.updateSearchThreads = updateSearchThreads;
     }
 
     public Path getLocalCache() {
@@ -84,6 +90,15 @@ public class MavenOptions {
         return noLocalCache.orElseGet(localCache::isEmpty);
     }
 
+    /**
+     * maximum number of artifact versions looked up concurrently when searching for updates.
+     *
+     * @return number of concurrent lookups or {@code null} if not set
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Integer getUpdateSearchThreads() {
+        return updateSearchThreads.orElse(null);
+    }
 
     public boolean overridesLocalCache() {
         return localCache.isPresent();
@@ -95,6 +110,7 @@ public class MavenOptions {
                 "localCache=" + localCache +
                 ", offline=" + offline +
                 ", noLocalCache=" + noLocalCache +
+                ", updateSearchThreads=" + updateSearchThreads +
                 '}';
     }
 
@@ -117,6 +133,12 @@ public class MavenOptions {
         } else if (this.localCache.isPresent()) {
             builder.setLocalCachePath(this.getLocalCache());
         }
+
+        if (override.updateSearchThreads.isPresent()) {
+            builder.setUpdateSearchThreads(override.getUpdateSearchThreads());
+        } else if (this.updateSearchThreads.isPresent()) {
+            builder.setUpdateSearchThreads(this.getUpdateSearchThreads());
+        }
         return builder.build();
     }
 
@@ -135,12 +157,13 @@ public class MavenOptions {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         MavenOptions that = (MavenOptions) o;
-        return Objects.equals(localCache, that.localCache) && Objects.equals(offline, that.offline) && Objects.equals(noLocalCache, that.noLocalCache);
+        return Objects.equals(localCache, that.localCache) && Objects.equals(offline, that.offline) && Objects.equals(noLocalCache, that.noLocalCache)
+                && Objects.equals(updateSearchThreads, that.updateSearchThreads);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(localCache, offline, noLocalCache);
+        return Objects.hash(localCache, offline, noLocalCache, updateSearchThreads);
     }
 
     public static class Builder {
@@ -148,13 +171,14 @@ public class MavenOptions {
         private Optional<Boolean> offline = Optional.empty();
         private Optional<Boolean> noLocalCache = Optional.empty();
         private Optional<Path> localCachePath = Optional.empty();
+        private Optional<Integer> updateSearchThreads = Optional.empty();
 
         private Builder() {
 
         }
 
         public MavenOptions build() {
-            return new MavenOptions(localCachePath, offline, noLocalCache);
+            return new MavenOptions(localCachePath, offline, noLocalCache, updateSearchThreads);
         }
 
         public Builder setOffline(boolean offline) {
@@ -171,5 +195,13 @@ public class MavenOptions {
             this.localCachePath = Optional.of(localCachePath);
             return this;
         }
+
+        public Builder setUpdateSearchThreads(int updateSearchThreads) {
+            if (updateSearchThreads < 1) {
+                throw new IllegalArgumentException("The number of update search threads has to be positive: " + updateSearchThreads);
+            }
+            this.updateSearchThreads = Optional.of(updateSearchThreads);
+            return this;
+        }
     }
 }
@@ -25,23 +25,30 @@ import org.wildfly.channel.Repository;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.exceptions.InvalidRepositoryArchiveException;
 
-import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.wildfly.channel.maven.VersionResolverFactory.DEFAULT_REPOSITORY_POLICY;
 
 public class RepositoryUtils {
     private static final Logger LOG = Logger.getLogger(RepositoryUtils.class.getName());
+    /**
+     * If set to {@code true}, the repository archives are extracted to a temporary folder instead of being read directly.
+     */
+    public static final String EXTRACT_ARCHIVES_PROPERTY = "org.wildfly.prospero.repository.extract-archives";
     public static Repository toChannelRepository(RemoteRepository r) {
         return new Repository(r.getId(), r.getUrl());
     }
@@ -57,11 +64,15 @@ public class RepositoryUtils {
     }
 
     /**
-     * extracts repositories provided as ZIP archives and produces a list of {@code Repositories} pointing to extracted folders.
+     * maps repositories provided as ZIP archives to {@code Repositories} that can be used to resolve artifacts. The archives
+     * are read directly using {@code jar:} URLs pointing to the repository folder inside the archive, unless
+     * {@code EXTRACT_ARCHIVES_PROPERTY} is set, in which case the archives are extracted to temporary folders.
+     *
+     * Remote archives are downloaded to a temporary file first.
      *
      * @param repositories - list of repositories. Some of them might contain archives
      * @param temporaryFiles - {@link TemporaryFilesManager} responsible for temporary files
-     * @return - list of repositories with extracted archives
+     * @return - list of repositories with mapped archives
      * @throws InvalidRepositoryArchiveException - if the archive does not contain a valid repository.
      */
     public static List<Repository> unzipArchives(List<Repository> repositories, TemporaryFilesManager temporaryFiles) throws InvalidRepositoryArchiveException {
@@ -79,9 +90,9 @@ public class RepositoryUtils {
                         LOG.debug("Treating " + repository.getUrl() + " as a local archive.");
                     }
                     final Path archivePath = Path.of(URI.create(repository.getUrl()));
-                    final String newUrl = extractArchive(archivePath, temporaryFiles);
+                    final String newUrl = mapArchive(archivePath, temporaryFiles);
                     if (LOG.isDebugEnabled()) {
-                        LOG.debug("Extracted " + repository.getUrl() + " to " + newUrl);
+                        LOG.debug("Mapped " + repository.getUrl() + " to " + newUrl);
                     }
                     mappedRepositories.add(new Repository(repository.getId(), newUrl));
                 } else if (isRemoteZipFile(repository)) {
@@ -94,9 +105,9 @@ public class RepositoryUtils {
                     }
                     IOUtils.copy(new URL(repository.getUrl()), archivePath.toFile());
 
-                    final String newUrl = extractArchive(archivePath, temporaryFiles);
+                    final String newUrl = mapArchive(archivePath, temporaryFiles);
                     if (LOG.isDebugEnabled()) {
-                        LOG.debug("Extracted " + repository.getUrl() + " to " + newUrl);
+                        LOG.debug("Mapped " + repository.getUrl() + " to " + newUrl);
                     }
                     mappedRepositories.add(new Repository(repository.getId(), newUrl));
                 } else {
@@ -112,7 +123,11 @@ public class RepositoryUtils {
         return mappedRepositories;
     }
 
-    private static String extractArchive(Path archivePath, TemporaryFilesManager temporaryFiles) throws IOException, InvalidRepositoryArchiveException {
+    private static String mapArchive(Path archivePath, TemporaryFilesManager temporaryFiles) throws IOException, InvalidRepositoryArchiveException {
+        if (!Boolean.getBoolean(EXTRACT_ARCHIVES_PROPERTY)) {
+            return archiveRepositoryUrl(archivePath);
+        }
+
         final Path tempRepo = temporaryFiles.createTempDirectory("prospero-repository");
         ZipUtils.unzip(archivePath, tempRepo);
 
@@ -120,16 +135,37 @@ public class RepositoryUtils {
         return mavenRepositoryFolder.toUri().toURL().toString();
     }
 
-    private static Path findRepositoryFolder(Path tempRepo) throws InvalidRepositoryArchiveException {
-        final File[] repoChildren = tempRepo.toFile().listFiles(File::isDirectory);
-        if (repoChildren == null || repoChildren.length != 1) {
+    /*
+     * validates the archive's layout and builds a jar: URL pointing to the maven-repository folder in the archive.
+     * The repository is then read by the ZipTransporterFactory registered in MavenSessionManager.
+     */
+    private static String archiveRepositoryUrl(Path archivePath) throws IOException, InvalidRepositoryArchiveException {
+        try (FileSystem zipFs = FileSystems.newFileSystem(archivePath, (ClassLoader) null)) {
+            final Path mavenRepositoryFolder = findRepositoryFolder(zipFs.getPath("/"));
+            String path = mavenRepositoryFolder.toString();
+            if (!path.endsWith("/")) {
+                path += "/";
+            }
+            // encode the path inside the archive the same way as the archive location
+            final String encodedPath = new URI(null, null, path, null).getRawPath();
+            return "jar:" + archivePath.toUri() + "!" + encodedPath;
+        } catch (URISyntaxException e) {
+            throw new IOException("Unable to create URL for the repository archive " + archivePath, e);
+        }
+    }
+
+    private static Path findRepositoryFolder(Path tempRepo) throws IOException, InvalidRepositoryArchiveException {
+        final List<Path> repoChildren;
+        try (Stream<Path> children = Files.list(tempRepo)) {
+            repoChildren = children.filter(Files::isDirectory).collect(Collectors.toList());
+        }
+        if (repoChildren.size() != 1) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("The repository archive has to contain a single root folder. " + tempRepo);
             }
             throw ProsperoLogger.ROOT_LOGGER.invalidRepositoryArchive();
         }
-        File rootFile = repoChildren[0];
-        final Path mavenRepositoryFolder = rootFile.toPath().resolve("maven-repository");
+        final Path mavenRepositoryFolder = repoChildren.get(0).resolve("maven-repository");
         if (!Files.exists(mavenRepositoryFolder) || !Files.isDirectory(mavenRepositoryFolder)) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug("Sub-folder maven-repository not found under the root of the archive " + mavenRepositoryFolder.getParent());
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.api.exceptions;
+
+/**
+ * Wraps a {@link MetadataException} thrown while lazily loading installation metadata from a method that cannot
+ * throw checked exceptions.
+ */
+public class UncheckedMetadataException extends RuntimeException {
+
+    public UncheckedMetadataException(MetadataException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized MetadataException getCause() {
+        return (MetadataException) super.getCause();
+    }
+}
@@ -32,19 +32,34 @@ import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
 
 /**
  * Manages artifact cache located in {@code installationDir}/{@code CACHE_FOLDER}.
@@ -55,6 +70,17 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * If the artifact cannot be found within Galleon-provisioned {@code installationDir}, the artifact can be added to the
  * {@code CACHE_FOLDER}.
  *
+ * The cache descriptor is treated as a journal - new records are appended to the end of the file and, if the same
+ * {@code GAV} is recorded more than once, the last record wins. The descriptor is read once into an in-memory index and
+ * is periodically compacted (de-duplicated and sorted) by writing a new file and atomically renaming it over the old one.
+ * Batches of artifacts recorded using {@link #recordAll(Collection)} are always written as a compacted descriptor.
+ *
+ * Each record can optionally be followed by the size, modification time and file key (e.g. inode) of the cached file
+ * ({@code <GAV>::<hash>::<path>::<size>::<mtime>::<fileKey>}). If the attributes of the file on disk still match the
+ * recorded ones, the file is assumed to be unchanged and is not re-hashed. Setting {@code VERIFY_HASHES_PROPERTY}
+ * system property to {@code true} (or calling {@link #setAlwaysVerifyHashes(boolean)}) disables this shortcut and
+ * the SHA-1 hash of the file is verified on every access.
+ *
  * The cache is rebuild during update and only current artifacts are stored.
  */
 public class ArtifactCache {
@@ -63,13 +89,29 @@ public class ArtifactCache {
     static final String CACHE_LINE_SEPARATOR = "::";
     static final String CACHE_FILENAME = "artifacts.txt";
     public static final Path CACHE_FOLDER = Path.of(ProsperoMetadataUtils.METADATA_DIR, ".cache");
+    /**
+     * minimal number of superseded records in the descriptor before it is compacted
+     */
+    static final int COMPACTION_THRESHOLD = 64;
+    /**
+     * if set to {@code true}, the hash of a cached artifact is always verified, even if the file attributes didn't change
+     */
+    public static final String VERIFY_HASHES_PROPERTY = "org.wildfly.prospero.cache.verify-hashes";
 
     private final Path cacheDir;
     private final Path installationDir;
 
     private final Map<String, Path> paths = new TreeMap<>();
     private final Map<String, String> hashes = new TreeMap<>();
+    private final Map<String, FileStamp> stamps = new TreeMap<>();
     private ReadWriteLock lock = new ReentrantReadWriteLock();
+    // number of records currently written in the descriptor, including the superseded ones
+    private int journalSize = 0;
+    // the last record in the descriptor is incomplete (e.g. the write has been interrupted) and has to be removed
+    private boolean tornRecord = false;
+    // attributes of the descriptor after it was last read or written by this instance
+    private List<Object> descriptorStamp = null;
+    private volatile boolean alwaysVerifyHashes = Boolean.getBoolean(VERIFY_HASHES_PROPERTY);
 
     private static final HashMap<Path, ArtifactCache> instances = new HashMap<>();
 
@@ -89,6 +131,16 @@ public class ArtifactCache {
         }
     }
 
+    /**
+     * if {@code true}, the SHA-1 hash of the cached artifacts is verified on each access, even if the size, modification
+     * time and the file key of the file matches the recorded values. Defaults to the value of {@code VERIFY_HASHES_PROPERTY}.
+     *
+     * @param alwaysVerifyHashes
+     */
+    public void setAlwaysVerifyHashes(boolean alwaysVerifyHashes) {
+        this.alwaysVerifyHashes = alwaysVerifyHashes;
+    }
+
     public static void cleanInstancesCache() {
         synchronized (instances) {
             instances.clear();
@@ -115,26 +167,64 @@ public class ArtifactCache {
      */
     public Optional<File> getArtifact(String groupId, String artifactId, String extension, String classifier, String version) {
         final String key = asKey(groupId, artifactId, extension, classifier, version);
+        try {
+            reloadIfModified();
+        } catch (IOException e) {
+            LOG.debug("Unable to reload the cache descriptor", e);
+            return Optional.empty();
+        }
+        final Path path;
+        final String expectedHash;
+        final FileStamp expectedStamp;
         try {
             lock.readLock().lock();
-            if (paths.containsKey(key)) {
-                final Path path = paths.get(key);
-                try {
-                    final String hash = HashUtils.hashFile(path);
-                    if (!hash.equals(hashes.get(key))) {
-                        LOG.debug("Hashes don't match for " + key);
-                        return Optional.empty();
-                    }
-                    return Optional.of(path.toFile());
-                } catch (IOException e) {
-                    LOG.debug("Unable to calculate cached artifact hash " + key, e);
-                    return Optional.empty();
-                }
+            if (!paths.containsKey(key)) {
+                return Optional.empty();
             }
-            return Optional.empty();
+            path = paths.get(key);
+            expectedHash = hashes.get(key);
+            expectedStamp = stamps.get(key);
         } finally {
             lock.readLock().unlock();
         }
+
+        try {
+            final FileStamp currentStamp = FileStamp.of(path);
+            if (currentStamp == null) {
+                LOG.debug("Cached artifact file doesn't exist " + key);
+                return Optional.empty();
+            }
+            if (!alwaysVerifyHashes && currentStamp.equals(expectedStamp)) {
+                return Optional.of(path.toFile());
+            }
+
+            final String hash = HashUtils.hashFile(path);
+            if (!hash.equals(expectedHash)) {
+                LOG.debug("Hashes don't match for " + key);
+                return Optional.empty();
+            }
+
+            rememberStamp(key, path, expectedHash, currentStamp);
+            return Optional.of(path.toFile());
+        } catch (IOException e) {
+            LOG.debug("Unable to calculate cached artifact hash " + key, e);
+            return Optional.empty();
+        }
+    }
+
+    /*
+     * The file has been verified by its hash, remember its attributes so that it doesn't need to be hashed again.
+     * The attributes will be persisted when the descriptor is next written.
+     */
+    private void rememberStamp(String key, Path path, String hash, FileStamp stamp) {
+        try {
+            lock.writeLock().lock();
+            if (path.equals(paths.get(key)) && hash.equals(hashes.get(key))) {
+                stamps.put(key, stamp);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -145,39 +235,60 @@ public class ArtifactCache {
      * @throws IOException
      */
     public void record(MavenArtifact artifact, Path pathToArtifact) throws IOException {
+        // the attributes can only vouch for the hash if it was calculated from the recorded file itself
+        // and have to be read before the hash, so that any concurrent change of the file is detected
+        final FileStamp stamp = isSameFile(artifact.getFile().toPath(), pathToArtifact) ? FileStamp.of(pathToArtifact) : null;
+        final String hash = HashUtils.hashFile(artifact.getFile().toPath());
+        final String key = asKey(artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(), artifact.getClassifier(), artifact.getVersion());
+
         try {
             lock.writeLock().lock();
 
-            final Path cacheList = cacheDir.resolve(CACHE_FILENAME);
+            // make sure the latest version of the cache list is used
+            reloadIfModified();
+
+            paths.put(key, pathToArtifact);
+            hashes.put(key, hash);
+            putStamp(key, stamp);
+
+            if (tornRecord || journalSize + 1 - paths.size() >= Math.max(COMPACTION_THRESHOLD, paths.size())) {
+                compact();
+            } else {
+                append(key);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * records a batch of files in the cache descriptor. Each artifact is recorded at the location of its file, which
+     * has to be placed within the {@code installationDir}. The descriptor is written only once, after all the artifacts
+     * have been added.
+     *
+     * @param artifacts - artifacts to be recorded
+     * @throws IOException
+     */
+    public void recordAll(Collection<MavenArtifact> artifacts) throws IOException {
+        Objects.requireNonNull(artifacts);
 
-            final String hash = HashUtils.hashFile(artifact.getFile().toPath());
+        recordEntries(inParallel(artifacts, artifact -> CacheEntry.of(artifact, artifact.getFile().toPath())));
+    }
 
-            // make sure the latest version of the cache list is read
-            init();
+    private void recordEntries(List<CacheEntry> entries) throws IOException {
+        try {
+            lock.writeLock().lock();
 
-            // add the file to the paths/hashes
-            paths.put(
-                    asKey(artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(), artifact.getClassifier(), artifact.getVersion()),
-                    pathToArtifact
-            );
-            hashes.put(
-                    asKey(artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(), artifact.getClassifier(), artifact.getVersion()),
-                    hash
-            );
+            // make sure the latest version of the cache list is used
+            reloadIfModified();
 
-            if (Files.exists(cacheList)) {
-                Files.delete(cacheList);
+            for (CacheEntry entry : entries) {
+                paths.put(entry.key, entry.path);
+                hashes.put(entry.key, entry.hash);
+                putStamp(entry.key, entry.stamp);
             }
 
-            // write all the paths/hashes to make sure they are in alphabetic order
-            try (BufferedWriter writer = Files.newBufferedWriter(cacheList, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW)) {
-                for (String key: paths.keySet()) {
-                    final Path relativePath = installationDir.relativize(paths.get(key));
-                    final String recordedPath = relativePath.toString().replace(File.separatorChar, '/');
-                    String cacheLine = key + CACHE_LINE_SEPARATOR + hashes.get(key) + CACHE_LINE_SEPARATOR + recordedPath + "\n";
-                    writer.write(cacheLine);
-                }
-            }
+            compact();
         } finally {
             lock.writeLock().unlock();
         }
@@ -190,9 +301,107 @@ public class ArtifactCache {
      * @throws IOException
      */
     public void cache(MavenArtifact artifact) throws IOException {
-        IoUtils.copy(artifact.getFile().toPath(), cacheDir.resolve(artifact.getFile().getName()), false);
+        final Path target = cacheDir.resolve(artifact.getFile().getName());
+        IoUtils.copy(artifact.getFile().toPath(), target, false);
+
+        record(new MavenArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(),
+                artifact.getClassifier(), artifact.getVersion(), target.toFile()), target);
+    }
+
+    /**
+     * caches the artifacts in {@code CACHE_FOLDER}. The cached artifacts are then recorded in the cache list
+     * in a single batch.
+     *
+     * @param artifacts
+     * @throws IOException
+     */
+    public void cacheAll(Collection<MavenArtifact> artifacts) throws IOException {
+        Objects.requireNonNull(artifacts);
+
+        // artifacts sharing a file name would be copied to the same target, copy those one after another
+        final Map<String, List<MavenArtifact>> byFileName = new LinkedHashMap<>();
+        for (MavenArtifact artifact : artifacts) {
+            byFileName.computeIfAbsent(artifact.getFile().getName(), n -> new ArrayList<>()).add(artifact);
+        }
+
+        final List<List<CacheEntry>> copied = inParallel(byFileName.values(), group -> {
+            final List<CacheEntry> entries = new ArrayList<>(group.size());
+            for (MavenArtifact artifact : group) {
+                final Path target = cacheDir.resolve(artifact.getFile().getName());
+                IoUtils.copy(artifact.getFile().toPath(), target, false);
+                entries.add(CacheEntry.of(artifact, target));
+            }
+            return entries;
+        });
+
+        final List<CacheEntry> entries = new ArrayList<>(artifacts.size());
+        copied.forEach(entries::addAll);
+        recordEntries(entries);
+    }
+
+    /*
+     * Copying and hashing the files is I/O bound, run the tasks for a batch of artifacts concurrently.
+     * The results are returned in the order of the items.
+     */
+    private static <T, R> List<R> inParallel(Collection<T> items, IoTask<T, R> task) throws IOException {
+        final int threads = Math.min(items.size(), Runtime.getRuntime().availableProcessors());
+        final List<R> results = new ArrayList<>(items.size());
+        if (threads <= 1) {
+            for (T item : items) {
+                results.add(task.apply(item));
+            }
+            return results;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<R>> futures = new ArrayList<>(items.size());
+            for (T item : items) {
+                futures.add(executor.submit(() -> task.apply(item)));
+            }
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while caching artifacts", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw new IOException(e.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface IoTask<T, R> {
+        R apply(T item) throws IOException;
+    }
 
-        record(artifact, cacheDir.resolve(artifact.getFile().getName()));
+    private static final class CacheEntry {
+        private final String key;
+        private final Path path;
+        private final String hash;
+        private final FileStamp stamp;
+
+        private CacheEntry(String key, Path path, String hash, FileStamp stamp) {
+            this.key = key;
+            this.path = path;
+            this.hash = hash;
+            this.stamp = stamp;
+        }
+
+        private static CacheEntry of(MavenArtifact artifact, Path path) throws IOException {
+            final String key = asKey(artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(), artifact.getClassifier(), artifact.getVersion());
+            // the attributes have to be read before the hash, so that any concurrent change of the file is detected
+            final FileStamp stamp = FileStamp.of(path);
+            return new CacheEntry(key, path, HashUtils.hashFile(path), stamp);
+        }
     }
 
     /**
@@ -208,6 +417,7 @@ public class ArtifactCache {
         Objects.requireNonNull(manifestRecord);
         Objects.requireNonNull(localRepositoryManager);
 
+        final List<MavenArtifact> manifests = new ArrayList<>();
         for (ManifestVersionRecord.MavenManifest manifest : manifestRecord.getMavenManifests()) {
             final MavenArtifact record = mapToFile(manifestRecord, localRepositoryManager, manifest.getGroupId(), manifest.getArtifactId());
             if (record != null && record.getVersion().equals(manifest.getVersion())) {
@@ -217,10 +427,14 @@ public class ArtifactCache {
                 final File cachedManifest = record.getFile();
 
                 if (cachedManifest.exists()) {
-                    cache(record);
+                    manifests.add(record);
                 }
             }
         }
+
+        if (!manifests.isEmpty()) {
+            cacheAll(manifests);
+        }
     }
 
     private MavenArtifact mapToFile(ManifestVersionRecord manifestRecord, LocalRepositoryManager localRepositoryManager,
@@ -239,27 +453,177 @@ public class ArtifactCache {
     private void init() throws IOException {
         Path artifactLog = cacheDir.resolve(CACHE_FILENAME);
 
+        paths.clear();
+        hashes.clear();
+        stamps.clear();
+        journalSize = 0;
+        tornRecord = false;
+
         if (Files.exists(artifactLog)) {
             int row = 0;
-            final List<String> lines = Files.readAllLines(artifactLog);
+            // decode leniently, a torn record might end in the middle of a multi-byte character
+            final String content = new String(Files.readAllBytes(artifactLog), StandardCharsets.UTF_8);
+            final List<String> lines = content.lines().collect(Collectors.toList());
+            final boolean terminated = content.isEmpty() || content.endsWith("\n");
             try {
                 for ( ; row < lines.size(); row++) {
-                    final String[] splitLine = lines.get(row).split(CACHE_LINE_SEPARATOR);
-                    if (splitLine.length < 3) {
-                        throw new IOException("Not enough segments, expected format is <GAV>::<hash>::<path>");
+                    if (lines.get(row).isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        readRecord(lines.get(row));
+                    } catch (MavenUniverseException | IOException e) {
+                        if (terminated || row < lines.size() - 1) {
+                            throw e;
+                        }
+                        // an unterminated last record has been interrupted while being appended, skip it
+                        // and remove it on the next write
+                        LOG.debugf("Ignoring incomplete last record in the cache descriptor: '%s'", lines.get(row));
+                        tornRecord = true;
                     }
-                    String gav = splitLine[0];
-                    String hash = splitLine[1];
-                    Path path = Paths.get(splitLine[2]);
-                    final org.jboss.galleon.universe.maven.MavenArtifact mavenArtifact = org.jboss.galleon.universe.maven.MavenArtifact.fromString(gav);
-                    final String key = asKey(mavenArtifact.getGroupId(), mavenArtifact.getArtifactId(), mavenArtifact.getExtension(), mavenArtifact.getClassifier(), mavenArtifact.getVersion());
-                    paths.put(key, installationDir.resolve(path));
-                    hashes.put(key, hash);
                 }
             } catch (MavenUniverseException | IOException e) {
                 throw ProsperoLogger.ROOT_LOGGER.unableToReadArtifactCache(row + 1, lines.get(row), e);
             }
         }
+
+        descriptorStamp = readDescriptorStamp();
+    }
+
+    private void readRecord(String line) throws MavenUniverseException, IOException {
+        final String[] splitLine = line.split(CACHE_LINE_SEPARATOR);
+        if (splitLine.length < 3) {
+            throw new IOException("Not enough segments, expected format is <GAV>::<hash>::<path>");
+        }
+        String gav = splitLine[0];
+        String hash = splitLine[1];
+        Path path = Paths.get(splitLine[2]);
+        final org.jboss.galleon.universe.maven.MavenArtifact mavenArtifact = org.jboss.galleon.universe.maven.MavenArtifact.fromString(gav);
+        final String key = asKey(mavenArtifact.getGroupId(), mavenArtifact.getArtifactId(), mavenArtifact.getExtension(), mavenArtifact.getClassifier(), mavenArtifact.getVersion());
+        final FileStamp stamp = FileStamp.parse(splitLine);
+        paths.put(key, installationDir.resolve(path));
+        hashes.put(key, hash);
+        putStamp(key, stamp);
+        journalSize++;
+    }
+
+    /*
+     * The descriptor can be replaced outside of this instance (e.g. by Galleon plugin during provisioning, or when
+     * the cache folder is replaced while applying an update). Reload the index if the file has changed since it was
+     * last read or written.
+     */
+    private void reloadIfModified() throws IOException {
+        try {
+            lock.writeLock().lock();
+            if (!Objects.equals(descriptorStamp, readDescriptorStamp())) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debugf("The cache descriptor in %s has been modified, reloading", cacheDir);
+                }
+                init();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Object> readDescriptorStamp() throws IOException {
+        final Path artifactLog = cacheDir.resolve(CACHE_FILENAME);
+        if (!Files.exists(artifactLog)) {
+            return null;
+        }
+        final BasicFileAttributes attrs = Files.readAttributes(artifactLog, BasicFileAttributes.class);
+        return Arrays.asList(attrs.size(), attrs.lastModifiedTime(), attrs.fileKey());
+    }
+
+    private void append(String key) throws IOException {
+        final Path cacheList = cacheDir.resolve(CACHE_FILENAME);
+        Files.createDirectories(cacheDir);
+
+        String cacheLine = toCacheLine(key);
+        // a record written by a different writer might not have been terminated
+        if (!endsWithNewLine(cacheList)) {
+            cacheLine = "\n" + cacheLine;
+        }
+        try (FileChannel channel = FileChannel.open(cacheList, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            final ByteBuffer buffer = ByteBuffer.wrap(cacheLine.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        journalSize++;
+        descriptorStamp = readDescriptorStamp();
+    }
+
+    private static boolean endsWithNewLine(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return true;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return true;
+            }
+            final ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            return last.get(0) == '\n';
+        }
+    }
+
+    /*
+     * writes all the paths/hashes to a temporary file in alphabetic order and replaces the descriptor with it.
+     */
+    private void compact() throws IOException {
+        final Path cacheList = cacheDir.resolve(CACHE_FILENAME);
+        Files.createDirectories(cacheDir);
+        final Path tempList = Files.createTempFile(cacheDir, CACHE_FILENAME, ".tmp");
+
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tempList, StandardCharsets.UTF_8, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (String key : paths.keySet()) {
+                    writer.write(toCacheLine(key));
+                }
+            }
+
+            try {
+                Files.move(tempList, cacheList, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempList, cacheList, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempList);
+        }
+
+        journalSize = paths.size();
+        tornRecord = false;
+        descriptorStamp = readDescriptorStamp();
+    }
+
+    private String toCacheLine(String key) {
+        final Path relativePath = installationDir.relativize(paths.get(key));
+        final String recordedPath = relativePath.toString().replace(File.separatorChar, '/');
+        final StringBuilder line = new StringBuilder()
+                .append(key).append(CACHE_LINE_SEPARATOR)
+                .append(hashes.get(key)).append(CACHE_LINE_SEPARATOR)
+                .append(recordedPath);
+        if (stamps.containsKey(key)) {
+            line.append(CACHE_LINE_SEPARATOR).append(stamps.get(key).toRecord());
+        }
+        return line.append("\n").toString();
+    }
+
+    private static boolean isSameFile(Path source, Path target) {
+        try {
+            return Files.exists(target) && Files.isSameFile(source, target);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void putStamp(String key, FileStamp stamp) {
+        if (stamp == null) {
+            stamps.remove(key);
+        } else {
+            stamps.put(key, stamp);
+        }
     }
 
     private static String asKey(String groupId, String artifactId, String extension, String classifier, String version) {
@@ -276,4 +640,64 @@ public class ArtifactCache {
         }
         return buf.append(':').append(version).toString();
     }
+
+    /**
+     * Attributes of a cached file used to detect if the file has been modified since it was recorded.
+     */
+    static final class FileStamp {
+        private final long size;
+        private final long modified;
+        private final String fileKey;
+
+        FileStamp(long size, long modified, String fileKey) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+        }
+
+        static FileStamp of(Path file) throws IOException {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            final BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            final String fileKey = attrs.fileKey() == null ? null : attrs.fileKey().toString();
+            return new FileStamp(attrs.size(), attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS), fileKey);
+        }
+
+        /*
+         * parses optional attribute segments of the cache record, returns null if the record doesn't have them
+         */
+        static FileStamp parse(String[] splitLine) {
+            if (splitLine.length < 5) {
+                return null;
+            }
+            try {
+                final long size = Long.parseLong(splitLine[3]);
+                final long modified = Long.parseLong(splitLine[4]);
+                final String fileKey = splitLine.length > 5 ? splitLine[5] : null;
+                return new FileStamp(size, modified, fileKey);
+            } catch (NumberFormatException e) {
+                LOG.debug("Unable to parse recorded file attributes, the file will be verified by hash", e);
+                return null;
+            }
+        }
+
+        String toRecord() {
+            final String record = size + CACHE_LINE_SEPARATOR + modified;
+            return fileKey == null ? record : record + CACHE_LINE_SEPARATOR + fileKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            FileStamp fileStamp = (FileStamp) o;
+            return size == fileStamp.size && modified == fileStamp.modified && Objects.equals(fileKey, fileStamp.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, modified, fileKey);
+        }
+    }
 }
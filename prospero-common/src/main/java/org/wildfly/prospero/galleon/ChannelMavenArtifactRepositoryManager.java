@@ -40,11 +40,12 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import org.jboss.galleon.api.MavenStreamResolver;
 import org.jboss.galleon.api.Provisioning;
 import org.wildfly.channel.VersionResult;
@@ -54,6 +55,8 @@ public class ChannelMavenArtifactRepositoryManager implements MavenRepoManager,
     private static final String REQUIRE_CHANNEL_FOR_ALL_ARTIFACT = "org.wildfly.plugins.galleon.all.artifact.requires.channel.resolution";
     private final ChannelSession channelSession;
     private final ChannelManifest manifest;
+    // resolution policy of feature packs, keyed by GAV. Avoids re-opening the same feature pack for each request
+    private final Map<String, Boolean> fpRequireChannelCache = new ConcurrentHashMap<>();
 
     public ChannelMavenArtifactRepositoryManager(ChannelSession channelSession) {
         this.channelSession = channelSession;
@@ -110,29 +113,42 @@ public class ChannelMavenArtifactRepositoryManager implements MavenRepoManager,
                 return true;
             }
 
-            org.wildfly.channel.MavenArtifact mavenArtifact = channelSession.
-                    resolveDirectMavenArtifact(artifact.getGroupId(),
-                            artifact.getArtifactId(),
-                            artifact.getExtension(),
-                            artifact.getClassifier(),
-                            artifact.getVersion());
-            if (!Provisioning.isFeaturePack(mavenArtifact.getFile().toPath())) {
-                // Not a feature-pack
-                return requireChannel;
+            final String key = artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getExtension()
+                    + ":" + artifact.getClassifier() + ":" + artifact.getVersion();
+            final Boolean cached = fpRequireChannelCache.get(key);
+            if (cached != null) {
+                return cached;
             }
-            try (FileSystem fs = ZipUtils.newFileSystem(mavenArtifact.getFile().toPath())) {
-                Path resPath = fs.getPath("resources");
-                final Path wfRes = resPath.resolve("wildfly");
-                final Path channelPropsPath = wfRes.resolve("wildfly-channel.properties");
-                if (Files.exists(channelPropsPath)) {
-                    Properties props = new Properties();
-                    try(BufferedReader reader = Files.newBufferedReader(channelPropsPath)) {
-                        props.load(reader);
-                    }
-                    String resolution = props.getProperty("resolution");
-                    if (resolution != null) {
-                        requireChannel = "REQUIRED".equals(resolution) || "REQUIRED_FP_ONLY".equals(resolution);
-                    }
+            requireChannel = readFpRequireChannel(artifact);
+            fpRequireChannelCache.put(key, requireChannel);
+        }
+        return requireChannel;
+    }
+
+    private boolean readFpRequireChannel(MavenArtifact artifact) throws Exception {
+        boolean requireChannel = false;
+        org.wildfly.channel.MavenArtifact mavenArtifact = channelSession.
+                resolveDirectMavenArtifact(artifact.getGroupId(),
+                        artifact.getArtifactId(),
+                        artifact.getExtension(),
+                        artifact.getClassifier(),
+                        artifact.getVersion());
+        if (!Provisioning.isFeaturePack(mavenArtifact.getFile().toPath())) {
+            // Not a feature-pack
+            return requireChannel;
+        }
+        try (FileSystem fs = ZipUtils.newFileSystem(mavenArtifact.getFile().toPath())) {
+            Path resPath = fs.getPath("resources");
+            final Path wfRes = resPath.resolve("wildfly");
+            final Path channelPropsPath = wfRes.resolve("wildfly-channel.properties");
+            if (Files.exists(channelPropsPath)) {
+                Properties props = new Properties();
+                try(BufferedReader reader = Files.newBufferedReader(channelPropsPath)) {
+                    props.load(reader);
+                }
+                String resolution = props.getProperty("resolution");
+                if (resolution != null) {
+                    requireChannel = "REQUIRED".equals(resolution) || "REQUIRED_FP_ONLY".equals(resolution);
                 }
             }
         }
@@ -173,12 +189,15 @@ public class ChannelMavenArtifactRepositoryManager implements MavenRepoManager,
 
         if (manifest == null) {
             // split the artifacts into requiring channels and not requiring channels
-            final List<MavenArtifact> artifactsRequiringChannels = artifacts.stream()
-                    .filter(a -> requiresChannel(a))
-                    .collect(Collectors.toList());
-            final List<MavenArtifact> artifactsNotRequiringChannels = artifacts.stream()
-                    .filter(a -> !requiresChannel(a))
-                    .collect(Collectors.toList());
+            final List<MavenArtifact> artifactsRequiringChannels = new ArrayList<>();
+            final List<MavenArtifact> artifactsNotRequiringChannels = new ArrayList<>();
+            for (MavenArtifact artifact : artifacts) {
+                if (requiresChannel(artifact)) {
+                    artifactsRequiringChannels.add(artifact);
+                } else {
+                    artifactsNotRequiringChannels.add(artifact);
+                }
+            }
             // bulk resolve artifacts requiring channels - if any fail, throw exception
             MavenArtifactMapper mapper = new MavenArtifactMapper(artifactsRequiringChannels);
             List<org.wildfly.channel.MavenArtifact> channelArtifacts = channelSession.resolveMavenArtifacts(mapper.toChannelArtifacts());
@@ -76,6 +76,7 @@ public class GalleonEnvironment implements AutoCloseable {
     private final Provisioning provisioning;
     private final MavenRepoManager repositoryManager;
     private final ChannelSession channelSession;
+    private final ResolutionContext resolutionContext;
     private final List<Channel> channels;
     private Path restoreManifestPath = null;
 
@@ -99,25 +100,35 @@ public class GalleonEnvironment implements AutoCloseable {
             substitutedChannels.add(substitutor.substitute(channel));
         }
 
-        final RepositorySystem system = builder.mavenSessionManager.newRepositorySystem();
-        final DefaultRepositorySystemSession session = builder.mavenSessionManager.newRepositorySystemSession(system);
-        final Path sourceServerPath = builder.sourceServerPath == null? builder.installDir:builder.sourceServerPath;
-        MavenVersionsResolver.Factory factory;
-        try {
-            factory = new CachedVersionResolverFactory(new VersionResolverFactory(system, session, MavenProxyHandler::addProxySettings), sourceServerPath, system, session);
-        } catch (IOException e) {
-            ProsperoLogger.ROOT_LOGGER.debug("Unable to read artifact cache, falling back to Maven resolver.", e);
-            factory = new VersionResolverFactory(system, session, MavenProxyHandler::addProxySettings);
-        }
+        final DefaultRepositorySystemSession session;
+        if (builder.resolutionContext != null && restoreManifest.isEmpty()) {
+            // the channel manifests have already been resolved earlier in the operation
+            resolutionContext = builder.resolutionContext;
+            session = resolutionContext.getSession();
+            channelSession = resolutionContext.getChannelSession();
+        } else {
+            final RepositorySystem system = builder.mavenSessionManager.newRepositorySystem();
+            session = builder.mavenSessionManager.newRepositorySystemSession(system);
+            final Path sourceServerPath = builder.sourceServerPath == null ? builder.installDir : builder.sourceServerPath;
+            MavenVersionsResolver.Factory factory;
+            try {
+                factory = new CachedVersionResolverFactory(new VersionResolverFactory(system, session, MavenProxyHandler::addProxySettings), sourceServerPath, system, session);
+            } catch (IOException e) {
+                ProsperoLogger.ROOT_LOGGER.debug("Unable to read artifact cache, falling back to Maven resolver.", e);
+                factory = new VersionResolverFactory(system, session, MavenProxyHandler::addProxySettings);
+            }
+            factory = ResolutionContext.rememberingVersions(factory);
 
-        channelSession = initChannelSession(session, factory);
+            channelSession = initChannelSession(session, factory);
+            resolutionContext = new ResolutionContext(session, channelSession);
 
-        if (restoreManifest.isPresent()) {
-            // try to load the manifests used by the state that's being reverted to
-            // they have to be in the maven cache for later version resolution
-            final ManifestVersionRecord manifestVersions = new ManifestVersionRecord("1.0.0",
-                    builder.restoredManifestVersions, Collections.emptyList(), Collections.emptyList());
-            storeOriginalChannelManifestAsResolved(builder, factory, manifestVersions.getMavenManifests());
+            if (restoreManifest.isPresent()) {
+                // try to load the manifests used by the state that's being reverted to
+                // they have to be in the maven cache for later version resolution
+                final ManifestVersionRecord manifestVersions = new ManifestVersionRecord("1.0.0",
+                        builder.restoredManifestVersions, Collections.emptyList(), Collections.emptyList());
+                storeOriginalChannelManifestAsResolved(builder, factory, manifestVersions.getMavenManifests());
+            }
         }
 
         if (builder.artifactDirectResolve) {
@@ -242,6 +253,16 @@ public class GalleonEnvironment implements AutoCloseable {
         return channelSession;
     }
 
+    /**
+     * the resolution state of this environment. It can be passed to other environments used by the same operation
+     * with {@link Builder#setResolutionContext(ResolutionContext)}. The context is not closed with this environment.
+     *
+     * @return the resolution context
+     */
+    public ResolutionContext getResolutionContext() {
+        return resolutionContext;
+    }
+
     public MavenRepoManager getRepositoryManager() {
         return repositoryManager;
     }
@@ -283,6 +304,7 @@ public class GalleonEnvironment implements AutoCloseable {
         private final boolean useDefaultCore;
 
         private GalleonProvisioningConfig config;
+        private ResolutionContext resolutionContext;
 
         private Builder(Path installDir, List<Channel> channels, MavenSessionManager mavenSessionManager, boolean useDefaultCore) {
             this.installDir = installDir;
@@ -328,6 +350,19 @@ public class GalleonEnvironment implements AutoCloseable {
             return new GalleonEnvironment(this);
         }
 
+        /**
+         * reuse the channel manifests resolved earlier in the same operation instead of resolving the channels again.
+         * The {@code resolutionContext} has to be created for the same channels. It is ignored if a restore manifest
+         * is used.
+         *
+         * @param resolutionContext - context of another environment, see {@link GalleonEnvironment#getResolutionContext()}
+         * @return this for fluent api
+         */
+        public Builder setResolutionContext(ResolutionContext resolutionContext) {
+            this.resolutionContext = resolutionContext;
+            return this;
+        }
+
         public Builder setSourceServerPath(Path sourceServerPath) {
             this.sourceServerPath = sourceServerPath;
             return this;
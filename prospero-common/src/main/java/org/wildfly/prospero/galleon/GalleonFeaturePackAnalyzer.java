@@ -22,6 +22,7 @@ import org.jboss.galleon.Constants;
 import org.jboss.galleon.ProvisioningException;
 import org.jboss.galleon.util.HashUtils;
 import org.jboss.logging.Logger;
+import org.wildfly.channel.ArtifactCoordinate;
 import org.wildfly.channel.Channel;
 import org.wildfly.channel.MavenArtifact;
 import org.wildfly.channel.UnresolvedMavenArtifactException;
@@ -32,6 +33,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -44,10 +46,21 @@ public class GalleonFeaturePackAnalyzer {
 
     private final List<Channel> channels;
     private final MavenSessionManager mavenSessionManager;
+    private final ResolutionContext resolutionContext;
 
     public GalleonFeaturePackAnalyzer(List<Channel> channels, MavenSessionManager mavenSessionManager) {
+        this(channels, mavenSessionManager, null);
+    }
+
+    /**
+     * @param channels - channels used to resolve the artifacts
+     * @param mavenSessionManager - maven session manager
+     * @param resolutionContext - if not null, the already resolved {@code channels} are reused
+     */
+    public GalleonFeaturePackAnalyzer(List<Channel> channels, MavenSessionManager mavenSessionManager, ResolutionContext resolutionContext) {
         this.channels = channels;
         this.mavenSessionManager = mavenSessionManager;
+        this.resolutionContext = resolutionContext;
     }
 
     /**
@@ -67,33 +80,39 @@ public class GalleonFeaturePackAnalyzer {
 
         try (GalleonEnvironment galleonEnv = galleonEnvWithFpMapper(tempInstallationPath, installedDir, fps, provisioningConfig)) {
             final ArtifactCache artifactCache = ArtifactCache.getInstance(installedDir);
+            final List<ArtifactCoordinate> coordinates = new ArrayList<>();
             try (Provisioning pm = galleonEnv.getProvisioning()) {
                 final Set<String> pluginGavs = pm.getOrderedFeaturePackPluginLocations(provisioningConfig);
                 for (String pluginGav : pluginGavs) {
                     final String[] pluginLoc = pluginGav.split(":");
-                    final MavenArtifact jar = galleonEnv.getChannelSession().resolveMavenArtifact(pluginLoc[0], pluginLoc[1], "jar", null, null);
-                    artifactCache.cache(jar);
+                    coordinates.add(new ArtifactCoordinate(pluginLoc[0], pluginLoc[1], "jar", null, null));
                 }
+
+                // calling this for a side effect of resolving feature pack artifacts, the feature packs are recorded in fps
+                pm.getProvisioningRuntime(provisioningConfig).close();
             }
 
-            for (String fp : getFeaturePacks(installedDir, provisioningConfig)) {
-                // resolve the artifact
+            for (String fp : fps) {
                 final String[] fpLoc = fp.split(":");
-                final MavenArtifact mavenArtifact = galleonEnv.getChannelSession().resolveMavenArtifact(fpLoc[0], fpLoc[1], "zip", null, null);
-                // cache it in the
-                artifactCache.cache(mavenArtifact);
+                coordinates.add(new ArtifactCoordinate(fpLoc[0], fpLoc[1], "zip", null, null));
             }
 
+            // resolve all the artifacts in one request, so that the channel session can resolve them in parallel
+            final List<MavenArtifact> artifacts = new ArrayList<>(galleonEnv.getChannelSession().resolveMavenArtifacts(coordinates));
+
             try {
                 // cache wildfly-config-gen as it's not added in galleon-plugin - TODO: remove when fixed in galleon-plugins
                 final MavenArtifact mavenArtifact = galleonEnv.getChannelSession().resolveMavenArtifact("org.wildfly.galleon-plugins", "wildfly-config-gen", "jar", null, null);
-                artifactCache.cache(mavenArtifact);
+                artifacts.add(mavenArtifact);
             } catch (UnresolvedMavenArtifactException e) {
                 // ignore - wildfly-config-gen has not been defined
                 LOG.isDebugEnabled();
                 LOG.debug("Unable to find wildfly-config-get artifact", e);
             }
 
+            // cache all the artifacts in one go to avoid re-writing the cache descriptor for each of them
+            artifactCache.cacheAll(artifacts);
+
             updateHashes(installedDir);
         } finally {
             FileUtils.deleteQuietly(tempInstallationPath.toFile());
@@ -143,6 +162,7 @@ public class GalleonFeaturePackAnalyzer {
                 .setSourceServerPath(sourcePath)
                 .setProvisioningConfig(provisioningConfig)
                 .setResolvedFpTracker(fps::add)
+                .setResolutionContext(resolutionContext)
                 .build();
         return galleonEnv;
     }
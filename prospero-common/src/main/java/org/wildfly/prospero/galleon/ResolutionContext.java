@@ -0,0 +1,140 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.galleon;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.wildfly.channel.ArtifactCoordinate;
+import org.wildfly.channel.ArtifactTransferException;
+import org.wildfly.channel.ChannelMetadataCoordinate;
+import org.wildfly.channel.ChannelSession;
+import org.wildfly.channel.Repository;
+import org.wildfly.channel.spi.MavenVersionsResolver;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Channel resolution state of a single operation.
+ *
+ * Holds the Maven session and the {@link ChannelSession} with the resolved channel manifests. Passing the context to
+ * {@link GalleonEnvironment.Builder#setResolutionContext(ResolutionContext)} lets the steps of an operation (e.g.
+ * looking up updates and provisioning the update candidate) share the manifests instead of resolving them again.
+ *
+ * The versions of each stream found in the channel repositories are kept for the lifetime of the context, so they are
+ * listed only once per operation.
+ */
+public class ResolutionContext implements AutoCloseable {
+
+    private final DefaultRepositorySystemSession session;
+    private final ChannelSession channelSession;
+
+    ResolutionContext(DefaultRepositorySystemSession session, ChannelSession channelSession) {
+        this.session = session;
+        this.channelSession = channelSession;
+    }
+
+    DefaultRepositorySystemSession getSession() {
+        return session;
+    }
+
+    public ChannelSession getChannelSession() {
+        return channelSession;
+    }
+
+    @Override
+    public void close() {
+        channelSession.close();
+    }
+
+    /**
+     * wraps the {@code factory} so that the resolvers it creates remember the available versions of each artifact.
+     */
+    static MavenVersionsResolver.Factory rememberingVersions(MavenVersionsResolver.Factory factory) {
+        return new MavenVersionsResolver.Factory() {
+            @Override
+            public MavenVersionsResolver create(Collection<Repository> repositories) {
+                return new VersionsRememberingResolver(factory.create(repositories));
+            }
+
+            @Override
+            public void close() {
+                factory.close();
+            }
+        };
+    }
+
+    private static final class VersionsRememberingResolver implements MavenVersionsResolver {
+        private final MavenVersionsResolver delegate;
+        private final Map<String, Set<String>> versions = new ConcurrentHashMap<>();
+
+        private VersionsRememberingResolver(MavenVersionsResolver delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Set<String> getAllVersions(String groupId, String artifactId, String extension, String classifier) {
+            final String key = groupId + ":" + artifactId + ":" + extension + ":" + classifier;
+            Set<String> result = versions.get(key);
+            if (result == null) {
+                // not using computeIfAbsent, the lookups of other artifacts should not wait for the remote request
+                result = new HashSet<>(delegate.getAllVersions(groupId, artifactId, extension, classifier));
+                versions.put(key, result);
+            }
+            // the caller may modify the returned set
+            return new HashSet<>(result);
+        }
+
+        @Override
+        public File resolveArtifact(String groupId, String artifactId, String extension, String classifier, String version)
+                throws ArtifactTransferException {
+            return delegate.resolveArtifact(groupId, artifactId, extension, classifier, version);
+        }
+
+        @Override
+        public List<File> resolveArtifacts(List<ArtifactCoordinate> coordinates) throws ArtifactTransferException {
+            return delegate.resolveArtifacts(coordinates);
+        }
+
+        @Override
+        public List<URL> resolveChannelMetadata(List<? extends ChannelMetadataCoordinate> manifestCoords)
+                throws ArtifactTransferException {
+            return delegate.resolveChannelMetadata(manifestCoords);
+        }
+
+        @Override
+        public String getMetadataReleaseVersion(String groupId, String artifactId) {
+            return delegate.getMetadataReleaseVersion(groupId, artifactId);
+        }
+
+        @Override
+        public String getMetadataLatestVersion(String groupId, String artifactId) {
+            return delegate.getMetadataLatestVersion(groupId, artifactId);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -19,6 +19,8 @@ package org.wildfly.prospero.installation.git;
 
 import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.StoredConfig;
 import org.wildfly.channel.Channel;
 import org.wildfly.channel.ChannelManifest;
@@ -39,15 +41,17 @@ import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.wildfly.channel.Stream;
 import org.wildfly.prospero.model.ProsperoConfig;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -65,6 +69,7 @@ public class GitStorage implements AutoCloseable {
     private final Git git;
     private final Path base;
     private final SavedStateParser savedStateParser;
+    private final HistoryIndex historyIndex;
 
     public GitStorage(Path base) throws MetadataException {
         this.base = base.resolve(ProsperoMetadataUtils.METADATA_DIR);
@@ -74,21 +79,13 @@ public class GitStorage implements AutoCloseable {
             throw ProsperoLogger.ROOT_LOGGER.unableToCreateHistoryStorage(base, e);
         }
         this.savedStateParser = new SavedStateParser();
+        this.historyIndex = new HistoryIndex(git.getRepository(), savedStateParser);
     }
 
     public List<SavedState> getRevisions() throws MetadataException {
         try {
-            final Iterable<RevCommit> call = git.log().call();
-            List<SavedState> history = new ArrayList<>();
-            for (RevCommit revCommit : call) {
-                final String commitMessage = revCommit.getFullMessage();
-                final Instant commitTime = Instant.ofEpochSecond(revCommit.getCommitTime());
-                final String commitHash = revCommit.getName().substring(0, 8);
-                history.add(savedStateParser.read(commitHash, commitTime, commitMessage));
-            }
-
-            return history;
-        } catch (GitAPIException | IOException e) {
+            return historyIndex.getRevisions();
+        } catch (IOException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
         }
     }
@@ -105,11 +102,12 @@ public class GitStorage implements AutoCloseable {
                 git.add().addFilepattern(CURRENT_VERSION_FILE).call();
                 git.add().addFilepattern(ProsperoMetadataUtils.PROVISIONING_RECORD_XML).call();
                 // adjust the date so that when taking over a non-prosper installation date matches creation
-                git.commit()
+                final RevCommit commit = git.commit()
                         .setAuthor(author)
                         .setCommitter(author)
                         .setMessage(msg)
                         .call();
+                historyIndex.recorded(commit);
             } else {
                 recordChange(SavedState.Type.UPDATE);
             }
@@ -148,11 +146,12 @@ public class GitStorage implements AutoCloseable {
 
             String msg = readCommitMessage(commitType);
 
-            git.commit()
+            final RevCommit commit = git.commit()
                     .setAuthor(author)
                     .setCommitter(author)
                     .setMessage(msg)
                     .call();
+            historyIndex.recorded(commit);
 
         } catch (IOException | GitAPIException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
@@ -175,11 +174,12 @@ public class GitStorage implements AutoCloseable {
         try {
             git.add().addFilepattern(ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME).call();
             final PersonIdent author = getCommitter();
-            git.commit()
+            final RevCommit commit = git.commit()
                     .setAuthor(author)
                     .setCommitter(author)
                     .setMessage(SavedState.Type.CONFIG_CHANGE.name())
                     .call();
+            historyIndex.recorded(commit);
         } catch (GitAPIException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
         }
@@ -188,15 +188,21 @@ public class GitStorage implements AutoCloseable {
     public Path revert(SavedState savedState) throws MetadataException {
         try {
             Path hist = Files.createTempDirectory("hist").resolve(ProsperoMetadataUtils.METADATA_DIR);
-            try (Git temp =  Git.cloneRepository()
-                    .setDirectory(hist.toFile())
-                    .setRemote("origin")
-                    .setURI(base.toUri().toString())
-                    .call()) {
-                temp.reset()
-                        .setMode(ResetCommand.ResetType.HARD)
-                        .setRef(savedState.getName())
-                        .call();
+            Files.createDirectories(hist);
+
+            try (ObjectReader reader = git.getRepository().newObjectReader();
+                 RevWalk revWalk = new RevWalk(reader)) {
+                final RevCommit commit = revWalk.parseCommit(resolveRevision(savedState.getName()));
+                // write out all the files recorded at the revision
+                try (TreeWalk treeWalk = new TreeWalk(reader)) {
+                    treeWalk.addTree(commit.getTree());
+                    treeWalk.setRecursive(true);
+                    while (treeWalk.next()) {
+                        final Path target = hist.resolve(treeWalk.getPathString());
+                        Files.createDirectories(target.getParent());
+                        writeBlob(reader, treeWalk.getObjectId(0), target);
+                    }
+                }
 
                 if (!Files.exists(hist.resolve(ProsperoMetadataUtils.PROVISIONING_RECORD_XML))) {
                     // find the latest persisted version of provisioning.xml
@@ -210,15 +216,14 @@ public class GitStorage implements AutoCloseable {
                         revCommit = iterator.next();
                     }
 
-                    temp.checkout()
-                            .addPath(ProsperoMetadataUtils.PROVISIONING_RECORD_XML)
-                            .setAllPaths(false)
-                            .setStartPoint(revCommit)
-                            .call();
+                    if (revCommit != null) {
+                        readFile(reader, revWalk.parseCommit(revCommit), ProsperoMetadataUtils.PROVISIONING_RECORD_XML,
+                                hist.resolve(ProsperoMetadataUtils.PROVISIONING_RECORD_XML));
+                    }
                 }
-
-                return hist.getParent();
             }
+
+            return hist.getParent();
         } catch (GitAPIException | IOException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToAccessHistoryStorage(base, e);
         }
@@ -283,8 +288,6 @@ public class GitStorage implements AutoCloseable {
             }
 
             return parser.parse(change, base);
-        } catch (GitAPIException e) {
-            throw new RuntimeException(e);
         } catch (IOException e) {
             throw ProsperoLogger.ROOT_LOGGER.unableToParseConfiguration(change, e);
         } finally {
@@ -349,18 +352,45 @@ public class GitStorage implements AutoCloseable {
         return !isRepositoryEmpty(git);
     }
 
-    private Path checkoutPastState(SavedState savedState, String fileName) throws GitAPIException, IOException {
+    /*
+     * Reads the content of the file at the revision directly from the repository's object database and writes it
+     * into a new temporary folder. If the file didn't exist at that revision, the folder is left empty.
+     */
+    private Path checkoutPastState(SavedState savedState, String fileName) throws IOException {
         Path hist = Files.createTempDirectory("hist");
-        try (Git temp =  Git.cloneRepository()
-                    .setDirectory(hist.toFile())
-                    .setRemote("origin")
-                    .setURI(base.toUri().toString())
-                    .call()) {
-            temp.checkout()
-                    .setStartPoint(savedState.getName())
-                    .addPath(fileName)
-                    .call();
+        try (ObjectReader reader = git.getRepository().newObjectReader();
+             RevWalk revWalk = new RevWalk(reader)) {
+            final RevCommit commit = revWalk.parseCommit(resolveRevision(savedState.getName()));
+            readFile(reader, commit, fileName, hist.resolve(fileName));
             return hist;
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(hist.toFile());
+            throw e;
+        }
+    }
+
+    private ObjectId resolveRevision(String revision) throws IOException {
+        final ObjectId objectId = git.getRepository().resolve(revision);
+        if (objectId == null) {
+            throw new IOException("Unable to find revision " + revision);
+        }
+        return objectId;
+    }
+
+    private static boolean readFile(ObjectReader reader, RevCommit commit, String fileName, Path target) throws IOException {
+        try (TreeWalk treeWalk = TreeWalk.forPath(reader, fileName, commit.getTree())) {
+            if (treeWalk == null) {
+                return false;
+            }
+            writeBlob(reader, treeWalk.getObjectId(0), target);
+            return true;
+        }
+    }
+
+    private static void writeBlob(ObjectReader reader, ObjectId blobId, Path target) throws IOException {
+        final ObjectLoader loader = reader.open(blobId, Constants.OBJ_BLOB);
+        try (OutputStream out = Files.newOutputStream(target)) {
+            loader.copyTo(out);
         }
     }
 
@@ -0,0 +1,452 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.installation.git;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.jboss.logging.Logger;
+import org.wildfly.prospero.api.SavedState;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent index of the parsed history records, stored next to the history repository.
+ *
+ * The first line of the index is a header recording the format version of the records. It is followed by the commits,
+ * oldest first, one JSON record per line, each record pointing to its parent commit. The index is extended when new
+ * changes are recorded and when the repository's HEAD has moved on since the index was written.
+ * New records are appended to the file while holding a file lock. Before appending, the last record in the file is
+ * checked against the parent of the new records, so that records already appended by another writer are not
+ * duplicated. If the HEAD is not a descendant of the last indexed commit, the file doesn't end with the records known
+ * to this instance, the index was written in a different format, or it cannot be read or its records don't form a
+ * chain of commits, the index is rebuilt from the repository log.
+ *
+ * Writing the index is best effort - if it cannot be written, e.g. because the installation is read-only, the records
+ * are kept in memory and the index is updated on a later access.
+ */
+class HistoryIndex {
+
+    private static final Logger LOG = Logger.getLogger(HistoryIndex.class);
+
+    static final String INDEX_FILE_NAME = "prospero-history.idx";
+    // change if the records are not compatible with the previous version anymore
+    private static final String FORMAT_VERSION = "1";
+    private static final String FORMAT_PROPERTY = "format";
+    private static final int MAX_HEADER_LENGTH = 256;
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final Map<Path, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    private final Repository repository;
+    private final SavedStateParser savedStateParser;
+    private final Path indexFile;
+    // oldest first, null until the index is loaded
+    private List<Entry> entries;
+
+    HistoryIndex(Repository repository, SavedStateParser savedStateParser) {
+        this.repository = repository;
+        this.savedStateParser = savedStateParser;
+        this.indexFile = repository.getDirectory().toPath().resolve(INDEX_FILE_NAME);
+    }
+
+    /**
+     * lists the history of the repository, updating the index if needed.
+     *
+     * @return saved states, newest first
+     * @throws IOException - if the repository cannot be read
+     */
+    synchronized List<SavedState> getRevisions() throws IOException {
+        final ObjectId head = repository.resolve(Constants.HEAD);
+        if (head == null) {
+            return Collections.emptyList();
+        }
+
+        if (entries == null) {
+            load();
+        }
+        if (!head.equals(lastIndexed())) {
+            update(head);
+        }
+
+        final List<SavedState> revisions = new ArrayList<>(entries.size());
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            revisions.add(entries.get(i).state);
+        }
+        return revisions;
+    }
+
+    /**
+     * adds a newly created commit to the index. If the commit doesn't directly follow the last indexed commit, or it
+     * cannot be added, the index is not changed and will be updated on the next read.
+     *
+     * @param commit - commit created in the repository
+     */
+    synchronized void recorded(RevCommit commit) {
+        if (entries == null) {
+            load();
+        }
+
+        final ObjectId last = lastIndexed();
+        final boolean follows = last == null
+                ? commit.getParentCount() == 0
+                : commit.getParentCount() == 1 && commit.getParent(0).equals(last);
+        if (follows) {
+            try {
+                append(List.of(toEntry(commit)));
+            } catch (IOException e) {
+                // the commit has been made already, the history will be read from the repository instead
+                LOG.debugf(e, "Unable to add commit %s to history index %s", commit.getName(), indexFile);
+            }
+        }
+    }
+
+    private ObjectId lastIndexed() {
+        return entries.isEmpty() ? null : entries.get(entries.size() - 1).id;
+    }
+
+    private void update(ObjectId head) throws IOException {
+        final ObjectId last = lastIndexed();
+        final List<Entry> added = new ArrayList<>();
+        boolean rebuild = false;
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            final RevCommit headCommit = revWalk.parseCommit(head);
+            if (last != null) {
+                if (!repository.getObjectDatabase().has(last)
+                        || !revWalk.isMergedInto(revWalk.parseCommit(last), headCommit)) {
+                    // history has been rewritten since the index was created
+                    rebuild = true;
+                }
+                revWalk.reset();
+                if (!rebuild) {
+                    revWalk.markUninteresting(revWalk.parseCommit(last));
+                }
+            }
+
+            revWalk.markStart(headCommit);
+            for (RevCommit commit : revWalk) {
+                added.add(toEntry(commit));
+            }
+        }
+        Collections.reverse(added);
+
+        if (last == null || rebuild) {
+            LOG.debugf("Rebuilding history index %s", indexFile);
+            write(added);
+        } else {
+            append(added);
+        }
+    }
+
+    private Entry toEntry(RevCommit commit) throws IOException {
+        final Instant commitTime = Instant.ofEpochSecond(commit.getCommitTime());
+        final String commitHash = commit.getName().substring(0, 8);
+        final ObjectId parent = commit.getParentCount() == 0 ? null : commit.getParent(0).copy();
+        return new Entry(commit.copy(), parent, savedStateParser.read(commitHash, commitTime, commit.getFullMessage()));
+    }
+
+    private void load() {
+        entries = new ArrayList<>();
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+
+        try {
+            final String content;
+            synchronized (jvmLock()) {
+                try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ);
+                     FileLock ignored = channel.lock(0, Long.MAX_VALUE, true)) {
+                    content = new String(Channels.newInputStream(channel).readAllBytes(), StandardCharsets.UTF_8);
+                }
+            }
+            final int headerEnd = content.indexOf('\n');
+            if (headerEnd < 0 || !isCurrentFormat(content.substring(0, headerEnd))) {
+                LOG.debugf("History index %s has been written in a different format, it will be rebuilt", indexFile);
+                return;
+            }
+            // a record without the line end has not been written completely
+            final int end = content.lastIndexOf('\n') + 1;
+            for (String line : content.substring(headerEnd + 1, end).split("\n")) {
+                if (!line.isBlank()) {
+                    entries.add(Entry.fromJson(JSON_MAPPER.readTree(line)));
+                }
+            }
+            if (!isChain(entries)) {
+                LOG.debugf("History index %s doesn't match the history, it will be rebuilt", indexFile);
+                entries = new ArrayList<>();
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.debugf(e, "Unable to read history index %s, it will be rebuilt", indexFile);
+            entries = new ArrayList<>();
+        }
+    }
+
+    private static boolean isCurrentFormat(String header) {
+        try {
+            final JsonNode format = JSON_MAPPER.readTree(header).get(FORMAT_PROPERTY);
+            return format != null && FORMAT_VERSION.equals(format.asText());
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static boolean isChain(List<Entry> entries) {
+        ObjectId previous = null;
+        for (Entry entry : entries) {
+            if (!Objects.equals(previous, entry.parent)) {
+                return false;
+            }
+            previous = entry.id;
+        }
+        return true;
+    }
+
+    /*
+     * the index might have been changed by another process since it was loaded. Records already appended by another
+     * writer are skipped, if the file has diverged from the records known to this instance it is rewritten.
+     */
+    private void append(List<Entry> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        final List<Entry> all = new ArrayList<>(entries);
+        all.addAll(added);
+        entries = all;
+
+        try {
+            synchronized (jvmLock()) {
+                try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                     FileLock ignored = channel.lock()) {
+                    int start = -1;
+                    if (hasCurrentFormat(channel)) {
+                        final ObjectId last = readLastId(channel);
+                        if (Objects.equals(last, added.get(0).parent)) {
+                            start = 0;
+                        } else {
+                            for (int i = 0; i < added.size(); i++) {
+                                if (added.get(i).id.equals(last)) {
+                                    start = i + 1;
+                                    break;
+                                }
+                            }
+                        }
+                    }
+
+                    if (start < 0) {
+                        LOG.debugf("History index %s has been changed by another process, rewriting it", indexFile);
+                        writeIndex(channel, all);
+                    } else {
+                        writeRecords(channel, added.subList(start, added.size()));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOG.debugf(e, "Unable to write history index %s", indexFile);
+        }
+    }
+
+    private void write(List<Entry> all) {
+        entries = new ArrayList<>(all);
+        try {
+            synchronized (jvmLock()) {
+                try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                     FileLock ignored = channel.lock()) {
+                    writeIndex(channel, all);
+                }
+            }
+        } catch (IOException e) {
+            LOG.debugf(e, "Unable to write history index %s", indexFile);
+        }
+    }
+
+    /*
+     * the file locks are held by the whole JVM, threads of this JVM using the same index are serialized by this lock
+     */
+    private Object jvmLock() {
+        return JVM_LOCKS.computeIfAbsent(indexFile.toAbsolutePath().normalize(), p -> new Object());
+    }
+
+    private static void writeIndex(FileChannel channel, List<Entry> records) throws IOException {
+        channel.truncate(0);
+        final ObjectNode header = JSON_MAPPER.createObjectNode().put(FORMAT_PROPERTY, FORMAT_VERSION);
+        write(channel, JSON_MAPPER.writeValueAsString(header) + '\n');
+        writeRecords(channel, records);
+    }
+
+    private static void writeRecords(FileChannel channel, List<Entry> records) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        for (Entry entry : records) {
+            sb.append(JSON_MAPPER.writeValueAsString(entry.toJson())).append('\n');
+        }
+        write(channel, sb.toString());
+    }
+
+    private static void write(FileChannel channel, String text) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /*
+     * checks the header in the first line of the index
+     */
+    private static boolean hasCurrentFormat(FileChannel channel) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), MAX_HEADER_LENGTH));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of history index");
+            }
+        }
+        final String start = new String(buffer.array(), StandardCharsets.UTF_8);
+        final int headerEnd = start.indexOf('\n');
+        return headerEnd >= 0 && isCurrentFormat(start.substring(0, headerEnd));
+    }
+
+    /*
+     * reads the id of the last record in the index, reading the file backwards from its end. Returns null if the index
+     * has no records, or ObjectId.zeroId() if the last record is incomplete or cannot be parsed. The first line of the
+     * index has to be the header.
+     */
+    private static ObjectId readLastId(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        if (size == 0) {
+            return null;
+        }
+        final ByteBuffer lastByte = ByteBuffer.allocate(1);
+        channel.read(lastByte, size - 1);
+        if (lastByte.get(0) != '\n') {
+            return ObjectId.zeroId();
+        }
+
+        final long end = size - 1;
+        long lineStart = 0;
+        long chunkEnd = end;
+        final ByteBuffer chunk = ByteBuffer.allocate(8192);
+        search:
+        while (chunkEnd > 0) {
+            final long chunkStart = Math.max(0, chunkEnd - chunk.capacity());
+            chunk.clear().limit((int) (chunkEnd - chunkStart));
+            while (chunk.hasRemaining()) {
+                if (channel.read(chunk, chunkStart + chunk.position()) < 0) {
+                    throw new EOFException("Unexpected end of history index");
+                }
+            }
+            for (int i = chunk.limit() - 1; i >= 0; i--) {
+                if (chunk.get(i) == '\n') {
+                    lineStart = chunkStart + i + 1;
+                    break search;
+                }
+            }
+            chunkEnd = chunkStart;
+        }
+
+        if (lineStart == 0) {
+            // the last line is the header
+            return null;
+        }
+        final ByteBuffer line = ByteBuffer.allocate((int) (end - lineStart));
+        while (line.hasRemaining()) {
+            if (channel.read(line, lineStart + line.position()) < 0) {
+                throw new EOFException("Unexpected end of history index");
+            }
+        }
+        try {
+            return ObjectId.fromString(JSON_MAPPER.readTree(line.array()).get("id").asText());
+        } catch (IOException | RuntimeException e) {
+            return ObjectId.zeroId();
+        }
+    }
+
+    private static final class Entry {
+        private final ObjectId id;
+        // null for the first commit
+        private final ObjectId parent;
+        private final SavedState state;
+
+        private Entry(ObjectId id, ObjectId parent, SavedState state) {
+            this.id = id;
+            this.parent = parent;
+            this.state = state;
+        }
+
+        private ObjectNode toJson() {
+            final ObjectNode node = JSON_MAPPER.createObjectNode();
+            node.put("id", id.getName());
+            node.put("parent", parent == null ? null : parent.getName());
+            node.put("timestamp", state.getTimestamp().getEpochSecond());
+            node.put("type", state.getType().name());
+            node.put("msg", state.getMsg());
+            final ArrayNode versions = node.putArray("versions");
+            for (SavedState.Version version : state.getManifestVersions()) {
+                versions.addObject()
+                        .put("identifier", version.getIdentifier())
+                        .put("physicalVersion", version.getPhysicalVersion())
+                        .put("logicalVersion", version.getLogicalVersion());
+            }
+            return node;
+        }
+
+        private static Entry fromJson(JsonNode node) {
+            final ObjectId id = ObjectId.fromString(node.get("id").asText());
+            final String parentId = textOrNull(node, "parent");
+            final ObjectId parent = parentId == null ? null : ObjectId.fromString(parentId);
+            final List<SavedState.Version> versions = new ArrayList<>();
+            for (JsonNode version : node.get("versions")) {
+                versions.add(new SavedState.Version(
+                        version.get("identifier").asText(),
+                        version.get("physicalVersion").asText(),
+                        textOrNull(version, "logicalVersion")));
+            }
+            final SavedState state = new SavedState(id.getName().substring(0, 8),
+                    Instant.ofEpochSecond(node.get("timestamp").asLong()),
+                    SavedState.Type.valueOf(node.get("type").asText()),
+                    textOrNull(node, "msg"),
+                    versions);
+            return new Entry(id, parent, state);
+        }
+
+        private static String textOrNull(JsonNode node, String field) {
+            final JsonNode value = node.get(field);
+            return value == null || value.isNull() ? null : value.asText();
+        }
+    }
+}
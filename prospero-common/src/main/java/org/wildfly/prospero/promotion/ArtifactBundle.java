@@ -17,39 +17,56 @@
 
 package org.wildfly.prospero.promotion;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.io.FileUtils;
 import org.eclipse.aether.artifact.Artifact;
+import org.jboss.logging.Logger;
 import org.wildfly.channel.ArtifactCoordinate;
 import org.wildfly.prospero.ProsperoLogger;
+import org.wildfly.prospero.api.CompressedFiles;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 public class ArtifactBundle implements AutoCloseable {
 
+    private static final Logger LOG = Logger.getLogger(ArtifactBundle.class);
+
     public static final String BUNDLE_REPO_FOLDER = "maven-repository";
     public static final String FS = "/";
     public static final String ARTIFACT_LIST_YAML = "artifact-list.yaml";
-    private final Path extracted;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final FileSystem archive;
+    private final Path root;
     private List<ArtifactCoordinate> artifactCoordinates;
 
-    private ArtifactBundle(Path extracted) throws IOException {
-        this.extracted = extracted;
-        this.artifactCoordinates = CustomArtifactList.readFrom(extracted.resolve(ARTIFACT_LIST_YAML)).getArtifactCoordinates();
+    private ArtifactBundle(FileSystem archive) throws IOException {
+        this.archive = archive;
+        this.root = archive.getPath("/");
+        try {
+            this.artifactCoordinates = CustomArtifactList.readFrom(root.resolve(ARTIFACT_LIST_YAML)).getArtifactCoordinates();
+        } catch (IOException | RuntimeException e) {
+            archive.close();
+            throw e;
+        }
     }
 
     public List<ArtifactCoordinate> getArtifactList() {
@@ -57,19 +74,36 @@ public class ArtifactBundle implements AutoCloseable {
     }
 
 
+    /**
+     * location of the Maven repository inside the bundle. The path belongs to the archive's {@code FileSystem} and is
+     * valid until the bundle is closed.
+     *
+     * @return path of the repository folder
+     */
     public Path getRepository() {
-        return extracted.resolve(BUNDLE_REPO_FOLDER);
+        return root.resolve(BUNDLE_REPO_FOLDER);
     }
 
     @Override
     public void close() {
-        FileUtils.deleteQuietly(extracted.toFile());
+        try {
+            archive.close();
+        } catch (IOException e) {
+            LOG.debugf(e, "Unable to close the bundle archive %s", archive);
+        }
     }
 
+    /**
+     * opens the bundle archive. The content is read directly from the archive rather than extracted.
+     *
+     * @param archivePath - path to the bundle ZIP archive
+     * @return opened bundle
+     * @throws IOException - if the archive cannot be read
+     */
     public static ArtifactBundle extract(Path archivePath) throws IOException {
         // TODO: validate content??
 
-        return new ArtifactBundle(unzipArchive(archivePath.toFile()));
+        return new ArtifactBundle(FileSystems.newFileSystem(archivePath, (ClassLoader) null));
     }
 
     public static Path createCustomizationArchive(List<? extends Artifact> artifacts, File archive) throws IOException {
@@ -80,67 +114,56 @@ public class ArtifactBundle implements AutoCloseable {
             throw ProsperoLogger.ROOT_LOGGER.noArtifactsToPackage();
         }
 
-        try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(archive))) {
+        try (ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(archive), BUFFER_SIZE))) {
             zos.putNextEntry(new ZipEntry(ARTIFACT_LIST_YAML));
             final CustomArtifactList artifactList = new CustomArtifactList(artifacts.stream().map(a-> CustomArtifact.from(a)).collect(Collectors.toList()));
-            final String listYaml = artifactList.writeToString();
-            zos.write(listYaml.getBytes(StandardCharsets.UTF_8), 0, listYaml.length());
+            zos.write(artifactList.writeToString().getBytes(StandardCharsets.UTF_8));
 
             final HashSet<String> createdPaths = new HashSet<>();
-            zos.putNextEntry(new ZipEntry(BUNDLE_REPO_FOLDER + FS));
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            putDirectory(zos, BUNDLE_REPO_FOLDER + FS, createdPaths);
             for (Artifact artifact : artifacts) {
                 String entry = BUNDLE_REPO_FOLDER + FS;
                 for (String dir : artifact.getGroupId().split("\\.")) {
                     entry += dir + FS;
-                    if (!createdPaths.contains(entry)) {
-                        zos.putNextEntry(new ZipEntry(entry));
-                        createdPaths.add(entry);
-                    }
+                    putDirectory(zos, entry, createdPaths);
                 }
                 entry += artifact.getArtifactId() + FS;
-                zos.putNextEntry(new ZipEntry(entry));
+                putDirectory(zos, entry, createdPaths);
                 entry += artifact.getVersion() + FS;
-                zos.putNextEntry(new ZipEntry(entry));
-                entry += artifact.getFile().getName();
-                String fileName = entry;
+                putDirectory(zos, entry, createdPaths);
+                final String fileName = entry + artifact.getFile().getName();
+
+                final MessageDigest md5 = DigestUtils.getMd5Digest();
+                final MessageDigest sha1 = DigestUtils.getSha1Digest();
+                // already compressed archives would not get any smaller, only spend time in the deflater
+                zos.closeEntry();
+                zos.setLevel(CompressedFiles.isCompressed(fileName) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
                 zos.putNextEntry(new ZipEntry(fileName));
-
-                try(FileInputStream fis = new FileInputStream(artifact.getFile())) {
-                    byte[] buffer = new byte[1024];
+                try (InputStream is = new DigestInputStream(new DigestInputStream(
+                        new FileInputStream(artifact.getFile()), md5), sha1)) {
                     int len;
-                    while ((len = fis.read(buffer)) > 0) {
+                    while ((len = is.read(buffer)) > 0) {
                         zos.write(buffer, 0, len);
                     }
                 }
+                zos.closeEntry();
+                zos.setLevel(Deflater.DEFAULT_COMPRESSION);
 
-                entry = fileName + ".md5";
-                zos.putNextEntry(new ZipEntry(entry));
-                final String md5 = DigestUtils.md5Hex(new FileInputStream(artifact.getFile()));
-                zos.write(md5.getBytes(), 0, md5.getBytes().length);
+                zos.putNextEntry(new ZipEntry(fileName + ".md5"));
+                zos.write(Hex.encodeHexString(md5.digest()).getBytes(StandardCharsets.US_ASCII));
 
-                entry = fileName + ".sha1";
-                zos.putNextEntry(new ZipEntry(entry));
-                final String sha1 = DigestUtils.sha1Hex(new FileInputStream(artifact.getFile()));
-                zos.write(sha1.getBytes(), 0, sha1.getBytes().length);
+                zos.putNextEntry(new ZipEntry(fileName + ".sha1"));
+                zos.write(Hex.encodeHexString(sha1.digest()).getBytes(StandardCharsets.US_ASCII));
             }
         }
 
         return archive.toPath();
     }
 
-    private static Path unzipArchive(File archivePath) throws IOException {
-        final Path extracted = Files.createTempDirectory("customization");
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(archivePath))) {
-
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                if (entry.isDirectory()) {
-                    Files.createDirectories(extracted.resolve(entry.getName()));
-                } else {
-                    Files.copy(zis, extracted.resolve(entry.getName()), StandardCopyOption.REPLACE_EXISTING);
-                }
-            }
+    private static void putDirectory(ZipOutputStream zos, String entry, Set<String> createdPaths) throws IOException {
+        if (createdPaths.add(entry)) {
+            zos.putNextEntry(new ZipEntry(entry));
         }
-        return extracted;
     }
 }
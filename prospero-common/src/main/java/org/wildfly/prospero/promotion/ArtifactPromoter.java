@@ -30,6 +30,7 @@ import org.eclipse.aether.resolution.ArtifactResult;
 import org.eclipse.aether.resolution.VersionRangeRequest;
 import org.eclipse.aether.resolution.VersionRangeResolutionException;
 import org.eclipse.aether.resolution.VersionRangeResult;
+import org.eclipse.aether.transfer.ArtifactNotFoundException;
 import org.eclipse.aether.version.Version;
 import org.jboss.logging.Logger;
 import org.wildfly.channel.ArtifactCoordinate;
@@ -41,9 +42,13 @@ import org.wildfly.channel.maven.ChannelCoordinate;
 import org.wildfly.channel.maven.VersionResolverFactory;
 import org.wildfly.channel.spi.MavenVersionsResolver;
 import org.wildfly.prospero.ProsperoLogger;
+import org.wildfly.prospero.api.Console;
+import org.wildfly.prospero.api.ProvisioningProgressEvent;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -51,6 +56,11 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -58,14 +68,33 @@ public class ArtifactPromoter {
 
     private static final Logger log = Logger.getLogger(ArtifactPromoter.class);
 
+    public static final String TRACK_PROMOTE_ARTIFACTS = "PROMOTE_ARTIFACTS";
+    /**
+     * Maximum number of artifacts resolved and deployed in a single request.
+     */
+    public static final String BATCH_SIZE_PROPERTY = "org.wildfly.prospero.promote.batch-size";
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
     private RepositorySystem system;
     private DefaultRepositorySystemSession session;
     private RemoteRepository targetRepository;
+    private final Console console;
+    private final int batchSize;
 
     public ArtifactPromoter(RepositorySystem system, DefaultRepositorySystemSession session, RemoteRepository targetRepository) {
+        this(system, session, targetRepository, null);
+    }
+
+    /**
+     * @param console - receives the progress of the promotion, can be {@code null}
+     */
+    public ArtifactPromoter(RepositorySystem system, DefaultRepositorySystemSession session, RemoteRepository targetRepository,
+                            Console console) {
         this.system = system;
         this.session = session;
         this.targetRepository = targetRepository;
+        this.console = console;
+        this.batchSize = Math.max(1, Integer.getInteger(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE));
 
         if (!targetRepository.getProtocol().equals("file")) {
             throw ProsperoLogger.ROOT_LOGGER.unsupportedPromotionTarget();
@@ -73,6 +102,22 @@ public class ArtifactPromoter {
     }
 
     public void promote(List<ArtifactCoordinate> artifacts, ChannelCoordinate coordinate, RemoteRepository sourceRepository) throws ArtifactResolutionException, DeploymentException, IOException {
+        final Path sourceContent;
+        if ("file".equals(sourceRepository.getProtocol())) {
+            sourceContent = Path.of(URI.create(sourceRepository.getUrl()));
+        } else {
+            sourceContent = null;
+        }
+        promote(artifacts, coordinate, sourceRepository, sourceContent);
+    }
+
+    /**
+     * @param sourceContent - location of the {@code sourceRepository} content, used to check that all the artifacts
+     *                      are available before any of them is deployed. Can be a path in an archive's {@code FileSystem},
+     *                      or {@code null} if the content cannot be accessed directly.
+     */
+    public void promote(List<ArtifactCoordinate> artifacts, ChannelCoordinate coordinate, RemoteRepository sourceRepository,
+                        Path sourceContent) throws ArtifactResolutionException, DeploymentException, IOException {
         Objects.requireNonNull(artifacts);
         Objects.requireNonNull(coordinate);
 
@@ -81,9 +126,7 @@ public class ArtifactPromoter {
             return;
         }
 
-        final List<ArtifactResult> results = resolveArtifactsFromBundle(artifacts, sourceRepository);
-
-        deployResolvedArtifacts(results);
+        resolveAndDeploy(artifacts, sourceRepository, sourceContent);
 
         List<Stream> streams = artifacts.stream()
                 .map(a->new Stream(a.getGroupId(), a.getArtifactId(), a.getVersion()))
@@ -105,29 +148,149 @@ public class ArtifactPromoter {
         deployChannel(coordinate, version, manifest);
     }
 
+    /*
+     * Promotes the artifacts in batches of batchSize. The next batch is resolved from the bundle (copying the files
+     * and verifying their checksums) while the current one is deployed (generating the checksums in the target).
+     * At most two batches are held at any time. A missing artifact is detected up-front by checking the bundle, so the
+     * target repository is never partially promoted.
+     *
+     * Progress counts resolving and deploying an artifact as separate steps.
+     */
+    private void resolveAndDeploy(List<ArtifactCoordinate> artifacts, RemoteRepository sourceRepository, Path sourceContent)
+            throws ArtifactResolutionException, DeploymentException, IOException {
+        if (sourceContent != null) {
+            verifyAvailableInBundle(artifacts, sourceRepository, sourceContent);
+        }
+
+        final List<List<ArtifactCoordinate>> batches = new ArrayList<>();
+        for (int i = 0; i < artifacts.size(); i += batchSize) {
+            batches.add(artifacts.subList(i, Math.min(i + batchSize, artifacts.size())));
+        }
+
+        final int total = artifacts.size() * 2;
+        final AtomicInteger completed = new AtomicInteger();
+        progress(ProvisioningProgressEvent.EventType.STARTING, 0, total, null);
+        final ExecutorService resolver = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<ArtifactResult>> next = resolver.submit(() -> resolveBatch(batches.get(0), sourceRepository, completed, total));
+            for (int i = 0; i < batches.size(); i++) {
+                final List<ArtifactResult> results = await(next);
+                if (i + 1 < batches.size()) {
+                    final List<ArtifactCoordinate> nextBatch = batches.get(i + 1);
+                    next = resolver.submit(() -> resolveBatch(nextBatch, sourceRepository, completed, total));
+                }
+
+                deployResolvedArtifacts(results);
+
+                for (ArtifactResult result : results) {
+                    step(completed, total, result.getArtifact().toString());
+                }
+            }
+        } finally {
+            resolver.shutdownNow();
+        }
+        progress(ProvisioningProgressEvent.EventType.COMPLETED, total, total, null);
+    }
+
+    private List<ArtifactResult> resolveBatch(List<ArtifactCoordinate> batch, RemoteRepository sourceRepository,
+                                              AtomicInteger completed, int total) throws ArtifactResolutionException {
+        final List<ArtifactResult> results = resolveArtifactsFromBundle(batch, sourceRepository);
+        for (ArtifactResult result : results) {
+            step(completed, total, result.getArtifact().toString());
+        }
+        return results;
+    }
+
+    private static List<ArtifactResult> await(Future<List<ArtifactResult>> batch) throws ArtifactResolutionException, IOException {
+        try {
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while resolving artifacts");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ArtifactResolutionException) {
+                throw (ArtifactResolutionException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    /*
+     * Checks that all the artifacts are present in the bundle before anything is deployed. Only the file existence is
+     * checked - the checksums are still verified when each batch is resolved. The repository can be a folder in an
+     * archive's FileSystem, so the path is resolved one segment at a time rather than using the platform separator.
+     */
+    private void verifyAvailableInBundle(List<ArtifactCoordinate> artifacts, RemoteRepository sourceRepository,
+                                         Path repository) throws ArtifactResolutionException {
+        final List<ArtifactResult> missing = new ArrayList<>();
+        for (ArtifactCoordinate coordinate : artifacts) {
+            final Artifact artifact = toMavenArtifact(coordinate);
+            Path groupDir = repository;
+            for (String segment : artifact.getGroupId().split("\\.")) {
+                groupDir = groupDir.resolve(segment);
+            }
+            final Path file = groupDir.resolve(artifact.getArtifactId())
+                    .resolve(artifact.getBaseVersion())
+                    .resolve(toFileName(artifact));
+            if (!Files.isRegularFile(file)) {
+                final ArtifactResult result = new ArtifactResult(new ArtifactRequest(artifact, List.of(sourceRepository), null));
+                result.addException(new ArtifactNotFoundException(artifact, sourceRepository));
+                missing.add(result);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            throw new ArtifactResolutionException(missing);
+        }
+    }
+
+    private static String toFileName(Artifact artifact) {
+        final StringBuilder name = new StringBuilder(artifact.getArtifactId()).append('-').append(artifact.getVersion());
+        if (!artifact.getClassifier().isEmpty()) {
+            name.append('-').append(artifact.getClassifier());
+        }
+        return name.append('.').append(artifact.getExtension()).toString();
+    }
+
+    private synchronized void step(AtomicInteger completed, int total, String item) {
+        progress(ProvisioningProgressEvent.EventType.UPDATE, completed.incrementAndGet(), total, item);
+    }
+
+    private void progress(ProvisioningProgressEvent.EventType type, long completed, long total, String item) {
+        if (console != null) {
+            console.progressUpdate(new ProvisioningProgressEvent(TRACK_PROMOTE_ARTIFACTS, type, completed, total, item, false));
+        }
+    }
+
     private List<ArtifactResult> resolveArtifactsFromBundle(List<ArtifactCoordinate> artifacts, RemoteRepository sourceRepository) throws ArtifactResolutionException {
         log.debugf("Resolving %s artifacts from custom bundle at %s", artifacts.size(), sourceRepository.getUrl());
         final List<RemoteRepository> repositories = Arrays.asList(sourceRepository);
         // generate maven requests
-        List<ArtifactRequest> requests = artifacts.stream().map(artifact -> {
-            final String extension;
-            if (artifact.getExtension() != null && !artifact.getExtension().isEmpty()) {
-                extension = artifact.getExtension();
-            } else {
-                extension = "jar";
-            }
-            final Artifact mavenArtifact = new DefaultArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getClassifier(), extension, artifact.getVersion());
-            return new ArtifactRequest(mavenArtifact, repositories, null);
-        }).collect(Collectors.toList());
+        List<ArtifactRequest> requests = artifacts.stream()
+                .map(artifact -> new ArtifactRequest(toMavenArtifact(artifact), repositories, null))
+                .collect(Collectors.toList());
 
         return system.resolveArtifacts(session, requests);
     }
 
+    private static Artifact toMavenArtifact(ArtifactCoordinate artifact) {
+        final String extension;
+        if (artifact.getExtension() != null && !artifact.getExtension().isEmpty()) {
+            extension = artifact.getExtension();
+        } else {
+            extension = "jar";
+        }
+        return new DefaultArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getClassifier(), extension, artifact.getVersion());
+    }
+
     private void deployResolvedArtifacts(List<ArtifactResult> results) throws DeploymentException {
         log.debugf("Deploying %s artifacts from custom bundle to %s", results.size(), targetRepository.getUrl());
         final DeployRequest deployRequest = new DeployRequest();
         deployRequest.setRepository(targetRepository);
-        results.forEach(result -> deployRequest.setArtifacts(Arrays.asList(result.getArtifact())));
+        deployRequest.setArtifacts(results.stream().map(ArtifactResult::getArtifact).collect(Collectors.toList()));
         system.deploy(session, deployRequest);
     }
 
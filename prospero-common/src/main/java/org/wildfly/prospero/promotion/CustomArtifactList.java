@@ -25,7 +25,9 @@ import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import org.wildfly.channel.ArtifactCoordinate;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringWriter;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -50,7 +52,10 @@ public class CustomArtifactList {
 
     public static CustomArtifactList readFrom(Path path) throws IOException {
         final ObjectMapper objectMapper = new ObjectMapper(new YAMLFactory());
-        return objectMapper.readValue(path.toUri().toURL(), CustomArtifactList.class);
+        // the list can be read from inside of an archive, avoid caching the archive through a jar: URL
+        try (InputStream is = Files.newInputStream(path)) {
+            return objectMapper.readValue(is, CustomArtifactList.class);
+        }
     }
 
     @JsonIgnore
@@ -19,6 +19,7 @@ package org.wildfly.prospero.updates;
 
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
+import org.jboss.logging.Logger;
 import org.wildfly.channel.ChannelSession;
 import org.wildfly.channel.UnresolvedMavenArtifactException;
 import org.wildfly.channel.VersionResult;
@@ -26,44 +27,86 @@ import org.wildfly.prospero.api.ArtifactChange;
 import org.wildfly.prospero.api.exceptions.ArtifactResolutionException;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
+import java.util.concurrent.Semaphore;
 
+/**
+ * Looks up the latest versions of installed artifacts in the channels.
+ *
+ * The lookups are executed concurrently, limited to {@code parallelism} lookups at a time. By default, the lookups run
+ * in a pool of platform threads. If {@code VIRTUAL_THREADS_PROPERTY} system property is set to {@code true} and
+ * the JVM supports it (JDK 21+), each lookup runs in its own virtual thread instead, still bound by the same limit.
+ *
+ * Artifacts sharing {@code groupId:artifactId} (e.g. sources or natives) belong to the same stream. The latest version
+ * is looked up once per {@code groupId:artifactId}, using the coordinates of the first artifact with that GA, and the
+ * result is applied to every installed artifact with that GA. If the lookup fails, the artifacts with a different
+ * extension or classifier are looked up using their own coordinates, so that they are not reported as removed because
+ * of the first artifact.
+ */
 public class UpdateFinder implements AutoCloseable {
 
+    private static final Logger LOG = Logger.getLogger(UpdateFinder.class);
+
     public static final int UPDATES_SEARCH_PARALLELISM = 10;
+    public static final String VIRTUAL_THREADS_PROPERTY = "org.wildfly.prospero.updates.virtual-threads";
 
     private final ChannelSession channelSession;
     private final ExecutorService executorService;
+    private final Semaphore lookupPermits;
+    private final Map<String, CompletableFuture<Optional<VersionResult>>> inFlightLookups = new ConcurrentHashMap<>();
 
     public UpdateFinder(ChannelSession channelSession) {
+        this(channelSession, UPDATES_SEARCH_PARALLELISM);
+    }
+
+    public UpdateFinder(ChannelSession channelSession, int parallelism) {
+        this(channelSession, parallelism, Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY));
+    }
+
+    UpdateFinder(ChannelSession channelSession, int parallelism, boolean useVirtualThreads) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The update search parallelism has to be positive: " + parallelism);
+        }
         this.channelSession = channelSession;
-        this.executorService = Executors.newWorkStealingPool(UPDATES_SEARCH_PARALLELISM);
+        this.lookupPermits = new Semaphore(parallelism);
+
+        final ExecutorService virtualThreadExecutor = useVirtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        if (virtualThreadExecutor != null) {
+            this.executorService = virtualThreadExecutor;
+        } else {
+            this.executorService = Executors.newWorkStealingPool(parallelism);
+        }
     }
 
     public UpdateSet findUpdates(List<Artifact> artifacts) throws ArtifactResolutionException {
-        // use parallel executor to speed up the artifact resolution
-        List<CompletableFuture<Optional<ArtifactChange>>> allPackages = new ArrayList<>();
+        final Map<String, List<Artifact>> artifactsByGa = new LinkedHashMap<>();
         for (Artifact artifact : artifacts) {
-            final CompletableFuture<Optional<ArtifactChange>> cf = new CompletableFuture<>();
-            executorService.submit(() -> {
-                try {
-                    final Optional<ArtifactChange> found = findUpdates(artifact);
-                    cf.complete(found);
-                } catch (Exception e) {
-                    cf.completeExceptionally(e);
-                }
-            });
-            allPackages.add(cf);
+            artifactsByGa.computeIfAbsent(artifact.getGroupId() + ":" + artifact.getArtifactId(), k -> new ArrayList<>())
+                    .add(artifact);
+        }
+
+        // lookups by the full coordinates of the artifacts
+        final Map<String, CompletableFuture<Optional<VersionResult>>> lookups = new HashMap<>();
+        for (List<Artifact> siblings : artifactsByGa.values()) {
+            final Artifact first = siblings.get(0);
+            final CompletableFuture<Optional<VersionResult>> gaLookup = lookups.computeIfAbsent(toKey(first), k -> lookup(k, first));
+            for (Artifact sibling : siblings) {
+                lookups.computeIfAbsent(toKey(sibling), k -> gaLookup.thenCompose(
+                        latest -> latest.isPresent() ? CompletableFuture.completedFuture(latest) : lookup(k, sibling)));
+            }
         }
 
         try {
-            CompletableFuture.allOf(allPackages.toArray(new CompletableFuture[]{})).join();
+            CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture[]{})).join();
         } catch (CompletionException e) {
             if (e.getCause() instanceof ArtifactResolutionException) {
                 throw (ArtifactResolutionException) e.getCause();
@@ -72,27 +115,64 @@ public class UpdateFinder implements AutoCloseable {
             }
         }
 
-        final List<ArtifactChange> updates = allPackages.stream()
-                .map(cf ->cf.getNow(Optional.empty()))
-                .flatMap(Optional::stream)
-                .collect(Collectors.toList());
+        final List<ArtifactChange> updates = new ArrayList<>();
+        for (Artifact artifact : artifacts) {
+            final Optional<VersionResult> latest = lookups.get(toKey(artifact)).join();
+            toChange(artifact, latest).ifPresent(updates::add);
+        }
 
         return new UpdateSet(updates);
     }
 
-    private Optional<ArtifactChange> findUpdates(Artifact artifact) throws ArtifactResolutionException {
+    /*
+     * use parallel executor to speed up the artifact resolution. If the same artifact is already being looked up by another
+     * caller, share the pending result instead of issuing another request.
+     */
+    private CompletableFuture<Optional<VersionResult>> lookup(String key, Artifact artifact) {
+        final CompletableFuture<Optional<VersionResult>> cf = new CompletableFuture<>();
+        final CompletableFuture<Optional<VersionResult>> inFlight = inFlightLookups.putIfAbsent(key, cf);
+        if (inFlight != null) {
+            return inFlight;
+        }
 
-        final String latestVersion;
-        final Optional<String> channelName;
-        try {
-            final VersionResult versionResult = channelSession.findLatestMavenArtifactVersion(artifact.getGroupId(),
-                    artifact.getArtifactId(), artifact.getExtension(), artifact.getClassifier(), null);
-            latestVersion = versionResult.getVersion();
-            channelName = versionResult.getChannelName();
+        executorService.submit(() -> {
+            try {
+                lookupPermits.acquire();
+                try {
+                    cf.complete(findLatestVersion(artifact));
+                } finally {
+                    lookupPermits.release();
+                }
+            } catch (Exception e) {
+                cf.completeExceptionally(e);
+            } finally {
+                inFlightLookups.remove(key, cf);
+            }
+        });
+        return cf;
+    }
+
+    private static String toKey(Artifact artifact) {
+        return String.join(":", artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(),
+                artifact.getClassifier());
+    }
 
+    private Optional<VersionResult> findLatestVersion(Artifact artifact) {
+        try {
+            return Optional.of(channelSession.findLatestMavenArtifactVersion(artifact.getGroupId(),
+                    artifact.getArtifactId(), artifact.getExtension(), artifact.getClassifier(), null));
         } catch (UnresolvedMavenArtifactException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<ArtifactChange> toChange(Artifact artifact, Optional<VersionResult> versionResult) {
+        if (versionResult.isEmpty()) {
             return Optional.of(ArtifactChange.removed(artifact));
         }
+
+        final String latestVersion = versionResult.get().getVersion();
+        final Optional<String> channelName = versionResult.get().getChannelName();
         final Artifact latest = new DefaultArtifact(artifact.getGroupId(), artifact.getArtifactId(), artifact.getExtension(), latestVersion);
 
         if (latestVersion == null || latest.getVersion().equals(artifact.getVersion())) {
@@ -102,6 +182,18 @@ public class UpdateFinder implements AutoCloseable {
         }
     }
 
+    /*
+     * Executors#newVirtualThreadPerTaskExecutor is available only on JDK 21+, look it up reflectively
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOG.debugf("Virtual threads are not available in this JVM, using a thread pool to search for updates");
+            return null;
+        }
+    }
+
     @Override
     public void close() {
         this.executorService.shutdown();
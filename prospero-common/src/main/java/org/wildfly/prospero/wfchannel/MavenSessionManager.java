@@ -21,12 +21,23 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.FileUtils;
 import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.RepositoryPolicy;
 import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.eclipse.aether.DefaultRepositoryCache;
 import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.DefaultSessionData;
+import org.eclipse.aether.RepositoryCache;
 import org.eclipse.aether.RepositorySystem;
 import org.eclipse.aether.connector.basic.BasicRepositoryConnectorFactory;
 import org.eclipse.aether.impl.DefaultServiceLocator;
@@ -38,48 +49,128 @@ import org.jboss.galleon.ProvisioningException;
 import org.wildfly.prospero.ProsperoLogger;
 import org.wildfly.prospero.api.MavenOptions;
 
-public class MavenSessionManager {
+/**
+ * Creates the Maven sessions used to resolve artifacts.
+ *
+ * If {@link MavenOptions#isNoLocalCache()} is set, the artifacts are resolved into a temporary local repository, which
+ * is removed when the manager is {@link #close() closed}. Managers that are not closed explicitly are closed when
+ * the JVM exits. Long-running processes should call {@link #closeTemporaryRepositories()} after each operation instead
+ * of relying on that, or {@link #retainManagers() retain} the managers and close them when the process stops.
+ */
+public class MavenSessionManager implements AutoCloseable {
 
     public static final Path LOCAL_MAVEN_REPO = Paths.get(System.getProperty("user.home"), ".m2", "repository");
     private static final String AETHER_OFFLINE_PROTOCOLS_PROPERTY = "aether.offline.protocols";
-    public static final String AETHER_OFFLINE_PROTOCOLS_VALUE = "file";
+    public static final String AETHER_OFFLINE_PROTOCOLS_VALUE = "file," + ZipTransporterFactory.PROTOCOL;
+    /**
+     * Number of minutes the Maven metadata (e.g. available versions) is considered up-to-date. Within that time,
+     * the metadata is read from the local repository instead of being downloaded again. If not set, the metadata is
+     * always downloaded.
+     */
+    public static final String METADATA_TTL_PROPERTY = "org.wildfly.prospero.maven.metadata-ttl";
+    /**
+     * Location where the Maven metadata is kept between sessions using a temporary local repository.
+     * Used only if {@code METADATA_TTL_PROPERTY} is set, defaults to {@code ~/.m2/prospero-metadata}.
+     */
+    public static final String METADATA_CACHE_PROPERTY = "org.wildfly.prospero.maven.metadata-cache";
+    private static final Set<MavenSessionManager> TEMPORARY_REPOSITORIES = ConcurrentHashMap.newKeySet();
+    private static final Thread CLEANUP_HOOK = new Thread(MavenSessionManager::closeTemporaryRepositories);
+    private static boolean cleanupHookRegistered;
+    private static final Map<MavenOptions, MavenSessionManager> RETAINED_MANAGERS = new HashMap<>();
+    private static boolean retainManagers;
     private final Path provisioningRepo;
+    private final Integer metadataTtl;
+    private final SharedState shared;
+    // copies don't close the shared state
+    private final boolean sharedStateOwner;
+    // set only on the manager that created the temporary repository, copies don't remove it
+    private final boolean temporaryRepository;
+    private final MetadataCache metadataCache;
     private boolean offline;
 
+    /**
+     * Creates a manager for {@code mavenOptions}. If the managers are {@link #retainManagers() retained}, the new manager
+     * is a copy of the manager retained for the same options.
+     *
+     * @param mavenOptions - options of the Maven sessions
+     * @throws ProvisioningException - if the temporary local repository can't be created
+     */
     public MavenSessionManager(MavenOptions mavenOptions) throws ProvisioningException {
-        Objects.requireNonNull(mavenOptions);
+        this(retainedManager(Objects.requireNonNull(mavenOptions)), mavenOptions);
+    }
+
+    private MavenSessionManager(MavenSessionManager retained, MavenOptions mavenOptions) throws ProvisioningException {
+        if (retained != null) {
+            this.offline = retained.isOffline();
+            this.provisioningRepo = retained.provisioningRepo;
+            this.metadataTtl = retained.metadataTtl;
+            this.shared = retained.shared;
+            this.sharedStateOwner = false;
+            this.temporaryRepository = false;
+            this.metadataCache = null;
+            return;
+        }
 
         this.offline = mavenOptions.isOffline();
+        this.metadataTtl = Integer.getInteger(METADATA_TTL_PROPERTY);
+        this.shared = new SharedState();
+        this.sharedStateOwner = true;
 
         if (mavenOptions.isNoLocalCache()) {
             // generate temp folder
             try {
                 this.provisioningRepo = Files.createTempDirectory("provisioning-repo");
-                Runtime.getRuntime().addShutdownHook(new Thread(() -> FileUtils.deleteQuietly(this.provisioningRepo.toFile())));
             } catch (IOException e) {
                 throw ProsperoLogger.ROOT_LOGGER.unableToCreateCache(e);
             }
-        } else if (!mavenOptions.overridesLocalCache()) {
-            this.provisioningRepo = LOCAL_MAVEN_REPO;
+            this.temporaryRepository = true;
+            // without the metadata cache, the temporary repository would not be able to re-use any metadata
+            this.metadataCache = metadataTtl == null ? null : new MetadataCache(getMetadataCacheDir());
+            if (metadataCache != null) {
+                metadataCache.restore(provisioningRepo);
+            }
+            registerTemporaryRepository(this);
         } else {
-            this.provisioningRepo = mavenOptions.getLocalCache().toAbsolutePath();
+            if (!mavenOptions.overridesLocalCache()) {
+                this.provisioningRepo = LOCAL_MAVEN_REPO;
+            } else {
+                this.provisioningRepo = mavenOptions.getLocalCache().toAbsolutePath();
+            }
+            this.temporaryRepository = false;
+            this.metadataCache = null;
         }
     }
 
     public MavenSessionManager(MavenSessionManager base) {
         this.offline = base.isOffline();
         this.provisioningRepo = base.provisioningRepo;
+        this.metadataTtl = base.metadataTtl;
+        this.shared = base.shared;
+        this.sharedStateOwner = false;
+        this.temporaryRepository = false;
+        this.metadataCache = null;
     }
 
     public MavenSessionManager() throws ProvisioningException {
         this(MavenOptions.DEFAULT_OPTIONS);
     }
 
+    /**
+     * The {@code RepositorySystem} is created on the first call and shared by all following calls on this manager
+     * and on managers copied from it.
+     *
+     * @return repository system used by this manager
+     */
     public RepositorySystem newRepositorySystem() {
+        return shared.getRepositorySystem();
+    }
+
+    private static RepositorySystem createRepositorySystem() {
         final DefaultServiceLocator locator = MavenRepositorySystemUtils.newServiceLocator();
         locator.addService(RepositoryConnectorFactory.class, BasicRepositoryConnectorFactory.class);
         locator.addService(TransporterFactory.class, HttpTransporterFactory.class);
         locator.addService(TransporterFactory.class, FileTransporterFactory.class);
+        locator.addService(TransporterFactory.class, ZipTransporterFactory.class);
         locator.setErrorHandler(new DefaultServiceLocator.ErrorHandler() {
             @Override
             public void serviceCreationFailed(Class<?> type, Class<?> impl, Throwable exception) {
@@ -89,16 +180,49 @@ public class MavenSessionManager {
         return locator.getService(RepositorySystem.class);
     }
 
+    /**
+     * Creates a new session. Sessions created for the shared {@link #newRepositorySystem()} are copied from a template
+     * and share the {@code RepositoryCache}, which holds e.g. the HTTP connection pool. Each session has its own
+     * session data, so that the update checks are not shared between sessions.
+     *
+     * @param system - repository system the session is used with
+     * @return new session
+     */
     public DefaultRepositorySystemSession newRepositorySystemSession(RepositorySystem system) {
+        final DefaultRepositorySystemSession session;
+        if (system == shared.repositorySystem) {
+            session = new DefaultRepositorySystemSession(shared.getSessionTemplate(provisioningRepo));
+            session.setData(new DefaultSessionData());
+        } else {
+            session = newSessionTemplate(system, provisioningRepo);
+        }
+
+        session.setOffline(offline);
+        if (metadataTtl != null) {
+            // overrides the update policy of the channel repositories ("always") for both metadata and artifacts
+            session.setUpdatePolicy(RepositoryPolicy.UPDATE_POLICY_INTERVAL + ":" + metadataTtl);
+        }
+        return session;
+    }
+
+    private static DefaultRepositorySystemSession newSessionTemplate(RepositorySystem system, Path localRepository) {
         final DefaultRepositorySystemSession session = MavenRepositorySystemUtils.newSession();
 
-        final LocalRepository localRepo = new LocalRepository(provisioningRepo.toAbsolutePath().toFile());
+        final LocalRepository localRepo = new LocalRepository(localRepository.toAbsolutePath().toFile());
         session.setLocalRepositoryManager(system.newLocalRepositoryManager(session, localRepo));
         session.setConfigProperty(AETHER_OFFLINE_PROTOCOLS_PROPERTY, AETHER_OFFLINE_PROTOCOLS_VALUE);
-        session.setOffline(offline);
         return session;
     }
 
+    private static Path getMetadataCacheDir() {
+        final String cacheDir = System.getProperty(METADATA_CACHE_PROPERTY);
+        if (cacheDir == null) {
+            return LOCAL_MAVEN_REPO.getParent().resolve("prospero-metadata");
+        } else {
+            return Path.of(cacheDir).toAbsolutePath();
+        }
+    }
+
     public Path getProvisioningRepo() {
         return provisioningRepo;
     }
@@ -110,4 +234,119 @@ public class MavenSessionManager {
     public boolean isOffline() {
         return offline;
     }
+
+    /**
+     * Closes the repository archives opened by this manager's sessions and removes the temporary local repository
+     * created by this manager, storing its metadata in the metadata cache first. Does nothing if the manager is a copy
+     * of another manager. The manager must not be used after it was closed.
+     */
+    @Override
+    public void close() {
+        if (sharedStateOwner) {
+            shared.zipFileSystems.close();
+        }
+        if (temporaryRepository && TEMPORARY_REPOSITORIES.remove(this)) {
+            if (metadataCache != null) {
+                metadataCache.store(provisioningRepo);
+            }
+            FileUtils.deleteQuietly(provisioningRepo.toFile());
+        }
+    }
+
+    /**
+     * Closes all the managers that created a temporary local repository and were not closed yet, except for the
+     * {@link #retainManagers() retained} managers.
+     */
+    public static void closeTemporaryRepositories() {
+        final Collection<MavenSessionManager> retained;
+        synchronized (RETAINED_MANAGERS) {
+            retained = new ArrayList<>(RETAINED_MANAGERS.values());
+        }
+        for (MavenSessionManager manager : new ArrayList<>(TEMPORARY_REPOSITORIES)) {
+            if (!retained.contains(manager)) {
+                manager.close();
+            }
+        }
+    }
+
+    /**
+     * Keeps one manager per {@code MavenOptions} until {@link #closeRetainedManagers()} is called. The managers created
+     * in the meantime share the repository system, the {@code RepositoryCache} and the local repository of the retained
+     * manager, so that a long-running process doesn't set them up again for every operation.
+     */
+    public static void retainManagers() {
+        synchronized (RETAINED_MANAGERS) {
+            retainManagers = true;
+        }
+    }
+
+    /**
+     * Stops retaining the managers and closes the retained ones.
+     */
+    public static void closeRetainedManagers() {
+        final List<MavenSessionManager> managers;
+        synchronized (RETAINED_MANAGERS) {
+            retainManagers = false;
+            managers = new ArrayList<>(RETAINED_MANAGERS.values());
+            RETAINED_MANAGERS.clear();
+        }
+        for (MavenSessionManager manager : managers) {
+            manager.close();
+        }
+    }
+
+    private static MavenSessionManager retainedManager(MavenOptions mavenOptions) throws ProvisioningException {
+        synchronized (RETAINED_MANAGERS) {
+            if (!retainManagers) {
+                return null;
+            }
+            MavenSessionManager manager = RETAINED_MANAGERS.get(mavenOptions);
+            if (manager == null) {
+                manager = new MavenSessionManager(null, mavenOptions);
+                RETAINED_MANAGERS.put(mavenOptions, manager);
+            }
+            return manager;
+        }
+    }
+
+    private static synchronized void registerTemporaryRepository(MavenSessionManager manager) {
+        TEMPORARY_REPOSITORIES.add(manager);
+        if (!cleanupHookRegistered) {
+            Runtime.getRuntime().addShutdownHook(CLEANUP_HOOK);
+            cleanupHookRegistered = true;
+        }
+    }
+
+    /*
+     * State shared between a manager and its copies. Without a RepositoryCache, the HTTP transporter creates a new
+     * connection pool for every transporter, so the connections (and TLS sessions) can't be re-used. The cache also
+     * holds the {@link ZipFileSystems} of the repository archives.
+     */
+    private static final class SharedState {
+        private final RepositoryCache repositoryCache = new DefaultRepositoryCache();
+        private final ZipFileSystems zipFileSystems = new ZipFileSystems();
+        private volatile RepositorySystem repositorySystem;
+        private DefaultRepositorySystemSession sessionTemplate;
+
+        RepositorySystem getRepositorySystem() {
+            if (repositorySystem == null) {
+                synchronized (this) {
+                    if (repositorySystem == null) {
+                        repositorySystem = createRepositorySystem();
+                    }
+                }
+            }
+            return repositorySystem;
+        }
+
+        synchronized DefaultRepositorySystemSession getSessionTemplate(Path localRepository) {
+            if (sessionTemplate == null) {
+                sessionTemplate = newSessionTemplate(repositorySystem, localRepository);
+                sessionTemplate.setCache(repositoryCache);
+                repositoryCache.put(sessionTemplate, ZipFileSystems.class, zipFileSystems);
+                sessionTemplate.setReadOnly();
+            }
+            return sessionTemplate;
+        }
+    }
 }
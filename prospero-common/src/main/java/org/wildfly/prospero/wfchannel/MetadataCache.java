@@ -0,0 +1,121 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.wfchannel;
+
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Keeps the Maven metadata downloaded into a temporary local repository between sessions.
+ *
+ * Only the {@code maven-metadata} files and the resolver's update tracking files are kept. Together with the session's
+ * update policy, this allows the resolver to use the metadata fetched by an earlier session instead of downloading
+ * it again. The artifacts are still resolved into the temporary repository and removed with it.
+ *
+ * The cache is best effort - if the files cannot be copied, the metadata is simply downloaded again.
+ *
+ * The cache can be shared by several processes. Each file is copied to a temporary file next to the target and moved
+ * in place atomically, so a session never reads a partially written file.
+ */
+class MetadataCache {
+
+    private static final Logger LOG = Logger.getLogger(MetadataCache.class);
+
+    static final String RESOLVER_STATUS_FILE = "resolver-status.properties";
+
+    private final Path cacheDir;
+
+    MetadataCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * copies the cached metadata into the {@code localRepository}.
+     *
+     * @param localRepository - local repository used by the session
+     */
+    void restore(Path localRepository) {
+        if (!Files.isDirectory(cacheDir)) {
+            return;
+        }
+        try {
+            copyMetadata(cacheDir, localRepository);
+        } catch (IOException e) {
+            LOG.debugf(e, "Unable to restore Maven metadata from %s", cacheDir);
+        }
+    }
+
+    /**
+     * copies the metadata from the {@code localRepository} into the cache, replacing older versions.
+     *
+     * @param localRepository - local repository used by the session
+     */
+    void store(Path localRepository) {
+        if (!Files.isDirectory(localRepository)) {
+            return;
+        }
+        try {
+            copyMetadata(localRepository, cacheDir);
+        } catch (IOException e) {
+            LOG.debugf(e, "Unable to store Maven metadata in %s", cacheDir);
+        }
+    }
+
+    static boolean isMetadataFile(Path file) {
+        final String name = file.getFileName().toString();
+        return (name.startsWith("maven-metadata") && name.endsWith(".xml")) || name.equals(RESOLVER_STATUS_FILE);
+    }
+
+    private static void copyMetadata(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (isMetadataFile(file)) {
+                    final Path targetFile = target.resolve(source.relativize(file).toString());
+                    Files.createDirectories(targetFile.getParent());
+                    copyAtomically(file, targetFile);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void copyAtomically(Path file, Path targetFile) throws IOException {
+        // the temporary name doesn't match isMetadataFile, so leftovers of a killed process are never copied
+        final Path tempFile = Files.createTempFile(targetFile.getParent(), "." + targetFile.getFileName(), ".tmp");
+        try {
+            // keep the timestamps of the original download
+            Files.copy(file, tempFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            try {
+                Files.move(tempFile, targetFile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.wfchannel;
+
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Zip file systems of the repository archives, shared by all {@link ZipTransporter}s of a {@link MavenSessionManager},
+ * so that the central directory of an archive is read only once. The file systems are reference-counted - a file
+ * system is closed when the registry has been closed and no transporter is using it anymore.
+ *
+ * If an archive is modified, following transporters open a new file system, the old one is closed once it is released.
+ */
+class ZipFileSystems implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(ZipFileSystems.class);
+
+    private final Map<Path, Archive> archives = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * Returns a file system of the {@code archive}, opening it if needed. Every call has to be followed by
+     * {@link #release(Archive)}.
+     */
+    synchronized Archive acquire(Path archive) throws IOException {
+        if (closed) {
+            throw new IOException("Unable to open " + archive + ", the Maven session has been closed");
+        }
+
+        final Path key = archive.toRealPath();
+        final FileTime lastModified = Files.getLastModifiedTime(key);
+        Archive opened = archives.get(key);
+        if (opened != null && !opened.lastModified.equals(lastModified)) {
+            archives.remove(key);
+            opened.retired = true;
+            closeIfUnused(opened);
+            opened = null;
+        }
+        if (opened == null) {
+            // create a new instance rather than using the provider's shared file systems, those are closed by
+            // the first user
+            opened = new Archive(FileSystems.newFileSystem(key, (ClassLoader) null), lastModified);
+            archives.put(key, opened);
+        }
+        opened.references++;
+        return opened;
+    }
+
+    synchronized void release(Archive archive) {
+        archive.references--;
+        closeIfUnused(archive);
+    }
+
+    /**
+     * Closes the file systems that are not used by any transporter. The remaining ones are closed when released.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Archive archive : new ArrayList<>(archives.values())) {
+            archive.retired = true;
+            closeIfUnused(archive);
+        }
+        archives.clear();
+    }
+
+    private static void closeIfUnused(Archive archive) {
+        if (archive.retired && archive.references == 0) {
+            try {
+                archive.fileSystem.close();
+            } catch (IOException e) {
+                LOG.debugf(e, "Unable to close repository archive %s", archive.fileSystem);
+            }
+        }
+    }
+
+    static final class Archive {
+        private final FileSystem fileSystem;
+        private final FileTime lastModified;
+        private int references;
+        private boolean retired;
+
+        private Archive(FileSystem fileSystem, FileTime lastModified) {
+            this.fileSystem = fileSystem;
+            this.lastModified = lastModified;
+        }
+
+        FileSystem getFileSystem() {
+            return fileSystem;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.wfchannel;
+
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.transport.AbstractTransporter;
+import org.eclipse.aether.spi.connector.transport.GetTask;
+import org.eclipse.aether.spi.connector.transport.PeekTask;
+import org.eclipse.aether.spi.connector.transport.PutTask;
+import org.eclipse.aether.spi.connector.transport.TransportTask;
+import org.eclipse.aether.transfer.NoTransporterException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Read-only transporter serving files of a repository packaged in a ZIP archive. The archive is opened using the JDK
+ * zip {@code FileSystem}, which reads only the archive's central directory and the requested entries. The file system
+ * is acquired from {@link ZipFileSystems} shared by the session, and released when the transporter is closed.
+ */
+class ZipTransporter extends AbstractTransporter {
+
+    private final ZipFileSystems fileSystems;
+    private final ZipFileSystems.Archive archive;
+    private final boolean ownsFileSystems;
+    private final Path basedir;
+
+    /**
+     * @param fileSystems - registry the archive is acquired from
+     * @param ownsFileSystems - if true, the registry is closed together with the transporter
+     */
+    ZipTransporter(RemoteRepository repository, ZipFileSystems fileSystems, boolean ownsFileSystems) throws NoTransporterException {
+        // jar:<archive URI>!/<path in archive>
+        final String url = URI.create(repository.getUrl()).getRawSchemeSpecificPart();
+        final int separator = url.indexOf("!/");
+        if (separator < 0) {
+            throw new NoTransporterException(repository, "The repository URL does not point to a path inside an archive");
+        }
+
+        this.fileSystems = fileSystems;
+        this.ownsFileSystems = ownsFileSystems;
+        try {
+            this.archive = fileSystems.acquire(Path.of(URI.create(url.substring(0, separator))));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new NoTransporterException(repository, e);
+        }
+        this.basedir = archive.getFileSystem().getPath("/", URI.create(url.substring(separator + 2)).getPath());
+    }
+
+    @Override
+    public int classify(Throwable error) {
+        if (error instanceof NoSuchFileException) {
+            return ERROR_NOT_FOUND;
+        }
+        return ERROR_OTHER;
+    }
+
+    @Override
+    protected void implPeek(PeekTask task) throws Exception {
+        getFile(task);
+    }
+
+    @Override
+    protected void implGet(GetTask task) throws Exception {
+        final Path file = getFile(task);
+        utilGet(task, Files.newInputStream(file), true, Files.size(file), false);
+    }
+
+    @Override
+    protected void implPut(PutTask task) {
+        throw new UnsupportedOperationException("Repositories in archives are read-only: " + task.getLocation());
+    }
+
+    @Override
+    protected void implClose() {
+        fileSystems.release(archive);
+        if (ownsFileSystems) {
+            fileSystems.close();
+        }
+    }
+
+    FileSystem getFileSystem() {
+        return archive.getFileSystem();
+    }
+
+    private Path getFile(TransportTask task) throws NoSuchFileException {
+        final Path file = basedir.resolve(task.getLocation().getPath());
+        if (!Files.isRegularFile(file)) {
+            throw new NoSuchFileException(file.toString());
+        }
+        return file;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.wfchannel;
+
+import org.eclipse.aether.RepositoryCache;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.spi.connector.transport.Transporter;
+import org.eclipse.aether.spi.connector.transport.TransporterFactory;
+import org.eclipse.aether.transfer.NoTransporterException;
+
+/**
+ * Creates transporters reading artifacts directly from a repository packaged in a ZIP archive, without extracting it.
+ *
+ * The repositories are identified by {@code jar:} URLs pointing to the repository folder inside the archive, e.g.
+ * {@code jar:file:/tmp/repository.zip!/repository/maven-repository/}.
+ *
+ * The archives are opened once per {@link MavenSessionManager} using the {@link ZipFileSystems} stored in the session's
+ * {@code RepositoryCache}. Sessions without the shared cache open the archive for each transporter.
+ */
+public class ZipTransporterFactory implements TransporterFactory {
+
+    // protocol as parsed by RemoteRepository from the jar:file: URLs
+    public static final String PROTOCOL = "jar:file";
+
+    @Override
+    public Transporter newInstance(RepositorySystemSession session, RemoteRepository repository) throws NoTransporterException {
+        if (!PROTOCOL.equals(repository.getProtocol())) {
+            throw new NoTransporterException(repository);
+        }
+        final RepositoryCache cache = session.getCache();
+        final Object shared = cache == null ? null : cache.get(session, ZipFileSystems.class);
+        if (shared instanceof ZipFileSystems) {
+            return new ZipTransporter(repository, (ZipFileSystems) shared, false);
+        } else {
+            return new ZipTransporter(repository, new ZipFileSystems(), true);
+        }
+    }
+
+    @Override
+    public float getPriority() {
+        return 5.0f;
+    }
+}
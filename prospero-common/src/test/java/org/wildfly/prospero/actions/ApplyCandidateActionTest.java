@@ -19,12 +19,23 @@ package org.wildfly.prospero.actions;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.jboss.galleon.Constants;
 import org.jboss.galleon.ProvisioningException;
@@ -38,6 +49,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -110,6 +122,36 @@ public class ApplyCandidateActionTest {
         assertThat(conflicts).isEmpty();
     }
 
+    @Test
+    public void testUserProvidedCandidateIsCopiedIntoInstallation() throws Exception {
+        createSimpleFeaturePacks();
+        install(installationPath, FPL_100);
+        prepareUpdate(updatePath, installationPath, FPL_101);
+
+        new ApplyCandidateAction(installationPath, updatePath).applyUpdate(ApplyCandidateAction.Type.UPDATE);
+
+        // the installation must not share files with a candidate that stays in place after the update
+        assertFalse(Files.isSameFile(installationPath.resolve("prod1/p1.txt"), updatePath.resolve("prod1/p1.txt")));
+        Files.writeString(updatePath.resolve("prod1/p1.txt"), "changed candidate");
+        assertThat(installationPath.resolve("prod1/p1.txt")).hasContent("p1 1.0.1");
+    }
+
+    @Test
+    public void testTemporaryCandidateIsApplied() throws Exception {
+        final DirState expectedState = dirBuilder
+                .addFile("prod1/p1.txt", "p1 1.0.1")
+                .build();
+        createSimpleFeaturePacks();
+        install(installationPath, FPL_100);
+        prepareUpdate(updatePath, installationPath, FPL_101);
+
+        final List<FileConflict> conflicts = ApplyCandidateAction.forTemporaryCandidate(installationPath, updatePath)
+                .applyUpdate(ApplyCandidateAction.Type.UPDATE);
+
+        expectedState.assertState(installationPath);
+        assertThat(conflicts).isEmpty();
+    }
+
     @Test
     public void testUpdateWithUserChanges() throws Exception {
         final DirState expectedState = dirBuilder
@@ -611,6 +653,208 @@ public class ApplyCandidateActionTest {
         expectedState.assertState(installationPath);
     }
 
+    @Test
+    public void testDeltaUpdateKeepsUnchangedFiles() throws Exception {
+        final DirState expectedState = dirBuilder
+                .addFile("prod1/p1.txt", "prod1/p1 1.0.1")
+                .addFile("prod2/same.txt", "prod2/same")
+                .addFile("prod2/modified.txt", "user prod2/modified")
+                .build();
+
+        createFeaturePacksWithUnchangedFiles();
+
+        install(installationPath, FPL_100);
+        prepareUpdate(updatePath, installationPath, FPL_101);
+        assertEquals(2, DeltaCandidate.create(installationPath, updatePath));
+        assertThat(updatePath.resolve("prod2/same.txt")).doesNotExist();
+        assertThat(updatePath.resolve("prod1/p1.txt")).hasContent("prod1/p1 1.0.1");
+        // the user changes the file after the candidate was created
+        writeContent("prod2/modified.txt", "user prod2/modified");
+
+        final List<FileConflict> conflicts = new ApplyCandidateAction(installationPath, updatePath).applyUpdate(ApplyCandidateAction.Type.UPDATE);
+
+        expectedState.assertState(installationPath);
+        assertThat(conflicts).isEmpty();
+    }
+
+    @Test
+    public void testDeltaUpdateKeepsFilesWithChangedPermissions() throws Exception {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        createFeaturePacksWithUnchangedFiles();
+
+        install(installationPath, FPL_100);
+        prepareUpdate(updatePath, installationPath, FPL_101);
+        final Path candidateFile = updatePath.resolve("prod2/same.txt");
+        final Set<PosixFilePermission> permissions = new HashSet<>(Files.getPosixFilePermissions(candidateFile));
+        permissions.add(PosixFilePermission.OWNER_EXECUTE);
+        Files.setPosixFilePermissions(candidateFile, permissions);
+
+        assertEquals(1, DeltaCandidate.create(installationPath, updatePath));
+        assertThat(candidateFile).exists();
+    }
+
+    @Test
+    public void testDeltaUpdateFailsIfUnchangedFileIsRemoved() throws Exception {
+        createFeaturePacksWithUnchangedFiles();
+
+        install(installationPath, FPL_100);
+        prepareUpdate(updatePath, installationPath, FPL_101);
+        DeltaCandidate.create(installationPath, updatePath);
+        Files.delete(installationPath.resolve("prod2/same.txt"));
+
+        assertThatThrownBy(() -> new ApplyCandidateAction(installationPath, updatePath).applyUpdate(ApplyCandidateAction.Type.UPDATE))
+                .isInstanceOf(InvalidUpdateCandidateException.class)
+                .hasMessageContaining("prod2/same.txt");
+        assertThat(installationPath.resolve("prod1/p1.txt")).hasContent("prod1/p1 1.0.0");
+    }
+
+    @Test
+    public void testCandidateArchiveAppliesToCopiesOfInstallation() throws Exception {
+        final DirState expectedState = dirBuilder
+                .addFile("prod1/p1.txt", "prod1/p1 1.0.1")
+                .addFile("prod2/same.txt", "prod2/same")
+                .addFile("prod2/modified.txt", "prod2/modified")
+                .build();
+
+        createFeaturePacksWithUnchangedFiles();
+
+        install(installationPath, FPL_100);
+        final Path copyPath = temp.newFolder().toPath();
+        FileUtils.copyDirectory(installationPath.toFile(), copyPath.toFile());
+        prepareUpdate(updatePath, installationPath, FPL_101);
+        DeltaCandidate.create(installationPath, updatePath);
+        final Path archive = temp.getRoot().toPath().resolve("candidate.zip");
+        CandidateArchive.create(installationPath, updatePath, archive);
+
+        for (Path installation : List.of(installationPath, copyPath)) {
+            final Path extracted = temp.newFolder().toPath();
+            CandidateArchive.extract(archive, installation, extracted);
+            assertThat(extracted.resolve("prod2/same.txt")).doesNotExist();
+
+            final List<FileConflict> conflicts = new ApplyCandidateAction(installation, extracted).applyUpdate(ApplyCandidateAction.Type.UPDATE);
+
+            expectedState.assertState(installation);
+            assertThat(conflicts).isEmpty();
+        }
+    }
+
+    @Test
+    public void testCandidateArchiveRejectsInstallationWithDifferentHashes() throws Exception {
+        createFeaturePacksWithUnchangedFiles();
+
+        install(installationPath, FPL_100);
+        prepareUpdate(updatePath, installationPath, FPL_101);
+        final Path archive = temp.getRoot().toPath().resolve("candidate.zip");
+        CandidateArchive.create(installationPath, updatePath, archive);
+        Files.delete(installationPath.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.HASHES).resolve("prod2").resolve(Constants.HASHES));
+
+        final Path extracted = temp.newFolder().toPath();
+        assertThatThrownBy(() -> CandidateArchive.extract(archive, installationPath, extracted))
+                .isInstanceOf(InvalidUpdateCandidateException.class)
+                .hasMessageContaining("current state of the installation");
+        assertThat(extracted).isEmptyDirectory();
+    }
+
+    @Test
+    public void testCandidateArchiveDetectsCorruptedContent() throws Exception {
+        createFeaturePacksWithUnchangedFiles();
+
+        install(installationPath, FPL_100);
+        prepareUpdate(updatePath, installationPath, FPL_101);
+        final Path archive = temp.getRoot().toPath().resolve("candidate.zip");
+        CandidateArchive.create(installationPath, updatePath, archive);
+
+        final Path corrupted = temp.getRoot().toPath().resolve("corrupted.zip");
+        try (ZipInputStream zis = new ZipInputStream(Files.newInputStream(archive));
+             ZipOutputStream zos = new ZipOutputStream(Files.newOutputStream(corrupted))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                zos.putNextEntry(new ZipEntry(entry.getName()));
+                if (entry.getName().equals(CandidateArchive.CONTENT_DIR + "prod1/p1.txt")) {
+                    zos.write("prod1/p1 1.0.2".getBytes(StandardCharsets.UTF_8));
+                } else {
+                    zis.transferTo(zos);
+                }
+                zos.closeEntry();
+            }
+        }
+
+        assertThatThrownBy(() -> CandidateArchive.extract(corrupted, installationPath, temp.newFolder().toPath()))
+                .isInstanceOf(InvalidUpdateCandidateException.class)
+                .hasMessageContaining("checksum mismatch of " + CandidateArchive.CONTENT_DIR + "prod1/p1.txt");
+    }
+
+    @Test
+    public void testApplyCandidateToMultipleInstallations() throws Exception {
+        createFeaturePacksWithUnchangedFiles();
+
+        install(installationPath, FPL_100);
+        final Path copyOne = temp.newFolder().toPath();
+        final Path copyTwo = temp.newFolder().toPath();
+        FileUtils.copyDirectory(installationPath.toFile(), copyOne.toFile());
+        FileUtils.copyDirectory(installationPath.toFile(), copyTwo.toFile());
+        Files.writeString(copyTwo.resolve("prod1/p1.txt"), "user prod1/p1");
+        prepareUpdate(updatePath, installationPath, FPL_101);
+
+        final List<MultiApplyCandidateAction.Result> results;
+        try (MultiApplyCandidateAction action = new MultiApplyCandidateAction(List.of(installationPath, copyOne, copyTwo), updatePath, 2)) {
+            assertThat(action.verifyCandidate(ApplyCandidateAction.Type.UPDATE).values())
+                    .containsOnly(ApplyCandidateAction.ValidationResult.OK);
+            results = action.applyUpdate(ApplyCandidateAction.Type.UPDATE);
+        }
+
+        assertThat(results).allMatch(MultiApplyCandidateAction.Result::isSuccessful);
+        assertThat(results.get(0).getConflicts()).isEmpty();
+        assertThat(results.get(1).getConflicts()).isEmpty();
+        assertThat(results.get(2).getConflicts()).map(FileConflict::getRelativePath).containsExactly("prod1/p1.txt");
+        assertThat(installationPath.resolve("prod1/p1.txt")).hasContent("prod1/p1 1.0.1");
+        assertThat(copyOne.resolve("prod1/p1.txt")).hasContent("prod1/p1 1.0.1");
+        assertThat(copyTwo.resolve("prod1/p1.txt")).hasContent("user prod1/p1");
+        assertThat(copyTwo.resolve("prod1/p1.txt.glnew")).hasContent("prod1/p1 1.0.1");
+        // the installations don't share the files with each other
+        Files.writeString(installationPath.resolve("prod2/same.txt"), "changed");
+        assertThat(copyOne.resolve("prod2/same.txt")).hasContent("prod2/same");
+    }
+
+    @Test
+    public void testApplyCandidateToMultipleInstallationsReportsFailuresPerInstallation() throws Exception {
+        createFeaturePacksWithUnchangedFiles();
+
+        install(installationPath, FPL_100);
+        final Path copy = temp.newFolder().toPath();
+        FileUtils.copyDirectory(installationPath.toFile(), copy.toFile());
+        Files.createDirectories(copy.resolve(ApplyCandidateAction.STANDALONE_STARTUP_MARKER).getParent());
+        Files.writeString(copy.resolve(ApplyCandidateAction.STANDALONE_STARTUP_MARKER), "");
+        prepareUpdate(updatePath, installationPath, FPL_101);
+
+        final List<MultiApplyCandidateAction.Result> results;
+        try (MultiApplyCandidateAction action = new MultiApplyCandidateAction(List.of(installationPath, copy), updatePath)) {
+            results = action.applyUpdate(ApplyCandidateAction.Type.UPDATE);
+        }
+
+        assertTrue(results.get(0).isSuccessful());
+        assertThat(installationPath.resolve("prod1/p1.txt")).hasContent("prod1/p1 1.0.1");
+        assertFalse(results.get(1).isSuccessful());
+        assertThat(results.get(1).getError()).isInstanceOf(ProvisioningException.class);
+        assertThat(copy.resolve("prod1/p1.txt")).hasContent("prod1/p1 1.0.0");
+    }
+
+    private void createFeaturePacksWithUnchangedFiles() throws ProvisioningException {
+        creator.newFeaturePack(FeaturePackLocation.fromString(FPL_100).getFPID())
+                .newPackage("p1", true)
+                .writeContent("prod1/p1.txt", "prod1/p1 1.0.0")
+                .writeContent("prod2/same.txt", "prod2/same")
+                .writeContent("prod2/modified.txt", "prod2/modified")
+                .getFeaturePack();
+        creator.newFeaturePack(FeaturePackLocation.fromString(FPL_101).getFPID())
+                .newPackage("p1", true)
+                .writeContent("prod1/p1.txt", "prod1/p1 1.0.1")
+                .writeContent("prod2/same.txt", "prod2/same")
+                .writeContent("prod2/modified.txt", "prod2/modified")
+                .getFeaturePack();
+        creator.install();
+    }
+
     private void createSimpleFeaturePacks() throws ProvisioningException {
         creator.newFeaturePack(FeaturePackLocation.fromString(FPL_100).getFPID())
                 .newPackage("p1", true)
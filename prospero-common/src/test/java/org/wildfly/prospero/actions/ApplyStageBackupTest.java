@@ -8,6 +8,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
 
 import java.io.IOException;
 import java.nio.file.AccessDeniedException;
@@ -321,6 +322,114 @@ public class ApplyStageBackupTest {
         }
     }
 
+    @Test
+    public void restoreOnlyRecordedFiles() throws Exception {
+        final Path recordedFile = createFile("test/recorded.txt");
+        final Path otherFile = createFile("test/other.txt");
+
+        backup.record(server.relativize(recordedFile));
+        writeFile(recordedFile);
+        writeFile(otherFile);
+        backup.restore();
+
+        assertThat(recordedFile)
+                .hasContent("test text");
+        assertThat(otherFile)
+                .hasContent("changed text");
+        assertThat(backupFolder.resolve("test").resolve("other.txt"))
+                .doesNotExist();
+    }
+
+    @Test
+    public void removeRecordedAddedFileWithCreatedDirectories() throws Exception {
+        final Path existing = createFile("test/existing.txt");
+        final Path testFile = server.resolve("test/foo/bar/test.txt");
+
+        backup.record(server.relativize(testFile));
+        Files.createDirectories(testFile.getParent());
+        writeFile(testFile);
+        backup.restore();
+
+        assertThat(server.resolve("test/foo"))
+                .doesNotExist();
+        assertThat(existing)
+                .hasContent("test text");
+    }
+
+    @Test
+    public void restoreRecordedEmptyDirectory() throws Exception {
+        final Path dir = server.resolve("test/empty");
+        Files.createDirectories(dir);
+
+        backup.record(server.relativize(dir));
+        Files.delete(dir);
+        backup.restore();
+
+        assertThat(dir)
+                .isEmptyDirectory();
+    }
+
+    @Test
+    public void removeFilesAddedToRecordedDirectory() throws Exception {
+        final Path existing = createFile("test/existing.txt");
+        final Path testFile = server.resolve("test/foo/test.txt");
+
+        backup.record(Path.of("test"));
+        writeFile(existing);
+        Files.createDirectories(testFile.getParent());
+        writeFile(testFile);
+        backup.restore();
+
+        assertThat(existing)
+                .hasContent("test text");
+        assertThat(testFile.getParent())
+                .doesNotExist();
+    }
+
+    @Test
+    public void recordKeepsOriginalStateOfFile() throws Exception {
+        final Path testFile = createFile("test.txt");
+
+        backup.record(Path.of("test.txt"));
+        writeFile(testFile);
+        backup.record(Path.of("test.txt"));
+        backup.restore();
+
+        assertThat(testFile)
+                .hasContent("test text");
+    }
+
+    @Test
+    public void metadataFilesModifiedInPlaceAreRestored() throws Exception {
+        final Path metadataFile = createFile(ProsperoMetadataUtils.METADATA_DIR + "/test.txt");
+
+        backup.record(Path.of(ProsperoMetadataUtils.METADATA_DIR));
+        Files.writeString(metadataFile, "changed text");
+        backup.restore();
+
+        assertThat(metadataFile)
+                .hasContent("test text");
+    }
+
+    @Test
+    public void excludedFilesAreNotRecordedOrRemoved() throws Exception {
+        final Path objectFile = createFile(ProsperoMetadataUtils.METADATA_DIR + "/.git/objects/ab/cdef");
+        final Path refFile = createFile(ProsperoMetadataUtils.METADATA_DIR + "/.git/refs/heads/master");
+
+        backup.exclude(Path.of(ProsperoMetadataUtils.METADATA_DIR, ".git", "objects"));
+        backup.record(Path.of(ProsperoMetadataUtils.METADATA_DIR));
+        final Path addedObject = createFile(ProsperoMetadataUtils.METADATA_DIR + "/.git/objects/12/3456");
+        Files.writeString(refFile, "changed text");
+
+        assertThat(backupFolder.resolve(server.relativize(objectFile))).doesNotExist();
+
+        backup.restore();
+
+        assertThat(refFile).hasContent("test text");
+        assertThat(objectFile).hasContent("test text");
+        assertThat(addedObject).exists();
+    }
+
     private Path createFile(String path) throws IOException {
         final Path testFile = server.resolve(path);
         if (!Files.exists(testFile.getParent())) {
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertFalse;
+
+public class FileCopierTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path source;
+    private Path target;
+
+    @Before
+    public void setUp() throws Exception {
+        source = temp.newFolder("source").toPath();
+        target = temp.newFolder("target").toPath();
+    }
+
+    @Test
+    public void transferStopsIfSourceIsShorterThanExpected() throws Exception {
+        final Path file = source.resolve("test.txt");
+        Files.writeString(file, "content");
+        final Path copy = target.resolve("test.txt");
+
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(copy, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            // as if the file was truncated after its size was read
+            assertFalse(FileCopier.transfer(in, in.size() + 10, out));
+        }
+        assertThat(copy).hasContent("content");
+    }
+
+    @Test
+    public void copyDirectoryRecursively() throws Exception {
+        Files.createDirectories(source.resolve("a").resolve("b"));
+        Files.writeString(source.resolve("a").resolve("b").resolve("test.txt"), "content");
+        Files.writeString(source.resolve("root.txt"), "root");
+
+        new FileCopier(false).copy(source, target.resolve("copy"));
+
+        assertThat(target.resolve("copy").resolve("a").resolve("b").resolve("test.txt")).hasContent("content");
+        assertThat(target.resolve("copy").resolve("root.txt")).hasContent("root");
+    }
+
+    @Test
+    public void replacedFileDoesNotModifyOtherLinks() throws Exception {
+        final Path sourceFile = Files.writeString(source.resolve("test.txt"), "new");
+        final Path targetFile = Files.writeString(target.resolve("test.txt"), "old");
+        final Path backup = target.resolve("backup.txt");
+        Files.createLink(backup, targetFile);
+
+        new FileCopier(false).copy(sourceFile, targetFile);
+
+        assertThat(targetFile).hasContent("new");
+        assertThat(backup).hasContent("old");
+    }
+
+    @Test
+    public void useHardlinkIfEnabled() throws Exception {
+        final Path sourceFile = Files.writeString(source.resolve("test.txt"), "content");
+
+        new FileCopier(true).copy(sourceFile, target.resolve("test.txt"));
+
+        assertThat(target.resolve("test.txt")).hasContent("content");
+        assertThat(Files.isSameFile(sourceFile, target.resolve("test.txt"))).isTrue();
+    }
+
+    @Test
+    public void failureToLinkOneFileDoesNotDisableHardlinks() throws Exception {
+        final Path denied = Files.writeString(source.resolve("denied.txt"), "denied");
+        final Path linked = Files.writeString(source.resolve("linked.txt"), "linked");
+        final FileCopier copier = new FileCopier(true) {
+            @Override
+            void createLink(Path link, Path existing) throws IOException {
+                if (existing.equals(denied)) {
+                    throw new AccessDeniedException(link.toString());
+                }
+                super.createLink(link, existing);
+            }
+        };
+
+        copier.copy(denied, target.resolve("denied.txt"));
+        copier.copy(linked, target.resolve("linked.txt"));
+
+        assertThat(target.resolve("denied.txt")).hasContent("denied");
+        assertThat(Files.isSameFile(denied, target.resolve("denied.txt"))).isFalse();
+        assertThat(Files.isSameFile(linked, target.resolve("linked.txt"))).isTrue();
+    }
+
+    @Test
+    public void copiedFileKeepsPermissions() throws Exception {
+        Assume.assumeTrue(Files.getFileAttributeView(source, PosixFileAttributeView.class) != null);
+        final Path sourceFile = Files.writeString(source.resolve("test.sh"), "echo");
+        Files.setPosixFilePermissions(sourceFile, PosixFilePermissions.fromString("rwxr-x---"));
+
+        new FileCopier(false).copy(sourceFile, target.resolve("test.sh"));
+
+        assertThat(Files.isSameFile(sourceFile, target.resolve("test.sh"))).isFalse();
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(target.resolve("test.sh"))))
+                .isEqualTo("rwxr-x---");
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.jboss.galleon.util.HashUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParallelFileHasherTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path candidateDir;
+    private Path installationDir;
+    private ParallelFileHasher hasher;
+
+    @Before
+    public void setUp() throws Exception {
+        candidateDir = temp.newFolder("candidate").toPath();
+        installationDir = temp.newFolder("installation").toPath();
+        hasher = new ParallelFileHasher(4);
+    }
+
+    @After
+    public void tearDown() {
+        hasher.close();
+    }
+
+    @Test
+    public void hashAllCachesCandidateHashes() throws Exception {
+        final Path file = Files.writeString(candidateDir.resolve("test.txt"), "content");
+        final byte[] expected = HashUtils.hashPath(file);
+
+        hasher.hashAll(List.of(file, candidateDir.resolve("missing.txt")));
+        Files.writeString(file, "changed");
+
+        assertThat(hasher.hash(file)).isEqualTo(expected);
+        assertThat(hasher.hash(candidateDir.resolve("missing.txt"))).isNull();
+    }
+
+    @Test
+    public void findChangedReturnsMissingAndModifiedFilesInOrder() throws Exception {
+        final List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final Path relative = Path.of("dir" + (i % 10), "file" + i + ".txt");
+            Files.createDirectories(candidateDir.resolve(relative).getParent());
+            Files.createDirectories(installationDir.resolve(relative).getParent());
+            Files.writeString(candidateDir.resolve(relative), "content" + i);
+            if (i % 3 == 1) {
+                // same size, different content
+                Files.writeString(installationDir.resolve(relative), "CONTENT" + i);
+            } else if (i % 3 == 2) {
+                Files.writeString(installationDir.resolve(relative), "content" + i);
+            }
+            paths.add(relative);
+        }
+
+        final List<Path> changed = hasher.findChanged(candidateDir, installationDir, paths);
+
+        final List<Path> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            if (i % 3 != 2) {
+                expected.add(paths.get(i));
+            }
+        }
+        assertThat(changed).containsExactlyElementsOf(expected);
+    }
+}
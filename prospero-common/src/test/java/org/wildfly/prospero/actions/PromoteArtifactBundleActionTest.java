@@ -24,14 +24,20 @@ import org.junit.rules.TemporaryFolder;
 import org.wildfly.prospero.api.ArtifactUtils;
 import org.wildfly.prospero.api.Console;
 import org.wildfly.prospero.api.ProvisioningProgressEvent;
+import org.wildfly.prospero.api.exceptions.ArtifactPromoteException;
 import org.wildfly.prospero.promotion.ArtifactBundle;
+import org.wildfly.prospero.promotion.ArtifactPromoter;
 
 import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.List;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -62,6 +68,32 @@ public class PromoteArtifactBundleActionTest {
         assertTrue(Files.exists(targetRepo.resolve(Paths.get("foo", "bar", "test", "1.2.3", "test-1.2.3.jar"))));
     }
 
+    @Test
+    public void missingArtifactInArchiveDoesNotPromoteAnyArtifacts() throws Exception {
+        final PromoteArtifactBundleAction action = new PromoteArtifactBundleAction(new TestConsole());
+        final Path targetRepo = temp.newFolder().toPath();
+        final DefaultArtifact first = new DefaultArtifact("foo.bar", "first", null, null, "1.2.3", null, temp.newFile("first-1.2.3.jar"));
+        final DefaultArtifact second = new DefaultArtifact("foo.bar", "second", null, null, "1.2.3", null, temp.newFile("second-1.2.3.jar"));
+        final Path archive = ArtifactBundle.createCustomizationArchive(List.of(first, second), temp.newFile("archive.zip"));
+        try (FileSystem zip = FileSystems.newFileSystem(archive, (ClassLoader) null)) {
+            Files.delete(zip.getPath(ArtifactBundle.BUNDLE_REPO_FOLDER, "foo", "bar", "second", "1.2.3", "second-1.2.3.jar"));
+        }
+
+        // deploy each artifact in a separate batch, so that the first one would be deployed before the second is resolved
+        System.setProperty(ArtifactPromoter.BATCH_SIZE_PROPERTY, "1");
+        try {
+            action.promote(archive, targetRepo.toUri().toURL(),
+                    ArtifactUtils.manifestCoordFromString("org.test:test-channel"));
+            fail("Promoting a bundle with a missing artifact should fail");
+        } catch (ArtifactPromoteException e) {
+            // expected
+        } finally {
+            System.clearProperty(ArtifactPromoter.BATCH_SIZE_PROPERTY);
+        }
+
+        assertFalse(Files.exists(targetRepo.resolve(Paths.get("foo", "bar", "first", "1.2.3", "first-1.2.3.jar"))));
+    }
+
     private Path createCustomArchive() throws Exception {
         final DefaultArtifact testArtifact = new DefaultArtifact("foo.bar", "test", null, null, "1.2.3", null, temp.newFile("test-1.2.3.jar"));
         return ArtifactBundle.createCustomizationArchive(Collections.singletonList(testArtifact), temp.newFile("archive.zip"));
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.actions;
+
+import org.jboss.galleon.Constants;
+import org.jboss.galleon.util.HashUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RecordedHashesTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void serverWithoutHashesIsEmpty() throws Exception {
+        final RecordedHashes hashes = RecordedHashes.read(temp.newFolder().toPath());
+
+        assertThat(hashes.getPaths()).isEmpty();
+    }
+
+    @Test
+    public void readNestedHashes() throws Exception {
+        final Path server = temp.newFolder().toPath();
+        final Path hashesDir = server.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.HASHES);
+        Files.createDirectories(hashesDir.resolve("modules").resolve("foo"));
+        Files.writeString(hashesDir.resolve(Constants.HASHES), "README.txt\nabcd\ncopyright.txt\n0123\n");
+        Files.writeString(hashesDir.resolve("modules").resolve("foo").resolve(Constants.HASHES), "foo.jar\nef01\n");
+
+        final RecordedHashes hashes = RecordedHashes.read(server);
+
+        assertThat(hashes.getPaths())
+                .containsExactlyInAnyOrder("README.txt", "copyright.txt", "modules/foo/foo.jar");
+        assertThat(hashes.get("modules/foo/foo.jar"))
+                .isEqualTo(HashUtils.hexStringToByteArray("ef01"));
+        assertThat(hashes.get("modules/foo/bar.jar")).isNull();
+    }
+}
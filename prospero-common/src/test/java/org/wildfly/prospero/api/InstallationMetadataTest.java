@@ -33,6 +33,7 @@ import org.wildfly.channel.MavenCoordinate;
 import org.wildfly.channel.Repository;
 import org.wildfly.prospero.metadata.ManifestVersionRecord;
 import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.api.exceptions.UncheckedMetadataException;
 import org.wildfly.prospero.installation.git.GitStorage;
 import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
 import org.wildfly.prospero.model.ProsperoConfig;
@@ -300,6 +301,44 @@ public class InstallationMetadataTest {
         }
     }
 
+    @Test
+    public void savedStateIsReadWithoutStartingHistory() throws Exception {
+        try (final InstallationMetadata metadata = InstallationMetadata.loadInstallation(base)) {
+            final SavedState state = metadata.getRevisions().get(0);
+
+            try (final InstallationMetadata savedState = metadata.getSavedState(state)) {
+                assertThat(savedState.getProsperoConfig().getChannels())
+                        .map(Channel::getName)
+                        .containsExactly("test");
+                assertThatThrownBy(savedState::getRevisions)
+                        .isInstanceOf(IllegalStateException.class);
+            }
+        }
+    }
+
+    @Test
+    public void loadInstallationReadsOnlyAccessedFiles() throws Exception {
+        // start the history
+        InstallationMetadata.loadInstallation(base).close();
+        Files.writeString(base.resolve(ProsperoMetadataUtils.METADATA_DIR).resolve(ProsperoMetadataUtils.CURRENT_VERSION_FILE),
+                "not: [valid");
+        Files.createDirectory(base.resolve(Constants.PROVISIONED_STATE_DIR));
+        Files.writeString(base.resolve(Constants.PROVISIONED_STATE_DIR).resolve(Constants.PROVISIONING_XML),
+                "<installation");
+
+        try (final InstallationMetadata metadata = InstallationMetadata.loadInstallation(base)) {
+            assertThat(metadata.getProsperoConfig().getChannels())
+                    .map(Channel::getName)
+                    .containsExactly("test");
+
+            assertThatThrownBy(metadata::getGalleonProvisioningConfig)
+                    .isInstanceOf(UncheckedMetadataException.class)
+                    .hasCauseInstanceOf(MetadataException.class);
+            assertThatThrownBy(metadata::getManifestVersions)
+                    .isInstanceOf(UncheckedMetadataException.class);
+        }
+    }
+
     private static Channel createChannel(ChannelManifestCoordinate manifestCoordinate) {
         Channel channel = new Channel("test", null, null,
                 List.of(new Repository("test", "file://foo.bar")),
@@ -25,6 +25,7 @@ import java.nio.file.Path;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class MavenOptionsTest {
@@ -137,6 +138,21 @@ public class MavenOptionsTest {
         assertEquals(Path.of("bar"), base.merge(override).getLocalCache());
     }
 
+    @Test
+    public void mergeUpdateSearchThreadsOverridePresent() throws Exception {
+        MavenOptions base = MavenOptions.builder()
+                .setUpdateSearchThreads(5)
+                .build();
+
+        MavenOptions override = MavenOptions.builder()
+                .setUpdateSearchThreads(20)
+                .build();
+
+        assertEquals(Integer.valueOf(20), base.merge(override).getUpdateSearchThreads());
+        assertEquals(Integer.valueOf(5), base.merge(MavenOptions.DEFAULT_OPTIONS).getUpdateSearchThreads());
+        assertNull(MavenOptions.DEFAULT_OPTIONS.merge(MavenOptions.DEFAULT_OPTIONS).getUpdateSearchThreads());
+    }
+
     @Test
     public void readWriteMavenOptionsContent() throws Exception {
         MavenOptions base = MavenOptions.DEFAULT_OPTIONS;
@@ -154,6 +170,13 @@ public class MavenOptionsTest {
                 .build();
         base.write(target);
         assertEquals(base, MavenOptions.read(target));
+        base = MavenOptions.builder()
+                .setOffline(false)
+                .setNoLocalCache(true)
+                .setUpdateSearchThreads(20)
+                .build();
+        base.write(target);
+        assertEquals(base, MavenOptions.read(target));
     }
 
 }
\ No newline at end of file
@@ -29,7 +29,10 @@ import org.wildfly.prospero.api.exceptions.InvalidRepositoryArchiveException;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
@@ -51,8 +54,24 @@ public class RepositoryUtilsTest {
 
         final List<Repository> repositories = applyOverride(List.of(repo("temp-0", zipFile.toUri().toString())));
 
-        assertThat(Path.of(new URL(repositories.get(0).getUrl()).toURI()).resolve("test.txt"))
-                .hasContent("test text");
+        assertThat(repositories.get(0).getUrl()).startsWith("jar:");
+        assertEquals("test text", readRepositoryFile(repositories.get(0), "test.txt"));
+    }
+
+    @Test
+    public void extractArchiveIfRequested() throws Exception {
+        final Path repoRoot = temp.newFolder("repo").toPath();
+        final Path zipFile = createRepository(repoRoot);
+
+        System.setProperty(RepositoryUtils.EXTRACT_ARCHIVES_PROPERTY, "true");
+        try {
+            final List<Repository> repositories = applyOverride(List.of(repo("temp-0", zipFile.toUri().toString())));
+
+            assertThat(Path.of(new URL(repositories.get(0).getUrl()).toURI()).resolve("test.txt"))
+                    .hasContent("test text");
+        } finally {
+            System.clearProperty(RepositoryUtils.EXTRACT_ARCHIVES_PROPERTY);
+        }
     }
 
     @Test
@@ -103,8 +122,7 @@ public class RepositoryUtilsTest {
 
             final List<Repository> repositories = applyOverride(List.of(repo("temp-0", "http://localhost:8888/test.zip")));
 
-            assertThat(Path.of(new URL(repositories.get(0).getUrl()).toURI()).resolve("test.txt"))
-                    .hasContent("test text");
+            assertEquals("test text", readRepositoryFile(repositories.get(0), "test.txt"));
         } finally {
             server.stop();
         }
@@ -175,6 +193,15 @@ public class RepositoryUtilsTest {
         return url;
     }
 
+    private static String readRepositoryFile(Repository repository, String name) throws IOException {
+        final URLConnection connection = new URL(new URL(repository.getUrl()), name).openConnection();
+        // don't keep the archive open after the test
+        connection.setUseCaches(false);
+        try (InputStream is = connection.getInputStream()) {
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
     private static Repository repo(String id, String url) {
         return new Repository(id, url);
     }
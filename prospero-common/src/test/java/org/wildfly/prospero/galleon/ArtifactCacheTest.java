@@ -27,6 +27,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -69,7 +71,7 @@ public class ArtifactCacheTest {
     public void testReadBadlyFormattedFile() throws Exception {
         Path newFolder = temp.newFolder().toPath();
         Files.createDirectories(newFolder.resolve(ArtifactCache.CACHE_FOLDER));
-        Files.writeString(newFolder.resolve(ArtifactCache.CACHE_FOLDER).resolve(ArtifactCache.CACHE_FILENAME),"badformat");
+        Files.writeString(newFolder.resolve(ArtifactCache.CACHE_FOLDER).resolve(ArtifactCache.CACHE_FILENAME),"badformat\n");
 
         assertThatThrownBy(() -> ArtifactCache.getInstance(newFolder))
                 .isInstanceOf(IOException.class)
@@ -99,12 +101,107 @@ public class ArtifactCacheTest {
         cache.record(otherArtifact, installationDir.resolve("target2.jar"));
         cache.record(anArtifact, installationDir.resolve("target3.jar"));
 
+        // the records are appended, the last record of the artifact wins
+        final List<String> lines = Files.readAllLines(installationDir.resolve(ArtifactCache.CACHE_FOLDER).resolve(ArtifactCache.CACHE_FILENAME));
+        assertEquals(3, lines.size());
+        assertThat(lines.get(2))
+                .startsWith(GROUP_ID + ":" + ARTIFACT_ID)
+                .contains("target3.jar");
+
+        Files.copy(anArtifact.getFile().toPath(), installationDir.resolve("target3.jar"));
+        ArtifactCache.cleanInstancesCache();
+        final Optional<File> cachedArtifact = ArtifactCache.getInstance(installationDir)
+                .getArtifact(GROUP_ID, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION);
+        assertThat(cachedArtifact)
+                .contains(installationDir.resolve("target3.jar").toFile());
+    }
+
+    @Test
+    public void recordCompactsDescriptorWhenTooManyRecordsAreSuperseded() throws Exception {
+        for (int i = 0; i <= ArtifactCache.COMPACTION_THRESHOLD; i++) {
+            cache.record(anArtifact, installationDir.resolve("target" + i + ".jar"));
+        }
+
         final List<String> lines = Files.readAllLines(installationDir.resolve(ArtifactCache.CACHE_FOLDER).resolve(ArtifactCache.CACHE_FILENAME));
-        assertEquals(2, lines.size());
         assertThat(lines)
-                .allMatch(l->l.startsWith(GROUP_ID + ":" + ARTIFACT_ID) || l.startsWith(GROUP_ID + "Two" + ":" + ARTIFACT_ID))
-                .allMatch(l -> l.contains("target2.jar") || l.contains("target3.jar"))
-                .doesNotHaveDuplicates();
+                .hasSize(1)
+                .allMatch(l -> l.contains("target" + ArtifactCache.COMPACTION_THRESHOLD + ".jar"));
+    }
+
+    @Test
+    public void recordAllWritesSortedDescriptorWithoutDuplicates() throws Exception {
+        cache.record(otherArtifact, installationDir.resolve("target.jar"));
+        final Path first = Files.copy(anArtifact.getFile().toPath(), installationDir.resolve("test.jar"));
+        final Path second = Files.copy(otherArtifact.getFile().toPath(), installationDir.resolve("testTwo.jar"));
+
+        cache.recordAll(List.of(
+                new MavenArtifact(otherArtifact.getGroupId(), ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION, second.toFile()),
+                new MavenArtifact(GROUP_ID, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION, first.toFile())));
+
+        final List<String> lines = Files.readAllLines(installationDir.resolve(ArtifactCache.CACHE_FOLDER).resolve(ArtifactCache.CACHE_FILENAME));
+        assertEquals(2, lines.size());
+        assertThat(lines.get(0))
+                .startsWith(GROUP_ID + ":" + ARTIFACT_ID)
+                .contains("::test.jar");
+        assertThat(lines.get(1))
+                .startsWith(otherArtifact.getGroupId() + ":" + ARTIFACT_ID)
+                .contains("::testTwo.jar");
+        assertThat(installationDir.resolve(ArtifactCache.CACHE_FOLDER).toFile().list())
+                .containsExactly(ArtifactCache.CACHE_FILENAME);
+    }
+
+    @Test
+    public void readDescriptorWithDuplicatedRecords() throws Exception {
+        final Path newFolder = temp.newFolder().toPath();
+        Files.createDirectories(newFolder.resolve(ArtifactCache.CACHE_FOLDER));
+        Files.copy(anArtifact.getFile().toPath(), newFolder.resolve("target.jar"));
+        final String hash = org.jboss.galleon.util.HashUtils.hashFile(anArtifact.getFile().toPath());
+        final String gav = String.join(":", GROUP_ID, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION);
+        Files.writeString(newFolder.resolve(ArtifactCache.CACHE_FOLDER).resolve(ArtifactCache.CACHE_FILENAME),
+                gav + "::abcd::foo/bar\n" + gav + "::" + hash + "::target.jar\n");
+
+        final Optional<File> cachedArtifact = ArtifactCache.getInstance(newFolder)
+                .getArtifact(GROUP_ID, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION);
+
+        assertThat(cachedArtifact)
+                .contains(newFolder.resolve("target.jar").toFile());
+    }
+
+    @Test
+    public void incompleteLastRecordIsIgnoredAndRemovedOnNextWrite() throws Exception {
+        final Path newFolder = temp.newFolder().toPath();
+        Files.createDirectories(newFolder.resolve(ArtifactCache.CACHE_FOLDER));
+        Files.copy(anArtifact.getFile().toPath(), newFolder.resolve("target.jar"));
+        final String hash = org.jboss.galleon.util.HashUtils.hashFile(anArtifact.getFile().toPath());
+        final String gav = String.join(":", GROUP_ID, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION);
+        final Path cacheList = newFolder.resolve(ArtifactCache.CACHE_FOLDER).resolve(ArtifactCache.CACHE_FILENAME);
+        // the write of the second record has been interrupted
+        Files.writeString(cacheList, gav + "::" + hash + "::target.jar\n" + GROUP_ID + "Two:" + ARTIFACT_ID + "::");
+
+        final ArtifactCache cache = ArtifactCache.getInstance(newFolder);
+        assertThat(cache.getArtifact(GROUP_ID, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION))
+                .contains(newFolder.resolve("target.jar").toFile());
+
+        cache.record(otherArtifact, newFolder.resolve("target2.jar"));
+
+        assertThat(Files.readAllLines(cacheList))
+                .hasSize(2)
+                .allMatch(l -> l.split("::").length >= 3);
+        ArtifactCache.cleanInstancesCache();
+        assertThat(ArtifactCache.getInstance(newFolder).getArtifact(GROUP_ID, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION))
+                .contains(newFolder.resolve("target.jar").toFile());
+    }
+
+    @Test
+    public void descriptorIsReloadedWhenReplacedExternally() throws Exception {
+        cache.cache(anArtifact);
+        final Path cacheList = installationDir.resolve(ArtifactCache.CACHE_FOLDER).resolve(ArtifactCache.CACHE_FILENAME);
+        Files.delete(cacheList);
+        Files.writeString(cacheList, "");
+
+        final Optional<File> cachedArtifact = cache.getArtifact(GROUP_ID, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION);
+
+        assertEquals(Optional.empty(), cachedArtifact);
     }
 
     @Test
@@ -153,10 +250,49 @@ public class ArtifactCacheTest {
     }
 
     @Test
-    public void cacheRecordsArtifactsInAlphabeticOrder() throws Exception {
-        cache.cache(otherArtifact);
+    public void cacheRecordsFileAttributes() throws Exception {
         cache.cache(anArtifact);
 
+        final List<String> line = Files.readAllLines(installationDir.resolve(ArtifactCache.CACHE_FOLDER).resolve(ArtifactCache.CACHE_FILENAME));
+        final String[] segments = line.get(0).split(ArtifactCache.CACHE_LINE_SEPARATOR);
+        assertThat(segments.length).isGreaterThanOrEqualTo(5);
+        assertEquals(Files.size(anArtifact.getFile().toPath()), Long.parseLong(segments[3]));
+    }
+
+    @Test
+    public void getArtifactDoesntRehashFileIfAttributesMatch() throws Exception {
+        Files.writeString(anArtifact.getFile().toPath(), "content");
+        cache.cache(anArtifact);
+        final Path cachedFile = installationDir.resolve(ArtifactCache.CACHE_FOLDER).resolve(anArtifact.getFile().getName());
+        final FileTime lastModified = Files.getLastModifiedTime(cachedFile);
+        // change the content without changing size or the modification time
+        Files.writeString(cachedFile, "CONTENT");
+        Files.setLastModifiedTime(cachedFile, lastModified);
+
+        assertThat(cache.getArtifact(GROUP_ID, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION))
+                .contains(cachedFile.toFile());
+
+        cache.setAlwaysVerifyHashes(true);
+        assertEquals(Optional.empty(), cache.getArtifact(GROUP_ID, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION));
+    }
+
+    @Test
+    public void getArtifactVerifiesHashOfRecordWithoutAttributes() throws Exception {
+        final Path newFolder = temp.newFolder().toPath();
+        Files.createDirectories(newFolder.resolve(ArtifactCache.CACHE_FOLDER));
+        Files.writeString(newFolder.resolve("target.jar"), "content");
+        final String gav = String.join(":", GROUP_ID, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION);
+        Files.writeString(newFolder.resolve(ArtifactCache.CACHE_FOLDER).resolve(ArtifactCache.CACHE_FILENAME),
+                gav + "::abcd::target.jar\n");
+
+        assertEquals(Optional.empty(), ArtifactCache.getInstance(newFolder)
+                .getArtifact(GROUP_ID, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION));
+    }
+
+    @Test
+    public void cacheRecordsArtifactsInAlphabeticOrder() throws Exception {
+        cache.cacheAll(List.of(otherArtifact, anArtifact));
+
         final List<String> line = Files.readAllLines(installationDir.resolve(ArtifactCache.CACHE_FOLDER).resolve(ArtifactCache.CACHE_FILENAME));
         assertEquals(2, line.size());
         assertThat(line.get(0))
@@ -164,4 +300,25 @@ public class ArtifactCacheTest {
         assertThat(line.get(1))
                 .contains(otherArtifact.getGroupId() + ":" + ARTIFACT_ID);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void cacheAllCopiesAndRecordsEveryArtifact() throws Exception {
+        final List<MavenArtifact> artifacts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final File file = temp.newFile("artifact-" + i + ".jar");
+            Files.writeString(file.toPath(), "content-" + i);
+            artifacts.add(new MavenArtifact(GROUP_ID + i, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION, file));
+        }
+
+        cache.cacheAll(artifacts);
+
+        final ArtifactCache reloaded = ArtifactCache.getInstance(installationDir);
+        for (int i = 0; i < 20; i++) {
+            final Optional<File> cached = reloaded.getArtifact(GROUP_ID + i, ARTIFACT_ID, EXTENSION, CLASSIFIER, VERSION);
+            assertThat(cached)
+                    .hasValueSatisfying(f -> assertThat(f.toPath().getParent())
+                            .isEqualTo(installationDir.resolve(ArtifactCache.CACHE_FOLDER)));
+            assertThat(cached.get()).hasContent("content-" + i);
+        }
+    }
+}
@@ -20,19 +20,33 @@ package org.wildfly.prospero.galleon;
 import org.jboss.galleon.universe.maven.MavenArtifact;
 import org.jboss.galleon.universe.maven.MavenUniverseException;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.wildfly.channel.ArtifactTransferException;
 import org.wildfly.channel.ChannelSession;
+import org.wildfly.channel.NoStreamFoundException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ChannelMavenArtifactRepositoryManagerTest {
 
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
     @Mock
     private ChannelSession session;
 
@@ -57,4 +71,33 @@ public class ChannelMavenArtifactRepositoryManagerTest {
         artifact.setExtension("zip");
         assertThrows(MavenUniverseException.class, ()->repositoryManager.resolve(artifact));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void featurePackResolutionPolicyIsReadOnlyOnce() throws Exception {
+        final File featurePack = temp.newFile("bar-1.0.0.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(featurePack))) {
+            zip.putNextEntry(new ZipEntry("feature-pack.xml"));
+            zip.write("<feature-pack/>".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("resources/wildfly/wildfly-channel.properties"));
+            zip.write("resolution=REQUIRED".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        when(session.resolveMavenArtifact("foo", "bar", "zip", "", null))
+                .thenThrow(NoStreamFoundException.class);
+        when(session.resolveDirectMavenArtifact("foo", "bar", "zip", "", "1.0.0"))
+                .thenReturn(new org.wildfly.channel.MavenArtifact("foo", "bar", "zip", "", "1.0.0", featurePack));
+
+        final MavenArtifact artifact = new MavenArtifact();
+        artifact.setGroupId("foo");
+        artifact.setArtifactId("bar");
+        artifact.setVersion("1.0.0");
+        artifact.setExtension("zip");
+
+        // the feature pack requires channel resolution, so it cannot fall back to the direct resolution
+        assertThrows(MavenUniverseException.class, ()->repositoryManager.resolve(artifact));
+        assertThrows(MavenUniverseException.class, ()->repositoryManager.resolve(artifact));
+
+        verify(session, times(1)).resolveDirectMavenArtifact("foo", "bar", "zip", "", "1.0.0");
+    }
+}
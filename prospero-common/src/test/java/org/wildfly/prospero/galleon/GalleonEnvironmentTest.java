@@ -51,6 +51,7 @@ import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
@@ -83,6 +84,27 @@ public class GalleonEnvironmentTest {
             GalleonEnvironment.builder(temp.newFolder().toPath(), List.of(build), msm, true).build());
     }
 
+    @Test
+    public void reuseResolutionContextOfAnotherEnvironment() throws Exception {
+        final File manifest = temp.newFile();
+        Files.writeString(manifest.toPath(), ChannelManifestMapper.toYaml(new ChannelManifest("test", null, null, Collections.emptyList())));
+        final Channel channel = new Channel.Builder()
+                .setName("test")
+                .setManifestUrl(manifest.toURI().toURL())
+                .build();
+        when(msm.newRepositorySystemSession(any())).thenReturn(session);
+        when(msm.newRepositorySystem()).thenReturn(system);
+
+        try (GalleonEnvironment first = GalleonEnvironment.builder(temp.newFolder().toPath(), List.of(channel), msm, true).build();
+             GalleonEnvironment second = GalleonEnvironment.builder(temp.newFolder().toPath(), List.of(channel), msm, true)
+                     .setResolutionContext(first.getResolutionContext())
+                     .build()) {
+            assertThat(second.getChannelSession()).isSameAs(first.getChannelSession());
+            assertThat(second.getResolutionContext()).isSameAs(first.getResolutionContext());
+        }
+        verify(msm, times(1)).newRepositorySystemSession(any());
+    }
+
     @Test
     public void populateMavenCacheWithRevertManifests_EmptyManifests_DoesNothing() throws Exception {
         when(msm.newRepositorySystemSession(any())).thenReturn(session);
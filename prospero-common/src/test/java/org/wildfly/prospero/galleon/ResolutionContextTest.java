@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.galleon;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.wildfly.channel.spi.MavenVersionsResolver;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ResolutionContextTest {
+
+    @Mock
+    private MavenVersionsResolver.Factory factory;
+
+    @Mock
+    private MavenVersionsResolver resolver;
+
+    @Test
+    public void versionsAreListedOncePerArtifact() throws Exception {
+        when(factory.create(any())).thenReturn(resolver);
+        when(resolver.getAllVersions("org.test", "test", "jar", null)).thenReturn(new HashSet<>(Set.of("1.0.0", "1.0.1")));
+        when(resolver.getAllVersions("org.test", "other", "jar", null)).thenReturn(new HashSet<>(Set.of("2.0.0")));
+
+        final MavenVersionsResolver remembering = ResolutionContext.rememberingVersions(factory).create(Collections.emptyList());
+
+        assertThat(remembering.getAllVersions("org.test", "test", "jar", null)).containsExactlyInAnyOrder("1.0.0", "1.0.1");
+        // modifying the result doesn't change the remembered versions
+        remembering.getAllVersions("org.test", "test", "jar", null).clear();
+        assertThat(remembering.getAllVersions("org.test", "test", "jar", null)).containsExactlyInAnyOrder("1.0.0", "1.0.1");
+        assertThat(remembering.getAllVersions("org.test", "other", "jar", null)).containsExactly("2.0.0");
+
+        verify(resolver, times(1)).getAllVersions("org.test", "test", "jar", null);
+        verify(resolver, times(1)).getAllVersions("org.test", "other", "jar", null);
+    }
+}
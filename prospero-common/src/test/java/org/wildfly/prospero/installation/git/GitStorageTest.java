@@ -20,6 +20,7 @@ package org.wildfly.prospero.installation.git;
 import org.apache.commons.io.FileUtils;
 import org.assertj.core.api.iterable.ThrowingExtractor;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.treewalk.TreeWalk;
@@ -49,6 +50,7 @@ import org.wildfly.channel.Stream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -738,6 +740,239 @@ public class GitStorageTest {
                         new FeatureChange(FEATURE, "org.test:feature-four:zip", Diff.Status.ADDED));
     }
 
+    @Test
+    public void historyIsIndexedWhenChangesAreRecorded() throws Exception {
+        final List<SavedState> revisions;
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            setArtifact(manifest, "org.test:test:1.2.3");
+            gitStorage.record();
+            setArtifact(manifest, "org.test:test:1.2.4");
+            gitStorage.record();
+            generateProsperoConfig(List.of(A_CHANNEL));
+            gitStorage.recordConfigChange();
+
+            revisions = gitStorage.getRevisions();
+        }
+
+        assertThat(base.resolve(".git").resolve(HistoryIndex.INDEX_FILE_NAME))
+                .exists();
+        // header and three records
+        assertThat(Files.readAllLines(base.resolve(".git").resolve(HistoryIndex.INDEX_FILE_NAME)))
+                .hasSize(4);
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            assertThat(gitStorage.getRevisions())
+                    .containsExactlyElementsOf(revisions)
+                    .map(SavedState::getType)
+                    .containsExactly(SavedState.Type.CONFIG_CHANGE, SavedState.Type.UPDATE, SavedState.Type.INSTALL);
+        }
+    }
+
+    @Test
+    public void historyIndexIsRebuiltIfItCannotBeRead() throws Exception {
+        final List<SavedState> revisions;
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            setArtifact(manifest, "org.test:test:1.2.3");
+            gitStorage.record();
+            setArtifact(manifest, "org.test:test:1.2.4");
+            gitStorage.record();
+
+            revisions = gitStorage.getRevisions();
+        }
+
+        Files.writeString(base.resolve(".git").resolve(HistoryIndex.INDEX_FILE_NAME), "{\"id\":\"abc");
+
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            assertThat(gitStorage.getRevisions())
+                    .containsExactlyElementsOf(revisions);
+        }
+    }
+
+    @Test
+    public void historyIndexIsNotDuplicatedByConcurrentWriters() throws Exception {
+        try (GitStorage first = new GitStorage(base.getParent());
+             GitStorage second = new GitStorage(base.getParent())) {
+            setArtifact(manifest, "org.test:test:1.2.3");
+            first.record();
+            assertThat(second.getRevisions()).hasSize(1);
+
+            setArtifact(manifest, "org.test:test:1.2.4");
+            first.record();
+            setArtifact(manifest, "org.test:test:1.2.5");
+            second.record();
+
+            assertThat(second.getRevisions()).hasSize(3);
+        }
+
+        assertThat(Files.readAllLines(base.resolve(".git").resolve(HistoryIndex.INDEX_FILE_NAME)))
+                .hasSize(4)
+                .doesNotHaveDuplicates();
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            assertThat(gitStorage.getRevisions())
+                    .map(SavedState::getType)
+                    .containsExactly(SavedState.Type.UPDATE, SavedState.Type.UPDATE, SavedState.Type.INSTALL);
+        }
+    }
+
+    @Test
+    public void recordedChangesAreAppendedToHistoryIndex() throws Exception {
+        final Path indexFile = base.resolve(".git").resolve(HistoryIndex.INDEX_FILE_NAME);
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            setArtifact(manifest, "org.test:test:1.2.3");
+            gitStorage.record();
+            setArtifact(manifest, "org.test:test:1.2.4");
+            gitStorage.record();
+        }
+        final List<String> lines = Files.readAllLines(indexFile);
+        final Object fileKey = Files.readAttributes(indexFile, BasicFileAttributes.class).fileKey();
+
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            setArtifact(manifest, "org.test:test:1.2.5");
+            gitStorage.record();
+        }
+
+        assertThat(Files.readAllLines(indexFile))
+                .hasSize(4)
+                .startsWith(lines.get(0), lines.get(1), lines.get(2));
+        // the existing records are not rewritten
+        assertEquals(fileKey, Files.readAttributes(indexFile, BasicFileAttributes.class).fileKey());
+    }
+
+    @Test
+    public void historyIndexIsRebuiltIfLastRecordIsIncomplete() throws Exception {
+        final Path indexFile = base.resolve(".git").resolve(HistoryIndex.INDEX_FILE_NAME);
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            setArtifact(manifest, "org.test:test:1.2.3");
+            gitStorage.record();
+        }
+        Files.writeString(indexFile, "{\"id\":\"abc", StandardOpenOption.APPEND);
+
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            setArtifact(manifest, "org.test:test:1.2.4");
+            gitStorage.record();
+            assertThat(gitStorage.getRevisions()).hasSize(2);
+        }
+
+        assertThat(Files.readAllLines(indexFile))
+                .hasSize(3)
+                .doesNotContain("{\"id\":\"abc");
+    }
+
+    @Test
+    public void historyCanBeReadFromReadOnlyRepository() throws Exception {
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            setArtifact(manifest, "org.test:test:1.2.3");
+            gitStorage.record();
+            setArtifact(manifest, "org.test:test:1.2.4");
+            gitStorage.record();
+        }
+        final Path gitDir = base.resolve(".git");
+        Files.delete(gitDir.resolve(HistoryIndex.INDEX_FILE_NAME));
+
+        assertTrue(gitDir.toFile().setWritable(false));
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            assertThat(gitStorage.getRevisions())
+                    .map(SavedState::getType)
+                    .containsExactly(SavedState.Type.UPDATE, SavedState.Type.INSTALL);
+        } finally {
+            gitDir.toFile().setWritable(true);
+        }
+    }
+
+    @Test
+    public void historyIndexIsRebuiltIfWrittenInDifferentFormat() throws Exception {
+        final Path indexFile = base.resolve(".git").resolve(HistoryIndex.INDEX_FILE_NAME);
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            setArtifact(manifest, "org.test:test:1.2.3");
+            gitStorage.record();
+        }
+        final List<String> lines = Files.readAllLines(indexFile);
+        Files.write(indexFile, List.of("{\"format\":\"0\"}", lines.get(1)));
+
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            setArtifact(manifest, "org.test:test:1.2.4");
+            gitStorage.record();
+            assertThat(gitStorage.getRevisions())
+                    .map(SavedState::getType)
+                    .containsExactly(SavedState.Type.UPDATE, SavedState.Type.INSTALL);
+        }
+
+        assertThat(Files.readAllLines(indexFile))
+                .hasSize(3)
+                .startsWith(lines.get(0), lines.get(1));
+    }
+
+    @Test
+    public void changesAreRecordedIfHistoryIndexCannotBeWritten() throws Exception {
+        // the index can't replace a non-empty directory, even if the tests run with elevated permissions
+        final Path indexPath = base.resolve(".git").resolve(HistoryIndex.INDEX_FILE_NAME);
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            Files.createDirectory(indexPath);
+            Files.createFile(indexPath.resolve("test"));
+
+            setArtifact(manifest, "org.test:test:1.2.3");
+            gitStorage.record();
+            setArtifact(manifest, "org.test:test:1.2.4");
+            gitStorage.record();
+
+            assertThat(gitStorage.getRevisions())
+                    .map(SavedState::getType)
+                    .containsExactly(SavedState.Type.UPDATE, SavedState.Type.INSTALL);
+        }
+        assertTrue(Files.isDirectory(indexPath));
+    }
+
+    @Test
+    public void historyIndexIsRebuiltIfRecordsDontFormChain() throws Exception {
+        final List<SavedState> revisions;
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            setArtifact(manifest, "org.test:test:1.2.3");
+            gitStorage.record();
+            setArtifact(manifest, "org.test:test:1.2.4");
+            gitStorage.record();
+
+            revisions = gitStorage.getRevisions();
+        }
+
+        final Path indexFile = base.resolve(".git").resolve(HistoryIndex.INDEX_FILE_NAME);
+        final List<String> lines = Files.readAllLines(indexFile);
+        Files.write(indexFile, List.of(lines.get(0), lines.get(1), lines.get(2), lines.get(2)));
+
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            assertThat(gitStorage.getRevisions())
+                    .containsExactlyElementsOf(revisions);
+        }
+        assertThat(Files.readAllLines(indexFile))
+                .containsExactlyElementsOf(lines);
+    }
+
+    @Test
+    public void historyIndexFollowsChangesMadeOutsideOfStorage() throws Exception {
+        try (GitStorage gitStorage = new GitStorage(base.getParent())) {
+            setArtifact(manifest, "org.test:test:1.2.3");
+            gitStorage.record();
+            setArtifact(manifest, "org.test:test:1.2.4");
+            gitStorage.record();
+            setArtifact(manifest, "org.test:test:1.2.5");
+            gitStorage.record();
+            final List<SavedState> revisions = gitStorage.getRevisions();
+            assertThat(revisions).hasSize(3);
+
+            try (Git git = Git.open(base.resolve(".git").toFile())) {
+                git.reset().setRef("HEAD~1").setMode(ResetCommand.ResetType.HARD).call();
+            }
+            assertThat(gitStorage.getRevisions())
+                    .containsExactlyElementsOf(revisions.subList(1, 3));
+
+            try (Git git = Git.open(base.resolve(".git").toFile())) {
+                git.commit().setAllowEmpty(true).setMessage(SavedState.Type.INTERNAL_UPDATE.name()).call();
+            }
+            assertThat(gitStorage.getRevisions())
+                    .hasSize(3)
+                    .map(SavedState::getType)
+                    .containsExactly(SavedState.Type.INTERNAL_UPDATE, SavedState.Type.UPDATE, SavedState.Type.INSTALL);
+        }
+    }
+
     private HashSet<String> getPathsInCommit() throws IOException, GitAPIException {
         final Git git = Git.open(base.resolve(".git").toFile());
         HashSet<String> paths = new HashSet<>();
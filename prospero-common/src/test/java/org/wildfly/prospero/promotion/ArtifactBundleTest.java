@@ -17,6 +17,7 @@
 
 package org.wildfly.prospero.promotion;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.eclipse.aether.artifact.DefaultArtifact;
 import org.junit.Rule;
 import org.junit.Test;
@@ -24,7 +25,6 @@ import org.junit.rules.TemporaryFolder;
 import org.wildfly.channel.ArtifactCoordinate;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
 
@@ -47,19 +47,19 @@ public class ArtifactBundleTest {
             assertThat(archive.getArtifactList()).containsOnly(
                     new ArtifactCoordinate("foo.bar", "test", "", "", "1.2.3")
             );
-            assertTrue(Files.exists(archive.getRepository().resolve(Paths.get("foo/bar/test/1.2.3/test-1.2.3.jar"))));
+            assertTrue(Files.exists(archive.getRepository().resolve("foo/bar/test/1.2.3/test-1.2.3.jar")));
         }
     }
 
     @Test
-    public void removeTemporaryFolderOnClose() throws Exception {
+    public void closeArchiveOnClose() throws Exception {
         final Path archiveFile = createCustomizationArchive();
 
-        final Path parent;
+        final Path repository;
         try (final ArtifactBundle archive = ArtifactBundle.extract(archiveFile)) {
-            parent = archive.getRepository().getParent();
+            repository = archive.getRepository();
         }
-        assertFalse(Files.exists(parent));
+        assertFalse(repository.getFileSystem().isOpen());
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -80,8 +80,28 @@ public class ArtifactBundleTest {
                     new ArtifactCoordinate("foo.bar", "test", "", "", "1.2.3"),
                     new ArtifactCoordinate("foo.bar", "test2", "", "", "1.2.3")
             );
-            assertTrue(Files.exists(archive.getRepository().resolve(Paths.get("foo/bar/test/1.2.3/test-1.2.3.jar"))));
-            assertTrue(Files.exists(archive.getRepository().resolve(Paths.get("foo/bar/test2/1.2.3/test2-1.2.3.jar"))));
+            assertTrue(Files.exists(archive.getRepository().resolve("foo/bar/test/1.2.3/test-1.2.3.jar")));
+            assertTrue(Files.exists(archive.getRepository().resolve("foo/bar/test2/1.2.3/test2-1.2.3.jar")));
+        }
+    }
+
+    @Test
+    public void createBundleWithChecksums() throws Exception {
+        final Path jar = temp.newFile("test-1.2.3.jar").toPath();
+        final Path sources = temp.newFile("test-1.2.3-sources.jar").toPath();
+        Files.writeString(jar, "jar content");
+        Files.writeString(sources, "sources content");
+        final DefaultArtifact testArtifact = new DefaultArtifact("foo.bar", "test", null, "jar", "1.2.3", null, jar.toFile());
+        final DefaultArtifact testSources = new DefaultArtifact("foo.bar", "test", "sources", "jar", "1.2.3", null, sources.toFile());
+        final Path archiveFile = ArtifactBundle.createCustomizationArchive(List.of(testArtifact, testSources), temp.newFile("archive.zip"));
+
+        try (final ArtifactBundle archive = ArtifactBundle.extract(archiveFile)) {
+            final Path versionDir = archive.getRepository().resolve("foo/bar/test/1.2.3");
+            assertThat(versionDir.resolve("test-1.2.3.jar")).hasContent("jar content");
+            assertThat(versionDir.resolve("test-1.2.3.jar.md5")).hasContent(DigestUtils.md5Hex("jar content"));
+            assertThat(versionDir.resolve("test-1.2.3.jar.sha1")).hasContent(DigestUtils.sha1Hex("jar content"));
+            assertThat(versionDir.resolve("test-1.2.3-sources.jar")).hasContent("sources content");
+            assertThat(versionDir.resolve("test-1.2.3-sources.jar.sha1")).hasContent(DigestUtils.sha1Hex("sources content"));
         }
     }
 
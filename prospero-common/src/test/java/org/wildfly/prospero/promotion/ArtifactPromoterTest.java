@@ -42,7 +42,10 @@ import org.wildfly.channel.maven.ChannelCoordinate;
 import org.wildfly.channel.maven.VersionResolverFactory;
 import org.wildfly.channel.spi.MavenVersionsResolver;
 import org.wildfly.channel.version.VersionMatcher;
+import org.mockito.ArgumentCaptor;
+import org.wildfly.prospero.api.Console;
 import org.wildfly.prospero.api.MavenOptions;
+import org.wildfly.prospero.api.ProvisioningProgressEvent;
 import org.wildfly.prospero.wfchannel.MavenSessionManager;
 
 import java.io.File;
@@ -56,9 +59,14 @@ import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class ArtifactPromoterTest {
 
@@ -116,6 +124,74 @@ public class ArtifactPromoterTest {
         assertStreamMatches("stream", "one", "1.2.3", channelGa);
     }
 
+    @Test
+    public void testPromoteArtifactsInBatches() throws Exception {
+        final List<CustomArtifact> artifacts = List.of(
+                new CustomArtifact("foo", "one", null, "jar", "1.2.3"),
+                new CustomArtifact("foo", "two", null, "jar", "1.2.3"),
+                new CustomArtifact("foo", "three", null, "jar", "1.2.3"));
+        for (CustomArtifact artifact : artifacts) {
+            mockDeployArtifact(artifact, sourceRepositoryPath);
+        }
+        final Console console = mock(Console.class);
+
+        final ChannelCoordinate channelGa = new ChannelCoordinate("test", "channel");
+        System.setProperty(ArtifactPromoter.BATCH_SIZE_PROPERTY, "2");
+        try {
+            new ArtifactPromoter(system, session, targetRepository, console)
+                    .promote(new CustomArtifactList(artifacts).getArtifactCoordinates(), channelGa, sourceRepository);
+        } finally {
+            System.clearProperty(ArtifactPromoter.BATCH_SIZE_PROPERTY);
+        }
+
+        for (CustomArtifact artifact : artifacts) {
+            assertArtifactInRepository(artifact);
+            assertStreamMatches(artifact.getGroupId(), artifact.getArtifactId(), "1.2.3", channelGa);
+        }
+        final ArgumentCaptor<ProvisioningProgressEvent> events = ArgumentCaptor.forClass(ProvisioningProgressEvent.class);
+        verify(console, times(8)).progressUpdate(events.capture());
+        assertThat(events.getAllValues())
+                .extracting(ProvisioningProgressEvent::getStage, ProvisioningProgressEvent::getEventType, ProvisioningProgressEvent::getCompleted)
+                .containsExactly(
+                        tuple(ArtifactPromoter.TRACK_PROMOTE_ARTIFACTS, ProvisioningProgressEvent.EventType.STARTING, 0L),
+                        tuple(ArtifactPromoter.TRACK_PROMOTE_ARTIFACTS, ProvisioningProgressEvent.EventType.UPDATE, 1L),
+                        tuple(ArtifactPromoter.TRACK_PROMOTE_ARTIFACTS, ProvisioningProgressEvent.EventType.UPDATE, 2L),
+                        tuple(ArtifactPromoter.TRACK_PROMOTE_ARTIFACTS, ProvisioningProgressEvent.EventType.UPDATE, 3L),
+                        tuple(ArtifactPromoter.TRACK_PROMOTE_ARTIFACTS, ProvisioningProgressEvent.EventType.UPDATE, 4L),
+                        tuple(ArtifactPromoter.TRACK_PROMOTE_ARTIFACTS, ProvisioningProgressEvent.EventType.UPDATE, 5L),
+                        tuple(ArtifactPromoter.TRACK_PROMOTE_ARTIFACTS, ProvisioningProgressEvent.EventType.UPDATE, 6L),
+                        tuple(ArtifactPromoter.TRACK_PROMOTE_ARTIFACTS, ProvisioningProgressEvent.EventType.COMPLETED, 6L));
+        assertThat(events.getAllValues()).extracting(ProvisioningProgressEvent::getTotal).containsOnly(6L);
+    }
+
+    @Test
+    public void testNothingIsPromotedIfLaterBatchFailsToResolve() throws Exception {
+        final List<CustomArtifact> artifacts = List.of(
+                new CustomArtifact("foo", "one", null, "jar", "1.2.3"),
+                new CustomArtifact("foo", "two", null, "jar", "1.2.3"),
+                new CustomArtifact("foo", "three", null, "jar", "1.2.3"));
+        mockDeployArtifact(artifacts.get(0), sourceRepositoryPath);
+        mockDeployArtifact(artifacts.get(1), sourceRepositoryPath);
+
+        final ChannelCoordinate channelGa = new ChannelCoordinate("test", "channel");
+        System.setProperty(ArtifactPromoter.BATCH_SIZE_PROPERTY, "1");
+        try {
+            promote(new CustomArtifactList(artifacts), channelGa);
+            fail("Should fail to resolve non-existing artifact");
+        } catch (ArtifactResolutionException e) {
+            assertThat(e.getResults())
+                    .extracting(r -> r.getRequest().getArtifact().getArtifactId())
+                    .containsExactly("three");
+        } finally {
+            System.clearProperty(ArtifactPromoter.BATCH_SIZE_PROPERTY);
+        }
+
+        for (CustomArtifact artifact : artifacts) {
+            assertFalse(Files.exists(artifactPath(artifact, targetRepositoryPath)));
+        }
+        assertChannelFileNotCreated(channelGa);
+    }
+
     private void mockDeployArtifact(CustomArtifact artifact, Path sourceRepositoryPath) throws IOException, ProvisioningException, DeploymentException {
         final MavenSessionManager msm = new MavenSessionManager();
         final RepositorySystem system = msm.newRepositorySystem();
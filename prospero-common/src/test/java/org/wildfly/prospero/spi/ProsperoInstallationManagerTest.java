@@ -24,7 +24,9 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.wildfly.channel.Channel;
+import org.wildfly.channel.ChannelManifest;
 import org.wildfly.channel.ChannelManifestCoordinate;
+import org.wildfly.channel.ChannelManifestMapper;
 import org.wildfly.channel.Repository;
 import org.wildfly.installationmanager.CandidateType;
 import org.wildfly.installationmanager.FileConflict;
@@ -35,8 +37,11 @@ import org.wildfly.prospero.actions.InstallationHistoryAction;
 import org.wildfly.prospero.actions.UpdateAction;
 import org.wildfly.prospero.api.ChannelChange;
 import org.wildfly.prospero.api.SavedState;
+import org.wildfly.prospero.api.exceptions.MetadataException;
+import org.wildfly.prospero.metadata.ProsperoMetadataUtils;
 import org.wildfly.prospero.updates.UpdateSet;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
@@ -287,4 +292,22 @@ public class ProsperoInstallationManagerTest {
                 .hasMessageContaining("has been modified after the candidate has been created");
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void invalidMetadataIsReportedAsMetadataException() throws Exception {
+        final Path installationDir = temp.newFolder().toPath();
+        final Path metadataDir = installationDir.resolve(ProsperoMetadataUtils.METADATA_DIR);
+        Files.createDirectories(metadataDir);
+        Files.writeString(metadataDir.resolve(ProsperoMetadataUtils.MANIFEST_FILE_NAME),
+                ChannelManifestMapper.toYaml(new ChannelManifest(null, null, null, Collections.emptyList())));
+        Files.writeString(metadataDir.resolve(ProsperoMetadataUtils.INSTALLER_CHANNELS_FILE_NAME), "not: [valid");
+        Files.writeString(metadataDir.resolve(ProsperoMetadataUtils.CURRENT_VERSION_FILE), "not: [valid");
+
+        final ProsperoInstallationManager mgr = new ProsperoInstallationManager(installationDir, new MavenOptions(null, true, true));
+
+        assertThatThrownBy(mgr::listChannels)
+                .isInstanceOf(MetadataException.class);
+        assertThatThrownBy(mgr::getInstalledVersions)
+                .isInstanceOf(MetadataException.class);
+    }
+}
@@ -19,28 +19,52 @@ package org.wildfly.prospero.updates;
 
 import org.eclipse.aether.artifact.Artifact;
 import org.eclipse.aether.artifact.DefaultArtifact;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.wildfly.channel.ArtifactTransferException;
+import org.wildfly.channel.Channel;
+import org.wildfly.channel.ChannelManifest;
+import org.wildfly.channel.ChannelManifestMapper;
 import org.wildfly.channel.ChannelSession;
+import org.wildfly.channel.Stream;
 import org.wildfly.channel.VersionResult;
+import org.wildfly.channel.spi.MavenVersionsResolver;
 import org.wildfly.prospero.api.ArtifactChange;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 import org.jboss.galleon.api.Provisioning;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SuppressWarnings("OptionalGetWithoutIsPresent")
 @RunWith(MockitoJUnitRunner.class)
 public class UpdateFinderTest {
 
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
     @Mock
     ChannelSession channelSession;
     @Mock
@@ -131,4 +155,107 @@ public class UpdateFinderTest {
         assertEquals("1.0.1", actualUpdate.getOldVersion().get());
         assertEquals("test-channel", actualUpdate.getChannelName().orElse(null));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void artifactsWithTheSameGaAreLookedUpOnce() throws Exception {
+        when(channelSession.findLatestMavenArtifactVersion("org.foo", "bar", "jar", "", null))
+                .thenReturn(new VersionResult("1.0.1", "test-channel"));
+
+        UpdateFinder finder = new UpdateFinder(channelSession);
+        final List<Artifact> artifacts = Arrays.asList(
+                new DefaultArtifact("org.foo", "bar", "jar", "1.0.0"),
+                new DefaultArtifact("org.foo", "bar", "sources", "jar", "1.0.0"),
+                new DefaultArtifact("org.foo", "bar", "natives", "zip", "1.0.1")
+        );
+        final UpdateSet updates = finder.findUpdates(artifacts);
+
+        verify(channelSession, times(1)).findLatestMavenArtifactVersion(any(), any(), any(), any(), any());
+        assertEquals(2, updates.getArtifactUpdates().size());
+        assertEquals("1.0.1", updates.getArtifactUpdates().get(0).getNewVersion().get());
+        assertEquals("1.0.1", updates.getArtifactUpdates().get(1).getNewVersion().get());
+        assertEquals("test-channel", updates.getArtifactUpdates().get(1).getChannelName().orElse(null));
+    }
+
+    @Test
+    public void versionsOfClassifiersAreListedOncePerGa() throws Exception {
+        final Path manifestFile = temp.newFile("manifest.yaml").toPath();
+        Files.writeString(manifestFile, ChannelManifestMapper.toYaml(new ChannelManifest(null, null, null,
+                List.of(new Stream("org.foo", "bar", Pattern.compile(".*"))))));
+        final Channel channel = new Channel.Builder()
+                .setName("test-channel")
+                .setManifestUrl(manifestFile.toUri().toURL())
+                .addRepository("test", "file:test")
+                .build();
+        final MavenVersionsResolver resolver = mock(MavenVersionsResolver.class);
+        when(resolver.resolveChannelMetadata(any())).thenReturn(List.of(manifestFile.toUri().toURL()));
+        when(resolver.getAllVersions(eq("org.foo"), eq("bar"), any(), any())).thenAnswer(inv -> new HashSet<>(Set.of("1.0.0", "1.0.1")));
+        final MavenVersionsResolver.Factory factory = mock(MavenVersionsResolver.Factory.class);
+        when(factory.create(any())).thenReturn(resolver);
+
+        try (ChannelSession session = new ChannelSession(List.of(channel), factory);
+             UpdateFinder finder = new UpdateFinder(session)) {
+            final UpdateSet updates = finder.findUpdates(List.of(
+                    new DefaultArtifact("org.foo", "bar", "jar", "1.0.0"),
+                    new DefaultArtifact("org.foo", "bar", "sources", "jar", "1.0.0")));
+
+            assertEquals(2, updates.getArtifactUpdates().size());
+            assertEquals("1.0.1", updates.getArtifactUpdates().get(1).getNewVersion().get());
+        }
+        verify(resolver, times(1)).getAllVersions(any(), any(), any(), any());
+    }
+
+    @Test
+    public void artifactsWithOtherClassifiersAreLookedUpIfGaLookupFails() throws Exception {
+        when(channelSession.findLatestMavenArtifactVersion("org.foo", "bar", "jar", "sources", null))
+                .thenThrow(new ArtifactTransferException("Exception", Collections.emptySet(), Collections.emptySet()));
+        when(channelSession.findLatestMavenArtifactVersion("org.foo", "bar", "jar", "", null))
+                .thenReturn(new VersionResult("1.0.1", "test-channel"));
+
+        UpdateFinder finder = new UpdateFinder(channelSession);
+        final List<Artifact> artifacts = Arrays.asList(
+                new DefaultArtifact("org.foo", "bar", "sources", "jar", "1.0.0"),
+                new DefaultArtifact("org.foo", "bar", "jar", "1.0.0")
+        );
+        final UpdateSet updates = finder.findUpdates(artifacts);
+
+        assertEquals(2, updates.getArtifactUpdates().size());
+        assertTrue(updates.getArtifactUpdates().get(0).isRemoved());
+        assertTrue(updates.getArtifactUpdates().get(1).isUpdated());
+        assertEquals("1.0.1", updates.getArtifactUpdates().get(1).getNewVersion().get());
+    }
+
+    @Test
+    public void concurrentLookupsAreLimitedByParallelism() throws Exception {
+        assertMaxConcurrentLookups(false);
+    }
+
+    @Test
+    public void concurrentLookupsAreLimitedByParallelismWithVirtualThreads() throws Exception {
+        // falls back to the thread pool if virtual threads are not available
+        assertMaxConcurrentLookups(true);
+    }
+
+    private void assertMaxConcurrentLookups(boolean useVirtualThreads) throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        when(channelSession.findLatestMavenArtifactVersion(eq("org.foo"), anyString(), eq("jar"), eq(""), isNull()))
+                .thenAnswer(inv -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    running.decrementAndGet();
+                    return new VersionResult("1.0.1", null);
+                });
+
+        final List<Artifact> artifacts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            artifacts.add(new DefaultArtifact("org.foo", "bar" + i, "jar", "1.0.0"));
+        }
+
+        try (UpdateFinder finder = new UpdateFinder(channelSession, 3, useVirtualThreads)) {
+            final UpdateSet updates = finder.findUpdates(artifacts);
+
+            assertEquals(20, updates.getArtifactUpdates().size());
+        }
+        assertTrue("Expected at most 3 concurrent lookups, but was " + maxRunning.get(), maxRunning.get() <= 3);
+    }
+}
@@ -17,6 +17,8 @@
 
 package org.wildfly.prospero.wfchannel;
 
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
 import org.junit.Test;
 import org.wildfly.prospero.api.MavenOptions;
 
@@ -45,4 +47,120 @@ public class MavenSessionManagerTest {
 
         assertEquals(MavenSessionManager.LOCAL_MAVEN_REPO, msm.getProvisioningRepo());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void metadataTtlOverridesUpdatePolicy() throws Exception {
+        System.setProperty(MavenSessionManager.METADATA_TTL_PROPERTY, "60");
+        try {
+            final MavenSessionManager msm = new MavenSessionManager(MavenOptions.builder().setNoLocalCache(false).build());
+
+            assertEquals("interval:60", msm.newRepositorySystemSession(msm.newRepositorySystem()).getUpdatePolicy());
+        } finally {
+            System.clearProperty(MavenSessionManager.METADATA_TTL_PROPERTY);
+        }
+    }
+
+    @Test
+    public void noUpdatePolicyOverrideByDefault() throws Exception {
+        final MavenSessionManager msm = new MavenSessionManager(MavenOptions.builder().setNoLocalCache(false).build());
+
+        assertNull(msm.newRepositorySystemSession(msm.newRepositorySystem()).getUpdatePolicy());
+    }
+
+    @Test
+    public void sessionsShareRepositorySystemAndCache() throws Exception {
+        final MavenSessionManager msm = new MavenSessionManager(MavenOptions.builder().setNoLocalCache(false).build());
+        final RepositorySystem system = msm.newRepositorySystem();
+
+        final DefaultRepositorySystemSession first = msm.newRepositorySystemSession(system);
+        final DefaultRepositorySystemSession second = msm.newRepositorySystemSession(msm.newRepositorySystem());
+
+        assertSame(system, msm.newRepositorySystem());
+        assertSame(system, new MavenSessionManager(msm).newRepositorySystem());
+        assertNotNull(first.getCache());
+        assertSame(first.getCache(), second.getCache());
+        assertNotSame(first.getData(), second.getData());
+    }
+
+    @Test
+    public void sessionOptionsAreNotSharedBetweenSessions() throws Exception {
+        final MavenSessionManager msm = new MavenSessionManager(MavenOptions.builder().setNoLocalCache(false).build());
+        final RepositorySystem system = msm.newRepositorySystem();
+
+        final DefaultRepositorySystemSession first = msm.newRepositorySystemSession(system);
+        first.setConfigProperty("test.property", "value");
+        msm.setOffline(true);
+        final DefaultRepositorySystemSession second = msm.newRepositorySystemSession(system);
+
+        assertNull(second.getConfigProperties().get("test.property"));
+        assertFalse(first.isOffline());
+        assertTrue(second.isOffline());
+        assertEquals(MavenSessionManager.AETHER_OFFLINE_PROTOCOLS_VALUE, second.getConfigProperties().get("aether.offline.protocols"));
+    }
+
+    @Test
+    public void closeRemovesTemporaryRepository() throws Exception {
+        final MavenSessionManager msm = new MavenSessionManager(MavenOptions.builder().setNoLocalCache(true).build());
+        final Path repo = msm.getProvisioningRepo();
+        assertTrue(Files.isDirectory(repo));
+
+        new MavenSessionManager(msm).close();
+        assertTrue("Closing a copy should not remove the repository", Files.isDirectory(repo));
+
+        msm.close();
+        assertFalse(Files.exists(repo));
+    }
+
+    @Test
+    public void closeTemporaryRepositoriesRemovesAllOpenRepositories() throws Exception {
+        final MavenSessionManager first = new MavenSessionManager(MavenOptions.builder().setNoLocalCache(true).build());
+        final MavenSessionManager second = new MavenSessionManager(MavenOptions.builder().setNoLocalCache(true).build());
+
+        MavenSessionManager.closeTemporaryRepositories();
+
+        assertFalse(Files.exists(first.getProvisioningRepo()));
+        assertFalse(Files.exists(second.getProvisioningRepo()));
+    }
+
+    @Test
+    public void retainedManagersAreSharedUntilClosed() throws Exception {
+        final MavenOptions options = MavenOptions.builder().setNoLocalCache(true).build();
+        MavenSessionManager.retainManagers();
+        final MavenSessionManager first;
+        final MavenSessionManager second;
+        try {
+            first = new MavenSessionManager(options);
+            second = new MavenSessionManager(options);
+            final MavenSessionManager other = new MavenSessionManager(MavenOptions.builder().setNoLocalCache(true).setOffline(true).build());
+
+            assertSame(first.newRepositorySystem(), second.newRepositorySystem());
+            assertEquals(first.getProvisioningRepo(), second.getProvisioningRepo());
+            assertNotEquals(first.getProvisioningRepo(), other.getProvisioningRepo());
+
+            first.close();
+            MavenSessionManager.closeTemporaryRepositories();
+            assertTrue(Files.exists(second.getProvisioningRepo()));
+        } finally {
+            MavenSessionManager.closeRetainedManagers();
+        }
+
+        assertFalse(Files.exists(second.getProvisioningRepo()));
+        try (MavenSessionManager msm = new MavenSessionManager(options)) {
+            assertNotSame(first.newRepositorySystem(), msm.newRepositorySystem());
+        }
+    }
+
+    @Test
+    public void closeKeepsPersistentRepository() throws Exception {
+        final Path repo = Files.createTempDirectory("test-repo");
+        try {
+            final MavenSessionManager msm = new MavenSessionManager(MavenOptions.builder().setNoLocalCache(false).setLocalCachePath(repo).build());
+
+            msm.close();
+
+            assertTrue(Files.isDirectory(repo));
+        } finally {
+            Files.delete(repo);
+        }
+    }
+}
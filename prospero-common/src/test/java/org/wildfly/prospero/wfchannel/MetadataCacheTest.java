@@ -0,0 +1,98 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.wfchannel;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetadataCacheTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path cacheDir;
+    private Path localRepo;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDir = temp.newFolder("cache").toPath();
+        localRepo = temp.newFolder("repo").toPath();
+    }
+
+    @Test
+    public void storeOnlyMetadataFiles() throws Exception {
+        final Path artifactDir = Files.createDirectories(localRepo.resolve("org/foo/bar"));
+        Files.writeString(artifactDir.resolve("maven-metadata-central.xml"), "<metadata/>");
+        Files.writeString(artifactDir.resolve(MetadataCache.RESOLVER_STATUS_FILE), "status");
+        Files.createDirectories(artifactDir.resolve("1.0.0"));
+        Files.writeString(artifactDir.resolve("1.0.0/bar-1.0.0.jar"), "jar");
+
+        new MetadataCache(cacheDir).store(localRepo);
+
+        assertThat(cacheDir.resolve("org/foo/bar/maven-metadata-central.xml")).hasContent("<metadata/>");
+        assertThat(cacheDir.resolve("org/foo/bar").resolve(MetadataCache.RESOLVER_STATUS_FILE)).hasContent("status");
+        assertThat(cacheDir.resolve("org/foo/bar/1.0.0/bar-1.0.0.jar")).doesNotExist();
+    }
+
+    @Test
+    public void restoreCachedMetadata() throws Exception {
+        final Path artifactDir = Files.createDirectories(cacheDir.resolve("org/foo/bar"));
+        Files.writeString(artifactDir.resolve("maven-metadata-central.xml"), "<metadata/>");
+
+        new MetadataCache(cacheDir).restore(localRepo);
+
+        assertThat(localRepo.resolve("org/foo/bar/maven-metadata-central.xml")).hasContent("<metadata/>");
+    }
+
+    @Test
+    public void storeReplacesCachedMetadataWithoutLeavingTemporaryFiles() throws Exception {
+        final Path cachedDir = Files.createDirectories(cacheDir.resolve("org/foo/bar"));
+        Files.writeString(cachedDir.resolve("maven-metadata-central.xml"), "<old/>");
+        // left over by an interrupted process
+        Files.writeString(cachedDir.resolve(".maven-metadata-central.xml123.tmp"), "<partial");
+        final Path artifactDir = Files.createDirectories(localRepo.resolve("org/foo/bar"));
+        Files.writeString(artifactDir.resolve("maven-metadata-central.xml"), "<metadata/>");
+
+        new MetadataCache(cacheDir).store(localRepo);
+
+        assertThat(cachedDir.resolve("maven-metadata-central.xml")).hasContent("<metadata/>");
+        try (Stream<Path> files = Files.list(cachedDir)) {
+            assertThat(files.map(p -> p.getFileName().toString()))
+                    .containsExactlyInAnyOrder("maven-metadata-central.xml", ".maven-metadata-central.xml123.tmp");
+        }
+
+        new MetadataCache(cacheDir).restore(localRepo);
+
+        assertThat(localRepo.resolve("org/foo/bar/.maven-metadata-central.xml123.tmp")).doesNotExist();
+    }
+
+    @Test
+    public void restoreFromNonExistingCacheIsIgnored() throws Exception {
+        new MetadataCache(cacheDir.resolve("idontexist")).restore(localRepo);
+
+        assertThat(localRepo).isEmptyDirectory();
+    }
+}
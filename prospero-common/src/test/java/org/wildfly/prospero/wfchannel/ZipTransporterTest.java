@@ -0,0 +1,138 @@
+/*
+ * Copyright 2024 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.prospero.wfchannel;
+
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+import org.eclipse.aether.spi.connector.transport.PeekTask;
+import org.eclipse.aether.spi.connector.transport.Transporter;
+import org.eclipse.aether.transfer.NoTransporterException;
+import org.jboss.galleon.util.ZipUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wildfly.prospero.api.MavenOptions;
+
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ZipTransporterTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private MavenSessionManager msm;
+    private RepositorySystem system;
+    private DefaultRepositorySystemSession session;
+    private RemoteRepository repository;
+
+    @After
+    public void tearDown() {
+        msm.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        final Path content = temp.newFolder("content").toPath();
+        final Path artifactDir = Files.createDirectories(content.resolve("test repo/maven-repository/org/foo/bar/1.0.0"));
+        Files.writeString(artifactDir.resolve("bar-1.0.0.jar"), "jar content");
+        final Path archive = temp.getRoot().toPath().resolve("repository.zip");
+        ZipUtils.zip(content, archive);
+
+        // offline session - the archive should be usable without network access
+        msm = new MavenSessionManager(MavenOptions.OFFLINE_NO_CACHE);
+        system = msm.newRepositorySystem();
+        session = msm.newRepositorySystemSession(system);
+        repository = new RemoteRepository.Builder("test", "default",
+                "jar:" + archive.toUri() + "!/test%20repo/maven-repository/").build();
+    }
+
+    @Test
+    public void resolveArtifactFromArchive() throws Exception {
+        final ArtifactResult result = system.resolveArtifact(session, new ArtifactRequest(
+                new DefaultArtifact("org.foo", "bar", "jar", "1.0.0"), List.of(repository), null));
+
+        assertThat(result.getArtifact().getFile()).hasContent("jar content");
+    }
+
+    @Test
+    public void missingArtifactIsNotFound() throws Exception {
+        assertThatThrownBy(() -> system.resolveArtifact(session, new ArtifactRequest(
+                new DefaultArtifact("org.foo", "bar", "jar", "2.0.0"), List.of(repository), null)))
+                .isInstanceOf(ArtifactResolutionException.class)
+                .hasMessageContaining("Could not find artifact org.foo:bar:jar:2.0.0");
+    }
+
+    @Test
+    public void transportersOfOneSessionShareArchive() throws Exception {
+        final ZipTransporterFactory factory = new ZipTransporterFactory();
+        final Transporter first = factory.newInstance(session, repository);
+        final Transporter second = factory.newInstance(msm.newRepositorySystemSession(system), repository);
+
+        assertThat(fileSystem(first)).isSameAs(fileSystem(second));
+
+        // the archive is kept open after the transporters are closed, until the session manager is closed
+        first.close();
+        second.close();
+        assertThat(fileSystem(first).isOpen()).isTrue();
+
+        msm.close();
+        assertThat(fileSystem(first).isOpen()).isFalse();
+        assertThatThrownBy(() -> factory.newInstance(session, repository))
+                .isInstanceOf(NoTransporterException.class);
+    }
+
+    @Test
+    public void archiveIsClosedWhenLastTransporterIsClosed() throws Exception {
+        final Transporter transporter = new ZipTransporterFactory().newInstance(session, repository);
+
+        msm.close();
+        assertThat(fileSystem(transporter).isOpen()).isTrue();
+        transporter.peek(new PeekTask(URI.create("org/foo/bar/1.0.0/bar-1.0.0.jar")));
+
+        transporter.close();
+        assertThat(fileSystem(transporter).isOpen()).isFalse();
+    }
+
+    @Test
+    public void sessionWithoutCacheUsesOwnArchive() throws Exception {
+        final DefaultRepositorySystemSession uncached = new DefaultRepositorySystemSession(session);
+        uncached.setCache(null);
+        final Transporter transporter = new ZipTransporterFactory().newInstance(uncached, repository);
+
+        transporter.close();
+        assertThat(fileSystem(transporter).isOpen()).isFalse();
+    }
+
+    private static FileSystem fileSystem(Transporter transporter) {
+        return ((ZipTransporter) transporter).getFileSystem();
+    }
+}